@@ -0,0 +1,90 @@
+package org.zzzyxwvut.readywriter.bench;
+
+import java.io.File;
+import java.lang.module.FindException;
+import java.lang.module.ModuleFinder;
+import java.lang.module.ModuleReference;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class runs JMH benchmarks in JVMs whose module path has every
+ * explicit {@code org.zzzyxwvut} module of the class path.
+ * <p>
+ * (Service providers are only located in named modules; when found on
+ * the module path, the packages of these modules shall not be loaded from
+ * the class path. Benchmarks run without forking, {@code -f 0}, shall fail
+ * to locate any providers.)
+ */
+public final class BenchmarkLauncher
+{
+	private static final String MODULE_PREFIX = "org.zzzyxwvut.";
+
+	private BenchmarkLauncher() { /* No instantiation. */ }
+
+	private static Stream<ModuleReference> modules(Path path)
+	{
+		try {
+			return ModuleFinder.of(path)
+				.findAll()
+				.stream()
+				.filter(reference -> !reference.descriptor()
+							.isAutomatic())
+				.filter(reference -> reference.descriptor()
+							.name()
+							.startsWith(MODULE_PREFIX));
+		} catch (final FindException ignored) {
+			return Stream.empty();
+		}
+	}
+
+	/**
+	 * Runs benchmarks.
+	 *
+	 * @param args JMH command-line options
+	 * @throws CommandLineOptionException if the options cannot be parsed
+	 * @throws RunnerException if benchmarks cannot be run
+	 */
+	public static void main(String[] args) throws
+				CommandLineOptionException, RunnerException
+	{
+		final Map<String, String> modules = Arrays.stream(
+				System.getProperty("java.class.path", "")
+					.split(File.pathSeparator))
+			.filter(entry -> !entry.isEmpty())
+			.map(Path::of)
+			.flatMap(BenchmarkLauncher::modules)
+			.collect(Collectors.toMap(
+				reference -> reference.descriptor().name(),
+				reference -> reference.location()
+					.map(Path::of)
+					.map(Path::toString)
+					.orElseThrow(IllegalStateException::new),
+				(location, ignored) -> location,
+				TreeMap::new));
+
+		if (modules.isEmpty())
+			throw new IllegalStateException(
+				"No modules on the class path");
+
+		new Runner(new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.jvmArgsAppend("--module-path",
+					String.join(File.pathSeparator,
+						modules.values()),
+					"--add-modules",
+					String.join(",", modules.keySet()))
+				.build())
+			.run();
+	}
+}
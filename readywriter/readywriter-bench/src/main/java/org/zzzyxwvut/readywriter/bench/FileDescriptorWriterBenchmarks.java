@@ -0,0 +1,197 @@
+package org.zzzyxwvut.readywriter.bench;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.zzzyxwvut.readywriter.ReadyWriter;
+import org.zzzyxwvut.readywriter.service.FileDescriptorWriterVisitor;
+import org.zzzyxwvut.readywriter.service.Lookup;
+
+/**
+ * Benchmarks of writing to the standard output file descriptor, to a file
+ * descriptor of {@code /dev/null} and to a file descriptor of a file, for
+ * a few message sizes, by 1 and 4 threads.
+ * <p>
+ * (A file descriptor greater than 2 is opened by a benchmark and its number
+ * is looked up in {@code /proc/self/fd}; hence, such benchmarks shall only
+ * be run on Linux.)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileDescriptorWriterBenchmarks
+{
+	private static final Path PROC_SELF_FD = Path.of("/proc/self/fd");
+
+	/** The sink of a file descriptor. */
+	@Param({ "STDOUT", "DEV_NULL", "FILE" })
+	public Sink sink;
+
+	/** The size of a message, in bytes. */
+	@Param({ "16", "256", "4096" })
+	public int size;
+
+	private Path directory;
+	private FileOutputStream stream;
+	private ReadyWriter writer;
+	private String message;
+
+	private static boolean links(Path fd, Path target)
+	{
+		try {
+			return target.equals(Files.readSymbolicLink(fd));
+		} catch (final IOException ignored) {
+			return false;	/* Closed meanwhile, e.g. of Files.list. */
+		}
+	}
+
+	private static Set<String> fdNumbers(Path target) throws IOException
+	{
+		try (Stream<Path> paths = Files.list(PROC_SELF_FD)) {
+			return paths.filter(fd -> links(fd, target))
+				.map(Path::getFileName)
+				.map(Path::toString)
+				.collect(Collectors.toUnmodifiableSet());
+		}
+	}
+
+	private static int fdNumber(Set<String> oldFdNumbers, Path target)
+							throws IOException
+	{
+		return fdNumbers(target)
+			.stream()
+			.filter(fdNumber -> !oldFdNumbers.contains(fdNumber))
+			.mapToInt(Integer::parseInt)
+			.findAny()
+			.orElseThrow(() -> new IllegalStateException(
+				String.format("No file descriptor for %s",
+								target)));
+	}
+
+	private FileDescriptorWriterVisitor open(Path target)
+							throws IOException
+	{
+		final Set<String> oldFdNumbers = fdNumbers(target);
+		stream = new FileOutputStream(target.toFile(), true);
+		return new FileDescriptorWriterVisitor(
+					fdNumber(oldFdNumbers, target),
+					Pattern.compile(Pattern.quote(target
+						.getFileName()
+						.toString())),
+					StandardCharsets.UTF_8,
+					ByteOrder.BIG_ENDIAN);
+	}
+
+	/**
+	 * Opens a file descriptor, when necessary, and obtains a service
+	 * provider.
+	 *
+	 * @throws IOException if an I/O error occurs
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		final FileDescriptorWriterVisitor visitor;
+
+		switch (sink) {
+		case DEV_NULL:
+			visitor = open(Path.of("/dev/null"));
+			break;
+		case FILE:
+			directory = Files.createTempDirectory("jrw_bench")
+				.toRealPath();
+			visitor = open(directory.resolve("messages.msg"));
+			break;
+		default:
+			visitor = new FileDescriptorWriterVisitor(1);
+			break;
+		}
+
+		writer = Support.located(Lookup.readyWriter(visitor));
+		message = Support.message(size);
+	}
+
+	/**
+	 * Truncates the written file, if any.
+	 *
+	 * @throws IOException if an I/O error occurs
+	 */
+	@TearDown(Level.Iteration)
+	public void tearDownIteration() throws IOException
+	{
+		if (directory != null)
+			stream.getChannel().truncate(0L);
+	}
+
+	/**
+	 * Closes the service provider and any opened file descriptor.
+	 *
+	 * @throws IOException if an I/O error occurs
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		writer.close();
+
+		if (stream != null)
+			stream.close();
+
+		if (directory != null)
+			Support.delete(directory);
+	}
+
+	/** Writes a message. */
+	@Benchmark
+	@Threads(1)
+	public void write01()			{ writer.write(message); }
+
+	/** Writes a message. */
+	@Benchmark
+	@Threads(4)
+	public void write04()			{ writer.write(message); }
+
+	/** Writes a message and forces it. */
+	@Benchmark
+	@Threads(1)
+	public void writeAndForce01()		{ writer.writeAndForce(message); }
+
+	/** This enumeration specifies sinks of file descriptors. */
+	public enum Sink
+	{
+		/** The standard output. */
+		STDOUT,
+
+		/** The {@code /dev/null} device. */
+		DEV_NULL,
+
+		/** A regular file. */
+		FILE
+	}
+}
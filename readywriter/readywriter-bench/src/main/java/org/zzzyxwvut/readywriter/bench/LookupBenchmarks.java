@@ -0,0 +1,118 @@
+package org.zzzyxwvut.readywriter.bench;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.zzzyxwvut.readywriter.ReadyWriter.Kind;
+import org.zzzyxwvut.readywriter.ReadyWriter;
+import org.zzzyxwvut.readywriter.service.Lookup.DefaultVisitor;
+import org.zzzyxwvut.readywriter.service.Lookup;
+import org.zzzyxwvut.readywriter.service.PathWriterVisitor;
+
+/**
+ * Benchmarks of looking up service providers and their names, with and
+ * without the cache of located providers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmarks
+{
+	private static final String PATH_WRITER_NAME =
+				"org.zzzyxwvut.readywriter.PathWriterProvider";
+
+	private final DefaultVisitor kindVisitor = new DefaultVisitor(
+								Kind.PATH);
+	private final PathWriterVisitor pathVisitor = new PathWriterVisitor(
+								null, true);
+
+	/**
+	 * Lists the names of providers.
+	 *
+	 * @return the names of providers
+	 */
+	@Benchmark
+	public List<String> names()		{ return Lookup.names(); }
+
+	/**
+	 * Lists the names of providers, locating them anew.
+	 *
+	 * @return the names of providers
+	 */
+	@Benchmark
+	public List<String> namesUncached()
+	{
+		Lookup.invalidate();
+		return Lookup.names();
+	}
+
+	/**
+	 * Looks up the first provider.
+	 *
+	 * @return an optional with a provider
+	 */
+	@Benchmark
+	public Optional<ReadyWriter> readyWriter()
+	{
+		return Lookup.readyWriter(null);
+	}
+
+	/**
+	 * Looks up a provider by kind.
+	 *
+	 * @return an optional with a provider
+	 */
+	@Benchmark
+	public Optional<ReadyWriter> readyWriterOfKind()
+	{
+		return Lookup.readyWriter(kindVisitor);
+	}
+
+	/**
+	 * Looks up a provider by kind, locating providers anew.
+	 *
+	 * @return an optional with a provider
+	 */
+	@Benchmark
+	public Optional<ReadyWriter> readyWriterOfKindUncached()
+	{
+		Lookup.invalidate();
+		return Lookup.readyWriter(kindVisitor);
+	}
+
+	/**
+	 * Looks up a provider by name.
+	 *
+	 * @return an optional with a provider
+	 */
+	@Benchmark
+	public Optional<ReadyWriter> readyWriterOfName()
+	{
+		return Lookup.readyWriter(PATH_WRITER_NAME, null);
+	}
+
+	/**
+	 * Looks up a provider and reconfigures it.
+	 *
+	 * @return an optional with a provider
+	 */
+	@Benchmark
+	public Optional<ReadyWriter> readyWriterReconfigured()
+	{
+		return Lookup.readyWriter(pathVisitor);
+	}
+}
@@ -0,0 +1,190 @@
+package org.zzzyxwvut.readywriter.bench;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.zzzyxwvut.readywriter.ReadyWriter;
+import org.zzzyxwvut.readywriter.service.Lookup;
+import org.zzzyxwvut.readywriter.service.PathWriterVisitor;
+
+/**
+ * Benchmarks of writing to a path, in the append and truncate modes, with
+ * and without keeping a file open (and locked), for a few message sizes, by
+ * 1, 4, 16 and 64 threads.
+ * <p>
+ * (The file is deleted after every iteration.)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathWriterBenchmarks
+{
+	/** Whether to write to the end of a file or its beginning. */
+	@Param({ "APPEND", "TRUNCATE" })
+	public Placement placement;
+
+	/** Whether to keep a file open (and locked) between writes. */
+	@Param({ "TRANSIENT", "PERSISTENT", "EXCLUSIVE",
+						"PREALLOCATED", "DIRECT" })
+	public Channeling channeling;
+
+	/** The size of a message, in bytes. */
+	@Param({ "16", "256", "4096" })
+	public int size;
+
+	private Path directory;
+	private Path path;
+	private ReadyWriter writer;
+	private String message;
+
+	/**
+	 * Obtains a service provider.
+	 *
+	 * @throws IOException if an I/O error occurs
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		directory = Files.createTempDirectory("jrw_bench");
+		path = directory.resolve("messages.msg");
+		writer = Support.located(Lookup.readyWriter(
+				new PathWriterVisitor(path,
+					placement == Placement.APPEND,
+					StandardCharsets.UTF_8,
+					ByteOrder.BIG_ENDIAN,
+					channeling.options)
+				.withPreallocation(channeling.preallocation)));
+		message = Support.message(size);
+	}
+
+	/**
+	 * Deletes the written file.
+	 *
+	 * @throws IOException if an I/O error occurs
+	 */
+	@TearDown(Level.Iteration)
+	public void tearDownIteration() throws IOException
+	{
+		Files.deleteIfExists(path);
+	}
+
+	/**
+	 * Closes the service provider.
+	 *
+	 * @throws IOException if an I/O error occurs
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		writer.close();
+		Support.delete(directory);
+	}
+
+	/** Writes a message. */
+	@Benchmark
+	@Threads(1)
+	public void write01()			{ writer.write(message); }
+
+	/** Writes a message. */
+	@Benchmark
+	@Threads(4)
+	public void write04()			{ writer.write(message); }
+
+	/** Writes a message. */
+	@Benchmark
+	@Threads(16)
+	public void write16()			{ writer.write(message); }
+
+	/** Writes a message. */
+	@Benchmark
+	@Threads(64)
+	public void write64()			{ writer.write(message); }
+
+	/** Writes a message and forces it. */
+	@Benchmark
+	@Threads(1)
+	public void writeAndForce01()		{ writer.writeAndForce(message); }
+
+	/** Writes a message and forces it. */
+	@Benchmark
+	@Threads(4)
+	public void writeAndForce04()		{ writer.writeAndForce(message); }
+
+	/** Writes a message and forces it. */
+	@Benchmark
+	@Threads(16)
+	public void writeAndForce16()		{ writer.writeAndForce(message); }
+
+	/** Writes a message and forces it. */
+	@Benchmark
+	@Threads(64)
+	public void writeAndForce64()		{ writer.writeAndForce(message); }
+
+	/** This enumeration specifies where messages are written. */
+	public enum Placement
+	{
+		/** To the end of a file. */
+		APPEND,
+
+		/** To the beginning of a file. */
+		TRUNCATE
+	}
+
+	/** This enumeration specifies how a file is kept. */
+	public enum Channeling
+	{
+		/** Opened and closed for every write. */
+		TRANSIENT(Set.of()),
+
+		/** Kept open between writes. */
+		PERSISTENT(Set.of(PathWriterVisitor.Option.PERSISTENT)),
+
+		/** Kept open and locked between writes. */
+		EXCLUSIVE(Set.of(PathWriterVisitor.Option.EXCLUSIVE)),
+
+		/** Kept open and locked between writes, extended in chunks. */
+		PREALLOCATED(Set.of(PathWriterVisitor.Option.EXCLUSIVE),
+				new PathWriterVisitor.Preallocation(1L << 20)),
+
+		/** Kept open and locked between writes, bypassing the cache. */
+		DIRECT(Set.of(PathWriterVisitor.Option.DIRECT));
+
+		private final Set<PathWriterVisitor.Option> options;
+		private final PathWriterVisitor.Preallocation preallocation;
+
+		Channeling(Set<PathWriterVisitor.Option> options,
+				PathWriterVisitor.Preallocation preallocation)
+		{
+			this.options = options;
+			this.preallocation = preallocation;
+		}
+
+		Channeling(Set<PathWriterVisitor.Option> options)
+		{
+			this(options, null);
+		}
+	}
+}
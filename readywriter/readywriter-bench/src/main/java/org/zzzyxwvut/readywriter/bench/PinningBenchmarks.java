@@ -0,0 +1,174 @@
+package org.zzzyxwvut.readywriter.bench;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.zzzyxwvut.readywriter.ReadyWriter;
+import org.zzzyxwvut.readywriter.service.AsyncReadyWriter;
+import org.zzzyxwvut.readywriter.service.Lookup;
+import org.zzzyxwvut.readywriter.service.PathWriterVisitor;
+
+/**
+ * Benchmarks of writing to a path by 64 virtual threads at once, directly or
+ * through an asynchronous writer whose drainer is a virtual thread as well.
+ * <p>
+ * A flight recording of {@code jdk.VirtualThreadPinned} events of any
+ * duration is taken for every trial, and the number of recorded events is
+ * printed when the trial is over; no carrier thread shall be found pinned.
+ * <p>
+ * (Platform threads are used in place of virtual threads for Java versions
+ * before 21, and then nothing can be recorded.)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PinningBenchmarks
+{
+	private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+	private static final int TASKS = 64;
+
+	/** Whether to write directly or through an asynchronous writer. */
+	@Param({ "DIRECT", "ASYNC" })
+	public Dispatch dispatch;
+
+	/** The size of a message, in bytes. */
+	@Param({ "256" })
+	public int size;
+
+	private final Thread[] tasks = new Thread[TASKS];
+	private Path directory;
+	private Path path;
+	private ThreadFactory threadFactory;
+	private Recording recording;
+	private ReadyWriter writer;
+	private String message;
+
+	/**
+	 * Obtains a service provider and starts a flight recording.
+	 *
+	 * @throws IOException if an I/O error occurs
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		directory = Files.createTempDirectory("jrw_bench");
+		path = directory.resolve("messages.msg");
+		threadFactory = AsyncReadyWriter.virtualThreadFactory()
+			.orElseGet(() -> runnable -> {
+				final Thread thread = new Thread(runnable);
+				thread.setDaemon(true);
+				return thread;
+			});
+		final ReadyWriter pathWriter = Support.located(
+				Lookup.readyWriter(new PathWriterVisitor(path,
+					true,
+					StandardCharsets.UTF_8,
+					ByteOrder.BIG_ENDIAN,
+					Set.of(PathWriterVisitor.Option
+							.PERSISTENT))));
+		writer = (dispatch == Dispatch.ASYNC)
+			? new AsyncReadyWriter(pathWriter, 1024,
+					AsyncReadyWriter.Overflow.BLOCK,
+					threadFactory)
+			: pathWriter;
+		message = Support.message(size);
+		recording = new Recording();
+		recording.enable(PINNED_EVENT)
+			.withThreshold(Duration.ZERO)
+			.withStackTrace();
+		recording.start();
+	}
+
+	/**
+	 * Deletes the written file.
+	 *
+	 * @throws IOException if an I/O error occurs
+	 */
+	@TearDown(Level.Iteration)
+	public void tearDownIteration() throws IOException
+	{
+		Files.deleteIfExists(path);
+	}
+
+	/**
+	 * Stops the flight recording, prints the number of recorded events,
+	 * and closes the service provider.
+	 *
+	 * @throws IOException if an I/O error occurs
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		try {
+			recording.stop();
+			final Path dump = directory.resolve("pinning.jfr");
+			recording.dump(dump);
+			System.out.printf("%n%s: %d%n", PINNED_EVENT,
+				RecordingFile.readAllEvents(dump)
+					.stream()
+					.filter(event -> PINNED_EVENT.equals(
+						event.getEventType()
+							.getName()))
+					.count());
+		} finally {
+			recording.close();
+			writer.close();
+			Support.delete(directory);
+		}
+	}
+
+	/**
+	 * Writes a message and forces it by every task at once.
+	 *
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	@Benchmark
+	public void writeAndForce() throws InterruptedException
+	{
+		for (int i = 0; i < TASKS; ++i) {
+			tasks[i] = threadFactory.newThread(() ->
+					writer.writeAndForce(message));
+			tasks[i].start();
+		}
+
+		for (final Thread task : tasks)
+			task.join();
+	}
+
+	/** This enumeration specifies how messages are dispatched. */
+	public enum Dispatch
+	{
+		/** By writing tasks themselves. */
+		DIRECT,
+
+		/** By the drainer thread of an asynchronous writer. */
+		ASYNC
+	}
+}
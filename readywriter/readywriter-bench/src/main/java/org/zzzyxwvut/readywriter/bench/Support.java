@@ -0,0 +1,67 @@
+package org.zzzyxwvut.readywriter.bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.zzzyxwvut.readywriter.ReadyWriter;
+
+/** This class lends benchmark-related support. */
+final class Support
+{
+	private Support() { /* No instantiation. */ }
+
+	/**
+	 * Returns a message of the specified size, in bytes of the UTF-8
+	 * character set, that ends with a line feed.
+	 *
+	 * @param size the size of a message
+	 * @return a message
+	 * @throws IllegalArgumentException if the size is less than 1
+	 */
+	static String message(int size)
+	{
+		if (size < 1)
+			throw new IllegalArgumentException(String.format(
+						"Size: %d", size));
+
+		return "x".repeat(size - 1).concat("\n");
+	}
+
+	/**
+	 * Returns the located service provider, failing when none is found.
+	 *
+	 * @param writer an optional with a service provider
+	 * @return a service provider
+	 * @throws IllegalStateException if no service provider is found
+	 */
+	static ReadyWriter located(Optional<ReadyWriter> writer)
+	{
+		return writer.orElseThrow(() -> new IllegalStateException(
+			"No provider found, see BenchmarkLauncher"));
+	}
+
+	/**
+	 * Deletes a directory along with its files.
+	 *
+	 * @param directory a directory
+	 * @throws IOException if an I/O error occurs
+	 */
+	static void delete(Path directory) throws IOException
+	{
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder())
+				.forEach(path -> {
+					try {
+						Files.deleteIfExists(path);
+					} catch (final IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+		}
+	}
+}
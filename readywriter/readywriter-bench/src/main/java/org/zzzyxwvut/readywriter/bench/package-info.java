@@ -0,0 +1,20 @@
+/**
+ * Provides JMH benchmarks of {@code ReadyWriter} providers.
+ * <p>
+ * The benchmarks shall be run with {@link BenchmarkLauncher}, which puts
+ * the service and provider modules on the module path of forked JVMs, so
+ * that providers can be located with
+ * {@link org.zzzyxwvut.readywriter.service.Lookup}:<pre>
+ *	<code>mvn -P bench package
+ *	cd readywriter-bench
+ *	java -cp "target/classes:$(cat target/classpath.txt)" \
+ *		org.zzzyxwvut.readywriter.bench.BenchmarkLauncher \
+ *		-prof gc -rf json PathWriterBenchmarks.write</code></pre>
+ * <p>
+ * Any JMH command-line options can be passed; e.g. {@code -prof gc} reports
+ * the allocation rate per operation ({@code gc.alloc.rate.norm}), and
+ * {@code -p size=256} narrows down a parameter. The output of the standard
+ * output file descriptor benchmarks is best discarded with
+ * {@code -o /dev/null} along with {@code -rf json}.
+ */
+package org.zzzyxwvut.readywriter.bench;
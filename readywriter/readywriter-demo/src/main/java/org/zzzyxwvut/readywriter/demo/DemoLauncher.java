@@ -8,11 +8,10 @@ import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.zzzyxwvut.readywriter.ReadyWriter.Kind;
-import org.zzzyxwvut.readywriter.ReadyWriter.Visitor;
 import org.zzzyxwvut.readywriter.ReadyWriter;
+import org.zzzyxwvut.readywriter.service.FanOutReadyWriter;
 import org.zzzyxwvut.readywriter.service.FileDescriptorWriterVisitor;
 import org.zzzyxwvut.readywriter.service.Lookup.DefaultVisitor;
 import org.zzzyxwvut.readywriter.service.Lookup;
@@ -75,17 +74,15 @@ public class DemoLauncher
 
 	private DemoLauncher() { /* No instantiation. */ }
 
-	private static <T extends Visitor<? extends T>> Function<List<T>,
-						Consumer<String>> dispatcher()
+	/*
+	 * Encodes a message once and writes it to all sinks of a writer at
+	 * once (see FanOutReadyWriter).
+	 */
+	private static Function<ReadyWriter, Consumer<String>> dispatcher()
 	{
-		return visitors -> message -> visitors
-			.stream()
-			.flatMap(Function.<Stream<ReadyWriter>>identity()
-				.<Optional<ReadyWriter>>compose(
-							Optional::stream)
-				.compose(Lookup::readyWriter))
-			.forEach(Lookup.messager()
-					.apply(message));
+		return writer -> message -> Lookup.messager()
+			.apply(message)
+			.accept(writer);
 	}
 
 	private static List<String> parseArgs(List<String> argsView)
@@ -123,14 +120,18 @@ public class DemoLauncher
 			return;
 		}
 
-		DemoLauncher.<Visitor<?>>dispatcher()
-			.apply(List.of((BESPOKE_OUT != STANDARD_OUT)
+		/* Closed at exit, for the threads of sinks are daemons. */
+		try (ReadyWriter writer = FanOutReadyWriter.of(List.of(
+				(BESPOKE_OUT != STANDARD_OUT)
 					? new FileDescriptorWriterVisitor(
 								BESPOKE_OUT)
 					: new DefaultVisitor(
 						Kind.FILE_DESCRIPTOR),
-				new DefaultVisitor(Kind.PATH)))
-			.accept(parsedView.stream()
-				.collect(Collectors.joining()));
+				new DefaultVisitor(Kind.PATH)))) {
+			dispatcher()
+				.apply(writer)
+				.accept(parsedView.stream()
+					.collect(Collectors.joining()));
+		}
 	}
 }
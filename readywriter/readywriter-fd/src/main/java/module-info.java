@@ -12,6 +12,7 @@ module org.zzzyxwvut.readywriter.fd
 	requires org.zzzyxwvut.julics.core;
 	requires org.zzzyxwvut.julics.naming;
 	requires org.zzzyxwvut.readywriter.service;
+	requires jdk.jfr;
 
 	provides org.zzzyxwvut.readywriter.ReadyWriter with
 		org.zzzyxwvut.readywriter.fd.internal.FileDescriptorWriterProvider;
@@ -8,15 +8,21 @@ import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -31,7 +37,18 @@ import org.zzzyxwvut.julics.annotation.Loggable;
 import org.zzzyxwvut.julics.naming.LoggerRef;
 
 import org.zzzyxwvut.readywriter.ReadyWriter;
+import org.zzzyxwvut.readywriter.event.BindEvent;
+import org.zzzyxwvut.readywriter.event.ForceEvent;
+import org.zzzyxwvut.readywriter.event.LockEvent;
+import org.zzzyxwvut.readywriter.event.WriteEvent;
 import org.zzzyxwvut.readywriter.service.FileDescriptorWriterVisitor;
+import org.zzzyxwvut.readywriter.service.RecordFormat;
+import org.zzzyxwvut.readywriter.support.ByteBuffers;
+import org.zzzyxwvut.readywriter.support.DurabilityTracker;
+import org.zzzyxwvut.readywriter.support.FlatCombiner;
+import org.zzzyxwvut.readywriter.support.GroupCommitter;
+import org.zzzyxwvut.readywriter.support.MessageEncoder;
+import org.zzzyxwvut.readywriter.support.WriterMetrics;
 
 /**
  * A service provider capable of writing to an inherited file descriptor.
@@ -51,13 +68,52 @@ import org.zzzyxwvut.readywriter.service.FileDescriptorWriterVisitor;
  *	deleted, matches an arbitrary name pattern</li>
  * </ul>
  * <p>
- * <strong>All bets are off when a JVM instance closes an inherited file
- * descriptor and its number value is re-used anew.</strong>
+ * The channel of a file descriptor is bound once, when this service provider
+ * is constructed. A file descriptor number greater than 2 that is rejected
+ * then shall be bound to a bit-bucket channel for good, and messages written
+ * to it shall not be encoded. Otherwise, the identity (the device and inode
+ * numbers) of the open file to which the number refers is compared before
+ * every write with that of the bound file, and the channel is bound anew
+ * whenever they differ, viz, when the file descriptor is closed or its number
+ * value is re-used.
+ * <p>
+ * With the {@link FileDescriptorWriterVisitor.Option#COMBINING COMBINING}
+ * option, concurrent writes are combined into gathering writes (see
+ * {@link FlatCombiner}), and the private lock is taken once for every
+ * combined write.
+ * <p>
+ * Forcing of written changes to the storage device is shared among
+ * concurrent callers (see {@link GroupCommitter}); the channel that is forced
+ * is the one written with, as it is bound when a ticket is taken, and
+ * a channel that is bound anew is forced first while a ticket is not yet
+ * covered; with
+ * a {@link FileDescriptorWriterVisitor#durability() durability} policy,
+ * changes written without forcing are also forced as the policy requires
+ * (see {@link DurabilityTracker}).
+ * <p>
+ * With a {@link FileDescriptorWriterVisitor#recordFormat() record format},
+ * every message is framed with a header (see {@link RecordFormat}) that is
+ * written along with it in a gathering write; sequence numbers and
+ * timestamps are stamped while the private lock is held.
+ * <p>
+ * Single messages are encoded into the reusable direct buffer of an encoder
+ * that is taken from a bounded pool for the duration of a write, which is
+ * shared by every writer of the same character set (see
+ * {@link MessageEncoder#pool(java.nio.charset.Charset)}).
+ * <p>
+ * The written bytes, the bytes dismissed for a rejected file descriptor,
+ * and the latencies of writing, waiting on the private lock and forcing
+ * are recorded when enabled (see {@link WriterMetrics}), and the phases of
+ * binding, locking, writing and forcing emit flight recorder events (see
+ * {@link org.zzzyxwvut.readywriter.event}).
  *
  * @implNote
  * The channel of a file descriptor greater than 2, when used, shall be
  * treated as with the {@link java.nio.file.StandardOpenOption#APPEND APPEND}
  * and {@link java.nio.file.StandardOpenOption#WRITE WRITE} options applied.
+ * The private lock is a {@link ReentrantLock} rather than a monitor, and
+ * a virtual thread that blocks in a write while holding it does not pin its
+ * carrier thread.
  */
 final class FileDescriptorWriter implements FileDescriptorWriterProvider
 {
@@ -65,21 +121,38 @@ final class FileDescriptorWriter implements FileDescriptorWriterProvider
 		new FileOutputStream(FileDescriptor.out).getChannel();
 	private static final FileChannel ERR_CHANNEL =
 		new FileOutputStream(FileDescriptor.err).getChannel();
-	private static final Writer FORCER = (channel, buffer) -> {
-		channel.write(buffer);
-		channel.forceContent();
-	};	/* fsync(3): EINVAL for pipes, sockets, FIFOs. */
-	private static final Writer WRITER = ForcibleWritableByteChannel::write;
+	private static final Writer<ByteBuffer> WRITER =
+					ForcibleWritableByteChannel::write;
+	private static final Writer<ByteBuffer> RAW_WRITER =
+						ByteBuffers::writeFully;
+	private static final Writer<ByteBuffer[]> BATCH_WRITER =
+						ByteBuffers::writeFully;
 	private static final BiFunction<Integer, Pattern,
 				ForcibleWritableByteChannel<?>> BINDER;
+	private static final boolean RUN_BY_LINUX;
 
-	private final Object lock = new Object();
+	private final ReentrantLock lock = new ReentrantLock();
 	private final FileDescriptorWriterVisitor fdwVisitor;
+	private final boolean rejected;
+	private final boolean revalidated;
+	private final GroupCommitter<ForcibleWritableByteChannel<?>> committer;
+	private final FlatCombiner combiner;
+	private final DurabilityTracker<ForcibleWritableByteChannel<?>>
+								durability;
+	private final RecordFormat.Framer framer;
+	private final Writer<ByteBuffer[]> framedWriter;
+	private final WriterMetrics metrics;
+	private final MessageEncoder.Pool encoders;
+	private final String target;
+	private volatile ForcibleWritableByteChannel<?> channel;
+	private Object fileKey;
+	private boolean closed;
 
 	static {
 		final boolean runByLinux = "linux".equalsIgnoreCase(
 						System.getProperty("os.name"))
 				&& Files.isExecutable(Path.of("/proc/self"));
+		RUN_BY_LINUX = runByLinux;
 		BINDER = (runByLinux)
 			? (fdNumber, fileName) -> (fdNumber > 2)
 				? newChannel(ProcWritableFileDescriptorControl
@@ -105,6 +178,45 @@ final class FileDescriptorWriter implements FileDescriptorWriterProvider
 	{
 		this.fdwVisitor = Objects.requireNonNull(fdwVisitor,
 							"fdwVisitor");
+		encoders = MessageEncoder.pool(fdwVisitor.charset());
+		final boolean bespoke = RUN_BY_LINUX
+					&& fdwVisitor.fdNumber() > 2;
+
+		/* Obtain the identity first, lest it be of a re-used number. */
+		fileKey = (bespoke)
+			? ProcWritableFileDescriptorControl.identify(
+						fdwVisitor.fdNumber())
+			: null;
+		channel = BINDER.apply(fdwVisitor.fdNumber(),
+						fdwVisitor.fileName());
+		rejected = channel instanceof NullFileChannel;
+		revalidated = bespoke && !rejected;
+		target = String.valueOf(fdwVisitor.fdNumber());
+		metrics = WriterMetrics.of(this,
+					FileDescriptorWriterProvider.class,
+								target);
+		committer = new GroupCommitter<>(metrics.timed(
+			ForceEvent.timed(FileDescriptorWriterProvider.class,
+							target,
+					this::force)));
+		combiner = (fdwVisitor.options().contains(
+				FileDescriptorWriterVisitor.Option.COMBINING))
+			? new FlatCombiner(this::doGather)
+			: null;
+		durability = fdwVisitor.durability()
+			.map(policy -> new DurabilityTracker<>(
+						policy.maxMessages(),
+						policy.maxBytes(),
+						policy.maxDelay().orElse(null),
+						committer))
+			.orElse(null);
+		framer = fdwVisitor.recordFormat()
+			.map(format -> format.framer(fdwVisitor.byteOrder()))
+			.orElse(null);
+		framedWriter = (channel, buffers) -> {
+			framer.stamp(buffers);
+			return BATCH_WRITER.write(channel, buffers);
+		};
 	}
 
 	/**
@@ -125,47 +237,398 @@ final class FileDescriptorWriter implements FileDescriptorWriterProvider
 			: new NullFileChannel(channel);
 	}
 
-	private void doWrite(Writer writer, String message)
+	private ForcibleWritableByteChannel<?> boundChannel()
+							throws IOException
+	{
+		if (closed)
+			throw new ClosedChannelException();
+
+		if (revalidated) {
+			final Object key = ProcWritableFileDescriptorControl
+				.identify(fdwVisitor.fdNumber());
+
+			if (!Objects.equals(key, fileKey)) {
+				final ForcibleWritableByteChannel<?> oldChannel =
+								channel;
+				fileKey = key;
+				channel = BINDER.apply(fdwVisitor.fdNumber(),
+						fdwVisitor.fileName());
+
+				try (oldChannel) {
+					if (committer.pending())
+						oldChannel.forceContent();
+				}
+			}
+		}
+
+		return channel;
+	}
+
+	/* Takes a channel bound anew, or closed, for a forced one. */
+	private void force(ForcibleWritableByteChannel<?> forcible)
+							throws IOException
+	{
+		try {
+			forcible.forceContent();
+		} catch (final ClosedChannelException e) {
+			if (forcible == channel && !closed)
+				throw e;
+		}
+	}
+
+	private void doWrite(CharSequence message, boolean forced)
 	{
 		Objects.requireNonNull(message, "message");
-		final ByteBuffer buffer = ByteBuffer.wrap(
-						message.getBytes(
-							fdwVisitor.charset()));
-		buffer.order(fdwVisitor.byteOrder());
-
-		synchronized (lock) {
-			try (ForcibleWritableByteChannel<?> channel = BINDER
-					.apply(fdwVisitor.fdNumber(),
-						fdwVisitor.fileName())) {
-				writer.write(channel, buffer);
+
+		if (rejected) {
+			if (metrics.enabled())
+				discarded(List.of(message));
+
+			return;
+		}
+
+		final MessageEncoder encoder = encoders.acquire();
+
+		try {
+			final ByteBuffer buffer = encoder.encode(message);
+
+			if (framer != null)
+				doFrame(new ByteBuffer[] { buffer }, forced);
+			else if (combiner != null)
+				doCombine(new ByteBuffer[] { buffer }, forced);
+			else
+				doWrite(WRITER, buffer, 1, forced);
+		} finally {
+			encoders.release(encoder);
+		}
+	}
+
+	/* Counts the encoded bytes of messages as dismissed. */
+	private void discarded(List<? extends CharSequence> messages)
+	{
+		final MessageEncoder encoder = encoders.acquire();
+
+		try {
+			for (final CharSequence message : messages)
+				metrics.discarded(encoder.encode(message)
+							.remaining());
+		} finally {
+			encoders.release(encoder);
+		}
+	}
+
+	private void doWrite(ByteBuffer buffer, boolean forced)
+	{
+		Objects.requireNonNull(buffer, "buffer");
+
+		if (rejected) {
+			metrics.discarded(buffer.remaining());
+			return;
+		}
+
+		if (framer != null)
+			doFrame(new ByteBuffer[] { buffer }, forced);
+		else if (combiner != null)
+			doCombine(new ByteBuffer[] { buffer }, forced);
+		else
+			doWrite(RAW_WRITER, buffer, 1, forced);
+	}
+
+	private void doWriteAll(List<? extends CharSequence> messages,
+							boolean forced)
+	{
+		Objects.requireNonNull(messages, "messages");
+
+		if (messages.isEmpty())
+			return;
+
+		if (rejected) {
+			if (metrics.enabled())
+				discarded(messages);
+
+			return;
+		}
+
+		final ByteBuffer[] buffers = ByteBuffers.encodeAll(messages,
+							fdwVisitor.charset());
+
+		if (framer != null)
+			doFrame(buffers, forced);
+		else if (combiner != null)
+			doCombine(buffers, forced);
+		else
+			doWrite(BATCH_WRITER, buffers, buffers.length, forced);
+	}
+
+	private void doFrame(ByteBuffer[] buffers, boolean forced)
+	{
+		final ByteBuffer[] framed = framer.frame(buffers);
+
+		if (combiner != null)
+			doCombine(framed, forced);
+		else
+			doWrite(framedWriter, framed, buffers.length, forced);
+	}
+
+	private void doCombine(ByteBuffer[] buffers, boolean forced)
+	{
+		try {
+			combiner.combine(buffers);
+
+			if (!forced)
+				return;
+
+			final long ticket;
+
+			lock.lock();
+
+			try {	/* The ticket follows the write. */
+				ticket = committer.ticket(boundChannel());
+			} finally {
+				lock.unlock();
+			}
+
+			committer.force(ticket);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private long doGather(ByteBuffer[] buffers)
+	{
+		long length = 0L;
+
+		for (final ByteBuffer buffer : buffers)
+			length += buffer.remaining();
+
+		if (framer != null)	/* Headers and payloads, in turn. */
+			doWrite(framedWriter, buffers, buffers.length >> 1,
+									false);
+		else
+			doWrite(BATCH_WRITER, buffers, buffers.length, false);
+
+		return length;
+	}
+
+	private <T> void doWrite(Writer<T> writer, T buffer, int count,
+							boolean forced)
+	{
+		final long ticket;
+		final long since = metrics.clock();
+		final LockEvent lockEvent = new LockEvent(
+				FileDescriptorWriterProvider.class, target,
+							LockEvent.PRIVATE);
+		lockEvent.begin();
+
+		lock.lock();
+
+		try {
+			lockEvent.commit();
+			metrics.monitorEntered(since);
+
+			try {
+				final ForcibleWritableByteChannel<?> channel =
+								boundChannel();
+				final long start = metrics.clock();
+				final WriteEvent writeEvent = new WriteEvent(
+					FileDescriptorWriterProvider.class,
+								target);
+				writeEvent.begin();
+				final long length = writeEvent.commit(
+						writer.write(channel, buffer));
+				metrics.written(length, start);
+				ticket = (forced || (durability != null
+						&& durability.written(count,
+							length, channel)))
+					? committer.ticket(channel)
+					: 0L;
 			} catch (final IOException e) {
 				throw new UncheckedIOException(e);
 			}
+		} finally {
+			lock.unlock();
+		}
+
+		if (ticket == 0L)	/* See GroupCommitter#ticket(Object). */
+			return;
+
+		try {	/* fsync(3): EINVAL for pipes, sockets, FIFOs. */
+			committer.force(ticket);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
 
 	/**
 	 * Writes a message to an open file.
 	 *
-	 * @implNote Writing is guarded with a private monitor.
+	 * @implNote Writing is guarded with a private lock.
 	 *
 	 * @param message a message to write
 	 * @throws UncheckedIOException if an I/O error occurs
 	 */
 	@Override
-	public void write(String message)	{ doWrite(WRITER, message); }
+	public void write(String message)	{ doWrite(message, false); }
+
+	/**
+	 * Writes a message to an open file.
+	 *
+	 * @implNote Writing is guarded with a private lock.
+	 *
+	 * @param message a message to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void write(CharSequence message)	{ doWrite(message, false); }
 
 	/**
 	 * Writes a message to an open file, forcing any changes to
 	 * the containing storage device.
 	 *
-	 * @implNote Writing is guarded with a private monitor.
+	 * @implNote Writing is guarded with a private lock; forcing is
+	 * shared among concurrent callers (see {@link GroupCommitter}).
 	 *
 	 * @param message a message to write
 	 * @throws UncheckedIOException if an I/O error occurs
 	 */
 	@Override
-	public void writeAndForce(String message) { doWrite(FORCER, message); }
+	public void writeAndForce(String message) { doWrite(message, true); }
+
+	/**
+	 * Writes a message to an open file, forcing any changes to
+	 * the containing storage device.
+	 *
+	 * @implNote Writing is guarded with a private lock; forcing is
+	 * shared among concurrent callers (see {@link GroupCommitter}).
+	 *
+	 * @param message a message to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAndForce(CharSequence message)
+	{
+		doWrite(message, true);
+	}
+
+	/**
+	 * Writes the remaining bytes of a buffer to an open file, as they are.
+	 *
+	 * @implNote Writing is guarded with a private lock.
+	 *
+	 * @param buffer a buffer of bytes to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void write(ByteBuffer buffer)	{ doWrite(buffer, false); }
+
+	/**
+	 * Writes the remaining bytes of a buffer to an open file, as they are,
+	 * forcing any changes to the containing storage device.
+	 *
+	 * @implNote Writing is guarded with a private lock; forcing is
+	 * shared among concurrent callers (see {@link GroupCommitter}).
+	 *
+	 * @param buffer a buffer of bytes to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAndForce(ByteBuffer buffer) { doWrite(buffer, true); }
+
+	/**
+	 * Writes messages to an open file, gathering them in a single write.
+	 *
+	 * @implNote Writing is guarded with a private lock.
+	 *
+	 * @param messages messages to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAll(List<? extends CharSequence> messages)
+	{
+		doWriteAll(messages, false);
+	}
+
+	/**
+	 * Writes messages to an open file, gathering them in a single write
+	 * and forcing any changes to the containing storage device.
+	 *
+	 * @implNote Writing is guarded with a private lock; forcing is
+	 * shared among concurrent callers (see {@link GroupCommitter}).
+	 *
+	 * @param messages messages to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAllAndForce(List<? extends CharSequence> messages)
+	{
+		doWriteAll(messages, true);
+	}
+
+	/**
+	 * Forces any changes written so far to the containing storage device,
+	 * without writing.
+	 *
+	 * @implNote Forcing is shared among concurrent callers (see
+	 * {@link GroupCommitter}).
+	 *
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void force()
+	{
+		try {
+			final long ticket;
+
+			lock.lock();
+
+			try {
+				ticket = committer.ticket(boundChannel());
+			} finally {
+				lock.unlock();
+			}
+
+			committer.force(ticket);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Closes the bound channel of a file descriptor greater than 2, if
+	 * any, forcing it first while a ticket is not yet covered.
+	 * <p>
+	 * (Any attempt to write with a closed service provider shall fail.)
+	 *
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void close()
+	{
+		lock.lock();
+
+		try {
+			closed = true;
+
+			try {
+				if (durability != null)
+					durability.close();
+
+				final ForcibleWritableByteChannel<?> oldChannel =
+								channel;
+
+				try (oldChannel) {
+					if (committer.pending())
+						oldChannel.forceContent();
+				}
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				metrics.close();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
 
 	@Override
 	public Kind kind()			{ return Kind.FILE_DESCRIPTOR; }
@@ -197,6 +660,7 @@ final class FileDescriptorWriter implements FileDescriptorWriterProvider
 					Set.of(StandardOpenOption.APPEND,
 						StandardOpenOption.WRITE);
 		private static final Path PATH = Path.of("/proc/self/fd");
+		private static final Object NO_FILE = new Object();
 		private static final Consumer<Supplier<String>> FINER;
 		private static final Consumer<Supplier<String>> OFFER;
 		private static final int SOFT_LIMIT;
@@ -317,7 +781,10 @@ final class FileDescriptorWriter implements FileDescriptorWriterProvider
 			try {
 				final Path fdPath = PATH.resolve(
 						String.valueOf(fdNumber));
-				return (alienated(fdNumber, fileName, fdPath))
+				final BindEvent event = new BindEvent(fdNumber);
+				event.begin();
+				return (!event.commit(!alienated(fdNumber,
+							fileName, fdPath)))
 					? NULL_CHANNEL
 					/*
 					 * See *_open0(JNIEnv*, etc.) at
@@ -329,6 +796,33 @@ final class FileDescriptorWriter implements FileDescriptorWriterProvider
 			}
 		}
 
+		/**
+		 * Identifies an open file, to which the passed file descriptor
+		 * number refers, by its device and inode numbers.
+		 *
+		 * @param fdNumber an inherited file descriptor number
+		 * @return an object that uniquely identifies the open file, or
+		 *	a constant object, if there is no such open file
+		 * @throws UncheckedIOException if an I/O error occurs
+		 * @see java.nio.file.attribute.BasicFileAttributes#fileKey()
+		 */
+		static Object identify(int fdNumber)
+		{
+			try {
+				return Objects.requireNonNullElse(
+					Files.readAttributes(PATH.resolve(
+							String.valueOf(
+								fdNumber)),
+						BasicFileAttributes.class)
+					.fileKey(),
+					NO_FILE);
+			} catch (final NoSuchFileException ignored) {
+				return NO_FILE;
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
 		@FunctionalInterface
 		private interface Formatter
 		{
@@ -337,11 +831,11 @@ final class FileDescriptorWriter implements FileDescriptorWriterProvider
 	}
 
 	/**
-	 * A {@code WritableByteChannel} capable of forcing content updates to
+	 * A {@code GatheringByteChannel} capable of forcing content updates to
 	 * the storage device.
 	 */
 	static abstract class ForcibleWritableByteChannel<T extends WritableByteChannel>
-						implements WritableByteChannel
+						implements GatheringByteChannel
 	{
 		/** A writable byte channel. */
 		final T channel;
@@ -372,6 +866,44 @@ final class FileDescriptorWriter implements FileDescriptorWriterProvider
 			return channel.write(buffer);
 		}
 
+		/**
+		 * {@inheritDoc}
+		 *
+		 * @implSpec
+		 * This implementation writes every buffer in turn with
+		 * {@link #write(ByteBuffer)} for as long as all remaining
+		 * bytes of a buffer are written.
+		 */
+		@Override
+		public long write(ByteBuffer[] buffers, int offset, int length)
+							throws IOException
+		{
+			Objects.checkFromIndexSize(offset, length,
+						Objects.requireNonNull(
+							buffers,
+							"buffers").length);
+			long total = 0L;
+
+			for (int i = offset; i < offset + length; ++i) {
+				final ByteBuffer buffer = buffers[i];
+				final int remaining = buffer.remaining();
+				final int count = write(buffer);
+				total += count;
+
+				if (count < remaining)
+					break;
+			}
+
+			return total;
+		}
+
+		@Override
+		public long write(ByteBuffer[] buffers) throws IOException
+		{
+			return write(buffers, 0, Objects.requireNonNull(
+						buffers, "buffers").length);
+		}
+
 		@Override
 		public boolean isOpen()		{ return channel.isOpen(); }
 
@@ -402,6 +934,13 @@ final class FileDescriptorWriter implements FileDescriptorWriterProvider
 			channel.force(false);
 		}
 
+		@Override
+		public long write(ByteBuffer[] buffers, int offset, int length)
+							throws IOException
+		{
+			return channel.write(buffers, offset, length);
+		}
+
 		/**
 		 * {@inheritDoc}
 		 *
@@ -458,9 +997,9 @@ final class FileDescriptorWriter implements FileDescriptorWriterProvider
 	}
 
 	@FunctionalInterface
-	private interface Writer
+	private interface Writer<T>
 	{
-		void write(ForcibleWritableByteChannel<?> channel,
-					ByteBuffer buffer) throws IOException;
+		long write(ForcibleWritableByteChannel<?> channel, T buffer)
+							throws IOException;
 	}
 }
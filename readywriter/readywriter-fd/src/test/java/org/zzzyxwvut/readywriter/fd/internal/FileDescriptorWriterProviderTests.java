@@ -1,17 +1,28 @@
 package org.zzzyxwvut.readywriter.fd.internal;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -22,12 +33,17 @@ import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
 import org.junit.jupiter.api.condition.EnabledOnOs;
 import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
@@ -37,7 +53,10 @@ import org.zzzyxwvut.julics.annotation.Loggable;
 import org.zzzyxwvut.julics.naming.LoggerRef;
 
 import org.zzzyxwvut.readywriter.ReadyWriter;
+import org.zzzyxwvut.readywriter.service.DurabilityPolicy;
 import org.zzzyxwvut.readywriter.service.FileDescriptorWriterVisitor;
+import org.zzzyxwvut.readywriter.service.RecordFormat;
+import org.zzzyxwvut.readywriter.service.RecordReader;
 
 /*
  * XXX: The following tests depend on the proc file system availability and
@@ -45,6 +64,10 @@ import org.zzzyxwvut.readywriter.service.FileDescriptorWriterVisitor;
  * tests with the supplied src/test/shell/fd_tests.sh script.
  *
  * (See src/test/shell/build.xml and the antrun plugin set-up in pom.xml.)
+ *
+ * The tests of temporary files open their own file descriptors and look up
+ * their numbers under the proc file system; they need no inherited file
+ * descriptors.
  */
 @EnabledOnOs({ OS.LINUX })
 @Loggable(retainsValues = false)
@@ -59,6 +82,9 @@ public class FileDescriptorWriterProviderTests
 
 	private static String LOG_FILE_NAME;
 
+	@TempDir
+	public static Path tmpDir;
+
 	private ContendingExecutor executor;
 	private ReadyWriter fdWriter;
 
@@ -189,6 +215,55 @@ public class FileDescriptorWriterProviderTests
 		return String.join("", Collections.nCopies(copies, sample));
 	}
 
+	private static String getCallerMethodsName(TestInfo info)
+	{
+		return info.getTestMethod()
+			.map(Method::getName)
+			.orElseGet(() -> "<INNOMINATE>");
+	}
+
+	/* Opens a temporary file for writing, lest it be matched early. */
+	private static FileChannel openTemporary(Path path) throws IOException
+	{
+		return FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+						StandardOpenOption.WRITE);
+	}
+
+	/* Looks up the number of the file descriptor of an open file. */
+	private static int descriptorOf(Path path) throws IOException
+	{
+		final Path realPath = path.toRealPath();
+
+		try (Stream<Path> fdPaths = Files.list(PREFIX)) {
+			return fdPaths
+				.filter(fdPath -> {
+					try {
+						return realPath.equals(Files
+							.readSymbolicLink(
+								fdPath));
+					} catch (final IOException ignored) {
+						return false;
+					}
+				})
+				.mapToInt(fdPath -> Integer.parseInt(fdPath
+					.getFileName()
+					.toString()))
+				.max()
+				.orElseThrow(AssertionError::new);
+		}
+	}
+
+	private static FileDescriptorWriterVisitor temporaryVisitor(Path path)
+							throws IOException
+	{
+		return new FileDescriptorWriterVisitor(descriptorOf(path),
+			Pattern.compile(Pattern.quote(path.getFileName()
+							.toString())
+				.concat("(\\.\\d+)?")),
+			StandardCharsets.UTF_8,
+			ByteOrder.BIG_ENDIAN);
+	}
+
 	/*
 	 * Note that in order to pass the test of file descriptors 1 and 2,
 	 * no writing to System.{out,err} is expected in the method and its
@@ -338,6 +413,179 @@ public class FileDescriptorWriterProviderTests
 			FileDescriptorWriterProviderTests::logFileName);
 	}
 
+	@Test
+	public void testRevalidatingOfTemporaryDescriptors(TestInfo info)
+							throws IOException
+	{
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+		final Path otherPath = tmpDir.resolve(getCallerMethodsName(info)
+							.concat(".1"));
+		final ReadyWriter writer;
+		final int fdNumber;
+		final FileChannel channel = openTemporary(path);
+
+		try (channel) {
+			fdNumber = descriptorOf(path);
+			writer = newReadyWriter(fdWriter, temporaryVisitor(path));
+			writer.write("foo".concat(NEWLINE));
+		}
+
+		/* Re-use the lowest free file descriptor number, if may be. */
+		final FileChannel otherChannel = openTemporary(otherPath);
+
+		try (writer; otherChannel) {
+			assumeTrue(fdNumber == descriptorOf(otherPath),
+					"The file descriptor number is taken");
+			writer.write("bar".concat(NEWLINE));
+		}
+
+		assertEquals(List.of("foo"), Files.readAllLines(path,
+						StandardCharsets.UTF_8));
+		assertEquals(List.of("bar"), Files.readAllLines(otherPath,
+						StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testBatchAndRawWritingToTemporaryDescriptors(TestInfo info)
+					throws IOException, InterruptedException
+	{
+		final List<String> lines = List.of("foo".concat(NEWLINE),
+						"bar".concat(NEWLINE),
+						"baz".concat(NEWLINE));
+		final byte[] expected = String.join("", lines)
+			.repeat(THREADS)
+			.concat("quux")
+			.concat(NEWLINE)
+			.getBytes(StandardCharsets.UTF_8);
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+		final ByteBuffer direct = ByteBuffer.allocateDirect(8)
+			.put("quux".concat(NEWLINE)
+				.getBytes(StandardCharsets.UTF_8))
+			.flip();
+		final FileChannel channel = openTemporary(path);
+
+		try (channel; ReadyWriter writer = newReadyWriter(fdWriter,
+						temporaryVisitor(path))) {
+			final Runnable r = () -> writer.writeAll(lines);
+			executor.executeAndWait(Collections.nCopies(THREADS, r));
+			writer.writeAndForce(direct);
+		}
+
+		assertFalse(direct.hasRemaining());
+		assertArrayEquals(expected, Files.readAllBytes(path));
+	}
+
+	@Test
+	public void testGroupForcingOfTemporaryDescriptors(TestInfo info)
+					throws IOException, InterruptedException
+	{
+		final String name = getCallerMethodsName(info);
+		final Path path = tmpDir.resolve(name);
+		final Path dump = tmpDir.resolve(name.concat(".jfr"));
+		final String forceEvent = "org.zzzyxwvut.readywriter.Force";
+		final String message = "foo bar".concat(NEWLINE);
+		final FileChannel channel = openTemporary(path);
+
+		try (Recording recording = new Recording()) {
+			recording.enable(forceEvent)
+				.withThreshold(Duration.ZERO);
+			recording.start();
+
+			try (channel; ReadyWriter writer = newReadyWriter(
+						fdWriter, temporaryVisitor(path)
+							.withDurability(
+								DurabilityPolicy
+							.everyMessages(4L)))) {
+				final Runnable r = () ->
+						writer.writeAndForce(message);
+				executor.executeAndWait(Collections.nCopies(
+								THREADS, r));
+
+				for (int i = 0; i < 9; ++i)
+					writer.write(message);
+			}
+
+			recording.stop();
+			recording.dump(dump);
+		}
+
+		final long forces = RecordingFile.readAllEvents(dump)
+			.stream()
+			.filter(event -> forceEvent.equals(
+					event.getEventType().getName()))
+			.count();
+
+		/* Shared forces, and after the 4th and the 8th message. */
+		assertTrue(forces > 2L && forces <= THREADS + 2L,
+						() -> "Forces: " + forces);
+		assertEquals(message.repeat(THREADS + 9),
+			Files.readString(path, StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testCombiningToTemporaryDescriptors(TestInfo info)
+					throws IOException, InterruptedException
+	{
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+		final String message = "foo bar".concat(NEWLINE);
+		final FileChannel channel = openTemporary(path);
+
+		try (channel; ReadyWriter writer = newReadyWriter(fdWriter,
+				new FileDescriptorWriterVisitor(
+					descriptorOf(path),
+					temporaryVisitor(path).fileName(),
+					StandardCharsets.UTF_8,
+					ByteOrder.BIG_ENDIAN,
+					Set.of(FileDescriptorWriterVisitor
+						.Option.COMBINING)))) {
+			final Runnable r = () -> {
+				for (int i = 0; i < 64; ++i)
+					if (i % 16 == 15)
+						writer.writeAndForce(message);
+					else
+						writer.write(message);
+			};
+			executor.executeAndWait(Collections.nCopies(THREADS,
+									r));
+			writer.writeAll(List.of(message, message));
+		}
+
+		assertEquals(message.repeat(THREADS * 64 + 2),
+			Files.readString(path, StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testFramingToTemporaryDescriptors(TestInfo info)
+							throws IOException
+	{
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+		final RecordFormat format = new RecordFormat(true, false);
+		final FileChannel channel = openTemporary(path);
+
+		try (channel; ReadyWriter writer = newReadyWriter(fdWriter,
+					temporaryVisitor(path)
+						.withRecordFormat(format))) {
+			writer.write("foo");
+			writer.writeAll(List.of("bar", "baz"));
+			writer.writeAndForce(ByteBuffer.wrap(new byte[] {
+								1, 2 }));
+		}
+
+		final List<String> payloads = new ArrayList<>();
+
+		try (RecordReader reader = format.reader(FileChannel.open(path),
+						ByteOrder.BIG_ENDIAN)) {
+			for (long sequence = 1L; reader.next(); ++sequence) {
+				assertEquals(sequence, reader.sequence());
+				payloads.add(StandardCharsets.UTF_8.decode(
+						reader.payload()).toString());
+			}
+		}
+
+		assertEquals(List.of("foo", "bar", "baz", "\u0001\u0002"),
+								payloads);
+	}
+
 	private static String logFileName()
 	{
 		return (!LOG_FILE_NAME.startsWith("%t/"))
@@ -62,6 +62,10 @@ ls -lF /proc/self/fd
 mvn -e -Dtest="${package}.FileDescriptorWriterProviderTests#testWritingToBespokeDescriptors,#testExchangingOfDescriptors" \
 	--file ../../../pom.xml -P tester surefire:test
 
+# The tests below open their own file descriptors of temporary files.
+mvn -e -Dtest="${package}.FileDescriptorWriterProviderTests#*TemporaryDescriptors" \
+	--file ../../../pom.xml -P tester surefire:test
+
 # When execked children close inherited file descriptors (see fcntl(3posix),
 # os::fopen(char*, char*) in hotspot/share/runtime/os.cpp), no file channels
 # should be bound to any requested file descriptors greater than 2.
@@ -0,0 +1,21 @@
+/**
+ * Provides a memory-mapped-path-writing implementation of
+ * {@code ReadyWriter}.
+ *
+ * @provides org.zzzyxwvut.readywriter.ReadyWriter
+ * @see org.zzzyxwvut.readywriter.service.Lookup
+ */
+module org.zzzyxwvut.readywriter.mmap
+{
+	requires static org.zzzyxwvut.impedimenta;
+	requires static org.zzzyxwvut.julics.annotations;
+
+	/* See configuration for maven-compiler-plugin. */
+//	requires org.zzzyxwvut.julics.core;
+//	requires org.zzzyxwvut.julics.naming;
+	requires org.zzzyxwvut.readywriter.service;
+	requires jdk.jfr;
+
+	provides org.zzzyxwvut.readywriter.ReadyWriter with
+		org.zzzyxwvut.readywriter.mmap.internal.MappedPathWriterProvider;
+}
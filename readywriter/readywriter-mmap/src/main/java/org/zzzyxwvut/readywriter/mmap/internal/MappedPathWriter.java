@@ -0,0 +1,673 @@
+package org.zzzyxwvut.readywriter.mmap.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.zzzyxwvut.readywriter.ReadyWriter;
+import org.zzzyxwvut.readywriter.event.ForceEvent;
+import org.zzzyxwvut.readywriter.service.MappedPathWriterVisitor;
+import org.zzzyxwvut.readywriter.support.ByteBuffers;
+import org.zzzyxwvut.readywriter.support.GroupCommitter;
+import org.zzzyxwvut.readywriter.support.MessageEncoder;
+import org.zzzyxwvut.readywriter.support.WriterMetrics;
+
+/**
+ * A service provider capable of appending to a memory-mapped path.
+ * <p>
+ * A file is opened on the first write and kept open until this service
+ * provider is closed. Messages are copied into regions of the file, each of
+ * the {@link MappedPathWriterVisitor#segmentSize() segment size}, that are
+ * mapped as writing advances, and the file grows by a segment whenever
+ * a new region is mapped. Writers claim room for their messages by bumping
+ * a shared position, and then copy their messages concurrently.
+ * <p>
+ * On closing, the file is truncated to the end of the last written message.
+ * While the file is open, the end of the last forced message is kept in
+ * a sibling file, named after the file with an {@code .end} suffix, which
+ * is deleted on closing; a file that has not been so truncated, e.g. after
+ * a crash, is assumed to end where its sibling file says when it is opened
+ * again, so that no trailing bytes of messages, zeros among them, are taken
+ * for unwritten room.
+ * <p>
+ * Forcing of written changes to the storage device is shared among
+ * concurrent callers (see {@link GroupCommitter}) and is limited to
+ * the regions that have been written to since the last force. A force
+ * covers the messages up to the first one that is still being copied; so
+ * a forcing writer first waits for the messages claimed before its own to
+ * be copied.
+ * <p>
+ * The written bytes and the latencies of copying and forcing are recorded
+ * when enabled (see {@link WriterMetrics}), and forcing emits flight
+ * recorder events (see {@link ForceEvent}).
+ *
+ * @implNote
+ * A region is forced as a whole with {@link MappedByteBuffer#force()}; and
+ * regions that are no longer mapped are forced along with the whole file.
+ * Every force that advances the end of forced messages is followed by
+ * a write and a force of the sibling file.
+ */
+final class MappedPathWriter implements MappedPathWriterProvider
+{
+	private static final Set<StandardOpenOption> OPEN_OPTS =
+				Set.of(StandardOpenOption.CREATE,
+					StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+	private static final FileAttribute<?>[] FILE_ATTRIBUTES =
+				(FileSystems.getDefault()
+					.supportedFileAttributeViews()
+					.contains("posix"))
+		? new FileAttribute<?>[] {
+			PosixFilePermissions.asFileAttribute(
+				PosixFilePermissions.fromString("rw-r-----"))
+		}
+		: new FileAttribute<?>[0];
+	private static final long CLOSED = 1L << 62;
+	private static final int WINDOWS = 4;	/* A power of two. */
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition copied = lock.newCondition();
+	private final MappedPathWriterVisitor mpwVisitor;
+	private final Path endPath;
+	private final long segmentSize;
+	private final AtomicLong position = new AtomicLong();
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicLong copiedEnd = new AtomicLong();
+	private final ConcurrentMap<Long, Long> pendingEnds =
+						new ConcurrentHashMap<>();
+	private final AtomicReferenceArray<Window> windows =
+					new AtomicReferenceArray<>(WINDOWS);
+	private final GroupCommitter<FileChannel> committer;
+	private final WriterMetrics metrics;
+	private final MessageEncoder.Pool encoders;
+	private volatile FileChannel channel;
+	private FileChannel endChannel;
+	private long forcedEnd;	/* Only touched by a forcing leader. */
+
+	/**
+	 * Constructs a new {@code MappedPathWriter} object.
+	 *
+	 * @param mpwVisitor a supported visitor
+	 */
+	MappedPathWriter(MappedPathWriterVisitor mpwVisitor)
+	{
+		this.mpwVisitor = Objects.requireNonNull(mpwVisitor,
+							"mpwVisitor");
+		endPath = mpwVisitor.path().resolveSibling(mpwVisitor.path()
+						.getFileName() + ".end");
+		segmentSize = mpwVisitor.segmentSize();
+		encoders = MessageEncoder.pool(mpwVisitor.charset());
+		final String target = mpwVisitor.path().toString();
+		metrics = WriterMetrics.of(this,
+					MappedPathWriterProvider.class,
+								target);
+		committer = new GroupCommitter<>(metrics.timed(
+			ForceEvent.timed(MappedPathWriterProvider.class,
+							target,
+							this::forceWindows)));
+	}
+
+	/**
+	 * Constructs a new {@code MappedPathWriter} object. It is set to
+	 * append to a new templet-named path, mapping segments of 1 MiB and
+	 * using the UTF-8 character set.
+	 */
+	MappedPathWriter()
+	{
+		this(new MappedPathWriterVisitor(null));
+	}
+
+	/*
+	 * Returns the end of the last forced message, if a file has not been
+	 * truncated on closing, or else its size.
+	 */
+	private long logicalEnd(FileChannel channel) throws IOException
+	{
+		final long size = channel.size();
+
+		if (!Files.exists(endPath))
+			return size;
+
+		final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+
+		try (FileChannel recorded = FileChannel.open(endPath,
+						StandardOpenOption.READ)) {
+			while (buffer.hasRemaining()
+					&& recorded.read(buffer) > -1)
+				;
+		}
+
+		/* Nothing is mapped before the end is first recorded. */
+		return (buffer.hasRemaining())
+			? size
+			: Math.min(size, buffer.getLong(0));
+	}
+
+	private void recordEnd(long end) throws IOException
+	{
+		final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES)
+			.putLong(0, end);
+
+		while (buffer.hasRemaining())
+			endChannel.write(buffer, buffer.position());
+
+		endChannel.force(false);
+	}
+
+	private FileChannel openedChannel() throws IOException
+	{
+		final FileChannel currentChannel = channel;
+
+		if (currentChannel != null)
+			return currentChannel;
+
+		lock.lock();
+
+		try {
+			if (channel != null)
+				return channel;
+
+			if ((position.get() & CLOSED) != 0L)
+				throw new ClosedChannelException();
+
+			final FileChannel newChannel = FileChannel.open(
+						mpwVisitor.path(),
+						OPEN_OPTS,
+						FILE_ATTRIBUTES);
+
+			try {
+				final long end = logicalEnd(newChannel);
+
+				if (!position.compareAndSet(0L, end))
+					throw new ClosedChannelException();
+
+				endChannel = FileChannel.open(endPath,
+							OPEN_OPTS,
+							FILE_ATTRIBUTES);
+				recordEnd(end);
+				written.set(end);
+				copiedEnd.set(end);
+				forcedEnd = end;
+			} catch (final IOException | RuntimeException e) {
+				try (newChannel) {
+					if (endChannel != null)
+						endChannel.close();
+				} finally {
+					endChannel = null;
+				}
+
+				throw e;
+			}
+
+			channel = newChannel;
+			return newChannel;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private MappedByteBuffer window(long index) throws IOException
+	{
+		final int slot = (int) (index & (WINDOWS - 1));
+		final Window window = windows.get(slot);
+
+		if (window != null && window.index == index)
+			return window.buffer;
+
+		lock.lock();
+
+		try {
+			final Window currentWindow = windows.get(slot);
+
+			if (currentWindow != null
+					&& currentWindow.index == index)
+				return currentWindow.buffer;
+
+			/* Also, grows the file. */
+			final Window newWindow = new Window(index, channel.map(
+						FileChannel.MapMode.READ_WRITE,
+						index * segmentSize,
+						segmentSize));
+
+			/* Let no lagging writer evict a newer region. */
+			if (currentWindow == null
+					|| currentWindow.index < index)
+				windows.set(slot, newWindow);
+
+			return newWindow.buffer;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void copy(ByteBuffer source, long start) throws IOException
+	{
+		final boolean swapped = source.order() != ByteOrder.BIG_ENDIAN;
+		int offset = source.position();
+		int remaining = source.remaining();
+		long at = start;
+
+		while (remaining > 0) {
+			final int windowOffset = (int) (at % segmentSize);
+			final int count = (int) Math.min(remaining,
+						segmentSize - windowOffset);
+			final MappedByteBuffer target = window(at
+							/ segmentSize);
+			int i = 0;
+
+			for (; i + Long.BYTES <= count; i += Long.BYTES) {
+				final long word = source.getLong(offset + i);
+				target.putLong(windowOffset + i, (swapped)
+					? Long.reverseBytes(word)
+					: word);
+			}
+
+			for (; i < count; ++i)
+				target.put(windowOffset + i,
+						source.get(offset + i));
+
+			offset += count;
+			remaining -= count;
+			at += count;
+		}
+	}
+
+	private long claim(long length) throws IOException
+	{
+		openedChannel();
+		final long start = position.getAndAdd(length);
+
+		if ((start & CLOSED) != 0L)
+			throw new ClosedChannelException();
+
+		return start;
+	}
+
+	private void forceWindows(FileChannel forcible) throws IOException
+	{
+		final long end = copiedEnd.get();
+		final long from = forcedEnd;
+
+		if (from >= end)
+			return;
+
+		for (long index = from / segmentSize;
+				index <= (end - 1L) / segmentSize;
+				++index) {
+			final Window window = windows.get(
+					(int) (index & (WINDOWS - 1)));
+
+			if (window == null || window.index != index) {
+				forcible.force(false);
+				break;
+			}
+
+			window.buffer.force();
+		}
+
+		recordEnd(end);
+		forcedEnd = end;
+	}
+
+	/*
+	 * Advances the end of contiguously copied messages past the passed
+	 * claim and past any claims that follow it and have been copied.
+	 */
+	private void advanceCopiedEnd(long start, long length)
+	{
+		if (length > 0L && !copiedEnd.compareAndSet(start,
+							start + length))
+			pendingEnds.put(start, start + length);
+
+		while (!pendingEnds.isEmpty()) {
+			final long end = copiedEnd.get();
+			final Long next = pendingEnds.remove(end);
+
+			if (next == null)
+				break;
+
+			/* Only the remover of an end may advance from it. */
+			copiedEnd.set(next);
+		}
+	}
+
+	/* Counts copied bytes and wakes up a closing thread, if any. */
+	private void copied(long start, long length)
+	{
+		advanceCopiedEnd(start, length);
+		written.getAndAdd(length);
+
+		if ((position.get() & CLOSED) == 0L)
+			return;
+
+		lock.lock();
+
+		try {
+			copied.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/* Forces, once the messages that precede the passed end are copied. */
+	private void force(long end)
+	{
+		while (copiedEnd.get() < end)
+			Thread.yield();
+
+		try {
+			committer.force(committer.ticket(channel));
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void doWrite(ByteBuffer buffer, boolean forced)
+	{
+		final int length = buffer.remaining();
+		final long since = metrics.clock();
+		final long start;
+
+		try {
+			start = claim(length);
+
+			try {
+				copy(buffer, start);
+			} finally {
+				copied(start, length);
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		metrics.written(length, since);
+		buffer.position(buffer.limit());
+
+		if (forced)
+			force(start + length);
+	}
+
+	private void doWriteAll(List<? extends CharSequence> messages,
+							boolean forced)
+	{
+		final ByteBuffer[] buffers = ByteBuffers.encodeAll(messages,
+							mpwVisitor.charset());
+		long length = 0L;
+
+		for (final ByteBuffer buffer : buffers)
+			length += buffer.remaining();
+
+		final long since = metrics.clock();
+		final long start;
+
+		try {
+			start = claim(length);
+			long at = start;
+
+			try {
+				for (final ByteBuffer buffer : buffers) {
+					copy(buffer, at);
+					at += buffer.remaining();
+				}
+			} finally {
+				copied(start, length);
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		metrics.written(length, since);
+
+		if (forced)
+			force(start + length);
+	}
+
+	/* Writes a message with a pooled encoder. */
+	private void doWrite(CharSequence message, boolean forced)
+	{
+		final MessageEncoder encoder = encoders.acquire();
+
+		try {
+			doWrite(encoder.encode(message), forced);
+		} finally {
+			encoders.release(encoder);
+		}
+	}
+
+	/**
+	 * Appends a message to a path.
+	 *
+	 * @implNote Room for writing is claimed without locking.
+	 *
+	 * @param message a message to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void write(String message)
+	{
+		doWrite(message, false);
+	}
+
+	/**
+	 * Appends a message to a path.
+	 *
+	 * @implNote Room for writing is claimed without locking.
+	 *
+	 * @param message a message to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void write(CharSequence message)
+	{
+		doWrite(message, false);
+	}
+
+	/**
+	 * Appends a message to a path, forcing any changes to the containing
+	 * storage device.
+	 *
+	 * @implNote Room for writing is claimed without locking; forcing is
+	 * shared among concurrent callers.
+	 *
+	 * @param message a message to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAndForce(String message)
+	{
+		doWrite(message, true);
+	}
+
+	/**
+	 * Appends a message to a path, forcing any changes to the containing
+	 * storage device.
+	 *
+	 * @implNote Room for writing is claimed without locking; forcing is
+	 * shared among concurrent callers.
+	 *
+	 * @param message a message to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAndForce(CharSequence message)
+	{
+		doWrite(message, true);
+	}
+
+	/**
+	 * Appends the remaining bytes of a buffer to a path, as they are.
+	 *
+	 * @implNote Room for writing is claimed without locking.
+	 *
+	 * @param buffer a buffer of bytes to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void write(ByteBuffer buffer)
+	{
+		doWrite(Objects.requireNonNull(buffer, "buffer"), false);
+	}
+
+	/**
+	 * Appends the remaining bytes of a buffer to a path, as they are,
+	 * forcing any changes to the containing storage device.
+	 *
+	 * @implNote Room for writing is claimed without locking; forcing is
+	 * shared among concurrent callers.
+	 *
+	 * @param buffer a buffer of bytes to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAndForce(ByteBuffer buffer)
+	{
+		doWrite(Objects.requireNonNull(buffer, "buffer"), true);
+	}
+
+	/**
+	 * Appends messages to a path, claiming room for them at once.
+	 *
+	 * @implNote Room for writing is claimed without locking.
+	 *
+	 * @param messages messages to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAll(List<? extends CharSequence> messages)
+	{
+		doWriteAll(messages, false);
+	}
+
+	/**
+	 * Appends messages to a path, claiming room for them at once and
+	 * forcing any changes to the containing storage device.
+	 *
+	 * @implNote Room for writing is claimed without locking; forcing is
+	 * shared among concurrent callers.
+	 *
+	 * @param messages messages to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAllAndForce(List<? extends CharSequence> messages)
+	{
+		doWriteAll(messages, true);
+	}
+
+	/**
+	 * Forces any changes written so far to the containing storage device,
+	 * once the messages claimed before this call are copied, without
+	 * writing.
+	 *
+	 * @implNote Forcing is shared among concurrent callers.
+	 *
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void force()
+	{
+		final long end;
+
+		try {
+			end = claim(0L);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		force(end);
+	}
+
+	/**
+	 * Waits for any claimed writes to complete, truncates a file to
+	 * the end of the last written message and closes the file.
+	 * <p>
+	 * (Any attempt to write with a closed service provider shall fail.)
+	 *
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void close()
+	{
+		final long end = position.getAndAdd(CLOSED);
+
+		if ((end & CLOSED) != 0L)
+			return;
+
+		lock.lock();
+
+		try {
+			/* Claiming and copying is over when counts agree. */
+			while (written.get() != end)
+				copied.awaitUninterruptibly();
+
+			metrics.close();
+			final FileChannel currentChannel = channel;
+			final FileChannel currentEndChannel = endChannel;
+
+			if (currentChannel == null)
+				return;
+
+			for (int i = 0; i < WINDOWS; ++i)
+				windows.set(i, null);
+
+			try (currentEndChannel; currentChannel) {
+				currentChannel.truncate(end);
+				Files.delete(endPath);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Kind kind()			{ return Kind.MAPPED_PATH; }
+
+	@Override
+	public <T extends Visitor<? extends T>> Optional<ReadyWriter> accept(
+								T visitor)
+	{
+		return Objects.requireNonNull(visitor, "visitor")
+			.visit(this)
+			.filter(MappedPathWriterVisitor.class::isInstance)
+			.map(Function.<MappedPathWriter>identity()
+				.<MappedPathWriterVisitor>compose(
+						MappedPathWriter::new)
+				.compose(MappedPathWriterVisitor.class::cast));
+	}
+
+	/** A mapped region of a file. */
+	private static final class Window
+	{
+		final long index;
+		final MappedByteBuffer buffer;
+
+		Window(long index, MappedByteBuffer buffer)
+		{
+			this.index = index;
+			this.buffer = buffer;
+		}
+	}
+}
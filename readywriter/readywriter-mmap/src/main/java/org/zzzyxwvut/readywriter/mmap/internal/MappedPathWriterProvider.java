@@ -0,0 +1,24 @@
+package org.zzzyxwvut.readywriter.mmap.internal;
+
+import org.zzzyxwvut.readywriter.ReadyWriter;
+import org.zzzyxwvut.readywriter.annotation.Namable;
+
+/** A memory-mapped-path-writing {@code ReadyWriter}. */
+@Namable("org.zzzyxwvut.readywriter.MappedPathWriterProvider")
+public interface MappedPathWriterProvider extends ReadyWriter
+{
+	/**
+	 * Creates an instance of this service provider. It is set to append
+	 * to a new templet-named path, mapping segments of 1 MiB and using
+	 * the UTF-8 character set.
+	 *
+	 * @return an instance of this service provider
+	 * @see java.util.ServiceLoader.Provider#type()
+	 * @see org.zzzyxwvut.readywriter.service.Lookup#names()
+	 * @see org.zzzyxwvut.readywriter.service.MappedPathWriterVisitor
+	 */
+	static MappedPathWriterProvider provider()
+	{
+		return new MappedPathWriter();
+	}
+}
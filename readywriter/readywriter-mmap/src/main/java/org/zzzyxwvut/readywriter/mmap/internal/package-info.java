@@ -0,0 +1,2 @@
+/** Provides memory-mapped-path-writing-related support. */
+package org.zzzyxwvut.readywriter.mmap.internal;
@@ -0,0 +1,254 @@
+package org.zzzyxwvut.readywriter.mmap.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.zzzyxwvut.impedimenta.ContendingExecutor;
+import org.zzzyxwvut.julics.annotation.Loggable;
+import org.zzzyxwvut.julics.naming.LoggerRef;
+
+import org.zzzyxwvut.readywriter.ReadyWriter;
+import org.zzzyxwvut.readywriter.service.MappedPathWriterVisitor;
+
+@Loggable(retainsValues = false)
+public class MappedPathWriterProviderTests
+{
+	private static final int THREADS = 8;
+	private static final String NEWLINE = System.lineSeparator();
+
+	@TempDir
+	public static Path tmpDir;
+
+	private ContendingExecutor executor;
+	private ReadyWriter mappedPathWriter;
+
+	static {
+		/* Load logging.properties. */
+		new LoggerRef(MappedPathWriterProviderTests.class);
+		System.setProperty("org.zzzyxwvut.impedimenta.contention",
+								"true");
+	}
+
+	private static String getCallerMethodsName(TestInfo info)
+	{
+		return info.getTestMethod()
+			.map(Method::getName)
+			.orElseGet(() -> StackWalker.getInstance()
+				.walk(frame -> frame.skip(1).findFirst())
+				.map(StackWalker.StackFrame::getMethodName)
+				.orElseGet(() -> "<INNOMINATE>"));
+	}
+
+	@BeforeEach
+	public void setUp() throws InterruptedException
+	{
+		mappedPathWriter = MappedPathWriterProvider.provider();
+		executor = ContendingExecutor.newInstance(THREADS);
+	}
+
+	@AfterEach
+	public void tearDown() throws InterruptedException
+	{
+		executor.shutdown();
+
+		do {
+			executor.awaitTermination(2L, TimeUnit.SECONDS);
+		} while (!executor.isTerminated());
+
+		final List<String> errors = executor.getErrors()
+			.stream()
+			.map(entry -> String.format("%s :: %s",
+						entry.getKey(),
+						entry.getValue().toString()))
+			.collect(Collectors.toUnmodifiableList());
+
+		if (!errors.isEmpty())
+			throw new UncaughtExceptionError(
+				String.format("Uncaught error(s): %s",
+						errors.toString()));
+	}
+
+	private static ReadyWriter newReadyWriter(ReadyWriter writer,
+					MappedPathWriterVisitor visitor)
+	{
+		return writer.accept(visitor)
+			.orElseThrow(IllegalStateException::new);
+	}
+
+	@Test
+	public void testConcurrentAppendingOfLines(TestInfo info)
+				throws IOException, InterruptedException
+	{
+		/* Straddle the regions with lines of 19 bytes and more. */
+		final String message = "foo bar baz quux 0".concat(NEWLINE);
+		final byte[] expected = message
+			.repeat(THREADS * 64)
+			.getBytes(StandardCharsets.UTF_8);
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+
+		try (ReadyWriter writer = newReadyWriter(mappedPathWriter,
+				new MappedPathWriterVisitor(path, 64,
+						StandardCharsets.UTF_8))) {
+			final Runnable r = () -> {
+				for (int i = 0; i < 64; ++i)
+					writer.write(message);
+			};
+			executor.executeAndWait(Collections.nCopies(THREADS,
+									r));
+		}
+
+		assertArrayEquals(expected, Files.readAllBytes(path));
+	}
+
+	@Test
+	public void testConcurrentForcingOfLines(TestInfo info)
+				throws IOException, InterruptedException
+	{
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+		final Path endPath = path.resolveSibling(path.getFileName()
+							+ ".end");
+		final AtomicInteger threads = new AtomicInteger();
+
+		try (ReadyWriter writer = newReadyWriter(mappedPathWriter,
+				new MappedPathWriterVisitor(path, 64,
+						StandardCharsets.UTF_8))) {
+			executor.executeAndWait(Collections.nCopies(THREADS,
+									() -> {
+				final int thread = threads.getAndIncrement();
+
+				for (int i = 0; i < 16; ++i) {
+					final String line = String.format(
+						"%d:%d%s", thread, i, NEWLINE);
+					writer.writeAndForce(line);
+
+					/* The recorded end covers the line. */
+					final String lines = NEWLINE.concat(
+						recorded(path, endPath));
+					assertTrue(lines.contains(
+						NEWLINE.concat(line)));
+				}
+			}));
+		}
+	}
+
+	/* Returns the messages up to the recorded end of a path. */
+	private static String recorded(Path path, Path endPath)
+	{
+		try (FileChannel channel = FileChannel.open(path)) {
+			final ByteBuffer end = ByteBuffer.wrap(
+					Files.readAllBytes(endPath));
+			final ByteBuffer buffer = ByteBuffer.allocate(
+						(int) end.getLong(0));
+
+			while (buffer.hasRemaining()
+					&& channel.read(buffer,
+						buffer.position()) > -1)
+				;
+
+			return new String(buffer.array(),
+						StandardCharsets.UTF_8);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Test
+	public void testReopeningOfUntruncatedPath(TestInfo info)
+							throws IOException
+	{
+		final byte[] expected = "foo bar baz"
+			.concat(NEWLINE)
+			.getBytes(StandardCharsets.UTF_8);
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+		final MappedPathWriterVisitor visitor =
+				new MappedPathWriterVisitor(path, 4096,
+						StandardCharsets.UTF_8);
+
+		/* Leave it open, as if it were a crash. */
+		newReadyWriter(mappedPathWriter, visitor)
+			.writeAndForce("foo ");
+		assertEquals(4096L, Files.size(path));
+
+		try (ReadyWriter writer = newReadyWriter(mappedPathWriter,
+								visitor)) {
+			writer.writeAll(List.of("bar ", "baz"));
+			writer.writeAndForce(NEWLINE);
+		}
+
+		assertArrayEquals(expected, Files.readAllBytes(path));
+	}
+
+	@Test
+	public void testReopeningOfUntruncatedPathOfZeros(TestInfo info)
+							throws IOException
+	{
+		final byte[] expected = new byte[] { 1, 0, 0, 2, 0 };
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+		final MappedPathWriterVisitor visitor =
+				new MappedPathWriterVisitor(path, 4096,
+						StandardCharsets.UTF_8);
+
+		/* Leave it open, as if it were a crash. */
+		newReadyWriter(mappedPathWriter, visitor)
+			.writeAndForce(new byte[] { 1, 0, 0 }, 0, 3);
+		assertEquals(4096L, Files.size(path));
+
+		try (ReadyWriter writer = newReadyWriter(mappedPathWriter,
+								visitor)) {
+			writer.writeAndForce(new byte[] { 2, 0 }, 0, 2);
+		}
+
+		assertArrayEquals(expected, Files.readAllBytes(path));
+		assertFalse(Files.exists(path.resolveSibling(
+					path.getFileName() + ".end")));
+	}
+
+	@Test
+	public void testRawWritingOfBytes(TestInfo info) throws IOException
+	{
+		final byte[] expected = "foo bar baz quux"
+			.concat(NEWLINE)
+			.getBytes(StandardCharsets.UTF_8);
+		final ByteBuffer swapped = ByteBuffer.allocateDirect(16)
+			.order(ByteOrder.LITTLE_ENDIAN)
+			.put("bar baz ".getBytes(StandardCharsets.UTF_8))
+			.flip();
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+		final ReadyWriter writer = newReadyWriter(mappedPathWriter,
+				new MappedPathWriterVisitor(path, 8,
+						StandardCharsets.UTF_8));
+		writer.write(new StringBuilder("foo "));
+		writer.write(swapped);
+		writer.writeAndForce("quux".concat(NEWLINE)
+			.getBytes(StandardCharsets.UTF_8), 0,
+				4 + NEWLINE.length());
+		writer.close();
+		assertArrayEquals(expected, Files.readAllBytes(path));
+		assertThrows(UncheckedIOException.class,
+			() -> writer.write("foo"));
+	}
+}
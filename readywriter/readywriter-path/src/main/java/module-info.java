@@ -1,6 +1,8 @@
 /**
- * Provides a path-writing implementation of {@code ReadyWriter}.
+ * Provides a path-writing implementation of {@code ReadyWriter} and
+ * a path-reading implementation of {@code ReadyReader}.
  *
+ * @provides org.zzzyxwvut.readywriter.ReadyReader
  * @provides org.zzzyxwvut.readywriter.ReadyWriter
  * @see org.zzzyxwvut.readywriter.service.Lookup
  */
@@ -13,7 +15,10 @@ module org.zzzyxwvut.readywriter.path
 //	requires org.zzzyxwvut.julics.core;
 //	requires org.zzzyxwvut.julics.naming;
 	requires org.zzzyxwvut.readywriter.service;
+	requires jdk.jfr;
 
+	provides org.zzzyxwvut.readywriter.ReadyReader with
+		org.zzzyxwvut.readywriter.path.internal.PathReaderProvider;
 	provides org.zzzyxwvut.readywriter.ReadyWriter with
 		org.zzzyxwvut.readywriter.path.internal.PathWriterProvider;
 }
@@ -0,0 +1,575 @@
+package org.zzzyxwvut.readywriter.path.internal;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.zzzyxwvut.readywriter.ReadyWriter;
+import org.zzzyxwvut.readywriter.event.ForceEvent;
+import org.zzzyxwvut.readywriter.event.LockEvent;
+import org.zzzyxwvut.readywriter.event.OpenEvent;
+import org.zzzyxwvut.readywriter.event.WriteEvent;
+import org.zzzyxwvut.readywriter.service.PathWriterVisitor;
+import org.zzzyxwvut.readywriter.service.RecordFormat;
+import org.zzzyxwvut.readywriter.support.ByteBuffers;
+import org.zzzyxwvut.readywriter.support.DurabilityTracker;
+import org.zzzyxwvut.readywriter.support.GroupCommitter;
+import org.zzzyxwvut.readywriter.support.MessageEncoder;
+import org.zzzyxwvut.readywriter.support.WriterMetrics;
+
+/**
+ * A service provider capable of writing to a path with direct I/O (see
+ * {@link PathWriterVisitor.Option#DIRECT}).
+ * <p>
+ * A file is opened and locked on the first write and kept open and locked
+ * until this service provider is closed. Messages are copied, under
+ * a private lock, into a staging buffer whose address and capacity are
+ * aligned to the block size of the file store; and whole blocks are written
+ * at aligned positions whenever the buffer fills up. A trailing partial
+ * block stays in the buffer: when forcing, it is written padded with zeros
+ * and the file is truncated to its written length; and when appending to an
+ * existing file, it is first read back from the file.
+ * <p>
+ * Forcing of written changes to the storage device is shared among
+ * concurrent callers (see {@link GroupCommitter}); with
+ * a {@link PathWriterVisitor#durability() durability} policy, staged
+ * messages are also forced as the policy requires (see
+ * {@link DurabilityTracker}).
+ * <p>
+ * With a {@link PathWriterVisitor#recordFormat() record format}, every
+ * message is staged after its header (see {@link RecordFormat}); and
+ * sequence numbers are numbered on from the last record of an appendable
+ * file.
+ */
+final class DirectPathWriter implements PathWriterProvider
+{
+	private static final Optional<OpenOption> DIRECT = directOption();
+	private static final int STAGING_CAPACITY = 1 << 20;
+	private static final int DEFAULT_BLOCK_SIZE = 4096;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final PathWriterVisitor pwVisitor;
+	private final GroupCommitter<FileChannel> committer;
+	private final DurabilityTracker<FileChannel> durability;
+	private final RecordFormat.Framer framer;
+	private final WriterMetrics metrics;
+	private final MessageEncoder.Pool encoders;
+	private final String target;
+	private volatile FileChannel channel;
+	private ByteBuffer staging;
+	private long stagingStart;	/* The file position of staging. */
+	private int blockSize;
+	private boolean closed;
+
+	/**
+	 * Constructs a new {@code DirectPathWriter} object.
+	 *
+	 * @param pwVisitor a supported visitor with the direct option
+	 */
+	DirectPathWriter(PathWriterVisitor pwVisitor)
+	{
+		this.pwVisitor = Objects.requireNonNull(pwVisitor, "pwVisitor");
+		encoders = MessageEncoder.pool(pwVisitor.charset());
+		target = pwVisitor.path().toString();
+		metrics = WriterMetrics.of(this, PathWriterProvider.class,
+								target);
+		committer = new GroupCommitter<>(metrics.timed(
+				ForceEvent.timed(PathWriterProvider.class,
+							target, this::force)));
+		durability = pwVisitor.durability()
+			.map(policy -> new DurabilityTracker<>(
+						policy.maxMessages(),
+						policy.maxBytes(),
+						policy.maxDelay().orElse(null),
+						committer))
+			.orElse(null);
+		framer = pwVisitor.recordFormat()
+			.map(format -> format.framer(pwVisitor.byteOrder()))
+			.orElse(null);
+	}
+
+	/*
+	 * Looks up com.sun.nio.file.ExtendedOpenOption.DIRECT, without
+	 * compiling against an unsupported API (whose module need not be
+	 * resolved).
+	 */
+	private static Optional<OpenOption> directOption()
+	{
+		try {
+			return Optional.of(Class.forName(
+					"com.sun.nio.file.ExtendedOpenOption")
+				.getField("DIRECT")
+				.get(null))
+				.map(OpenOption.class::cast);
+		} catch (final ReflectiveOperationException ignored) {
+			return Optional.empty();
+		}
+	}
+
+	/* Opens, locks and positions a file (guarded by lock). */
+	private FileChannel openedChannel() throws IOException
+	{
+		if (closed)
+			throw new ClosedChannelException();
+
+		if (channel != null)
+			return channel;
+
+		if (DIRECT.isEmpty())
+			throw new FileSystemException(target, null,
+						"Direct I/O is not supported");
+
+		final OpenEvent openEvent = new OpenEvent(
+					PathWriterProvider.class, target);
+		openEvent.begin();
+		final FileChannel newChannel;
+
+		try {
+			newChannel = FileChannel.open(pwVisitor.path(),
+					Set.of(StandardOpenOption.CREATE,
+						StandardOpenOption.READ,
+						StandardOpenOption.WRITE,
+						DIRECT.get()),
+					PathWriter.FILE_ATTRIBUTES);
+		} catch (final UnsupportedOperationException e) {
+			throw (IOException) new FileSystemException(target,
+					null, "Direct I/O is not supported")
+				.initCause(e);
+		}
+
+		openEvent.commit();
+
+		try {
+			PathWriter.lockExclusively(newChannel, pwVisitor.path());
+
+			try {
+				blockSize = (int) Files.getFileStore(
+							pwVisitor.path())
+					.getBlockSize();
+			} catch (final UnsupportedOperationException ignored) {
+				blockSize = DEFAULT_BLOCK_SIZE;
+			}
+
+			final int capacity = Math.max(blockSize,
+						STAGING_CAPACITY / blockSize
+							* blockSize);
+			staging = ByteBuffer.allocateDirect(capacity + blockSize)
+				.alignedSlice(blockSize)
+				.limit(capacity)
+				.slice();
+
+			if (!pwVisitor.appendable())
+				newChannel.truncate(0L);
+
+			final long size = newChannel.size();
+			stagingStart = size / blockSize * blockSize;
+
+			if (framer != null && pwVisitor.appendable()
+					&& framer.format().sequenced())
+				framer.resume(PathWriter.lastSequence(
+						pwVisitor.path(),
+						framer.format(),
+						pwVisitor.byteOrder(),
+						0L, size));
+
+			if (stagingStart < size) {	/* Read-modify-write. */
+				final int tail = (int) (size - stagingStart);
+
+				/* A short read ends at the end of file. */
+				if (newChannel.read(staging.limit(blockSize),
+							stagingStart) < tail)
+					throw new EOFException(target);
+
+				staging.limit(capacity)
+					.position(tail);
+			}
+		} catch (final IOException | RuntimeException e) {
+			newChannel.close();
+			throw e;
+		}
+
+		channel = newChannel;
+		return newChannel;
+	}
+
+	/*
+	 * Writes aligned blocks of staging, resuming a short write at
+	 * the last whole block written (guarded by lock).
+	 */
+	private void writeBlocks(int length) throws IOException
+	{
+		final ByteBuffer blocks = staging.duplicate()
+			.position(0)
+			.limit(length);
+
+		while (blocks.hasRemaining()) {
+			final int from = blocks.position();
+			channel.write(blocks, stagingStart + from);
+
+			if (!blocks.hasRemaining())
+				break;
+
+			final int to = blocks.position() / blockSize
+								* blockSize;
+
+			if (to == from)
+				throw new IOException(String.format(
+					"Short write at %d: %s",
+					stagingStart + from, target));
+
+			blocks.position(to);
+		}
+	}
+
+	/* Copies bytes to staging and writes it when full (guarded by lock). */
+	private long stage(ByteBuffer source) throws IOException
+	{
+		final long length = source.remaining();
+
+		while (source.hasRemaining()) {
+			final int count = Math.min(source.remaining(),
+							staging.remaining());
+			staging.put(source.duplicate()
+				.limit(source.position() + count));
+			source.position(source.position() + count);
+
+			if (!staging.hasRemaining()) {
+				writeBlocks(staging.capacity());
+				stagingStart += staging.capacity();
+				staging.clear();
+			}
+		}
+
+		return length;
+	}
+
+	/*
+	 * Writes a padded trailing partial block, keeping it staged, and
+	 * truncates the file to its written length (guarded by lock).
+	 */
+	private void writeTail() throws IOException
+	{
+		final int length = staging.position();
+
+		if (length == 0)
+			return;
+
+		final int whole = length / blockSize * blockSize;
+		final int padded = (whole == length)
+			? length
+			: whole + blockSize;
+
+		for (int i = length; i < padded; ++i)
+			staging.put(i, (byte) 0);
+
+		writeBlocks(padded);
+
+		if (padded > length)
+			channel.truncate(stagingStart + length);
+
+		/* Only keep the partial block staged. */
+		staging.flip()
+			.position(whole);
+		staging.compact();
+		stagingStart += whole;
+	}
+
+	/* Takes a closed channel for a forced one (see #close()). */
+	private void force(FileChannel forcible) throws IOException
+	{
+		lock.lock();
+
+		try {
+			if (closed)
+				return;
+
+			writeTail();
+		} finally {
+			lock.unlock();
+		}
+
+		forcible.force(false);
+	}
+
+	private void doWrite(CharSequence message, boolean forced)
+	{
+		final MessageEncoder encoder = encoders.acquire();
+
+		try {
+			doWrite(new ByteBuffer[] { encoder.encode(message) },
+								forced);
+		} finally {
+			encoders.release(encoder);
+		}
+	}
+
+	private void doWrite(ByteBuffer buffer, boolean forced)
+	{
+		doWrite(new ByteBuffer[] {
+			Objects.requireNonNull(buffer, "buffer")
+		}, forced);
+	}
+
+	private void doWriteAll(List<? extends CharSequence> messages,
+							boolean forced)
+	{
+		final ByteBuffer[] buffers = ByteBuffers.encodeAll(messages,
+							pwVisitor.charset());
+
+		if (buffers.length > 0)
+			doWrite(buffers, forced);
+	}
+
+	private void doWrite(ByteBuffer[] payloads, boolean forced)
+	{
+		final ByteBuffer[] buffers = (framer != null)
+			? framer.frame(payloads)
+			: payloads;
+		final long ticket;
+
+		try {
+			final long since = metrics.clock();
+			final LockEvent lockEvent = new LockEvent(
+						PathWriterProvider.class, target,
+							LockEvent.PRIVATE);
+			lockEvent.begin();
+			lock.lock();
+
+			try {
+				lockEvent.commit();
+				metrics.monitorEntered(since);
+				final FileChannel channel = openedChannel();
+				final long start = metrics.clock();
+				final WriteEvent writeEvent = new WriteEvent(
+						PathWriterProvider.class,
+								target);
+				writeEvent.begin();
+				long length = 0L;
+
+				if (framer != null)
+					framer.stamp(buffers);
+
+				for (final ByteBuffer buffer : buffers)
+					length += stage(buffer);
+
+				metrics.written(writeEvent.commit(length),
+									start);
+				ticket = (forced || (durability != null
+						&& durability.written(
+							payloads.length,
+							length, channel)))
+					? committer.ticket(channel)
+					: 0L;
+			} finally {
+				lock.unlock();
+			}
+
+			if (ticket != 0L)
+				committer.force(ticket);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Stages a message to be written to a path.
+	 *
+	 * @implNote Staging is guarded with a private lock.
+	 *
+	 * @param message a message to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void write(String message)	{ doWrite(message, false); }
+
+	/**
+	 * Stages a message to be written to a path.
+	 *
+	 * @implNote Staging is guarded with a private lock.
+	 *
+	 * @param message a message to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void write(CharSequence message)	{ doWrite(message, false); }
+
+	/**
+	 * Writes a message to a path, forcing any changes to the containing
+	 * storage device.
+	 *
+	 * @implNote Staging is guarded with a private lock; forcing is shared
+	 * among concurrent callers.
+	 *
+	 * @param message a message to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAndForce(String message) { doWrite(message, true); }
+
+	/**
+	 * Writes a message to a path, forcing any changes to the containing
+	 * storage device.
+	 *
+	 * @implNote Staging is guarded with a private lock; forcing is shared
+	 * among concurrent callers.
+	 *
+	 * @param message a message to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAndForce(CharSequence message)
+	{
+		doWrite(message, true);
+	}
+
+	/**
+	 * Stages the remaining bytes of a buffer to be written to a path, as
+	 * they are.
+	 *
+	 * @implNote Staging is guarded with a private lock.
+	 *
+	 * @param buffer a buffer of bytes to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void write(ByteBuffer buffer)	{ doWrite(buffer, false); }
+
+	/**
+	 * Writes the remaining bytes of a buffer to a path, as they are,
+	 * forcing any changes to the containing storage device.
+	 *
+	 * @implNote Staging is guarded with a private lock; forcing is shared
+	 * among concurrent callers.
+	 *
+	 * @param buffer a buffer of bytes to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAndForce(ByteBuffer buffer) { doWrite(buffer, true); }
+
+	/**
+	 * Stages messages to be written to a path.
+	 *
+	 * @implNote Staging is guarded with a private lock.
+	 *
+	 * @param messages messages to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAll(List<? extends CharSequence> messages)
+	{
+		doWriteAll(messages, false);
+	}
+
+	/**
+	 * Writes messages to a path, forcing any changes to the containing
+	 * storage device.
+	 *
+	 * @implNote Staging is guarded with a private lock; forcing is shared
+	 * among concurrent callers.
+	 *
+	 * @param messages messages to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAllAndForce(List<? extends CharSequence> messages)
+	{
+		doWriteAll(messages, true);
+	}
+
+	/**
+	 * Writes any staged messages and forces any changes to the containing
+	 * storage device, without writing a message.
+	 *
+	 * @implNote Forcing is shared among concurrent callers.
+	 *
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void force()
+	{
+		try {
+			final long ticket;
+
+			lock.lock();
+
+			try {
+				ticket = committer.ticket(openedChannel());
+			} finally {
+				lock.unlock();
+			}
+
+			committer.force(ticket);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes any staged messages and closes a file, if it is open,
+	 * forcing it first while a ticket is not yet covered.
+	 * <p>
+	 * (Any attempt to write with a closed service provider shall fail.)
+	 *
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void close()
+	{
+		lock.lock();
+
+		try {
+			if (closed)
+				return;
+
+			closed = true;
+
+			if (durability != null)
+				durability.close();
+
+			final FileChannel oldChannel = channel;
+
+			if (oldChannel != null) {
+				try (oldChannel) {
+					writeTail();
+
+					if (committer.pending())
+						oldChannel.force(false);
+				}
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			metrics.close();
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Kind kind()			{ return Kind.PATH; }
+
+	@Override
+	public <T extends Visitor<? extends T>> Optional<ReadyWriter> accept(
+								T visitor)
+	{
+		return Objects.requireNonNull(visitor, "visitor")
+			.visit(this)
+			.filter(PathWriterVisitor.class::isInstance)
+			.map(Function.<PathWriterVisitor>identity()
+				.andThen(PathWriter::newPathWriter)
+				.compose(PathWriterVisitor.class::cast));
+	}
+}
@@ -0,0 +1,463 @@
+package org.zzzyxwvut.readywriter.path.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.zzzyxwvut.readywriter.ReadyReader;
+import org.zzzyxwvut.readywriter.ReadyWriter.Kind;
+import org.zzzyxwvut.readywriter.service.PathReaderVisitor;
+import org.zzzyxwvut.readywriter.service.RecordFormat;
+
+/**
+ * A service provider capable of tailing a path.
+ * <p>
+ * A file is opened on the first poll that finds it, and it is mapped into
+ * memory, read-only, in windows that span from the position of the next
+ * message up to {@value #WINDOW_BYTES} bytes or the current size of
+ * the file. A window is kept across polls and is mapped anew only when
+ * a message reaches beyond it, e.g. when the file has grown; so every
+ * message appended between two polls is read from a single mapping. Every
+ * message is handed out as a read-only slice of a window, without copying;
+ * a slice keeps its window mapped for as long as it is reachable.
+ * <p>
+ * <strong>A slice of a mapped window is only valid for as long as its file
+ * is not truncated below the end of the slice; accessing it afterwards may
+ * fail with an {@link InternalError}, or worse. Copy those messages that
+ * are kept while a file can be truncated.</strong> A file that shrinks
+ * below the position of the next message is read anew from its start; one
+ * that is replaced, e.g. rotated, or removed and created anew is read from
+ * its start once no more messages are found in the file being read (where
+ * the file system supports {@link BasicFileAttributes#fileKey() file keys}).
+ * <p>
+ * While waiting for messages, the parent directory of a file is watched for
+ * changes (see {@link WatchService}), and the size of the file is polled
+ * at the interval of a visitor in any case, for changes that are not
+ * reported, e.g. memory-mapped writes.
+ * <p>
+ * For framed records, a header with a zero sequence number, e.g. of
+ * preallocated space, is taken for the end of written records; for records
+ * without sequence numbers, a header with a zero length (and timestamp)
+ * is, when only zero bytes follow it to the end of a file. Zero bytes are
+ * searched anew for line feeds on every poll, should they be overwritten
+ * with lines. The position of a consumer is persisted in a file of its
+ * own, which is replaced atomically (see
+ * {@link PathReaderVisitor#positionPath(Path, String)}).
+ */
+final class PathReader implements PathReaderProvider
+{
+	private static final long WINDOW_BYTES = 1L << 26;
+	private static final byte LINE_FEED = '\n';
+
+	private final PathReaderVisitor prVisitor;
+	private final Path positionPath;
+	private FileChannel channel;
+	private Object fileKey;
+	private WatchService watcher;
+	private MappedByteBuffer window;
+	private long windowStart;
+	private long position;
+	private long scanned;		/* Line-feed-free bytes from position. */
+	private boolean closed;
+
+	/**
+	 * Constructs a new {@code PathReader} object.
+	 *
+	 * @param prVisitor a supported visitor, or {@code null} for reading
+	 *	nothing
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	PathReader(PathReaderVisitor prVisitor)
+	{
+		this.prVisitor = prVisitor;
+		positionPath = (prVisitor == null)
+			? null
+			: prVisitor.consumer()
+				.map(consumer -> PathReaderVisitor
+					.positionPath(prVisitor.path(),
+								consumer))
+				.orElse(null);
+
+		try {
+			position = (positionPath != null
+					&& Files.exists(positionPath))
+				? Long.parseLong(Files.readString(positionPath,
+						StandardCharsets.US_ASCII)
+					.strip())
+				: 0L;
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void requireOpen()
+	{
+		if (closed)
+			throw new IllegalStateException("Closed");
+
+		if (prVisitor == null)
+			throw new IllegalStateException("No path");
+	}
+
+	/* Opens a file, unless it is missing. */
+	private boolean opened() throws IOException
+	{
+		if (channel != null)
+			return true;
+
+		try {
+			channel = FileChannel.open(prVisitor.path(),
+						StandardOpenOption.READ);
+			fileKey = fileKey();
+			return true;
+		} catch (final NoSuchFileException ignored) {
+			return false;
+		}
+	}
+
+	private Object fileKey() throws IOException
+	{
+		return Files.readAttributes(prVisitor.path(),
+					BasicFileAttributes.class)
+			.fileKey();
+	}
+
+	/* Tells whether a file has been replaced with another file. */
+	private boolean replaced() throws IOException
+	{
+		try {
+			final Object key = fileKey();
+			return (key != null && !key.equals(fileKey));
+		} catch (final NoSuchFileException ignored) {
+			return false;	/* Read on until it is replaced. */
+		}
+	}
+
+	private void closeChannel() throws IOException
+	{
+		window = null;
+
+		try {
+			if (channel != null)
+				channel.close();
+		} finally {
+			channel = null;
+			fileKey = null;
+		}
+	}
+
+	/*
+	 * Returns a window that covers the passed range of a file of
+	 * the passed size.
+	 */
+	private ByteBuffer window(long start, long length, long size)
+							throws IOException
+	{
+		if (window == null || start < windowStart
+				|| start + length > windowStart
+						+ window.capacity()) {
+			windowStart = start;
+			window = channel.map(FileChannel.MapMode.READ_ONLY,
+				start, Math.min(size - start,
+					Math.max(length, WINDOW_BYTES)));
+		}
+
+		return window;
+	}
+
+	private ByteBuffer slice(long start, int length)
+	{
+		final int offset = (int) (start - windowStart);
+		return window.duplicate()
+			.position(offset)
+			.limit(offset + length)
+			.slice()
+			.asReadOnlyBuffer()
+			.order(prVisitor.byteOrder());
+	}
+
+	/* Tells whether the passed range of a file holds zero bytes only. */
+	private boolean zeroes(long start, long size) throws IOException
+	{
+		for (long from = start; from < size; ) {
+			final ByteBuffer buffer = window(from, 1L, size);
+			final int end = (int) Math.min(size - windowStart,
+							buffer.capacity());
+
+			for (int i = (int) (from - windowStart); i < end; ++i) {
+				if (buffer.get(i) != 0)
+					return false;
+			}
+
+			from = windowStart + end;
+		}
+
+		return true;
+	}
+
+	private Optional<ByteBuffer> nextRecord(RecordFormat format, long size)
+							throws IOException
+	{
+		final int headerBytes = format.headerBytes();
+
+		if (size - position < headerBytes)
+			return Optional.empty();
+
+		final ByteBuffer header = window(position, headerBytes, size);
+		final int offset = (int) (position - windowStart);
+		final int length = header.order(prVisitor.byteOrder())
+			.getInt(offset);
+
+		if ((format.sequenced())
+				? header.getLong(offset
+					+ RecordFormat.LENGTH_BYTES) == 0L
+				: length == 0 && (!format.timestamped()
+					|| header.getLong(offset
+						+ RecordFormat.LENGTH_BYTES)
+									== 0L)
+					&& zeroes(position + headerBytes,
+									size))
+			return Optional.empty();	/* Not yet written. */
+
+		if (length < 0)
+			throw new UncheckedIOException(new IOException(
+				String.format("Malformed record at %d: %s",
+					position, prVisitor.path())));
+
+		if (size - position - headerBytes < length)
+			return Optional.empty();
+
+		window(position, headerBytes + (long) length, size);
+		final ByteBuffer message = slice(position + headerBytes,
+								length);
+		position += headerBytes + (long) length;
+		return Optional.of(message);
+	}
+
+	private Optional<ByteBuffer> nextLine(long size) throws IOException
+	{
+		long zero = -1L;	/* The first zero byte scanned. */
+
+		while (position + scanned < size) {
+			final ByteBuffer buffer = window(position,
+					Math.min(size - position,
+						scanned + 1L), size);
+			final int end = (int) Math.min(size - windowStart,
+						buffer.capacity());
+
+			for (int i = (int) (position + scanned - windowStart);
+							i < end; ++i) {
+				final byte b = buffer.get(i);
+
+				if (b == 0 && zero < 0L)
+					zero = windowStart + i;
+
+				if (b != LINE_FEED)
+					continue;
+
+				final int length = (int) (windowStart + i
+								- position);
+				final ByteBuffer message = slice(position,
+								length);
+				position += length + 1L;
+				scanned = 0L;
+				return Optional.of(message);
+			}
+
+			scanned = windowStart + end - position;
+		}
+
+		if (zero >= 0L)
+			scanned = zero - position;
+
+		return Optional.empty();
+	}
+
+	private Optional<ByteBuffer> next() throws IOException
+	{
+		final long size = channel.size();
+
+		if (size < position) {		/* Truncated. */
+			position = 0L;
+			scanned = 0L;
+		}
+
+		/* Drop a window that reaches past the end of a shrunk file. */
+		if (window != null && windowStart + window.capacity() > size)
+			window = null;
+
+		if (position >= size)
+			return Optional.empty();
+
+		return prVisitor.recordFormat()
+			.isPresent()
+				? nextRecord(prVisitor.recordFormat()
+						.get(), size)
+				: nextLine(size);
+	}
+
+	@Override
+	public Optional<ByteBuffer> poll()
+	{
+		requireOpen();
+
+		try {
+			if (!opened())
+				return Optional.empty();
+
+			final Optional<ByteBuffer> message = next();
+
+			if (message.isPresent() || !replaced())
+				return message;
+
+			closeChannel();
+			position = 0L;
+			scanned = 0L;
+			return (opened()) ? next() : Optional.empty();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/* Waits for a change of the parent directory or a poll interval. */
+	private void await(long nanos) throws InterruptedException
+	{
+		if (watcher == null) {
+			try {
+				final Path parent = prVisitor.path()
+					.toAbsolutePath()
+					.getParent();
+				watcher = parent.getFileSystem()
+					.newWatchService();
+				parent.register(watcher,
+					StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+			} catch (final IOException
+					| UnsupportedOperationException e) {
+				TimeUnit.NANOSECONDS.sleep(nanos);
+				return;
+			}
+		}
+
+		final WatchKey key = watcher.poll(nanos, TimeUnit.NANOSECONDS);
+
+		if (key != null) {
+			key.pollEvents();
+			key.reset();
+		}
+	}
+
+	@Override
+	public Optional<ByteBuffer> poll(Duration timeout)
+						throws InterruptedException
+	{
+		final long deadline = System.nanoTime() + Objects
+			.requireNonNull(timeout, "timeout")
+			.toNanos();
+		final long interval = prVisitor.pollInterval().toNanos();
+
+		for (;;) {
+			final Optional<ByteBuffer> message = poll();
+
+			if (message.isPresent())
+				return message;
+
+			final long remaining = deadline - System.nanoTime();
+
+			if (remaining <= 0L)
+				return Optional.empty();
+
+			await(Math.min(remaining, interval));
+		}
+	}
+
+	@Override
+	public long position()			{ return position; }
+
+	/**
+	 * Persists the position past the last handed-out message for
+	 * the consumer of this reader.
+	 *
+	 * @throws IllegalStateException if this reader has no consumer
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void commit()
+	{
+		requireOpen();
+
+		if (positionPath == null)
+			throw new IllegalStateException("No consumer");
+
+		try {
+			final Path tmpPath = positionPath.resolveSibling(
+					positionPath.getFileName() + ".tmp");
+			Files.writeString(tmpPath, Long.toString(position)
+						.concat("\n"),
+					StandardCharsets.US_ASCII);
+			Files.move(tmpPath, positionPath,
+					StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Closes a file and stops watching its parent directory.
+	 *
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void close()
+	{
+		closed = true;
+
+		try {
+			if (watcher != null)
+				watcher.close();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			watcher = null;
+
+			try {
+				closeChannel();
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	@Override
+	public Kind kind()			{ return Kind.PATH; }
+
+	@Override
+	public <T extends Visitor<? extends T>> Optional<ReadyReader> accept(
+								T visitor)
+	{
+		return Objects.requireNonNull(visitor, "visitor")
+			.visit(this)
+			.filter(PathReaderVisitor.class::isInstance)
+			.map(Function.<PathReaderVisitor>identity()
+				.andThen(PathReader::new)
+				.compose(PathReaderVisitor.class::cast));
+	}
+}
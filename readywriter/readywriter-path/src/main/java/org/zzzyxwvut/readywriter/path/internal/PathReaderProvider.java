@@ -0,0 +1,25 @@
+package org.zzzyxwvut.readywriter.path.internal;
+
+import org.zzzyxwvut.readywriter.ReadyReader;
+import org.zzzyxwvut.readywriter.annotation.Namable;
+
+/** A path-reading {@code ReadyReader}. */
+@Namable("org.zzzyxwvut.readywriter.PathReaderProvider")
+public interface PathReaderProvider extends ReadyReader
+{
+	/**
+	 * Creates an instance of this service provider. It is set to read
+	 * nothing; a reader of a file shall be obtained with
+	 * {@link ReadyReader#accept(ReadyReader.Visitor)}.
+	 *
+	 * @return an instance of this service provider
+	 * @see java.util.ServiceLoader.Provider#type()
+	 * @see org.zzzyxwvut.readywriter.service.Lookup#readyReader(
+	 *	ReadyReader.Visitor)
+	 * @see org.zzzyxwvut.readywriter.service.PathReaderVisitor
+	 */
+	static PathReaderProvider provider()
+	{
+		return new PathReader(null);
+	}
+}
@@ -1,22 +1,135 @@
 package org.zzzyxwvut.readywriter.path.internal;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.FileSystems;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import org.zzzyxwvut.readywriter.ReadyWriter;
+import org.zzzyxwvut.readywriter.event.ForceEvent;
+import org.zzzyxwvut.readywriter.event.LockEvent;
+import org.zzzyxwvut.readywriter.event.OpenEvent;
+import org.zzzyxwvut.readywriter.event.WriteEvent;
+import org.zzzyxwvut.readywriter.service.DurabilityPolicy;
 import org.zzzyxwvut.readywriter.service.PathWriterVisitor;
+import org.zzzyxwvut.readywriter.service.RecordFormat;
+import org.zzzyxwvut.readywriter.service.RecordIndex;
+import org.zzzyxwvut.readywriter.service.RecordReader;
+import org.zzzyxwvut.readywriter.support.ByteBuffers;
+import org.zzzyxwvut.readywriter.support.DurabilityTracker;
+import org.zzzyxwvut.readywriter.support.FlatCombiner;
+import org.zzzyxwvut.readywriter.support.GroupCommitter;
+import org.zzzyxwvut.readywriter.support.MessageEncoder;
+import org.zzzyxwvut.readywriter.support.WriterMetrics;
 
-/** A service provider capable of writing to a path. */
+/**
+ * A service provider capable of writing to a path.
+ * <p>
+ * By default, a file is opened, locked, written to and closed for every
+ * write. With the {@link PathWriterVisitor.Option#PERSISTENT PERSISTENT}
+ * option, a file is opened once and kept open until this service provider
+ * is closed, and it is only locked for every write; the file is opened anew
+ * whenever its {@link BasicFileAttributes#fileKey() file key} is found to
+ * have changed or the file is found deleted. With the
+ * {@link PathWriterVisitor.Option#EXCLUSIVE EXCLUSIVE} option, a file is
+ * also locked once, when it is opened, and it is no longer locked for every
+ * write; the file lock is held until this service provider is closed, so
+ * that another writer of the file fails to open it in the meantime. With
+ * a {@link PathWriterVisitor#preallocation() preallocation} policy, an
+ * appendable file is also kept open and locked, and it is extended with
+ * zero bytes in chunks ahead of the written length and truncated to
+ * the written length when it is closed.
+ * <p>
+ * With a {@link PathWriterVisitor#rollover() rollover} policy, messages are
+ * appended to segments of a path that are kept open between writes. The
+ * first segment is created on the first write; the next segment is
+ * created, opened and extended to the size limit in the background ahead
+ * of a rollover, taking the next free index should another process have
+ * created a segment of its index; and a full segment is truncated to its
+ * written length, forced and closed in the background after it.
+ * <p>
+ * With a {@link PathWriterVisitor#sharding() sharding} policy, messages are
+ * written by a {@link ShardedPathWriter} instead; and, otherwise, with
+ * the {@link PathWriterVisitor.Option#DIRECT DIRECT} option, messages are
+ * written by a {@link DirectPathWriter} instead.
+ * <p>
+ * Forcing of written changes to the storage device is shared among
+ * concurrent callers of a file kept open between writes (see
+ * {@link GroupCommitter}): callers that arrive while a force is under way
+ * join the next one, which covers the changes of them all; the channel that
+ * is forced is the one written with, as it is when a ticket is taken, and
+ * a channel that is closed, or replaced, is forced first if it has unforced
+ * changes. Otherwise, every caller forces the channel that it has written
+ * with, before closing it. With a {@link PathWriterVisitor#durability()
+ * durability} policy, changes written without forcing are also forced as
+ * the policy requires (see {@link DurabilityTracker}); with an interval of
+ * forcing, a file is also kept open between writes.
+ * <p>
+ * With the {@link PathWriterVisitor.Option#COMBINING COMBINING} option,
+ * concurrent writes are combined into gathering writes (see
+ * {@link FlatCombiner}), and the private lock and the file lock are taken
+ * once for every combined write; writes with forcing of a file that is not
+ * kept open between writes are not combined.
+ * <p>
+ * With a {@link PathWriterVisitor#recordFormat() record format}, every
+ * message is framed with a header (see {@link RecordFormat}) that is written
+ * along with it in a gathering write; sequence numbers and timestamps are
+ * stamped while the private lock is held. Sequence numbers are numbered on
+ * from the last record of an appendable file whenever the file is opened,
+ * reading the records appended since this service provider last read or
+ * wrote the file. With preallocation, the written length of a file of
+ * records that was not closed is found by reading its records, and
+ * a header of zero bytes is taken for the end of records. With an
+ * {@link PathWriterVisitor#indexing() indexing} policy, an appendable file
+ * is also kept open and locked, its sidecar index is brought up to date
+ * whenever it is opened, and the positions of written records are gathered
+ * for the index while the private lock is held (see
+ * {@link RecordIndex.Appender}).
+ * <p>
+ * Single messages are encoded into the reusable direct buffer of an encoder
+ * that is taken from a bounded pool for the duration of a write, which is
+ * shared by every writer of the same character set (see
+ * {@link MessageEncoder#pool(java.nio.charset.Charset)}).
+ * <p>
+ * The written bytes and the latencies of writing, waiting on the private
+ * lock and the file lock, and forcing are recorded when enabled (see
+ * {@link WriterMetrics}), and the phases of opening, locking, writing and
+ * forcing emit flight recorder events (see
+ * {@link org.zzzyxwvut.readywriter.event}).
+ *
+ * @implNote
+ * No monitor is held across blocking file operations (the private lock is
+ * a {@link ReentrantLock}), lest a virtual thread pin its carrier thread
+ * while waiting on the file lock or the storage device.
+ */
 final class PathWriter implements PathWriterProvider
 {
 	private static final Set<StandardOpenOption> TRUNCATE_OPTS =
@@ -27,7 +140,20 @@ final class PathWriter implements PathWriterProvider
 				Set.of(StandardOpenOption.CREATE,
 					StandardOpenOption.APPEND,
 					StandardOpenOption.WRITE);
-	private static final FileAttribute<?>[] FILE_ATTRIBUTES =
+	private static final Set<StandardOpenOption> WRITE_OPTS =
+				Set.of(StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE);
+	private static final Set<StandardOpenOption> PREALLOCATE_OPTS =
+				Set.of(StandardOpenOption.CREATE,
+					StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+	private static final Set<StandardOpenOption> END_OPTS =
+				Set.of(StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE);
+	private static final Set<StandardOpenOption> SEGMENT_OPTS =
+				Set.of(StandardOpenOption.CREATE_NEW,
+					StandardOpenOption.WRITE);
+	static final FileAttribute<?>[] FILE_ATTRIBUTES =
 				(FileSystems.getDefault()
 					.supportedFileAttributeViews()
 					.contains("posix"))
@@ -36,16 +162,32 @@ final class PathWriter implements PathWriterProvider
 				PosixFilePermissions.fromString("rw-r-----"))
 		}
 		: new FileAttribute<?>[0];
-	private static final Writer FORCER = (channel, buffer) -> {
-		channel.write(buffer);
-		channel.force(false);
-	};	/* fsync(3): EINVAL for pipes, sockets, FIFOs. */
-	private static final Writer WRITER = FileChannel::write;
+	private static final ByteBuffer ZEROS = ByteBuffer.allocateDirect(
+							1 << 16)
+		.asReadOnlyBuffer();
+	private static final Writer<ByteBuffer> WRITER = FileChannel::write;
+	private static final Writer<ByteBuffer> RAW_WRITER =
+						ByteBuffers::writeFully;
+	private static final Writer<ByteBuffer[]> BATCH_WRITER =
+						ByteBuffers::writeFully;
 
-	private final Object lock = new Object();
+	private final ReentrantLock lock = new ReentrantLock();
 	private final PathWriterVisitor pwVisitor;
-	private final Set<StandardOpenOption> openOptions;
 	private final Seeker seeker;
+	private final Channeler channeler;
+	private final GroupCommitter.Forcer<FileChannel> forcer;
+	private final GroupCommitter<FileChannel> committer;
+	private final boolean sharedForcing;
+	private final FlatCombiner combiner;
+	private final DurabilityTracker<FileChannel> durability;
+	private final RecordFormat.Framer framer;
+	private final Writer<ByteBuffer[]> framedWriter;
+	private final RecordIndex.Appender indexer;
+	private FileChannel indexedChannel;
+	private long resumedEnd;
+	private final WriterMetrics metrics;
+	private final MessageEncoder.Pool encoders;
+	private final String target;
 
 	/**
 	 * Constructs a new {@code PathWriter} object.
@@ -55,14 +197,225 @@ final class PathWriter implements PathWriterProvider
 	PathWriter(PathWriterVisitor pwVisitor)
 	{
 		this.pwVisitor = Objects.requireNonNull(pwVisitor, "pwVisitor");
+		encoders = MessageEncoder.pool(pwVisitor.charset());
+		final PathWriterVisitor.Preallocation preallocation = pwVisitor
+			.preallocation()
+			.filter(policy -> pwVisitor.appendable()
+					&& pwVisitor.rollover().isEmpty())
+			.orElse(null);
+		final RecordIndex recordIndex = pwVisitor.recordIndex()
+			.filter(index -> pwVisitor.appendable()
+					&& pwVisitor.rollover().isEmpty())
+			.orElse(null);
+		final boolean exclusive = preallocation != null
+				|| recordIndex != null
+				|| pwVisitor.options()
+			.contains(PathWriterVisitor.Option.EXCLUSIVE);
+		final boolean persistent = exclusive || pwVisitor.options()
+			.contains(PathWriterVisitor.Option.PERSISTENT)
+				|| pwVisitor.durability()
+			.flatMap(DurabilityPolicy::maxDelay)
+			.isPresent();
+		final Set<StandardOpenOption> openOptions;
 
-		if (pwVisitor.appendable()) {
+		if (preallocation != null) {	/* Position at written length. */
+			openOptions = PREALLOCATE_OPTS;
+			seeker = channel -> channel;
+		} else if (pwVisitor.appendable()
+				|| pwVisitor.rollover().isPresent()) {
 			openOptions = APPEND_OPTS;
 			seeker = channel -> channel;
+		} else if (persistent) {	/* Lock, then truncate. */
+			openOptions = (exclusive)
+				? WRITE_OPTS
+				: TRUNCATE_OPTS;
+			seeker = channel -> channel.truncate(0L)
+				.position(0L);
 		} else {
 			openOptions = TRUNCATE_OPTS;
 			seeker = channel -> channel.position(0L);
 		}	/* lseek(3): ESPIPE for pipes, sockets, FIFOs. */
+
+		target = pwVisitor.path().toString();
+		metrics = WriterMetrics.of(this, PathWriterProvider.class,
+								target);
+		final Scanner scanner = pwVisitor.recordFormat()
+			.<Scanner>map(format -> (channel, knownLength) ->
+				recordsLength(channel, knownLength, format,
+						pwVisitor.byteOrder()))
+			.orElse(PathWriterVisitor.Preallocation::writtenLength);
+		channeler = pwVisitor.rollover()
+			.<Channeler>map(rollover -> new RollingChanneler(
+						pwVisitor.path(), rollover,
+						exclusive, metrics))
+			.orElseGet(() -> (persistent)
+				? new PersistentChanneler(pwVisitor.path(),
+						openOptions, exclusive,
+						preallocation, scanner,
+						metrics)
+				: new TransientChanneler(pwVisitor.path(),
+							openOptions, metrics));
+		forcer = metrics.timed(ForceEvent.timed(
+					PathWriterProvider.class, target,
+							channeler::force));
+		committer = new GroupCommitter<>(forcer);
+		sharedForcing = !(channeler instanceof TransientChanneler);
+		combiner = (pwVisitor.options()
+				.contains(PathWriterVisitor.Option.COMBINING))
+			? new FlatCombiner(this::doGather)
+			: null;
+		durability = pwVisitor.durability()
+			.map(policy -> new DurabilityTracker<>(
+						policy.maxMessages(),
+						policy.maxBytes(),
+						policy.maxDelay().orElse(null),
+						committer))
+			.orElse(null);
+		framer = pwVisitor.recordFormat()
+			.map(format -> format.framer(pwVisitor.byteOrder()))
+			.orElse(null);
+		indexer = (recordIndex != null)
+			? recordIndex.appender()
+			: null;
+		framedWriter = (channel, buffers) -> {
+			if (channel != indexedChannel) {
+				resume(channel);
+				indexedChannel = channel;
+			}
+
+			framer.stamp(buffers);
+			final long written;
+
+			try {
+				written = BATCH_WRITER.write(channel, buffers);
+			} catch (final IOException e) {
+				indexedChannel = null;	/* Recover anew. */
+				throw e;
+			}
+
+			resumedEnd = channel.position();
+
+			if (indexer != null) {
+				try {
+					indexer.written(buffers,
+						resumedEnd - written);
+				} catch (final IOException ignored) {
+					/* Written; index lost entries anew. */
+					indexedChannel = null;
+				}
+			}
+
+			return written;
+		};
+	}
+
+	/**
+	 * Returns the greatest sequence number of the complete records of
+	 * a file that are read from the passed position of a record on and
+	 * end before the passed position.
+	 * <p>
+	 * (Reading from the start of a file begins with the last record of
+	 * its sidecar index instead, if any (see
+	 * {@link RecordIndex#lastIndexed(long)}); sequence numbers are taken
+	 * to increase from record to record.)
+	 *
+	 * @param path the path to a file of framed records
+	 * @param format the format of records
+	 * @param byteOrder the byte order of a file
+	 * @param from the position of a record to read from
+	 * @param end the position of the end of written records
+	 * @return the greatest sequence number of read records, or
+	 *	{@code 0L} if none is read
+	 * @throws IOException if an I/O error occurs
+	 */
+	static long lastSequence(Path path, RecordFormat format,
+				ByteOrder byteOrder, long from, long end)
+							throws IOException
+	{
+		final int headerBytes = format.headerBytes();
+		final long start = (from > 0L)
+			? from
+			: new RecordIndex(path, format, byteOrder, 1)
+				.lastIndexed(end);
+		long last = 0L;
+
+		try (FileChannel channel = FileChannel.open(path,
+						StandardOpenOption.READ)) {
+			/* Let the reader be; the channel is closed here. */
+			final RecordReader reader = format.reader(
+					channel.position(start), byteOrder);
+
+			while (reader.next() && reader.position() + headerBytes
+						+ reader.length() <= end)
+				last = Math.max(last, reader.sequence());
+		}
+
+		return last;
+	}
+
+	/*
+	 * Numbers records on from the last record of an appendable file,
+	 * reading the records appended since the last resumed or written
+	 * record, if any, e.g. by other writers between transient opens
+	 * (guarded by lock).
+	 */
+	private void resume(FileChannel channel) throws IOException
+	{
+		final long end = channel.position();
+
+		if (indexedChannel != null && resumedEnd == end)
+			return;		/* Nothing is appended since. */
+
+		if (indexer != null) {
+			framer.resume(indexer.recover(end));
+			resumedEnd = end;
+			return;
+		}
+
+		if (!pwVisitor.appendable() || pwVisitor.rollover().isPresent()
+				|| !framer.format().sequenced())
+			return;
+
+		/* Unless the file is truncated, read on where left off. */
+		final boolean onward = resumedEnd > 0L && resumedEnd <= end;
+		framer.resume(Math.max((onward) ? framer.sequence() : 0L,
+				lastSequence(pwVisitor.path(), framer.format(),
+					pwVisitor.byteOrder(),
+					(onward) ? resumedEnd : 0L, end)));
+		resumedEnd = end;
+	}
+
+	/*
+	 * Returns the end of the last complete record of a file that is read
+	 * from the passed length of written records on, taking a header of
+	 * zero bytes, e.g. of preallocated space, for the end of records.
+	 */
+	private static long recordsLength(FileChannel channel,
+				long knownLength, RecordFormat format,
+				ByteOrder byteOrder) throws IOException
+	{
+		final int headerBytes = format.headerBytes();
+		final long size = channel.size();
+		long end = Math.max(0L, Math.min(size, knownLength));
+
+		/* Let the reader be, lest it close the channel. */
+		final RecordReader reader = format.reader(channel.position(end),
+								byteOrder);
+
+		while (reader.next() && reader.length() <= size
+						- reader.position()
+						- headerBytes) {
+			if ((format.sequenced())
+					? reader.sequence() == 0L
+					: reader.length() == 0
+						&& reader.timestamp() == 0L)
+				break;
+
+			end = reader.position() + headerBytes
+						+ reader.length();
+		}
+
+		return end;
 	}
 
 	/**
@@ -75,50 +428,431 @@ final class PathWriter implements PathWriterProvider
 		this(new PathWriterVisitor(null, true));
 	}
 
-	private void doWrite(Writer writer, String message)
+	/**
+	 * Creates a new path-writing service provider that is fit for
+	 * the passed visitor.
+	 *
+	 * @param pwVisitor a supported visitor
+	 * @return a new path-writing service provider
+	 */
+	static PathWriterProvider newPathWriter(PathWriterVisitor pwVisitor)
 	{
-		Objects.requireNonNull(message, "message");
-		final ByteBuffer buffer = ByteBuffer.wrap(
-						message.getBytes(
-							pwVisitor.charset()));
-		buffer.order(pwVisitor.byteOrder());
+		if (pwVisitor.sharding().isPresent())
+			return new ShardedPathWriter(pwVisitor);
 
-		synchronized (lock) {
-			try (FileChannel channel = FileChannel.open(
-							pwVisitor.path(),
-							openOptions,
-							FILE_ATTRIBUTES)) {
-				/* Closing the channel releases the lock. */
-				channel.lock();
-				writer.write(seeker.seek(channel), buffer);
+		return (pwVisitor.rollover().isEmpty() && pwVisitor.options()
+				.contains(PathWriterVisitor.Option.DIRECT))
+			? new DirectPathWriter(pwVisitor)
+			: new PathWriter(pwVisitor);
+	}
+
+	private void doWrite(CharSequence message, boolean forced)
+	{
+		final MessageEncoder encoder = encoders.acquire();
+
+		try {
+			final ByteBuffer buffer = encoder.encode(message);
+
+			if (framer != null)
+				doFrame(new ByteBuffer[] { buffer }, forced);
+			else if (combined(forced))
+				doCombine(new ByteBuffer[] { buffer }, forced);
+			else
+				doWrite(WRITER, buffer, 1, buffer.remaining(),
+								forced);
+		} finally {
+			encoders.release(encoder);
+		}
+	}
+
+	private void doWrite(ByteBuffer buffer, boolean forced)
+	{
+		Objects.requireNonNull(buffer, "buffer");
+
+		if (framer != null)
+			doFrame(new ByteBuffer[] { buffer }, forced);
+		else if (combined(forced))
+			doCombine(new ByteBuffer[] { buffer }, forced);
+		else
+			doWrite(RAW_WRITER, buffer, 1, buffer.remaining(),
+								forced);
+	}
+
+	private void doWriteAll(List<? extends CharSequence> messages,
+							boolean forced)
+	{
+		final ByteBuffer[] buffers = ByteBuffers.encodeAll(messages,
+							pwVisitor.charset());
+
+		if (buffers.length == 0)
+			return;
+
+		if (framer != null) {
+			doFrame(buffers, forced);
+			return;
+		}
+
+		if (combined(forced)) {
+			doCombine(buffers, forced);
+			return;
+		}
+
+		doWrite(BATCH_WRITER, buffers, buffers.length,
+						remaining(buffers), forced);
+	}
+
+	private void doFrame(ByteBuffer[] buffers, boolean forced)
+	{
+		final ByteBuffer[] framed = framer.frame(buffers);
+
+		if (combined(forced))
+			doCombine(framed, forced);
+		else
+			doWrite(framedWriter, framed, buffers.length,
+						remaining(framed), forced);
+	}
+
+	private static long remaining(ByteBuffer[] buffers)
+	{
+		long length = 0L;
+
+		for (final ByteBuffer buffer : buffers)
+			length += buffer.remaining();
+
+		return length;
+	}
+
+	private boolean combined(boolean forced)
+	{
+		return (combiner != null && (sharedForcing || !forced));
+	}
+
+	private void doCombine(ByteBuffer[] buffers, boolean forced)
+	{
+		try {
+			combiner.combine(buffers);
+
+			if (!forced)
+				return;
+
+			final long ticket;
+
+			lock.lock();
+
+			try {	/* The ticket follows the write. */
+				ticket = committer.ticket(channeler.forcible());
+			} finally {
+				lock.unlock();
+			}
+
+			committer.force(ticket);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private long doGather(ByteBuffer[] buffers)
+	{
+		final long length = remaining(buffers);
+
+		if (framer != null)	/* Headers and payloads, in turn. */
+			doWrite(framedWriter, buffers, buffers.length >> 1,
+							length, false);
+		else
+			doWrite(BATCH_WRITER, buffers, buffers.length, length,
+									false);
+
+		return length;
+	}
+
+	/**
+	 * Locks a file for as long as its channel is open, failing at once
+	 * when the file is locked by another owner.
+	 *
+	 * @param channel a channel of a file
+	 * @param path the path to a file
+	 * @throws IOException if an I/O error occurs, or if the file is
+	 *	locked by another owner
+	 */
+	static void lockExclusively(FileChannel channel, Path path)
+							throws IOException
+	{
+		final LockEvent lockEvent = new LockEvent(
+					PathWriterProvider.class,
+					path.toString(), LockEvent.FILE);
+		lockEvent.begin();
+		FileLock fileLock;
+
+		try {
+			fileLock = channel.tryLock();
+		} catch (final OverlappingFileLockException ignored) {
+			fileLock = null;	/* Locked by this JVM. */
+		}
+
+		lockEvent.commit();
+
+		if (fileLock == null)
+			throw new FileSystemException(path.toString(), null,
+						"Locked by another owner");
+	}
+
+	private <T> void doWrite(Writer<T> writer, T buffer, int count,
+						long length, boolean forced)
+	{
+		final FileChannel forcible;
+		final long ticket;
+		final long since = metrics.clock();
+		final LockEvent lockEvent = new LockEvent(
+					PathWriterProvider.class, target,
+							LockEvent.PRIVATE);
+		lockEvent.begin();
+
+		lock.lock();
+
+		try {
+			lockEvent.commit();
+			metrics.monitorEntered(since);
+
+			try {
+				final FileChannel channel = channeler.obtain(
+								length);
+				boolean due = forced;
+
+				try {
+					final long start = metrics.clock();
+					final WriteEvent writeEvent =
+						new WriteEvent(
+						PathWriterProvider.class,
+								target);
+					writeEvent.begin();
+					metrics.written(writeEvent.commit(
+							writer.write(
+							seeker.seek(channel),
+								buffer)),
+								start);
+
+					if (!due && durability != null)
+						due = durability.written(count,
+							length, channel);
+				} finally {
+					channeler.relinquish(channel, due);
+				}
+
+				forcible = (due) ? channel : null;
+				ticket = (due && sharedForcing)
+					? committer.ticket(channel)
+					: 0L;
 			} catch (final IOException e) {
 				throw new UncheckedIOException(e);
 			}
+		} finally {
+			lock.unlock();
+		}
+
+		if (forcible == null)
+			return;
+
+		try {	/* fsync(3): EINVAL for pipes, sockets, FIFOs. */
+			if (sharedForcing)
+				committer.force(ticket);
+			else		/* Also, closes a transient channel. */
+				forcer.force(forcible);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
 
 	/**
 	 * Writes a message to a path.
 	 *
-	 * @implNote Writing is guarded with a private monitor.
+	 * @implNote Writing is guarded with a private lock.
+	 *
+	 * @param message a message to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void write(String message)	{ doWrite(message, false); }
+
+	/**
+	 * Writes a message to a path.
+	 *
+	 * @implNote Writing is guarded with a private lock.
 	 *
 	 * @param message a message to write
 	 * @throws UncheckedIOException if an I/O error occurs
 	 */
 	@Override
-	public void write(String message)	{ doWrite(WRITER, message); }
+	public void write(CharSequence message)	{ doWrite(message, false); }
 
 	/**
 	 * Writes a message to a path, forcing any changes to the containing
 	 * storage device.
 	 *
-	 * @implNote Writing is guarded with a private monitor.
+	 * @implNote Writing is guarded with a private lock; forcing is
+	 * shared among concurrent callers.
 	 *
 	 * @param message a message to write
 	 * @throws UncheckedIOException if an I/O error occurs
 	 */
 	@Override
-	public void writeAndForce(String message) { doWrite(FORCER, message); }
+	public void writeAndForce(String message) { doWrite(message, true); }
+
+	/**
+	 * Writes a message to a path, forcing any changes to the containing
+	 * storage device.
+	 *
+	 * @implNote Writing is guarded with a private lock; forcing is
+	 * shared among concurrent callers.
+	 *
+	 * @param message a message to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAndForce(CharSequence message)
+	{
+		doWrite(message, true);
+	}
+
+	/**
+	 * Writes the remaining bytes of a buffer to a path, as they are.
+	 *
+	 * @implNote Writing is guarded with a private lock.
+	 *
+	 * @param buffer a buffer of bytes to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void write(ByteBuffer buffer)	{ doWrite(buffer, false); }
+
+	/**
+	 * Writes the remaining bytes of a buffer to a path, as they are,
+	 * forcing any changes to the containing storage device.
+	 *
+	 * @implNote Writing is guarded with a private lock; forcing is
+	 * shared among concurrent callers.
+	 *
+	 * @param buffer a buffer of bytes to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAndForce(ByteBuffer buffer) { doWrite(buffer, true); }
+
+	/**
+	 * Writes messages to a path, gathering them in a single write.
+	 *
+	 * @implNote Writing is guarded with a private lock.
+	 *
+	 * @param messages messages to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAll(List<? extends CharSequence> messages)
+	{
+		doWriteAll(messages, false);
+	}
+
+	/**
+	 * Writes messages to a path, gathering them in a single write and
+	 * forcing any changes to the containing storage device.
+	 *
+	 * @implNote Writing is guarded with a private lock; forcing is
+	 * shared among concurrent callers.
+	 *
+	 * @param messages messages to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAllAndForce(List<? extends CharSequence> messages)
+	{
+		doWriteAll(messages, true);
+	}
+
+	/* Opens an existing file without truncating it, and forces it. */
+	private void forceTransiently() throws IOException
+	{
+		final FileChannel channel;
+
+		try {
+			channel = FileChannel.open(pwVisitor.path(),
+						StandardOpenOption.WRITE);
+		} catch (final NoSuchFileException ignored) {
+			return;			/* Nothing is written. */
+		}
+
+		forcer.force(channel);		/* Also, closes it. */
+	}
+
+	/**
+	 * Forces any changes written so far to the containing storage device,
+	 * without writing.
+	 * <p>
+	 * (A transiently opened file is opened anew for forcing, if it
+	 * exists.)
+	 *
+	 * @implNote Forcing is shared among concurrent callers.
+	 *
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void force()
+	{
+		try {
+			if (!sharedForcing) {
+				forceTransiently();
+				return;
+			}
+
+			final long ticket;
+
+			lock.lock();
+
+			try {
+				final FileChannel channel = channeler.obtain(
+									0L);
+				channeler.relinquish(channel, true);
+				ticket = committer.ticket(channel);
+			} finally {
+				lock.unlock();
+			}
+
+			committer.force(ticket);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Closes a file kept open between writes, if any.
+	 * <p>
+	 * (Any attempt to write with a closed service provider that has kept
+	 * a file open shall fail.)
+	 *
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void close()
+	{
+		lock.lock();
+
+		try {
+			try {
+				if (durability != null)
+					durability.close();
+
+				if (indexer != null)
+					indexer.close();
+
+				channeler.close();
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				indexedChannel = null;
+				metrics.close();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
 
 	@Override
 	public Kind kind()			{ return Kind.PATH; }
@@ -130,11 +864,853 @@ final class PathWriter implements PathWriterProvider
 		return Objects.requireNonNull(visitor, "visitor")
 			.visit(this)
 			.filter(PathWriterVisitor.class::isInstance)
-			.map(Function.<PathWriter>identity()
-				.<PathWriterVisitor>compose(PathWriter::new)
+			.map(Function.<PathWriterVisitor>identity()
+				.andThen(PathWriter::newPathWriter)
 				.compose(PathWriterVisitor.class::cast));
 	}
 
+	/** A strategy of obtaining and relinquishing locked channels. */
+	private interface Channeler extends Closeable
+	{
+		/**
+		 * Obtains a channel and locks its file.
+		 *
+		 * @param length the number of bytes about to be written
+		 * @return a channel whose file is locked
+		 * @throws IOException if an I/O error occurs
+		 */
+		FileChannel obtain(long length) throws IOException;
+
+		/**
+		 * Relinquishes an obtained channel and unlocks its file.
+		 *
+		 * @param channel an obtained channel
+		 * @param forcing whether the written changes are about to be
+		 *	forced with the channel
+		 * @throws IOException if an I/O error occurs
+		 */
+		void relinquish(FileChannel channel, boolean forcing)
+							throws IOException;
+
+		/**
+		 * Returns a channel to force the changes written so far with,
+		 * as if it were relinquished for forcing.
+		 *
+		 * @return a channel to force the changes written so far with
+		 * @throws IOException if an I/O error occurs
+		 * @throws UnsupportedOperationException if no channel is kept
+		 *	open between writes
+		 */
+		FileChannel forcible() throws IOException;
+
+		/**
+		 * Forces any written changes of a file to the storage device
+		 * with a channel relinquished for forcing.
+		 * <p>
+		 * (This method may be called concurrently with any other
+		 * method.)
+		 *
+		 * @param channel a channel relinquished for forcing
+		 * @throws IOException if an I/O error occurs
+		 */
+		void force(FileChannel channel) throws IOException;
+	}
+
+	/** This class opens and closes a file for every write. */
+	private static class TransientChanneler implements Channeler
+	{
+		private final Path path;
+		private final Set<StandardOpenOption> openOptions;
+		private final WriterMetrics metrics;
+		private final String target;
+		private FileLock fileLock;
+
+		TransientChanneler(Path path,
+					Set<StandardOpenOption> openOptions,
+					WriterMetrics metrics)
+		{
+			this.path = path;
+			this.openOptions = openOptions;
+			this.metrics = metrics;
+			target = path.toString();
+		}
+
+		@Override
+		public FileChannel obtain(long length) throws IOException
+		{
+			final OpenEvent openEvent = new OpenEvent(
+					PathWriterProvider.class, target);
+			openEvent.begin();
+			final FileChannel channel = FileChannel.open(path,
+							openOptions,
+							FILE_ATTRIBUTES);
+			openEvent.commit();
+
+			try {
+				final long since = metrics.clock();
+				final LockEvent lockEvent = new LockEvent(
+					PathWriterProvider.class, target,
+							LockEvent.FILE);
+				lockEvent.begin();
+				fileLock = channel.lock();
+				lockEvent.commit();
+				metrics.fileLocked(since);
+				return channel;
+			} catch (final IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 *
+		 * @implSpec
+		 * This implementation closes a channel, unless it is
+		 * relinquished for forcing, and then it only releases
+		 * the lock.
+		 */
+		@Override
+		public void relinquish(FileChannel channel, boolean forcing)
+							throws IOException
+		{
+			final FileLock lock = fileLock;
+			fileLock = null;
+
+			if (!forcing) {
+				channel.close();  /* Also, releases the lock. */
+				return;
+			}
+
+			try {
+				lock.release();
+			} catch (final IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+		}
+
+		@Override
+		public FileChannel forcible()
+		{
+			throw new UnsupportedOperationException(
+						"Transient channels");
+		}
+
+		/**
+		 * {@inheritDoc}
+		 *
+		 * @implSpec
+		 * This implementation also closes a channel.
+		 */
+		@Override
+		public void force(FileChannel channel) throws IOException
+		{
+			try (channel) {
+				channel.force(false);
+			}
+		}
+
+		@Override
+		public void close() throws IOException { /* NO-OP. */ }
+	}
+
+	/**
+	 * This class keeps a file open between writes and opens it anew when
+	 * the file is deleted or replaced; a released channel is forced first
+	 * when forcing with it has been requested since it was last forced.
+	 * <p>
+	 * With preallocation, the written length of a file is recorded in
+	 * a sibling file, {@code <name>.end}, whenever the file is opened
+	 * and forced; and the sibling file is deleted after the file has
+	 * been truncated and forced when it is released. So a file without
+	 * the sibling file has no zero tail, and a file with it is only
+	 * scanned for its zero tail past the recorded length, i.e. among
+	 * bytes written without forcing before a crash.
+	 */
+	private static class PersistentChanneler implements Channeler
+	{
+		private static final Object NO_FILE = new Object();
+
+		private final Path path;
+		private final Set<StandardOpenOption> openOptions;
+		private final boolean exclusive;
+		private final PathWriterVisitor.Preallocation preallocation;
+		private final Scanner scanner;
+		private final WriterMetrics metrics;
+		private final String target;
+		private final AtomicLong forcedRequests = new AtomicLong();
+		private final ReentrantLock endLock = new ReentrantLock();
+		private final Path endPath;
+		private volatile FileChannel channel;
+		private volatile long requests;
+		private FileChannel endChannel;	/* Guarded by endLock. */
+		private FileLock fileLock;
+		private Object fileKey;
+		private long allocated;
+		private boolean closed;
+
+		PersistentChanneler(Path path,
+				Set<StandardOpenOption> openOptions,
+				boolean exclusive,
+				PathWriterVisitor.Preallocation preallocation,
+				Scanner scanner,
+				WriterMetrics metrics)
+		{
+			this.path = path;
+			this.openOptions = openOptions;
+			this.exclusive = exclusive;
+			this.preallocation = preallocation;
+			this.scanner = scanner;
+			this.metrics = metrics;
+			target = path.toString();
+			endPath = path.resolveSibling(path.getFileName()
+							+ ".end");
+		}
+
+		private Object currentFileKey() throws IOException
+		{
+			try {
+				return Files.readAttributes(path,
+						BasicFileAttributes.class)
+					.fileKey();
+			} catch (final NoSuchFileException ignored) {
+				return NO_FILE;
+			}
+		}
+
+		/*
+		 * Returns the written length of a preallocated file, taking
+		 * a recorded length for its least written length.
+		 */
+		private long writtenLength(FileChannel newChannel)
+							throws IOException
+		{
+			if (!Files.exists(endPath))	/* Released. */
+				return newChannel.size();
+
+			final ByteBuffer buffer = ByteBuffer.allocate(
+								Long.BYTES);
+
+			try (FileChannel recorded = FileChannel.open(endPath,
+						StandardOpenOption.READ)) {
+				while (buffer.hasRemaining()
+						&& recorded.read(buffer) > -1)
+					;
+			}
+
+			return scanner.writtenLength(newChannel,
+						(buffer.hasRemaining())
+							? 0L
+							: buffer.getLong(0));
+		}
+
+		/* Records the written length of a file (guarded by endLock). */
+		private void recordEnd(long end) throws IOException
+		{
+			final ByteBuffer buffer = ByteBuffer.allocate(
+								Long.BYTES)
+				.putLong(0, end);
+
+			while (buffer.hasRemaining())
+				endChannel.write(buffer, buffer.position());
+
+			endChannel.force(false);
+		}
+
+		/* Stops recording the written length of a file. */
+		private void discardEnd() throws IOException
+		{
+			endLock.lock();
+
+			try {
+				final FileChannel oldEndChannel = endChannel;
+				endChannel = null;
+
+				if (oldEndChannel != null)
+					oldEndChannel.close();
+
+				Files.deleteIfExists(endPath);
+			} finally {
+				endLock.unlock();
+			}
+		}
+
+		/*
+		 * Truncates a file to its written length, forces any unforced
+		 * changes and closes it.
+		 */
+		private void release(FileChannel oldChannel) throws IOException
+		{
+			try (oldChannel) {
+				if (!oldChannel.isOpen())
+					return;
+
+				final long oldRequests = requests;
+
+				if (preallocation != null) {
+					oldChannel.truncate(
+						oldChannel.position());
+					oldChannel.force(false);
+					forcedRequests.accumulateAndGet(
+							oldRequests, Math::max);
+					discardEnd();
+				} else if (forcedRequests.get() < oldRequests) {
+					oldChannel.force(false);
+					forcedRequests.accumulateAndGet(
+							oldRequests, Math::max);
+				}
+			}
+		}
+
+		/* Extends a file with zero bytes to cover the passed length. */
+		private void preallocate(long length) throws IOException
+		{
+			if (length <= allocated)
+				return;
+
+			final long newAllocated = preallocation
+				.allocatedLength(length);
+			final ByteBuffer zeros = ZEROS.duplicate();
+
+			for (long position = allocated;
+					position < newAllocated;
+					position += zeros.position()) {
+				zeros.clear()
+					.limit((int) Math.min(zeros.capacity(),
+						newAllocated - position));
+
+				while (zeros.hasRemaining())
+					channel.write(zeros, position
+						+ zeros.position());
+			}
+
+			allocated = newAllocated;
+		}
+
+		private void reopen() throws IOException
+		{
+			if (channel != null) {
+				final FileChannel oldChannel = channel;
+				channel = null;
+				release(oldChannel);
+			}
+
+			final OpenEvent openEvent = new OpenEvent(
+					PathWriterProvider.class, target);
+			openEvent.begin();
+			final FileChannel newChannel = FileChannel.open(path,
+							openOptions,
+							FILE_ATTRIBUTES);
+			openEvent.commit();
+
+			try {
+				if (exclusive)
+					lockExclusively(newChannel, path);
+
+				if (preallocation != null) {
+					final long end = writtenLength(
+								newChannel);
+					newChannel.position(end);
+					allocated = newChannel.size();
+					endLock.lock();
+
+					try {
+						endChannel = FileChannel.open(
+							endPath, END_OPTS,
+							FILE_ATTRIBUTES);
+						recordEnd(end);
+					} finally {
+						endLock.unlock();
+					}
+				}
+			} catch (final IOException | RuntimeException e) {
+				try (newChannel) {
+					if (preallocation != null)
+						discardEnd();
+				}
+
+				throw e;
+			}
+
+			channel = newChannel;
+			fileKey = currentFileKey();
+		}
+
+		@Override
+		public FileChannel obtain(long length) throws IOException
+		{
+			if (closed)
+				throw new ClosedChannelException();
+
+			/*
+			 * An unsupported file key is null and then only
+			 * deletion can be told.
+			 */
+			if (channel == null || !channel.isOpen()) {
+				reopen();
+			} else {
+				final Object key = currentFileKey();
+
+				if (key == NO_FILE || !Objects.equals(key,
+								fileKey))
+					reopen();
+			}
+
+			if (preallocation != null)
+				preallocate(channel.position() + length);
+
+			if (exclusive)		/* Locked since opened. */
+				return channel;
+
+			final long since = metrics.clock();
+			final LockEvent lockEvent = new LockEvent(
+					PathWriterProvider.class, target,
+							LockEvent.FILE);
+			lockEvent.begin();
+			fileLock = channel.lock();
+			lockEvent.commit();
+			metrics.fileLocked(since);
+			return channel;
+		}
+
+		@Override
+		public void relinquish(FileChannel channel, boolean forcing)
+							throws IOException
+		{
+			if (forcing)		/* Guarded by the private lock. */
+				++requests;
+
+			if (fileLock != null) {
+				final FileLock lock = fileLock;
+				fileLock = null;
+
+				if (lock.isValid())
+					lock.release();
+			}
+		}
+
+		@Override
+		public FileChannel forcible() throws IOException
+		{
+			final FileChannel currentChannel = channel;
+
+			if (currentChannel == null)
+				throw new ClosedChannelException();
+
+			++requests;		/* Guarded by the private lock. */
+			return currentChannel;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 *
+		 * @implSpec
+		 * This implementation takes a released channel for a forced
+		 * one.
+		 */
+		@Override
+		public void force(FileChannel channel) throws IOException
+		{
+			final long currentRequests = requests;
+
+			try {
+				final long end = channel.position();
+				channel.force(false);
+
+				if (preallocation != null) {
+					endLock.lock();
+
+					try {
+						if (channel == this.channel
+							&& endChannel != null)
+							recordEnd(end);
+					} finally {
+						endLock.unlock();
+					}
+				}
+			} catch (final ClosedChannelException e) {
+				if (channel == this.channel)
+					throw e;
+
+				return;		/* Released, and forced then. */
+			}
+
+			forcedRequests.accumulateAndGet(currentRequests,
+								Math::max);
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			closed = true;
+
+			if (channel != null) {
+				final FileChannel oldChannel = channel;
+				channel = null;
+				release(oldChannel);
+			}
+		}
+	}
+
+	/**
+	 * This class appends to segments of a path, keeping the current one
+	 * open between writes and preparing the next one in the background.
+	 */
+	private static class RollingChanneler implements Channeler
+	{
+		private static final ExecutorService EXECUTOR =
+				Executors.newCachedThreadPool(runnable -> {
+			final Thread thread = new Thread(runnable,
+						"jrw-segment-preparer");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		private final Path path;
+		private final long maxBytes;
+		private final long maxAgeNanos;
+		private final boolean exclusive;
+		private final WriterMetrics metrics;
+		private CompletableFuture<Segment> next;	/* Lazily. */
+		private volatile Segment current;
+		private volatile CompletableFuture<Void> retired =
+					CompletableFuture.completedFuture(null);
+		private FileLock fileLock;
+		private boolean closed;
+
+		RollingChanneler(Path path, PathWriterVisitor.Rollover rollover,
+					boolean exclusive, WriterMetrics metrics)
+		{
+			this.path = path;
+			this.exclusive = exclusive;
+			this.metrics = metrics;
+			maxBytes = rollover.maxBytes();
+			maxAgeNanos = rollover.maxAge()
+				.map(Duration::toNanos)
+				.orElse(Long.MAX_VALUE);
+		}
+
+		private static IOException unwrap(CompletionException e)
+		{
+			final Throwable cause = e.getCause();
+
+			if (cause instanceof UncheckedIOException)
+				return ((UncheckedIOException) cause).getCause();
+
+			if (cause instanceof IOException)
+				return (IOException) cause;
+
+			return new IOException(cause);
+		}
+
+		private long nextIndex() throws IOException
+		{
+			final Path directory = path.toAbsolutePath().getParent();
+
+			try (Stream<Path> paths = Files.list(directory)) {
+				return 1L + paths.mapToLong(candidate ->
+						PathWriterVisitor.Rollover
+							.segmentIndex(path,
+								candidate))
+					.max()
+					.orElse(-1L);
+			}
+		}
+
+		private Segment open(long index) throws IOException
+		{
+			final Path segmentPath = PathWriterVisitor.Rollover
+				.segmentPath(path, index);
+			final OpenEvent openEvent = new OpenEvent(
+					PathWriterProvider.class,
+					segmentPath.toString());
+			openEvent.begin();
+			final FileChannel channel = FileChannel.open(
+							segmentPath,
+							SEGMENT_OPTS,
+							FILE_ATTRIBUTES);
+			openEvent.commit();
+
+			try {
+				if (exclusive)
+					lockExclusively(channel, segmentPath);
+
+				/* Extend a (sparse) file to its size limit. */
+				if (maxBytes < Long.MAX_VALUE)
+					channel.write(ByteBuffer.allocate(1),
+							maxBytes - 1L);
+
+				return new Segment(index, segmentPath, channel);
+			} catch (final IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+		}
+
+		/* Opens the first segment that is free from an index on. */
+		private Segment openFree(long index) throws IOException
+		{
+			long candidate = index;
+
+			for (;;) {
+				try {
+					return open(candidate);
+				} catch (final FileAlreadyExistsException e) {
+					candidate = Math.max(candidate + 1L,
+								nextIndex());
+				}
+			}
+		}
+
+		private CompletableFuture<Segment> prepare(long index)
+		{
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					return openFree((index < 0L)
+						? nextIndex()
+						: index);
+				} catch (final IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, EXECUTOR);
+		}
+
+		private Segment await(CompletableFuture<Segment> segment)
+							throws IOException
+		{
+			try {
+				return segment.join();
+			} catch (final CompletionException e) {
+				throw unwrap(e);
+			}
+		}
+
+		private void roll() throws IOException
+		{
+			final Segment oldSegment = current;
+			final Segment newSegment;
+
+			if (next == null)
+				next = prepare(-1L);
+
+			try {
+				newSegment = await(next);
+			} catch (final IOException e) {
+				next = prepare(-1L);	/* Try again next time. */
+				throw e;
+			}
+
+			next = prepare(newSegment.index + 1L);
+
+			if (oldSegment != null) {
+				final CompletableFuture<Void> oldRetired =
+								retired;
+				final CompletableFuture<Void> retiring =
+					CompletableFuture.runAsync(() -> {
+						try {
+							oldSegment.retire();
+						} catch (final IOException e) {
+							throw new UncheckedIOException(
+									e);
+						}
+					}, EXECUTOR);
+
+				/* Publish the retirement before the segment. */
+				retired = (oldRetired.isDone()
+					&& !oldRetired.isCompletedExceptionally())
+					? retiring
+					: CompletableFuture.allOf(oldRetired,
+								retiring);
+			}
+
+			newSegment.birth = System.nanoTime();
+			current = newSegment;
+		}
+
+		@Override
+		public FileChannel obtain(long length) throws IOException
+		{
+			if (closed)
+				throw new ClosedChannelException();
+
+			final Segment segment = current;
+
+			if (segment == null || (segment.position() > 0L
+					&& (length > maxBytes
+						- segment.position()
+					|| System.nanoTime()
+						- segment.birth
+						>= maxAgeNanos)))
+				roll();
+
+			final FileChannel channel = current.channel;
+
+			if (exclusive)		/* Locked since opened. */
+				return channel;
+
+			final long since = metrics.clock();
+			final LockEvent lockEvent = new LockEvent(
+					PathWriterProvider.class,
+					current.path.toString(),
+							LockEvent.FILE);
+			lockEvent.begin();
+			fileLock = channel.lock();
+			lockEvent.commit();
+			metrics.fileLocked(since);
+			return channel;
+		}
+
+		@Override
+		public void relinquish(FileChannel channel, boolean forcing)
+							throws IOException
+		{
+			if (fileLock != null) {
+				final FileLock lock = fileLock;
+				fileLock = null;
+
+				if (lock.isValid())
+					lock.release();
+			}
+		}
+
+		@Override
+		public FileChannel forcible() throws IOException
+		{
+			final Segment segment = current;
+
+			if (segment == null)
+				throw new ClosedChannelException();
+
+			return segment.channel;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 *
+		 * @implSpec
+		 * This implementation forces the segment of a channel, unless
+		 * it is retired, and waits until every retired segment is
+		 * forced.
+		 */
+		@Override
+		public void force(FileChannel channel) throws IOException
+		{
+			final Segment segment = current;
+
+			/* Retirement is published before the next segment. */
+			if (segment != null && segment.channel == channel)
+				segment.force();
+
+			try {
+				retired.join();
+			} catch (final CompletionException e) {
+				throw unwrap(e);
+			}
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if (closed)
+				return;
+
+			closed = true;
+
+			try {
+				final Segment segment = current;
+
+				if (segment != null)
+					segment.retire();
+
+				try {
+					retired.join();
+				} catch (final CompletionException e) {
+					throw unwrap(e);
+				}
+			} finally {
+				try {	/* Discard the unused next segment. */
+					if (next != null) {
+						final Segment segment =
+								await(next);
+						segment.channel.close();
+						Files.deleteIfExists(
+								segment.path);
+					}
+				} catch (final IOException ignored) {
+					/* It has failed to be prepared. */
+				}
+			}
+		}
+
+		/** An open segment of a path. */
+		private static final class Segment
+		{
+			private final long index;
+			private final Path path;
+			private final FileChannel channel;
+			private final ReentrantLock lock = new ReentrantLock();
+			private long birth;	/* Of becoming current. */
+			private boolean retired;
+
+			Segment(long index, Path path, FileChannel channel)
+			{
+				this.index = index;
+				this.path = path;
+				this.channel = channel;
+			}
+
+			long position() throws IOException
+			{
+				return channel.position();
+			}
+
+			void force() throws IOException
+			{
+				lock.lock();
+
+				try {
+					if (!retired)
+						channel.force(false);
+				} finally {
+					lock.unlock();
+				}
+			}
+
+			/*
+			 * Truncates a segment to its written length, forces and
+			 * closes it (the position of a channel is no longer
+			 * advanced once the next segment is current).
+			 */
+			void retire() throws IOException
+			{
+				lock.lock();
+
+				try {
+					if (retired)
+						return;
+
+					retired = true;
+
+					try (channel) {
+						channel.truncate(
+							channel.position());
+						channel.force(false);
+					}
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+	}
+
+	@FunctionalInterface
+	private interface Scanner
+	{
+		long writtenLength(FileChannel channel, long knownLength)
+							throws IOException;
+	}
+
 	@FunctionalInterface
 	private interface Seeker
 	{
@@ -142,9 +1718,8 @@ final class PathWriter implements PathWriterProvider
 	}
 
 	@FunctionalInterface
-	private interface Writer
+	private interface Writer<T>
 	{
-		void write(FileChannel channel, ByteBuffer buffer)
-							throws IOException;
+		long write(FileChannel channel, T buffer) throws IOException;
 	}
 }
@@ -0,0 +1,551 @@
+package org.zzzyxwvut.readywriter.path.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.zzzyxwvut.readywriter.ReadyWriter;
+import org.zzzyxwvut.readywriter.event.ForceEvent;
+import org.zzzyxwvut.readywriter.event.LockEvent;
+import org.zzzyxwvut.readywriter.event.OpenEvent;
+import org.zzzyxwvut.readywriter.event.WriteEvent;
+import org.zzzyxwvut.readywriter.service.PathWriterVisitor;
+import org.zzzyxwvut.readywriter.service.RecordFormat;
+import org.zzzyxwvut.readywriter.service.RecordReader;
+import org.zzzyxwvut.readywriter.support.ByteBuffers;
+import org.zzzyxwvut.readywriter.support.DurabilityTracker;
+import org.zzzyxwvut.readywriter.support.GroupCommitter;
+import org.zzzyxwvut.readywriter.support.MessageEncoder;
+import org.zzzyxwvut.readywriter.support.WriterMetrics;
+
+/**
+ * A service provider capable of writing to shards of a path (see
+ * {@link PathWriterVisitor.Sharding}).
+ * <p>
+ * Every shard is opened on the first write and kept open until this service
+ * provider is closed. Writing is guarded with a private lock of a shard,
+ * which is only contended for by threads of the same stripe; and no file lock
+ * is taken, for a shard is presumed to be written by this service provider
+ * alone (with the {@link PathWriterVisitor.Option#EXCLUSIVE EXCLUSIVE}
+ * option, every shard is locked once, when it is opened, until this service
+ * provider is closed). Sequence numbers are drawn from a global counter,
+ * under the lock of a shard. When appending, the counter continues from
+ * the greatest sequence number found in the shards, and a trailing
+ * incomplete record of a shard, or a zero-filled region, is truncated.
+ * <p>
+ * Forcing of written changes to the storage device is shared among
+ * concurrent callers of the same stripe (see {@link GroupCommitter}), and
+ * only covers their shard. With a {@link PathWriterVisitor#durability()
+ * durability} policy, every shard is also forced as the policy requires,
+ * counting its own messages (see {@link DurabilityTracker}).
+ */
+final class ShardedPathWriter implements PathWriterProvider
+{
+	private static final Set<StandardOpenOption> OPEN_OPTS =
+				Set.of(StandardOpenOption.CREATE,
+					StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final AtomicLong sequence = new AtomicLong();
+	private final AtomicInteger assignments = new AtomicInteger();
+	private final PathWriterVisitor pwVisitor;
+	private final Shard[] shards;
+	private final ThreadLocal<Shard> stripes;
+	private final WriterMetrics metrics;
+	private final MessageEncoder.Pool encoders;
+	private final String target;
+	private volatile boolean opened;
+	private boolean closed;
+
+	/**
+	 * Constructs a new {@code ShardedPathWriter} object.
+	 *
+	 * @param pwVisitor a supported visitor with a sharding policy
+	 */
+	ShardedPathWriter(PathWriterVisitor pwVisitor)
+	{
+		this.pwVisitor = Objects.requireNonNull(pwVisitor, "pwVisitor");
+		encoders = MessageEncoder.pool(pwVisitor.charset());
+		final int count = pwVisitor.sharding()
+			.orElseThrow()
+			.shards();
+		target = pwVisitor.path().toString();
+		metrics = WriterMetrics.of(this, PathWriterProvider.class,
+								target);
+		shards = new Shard[count];
+
+		for (int i = 0; i < count; ++i)
+			shards[i] = new Shard(PathWriterVisitor.Sharding
+				.shardPath(pwVisitor.path(), i));
+
+		stripes = ThreadLocal.withInitial(() -> shards[Math.floorMod(
+					assignments.getAndIncrement(), count)]);
+	}
+
+	private void open() throws IOException
+	{
+		lock.lock();
+
+		try {
+			if (closed)
+				throw new ClosedChannelException();
+
+			if (opened)
+				return;
+
+			long last = 0L;
+
+			try {
+				for (final Shard shard : shards)
+					last = Math.max(last, shard.open(
+						pwVisitor.appendable()));
+			} catch (final IOException | RuntimeException e) {
+				for (final Shard shard : shards)
+					shard.close();
+
+				throw e;
+			}
+
+			sequence.set(last);
+			opened = true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void doWrite(CharSequence message, boolean forced)
+	{
+		final MessageEncoder encoder = encoders.acquire();
+
+		try {
+			doWrite(new ByteBuffer[] { encoder.encode(message) },
+								forced);
+		} finally {
+			encoders.release(encoder);
+		}
+	}
+
+	private void doWrite(ByteBuffer buffer, boolean forced)
+	{
+		doWrite(new ByteBuffer[] {
+			Objects.requireNonNull(buffer, "buffer")
+		}, forced);
+	}
+
+	private void doWriteAll(List<? extends CharSequence> messages,
+							boolean forced)
+	{
+		final ByteBuffer[] buffers = ByteBuffers.encodeAll(messages,
+							pwVisitor.charset());
+
+		if (buffers.length > 0)
+			doWrite(buffers, forced);
+	}
+
+	private void doWrite(ByteBuffer[] buffers, boolean forced)
+	{
+		final Shard shard = stripes.get();
+		final long ticket;
+
+		try {
+			if (!opened)
+				open();
+
+			final long since = metrics.clock();
+			final LockEvent lockEvent = new LockEvent(
+						PathWriterProvider.class,
+						shard.target,
+						LockEvent.PRIVATE);
+			lockEvent.begin();
+
+			shard.lock.lock();
+
+			try {
+				lockEvent.commit();
+				metrics.monitorEntered(since);
+				final ByteBuffer[] records = shard.frame(
+						sequence.getAndAdd(
+							buffers.length) + 1L,
+						buffers);
+				final long start = metrics.clock();
+				final WriteEvent writeEvent = new WriteEvent(
+						PathWriterProvider.class,
+								shard.target);
+				writeEvent.begin();
+				final FileChannel channel = shard.channel();
+				final long length = writeEvent.commit(
+						ByteBuffers.writeFully(
+							channel, records));
+				metrics.written(length, start);
+				ticket = (forced || (shard.durability != null
+						&& shard.durability.written(
+							buffers.length,
+							length, channel)))
+					? shard.committer.ticket(channel)
+					: 0L;
+			} finally {
+				shard.lock.unlock();
+			}
+
+			if (ticket != 0L) /* fsync(3) of this shard alone. */
+				shard.committer.force(ticket);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes a message to a shard of a path.
+	 *
+	 * @implNote Writing is guarded with a private lock of a shard.
+	 *
+	 * @param message a message to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void write(String message)	{ doWrite(message, false); }
+
+	/**
+	 * Writes a message to a shard of a path.
+	 *
+	 * @implNote Writing is guarded with a private lock of a shard.
+	 *
+	 * @param message a message to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void write(CharSequence message)	{ doWrite(message, false); }
+
+	/**
+	 * Writes a message to a shard of a path, forcing any changes of
+	 * the shard to the containing storage device.
+	 *
+	 * @implNote Writing is guarded with a private lock of a shard;
+	 * forcing is shared among concurrent callers of the same stripe.
+	 *
+	 * @param message a message to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAndForce(String message) { doWrite(message, true); }
+
+	/**
+	 * Writes a message to a shard of a path, forcing any changes of
+	 * the shard to the containing storage device.
+	 *
+	 * @implNote Writing is guarded with a private lock of a shard;
+	 * forcing is shared among concurrent callers of the same stripe.
+	 *
+	 * @param message a message to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAndForce(CharSequence message)
+	{
+		doWrite(message, true);
+	}
+
+	/**
+	 * Writes the remaining bytes of a buffer to a shard of a path, as
+	 * a single record.
+	 *
+	 * @implNote Writing is guarded with a private lock of a shard.
+	 *
+	 * @param buffer a buffer of bytes to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void write(ByteBuffer buffer)	{ doWrite(buffer, false); }
+
+	/**
+	 * Writes the remaining bytes of a buffer to a shard of a path, as
+	 * a single record, forcing any changes of the shard to the containing
+	 * storage device.
+	 *
+	 * @implNote Writing is guarded with a private lock of a shard;
+	 * forcing is shared among concurrent callers of the same stripe.
+	 *
+	 * @param buffer a buffer of bytes to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAndForce(ByteBuffer buffer) { doWrite(buffer, true); }
+
+	/**
+	 * Writes messages to a shard of a path, gathering them in a single
+	 * write of consecutive records.
+	 *
+	 * @implNote Writing is guarded with a private lock of a shard.
+	 *
+	 * @param messages messages to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAll(List<? extends CharSequence> messages)
+	{
+		doWriteAll(messages, false);
+	}
+
+	/**
+	 * Writes messages to a shard of a path, gathering them in a single
+	 * write of consecutive records and forcing any changes of the shard to
+	 * the containing storage device.
+	 *
+	 * @implNote Writing is guarded with a private lock of a shard;
+	 * forcing is shared among concurrent callers of the same stripe.
+	 *
+	 * @param messages messages to write
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void writeAllAndForce(List<? extends CharSequence> messages)
+	{
+		doWriteAll(messages, true);
+	}
+
+	/**
+	 * Forces any changes written so far to every shard of a path to
+	 * the containing storage device, without writing.
+	 *
+	 * @implNote Forcing is shared among concurrent callers.
+	 *
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void force()
+	{
+		if (!opened)
+			return;			/* Nothing is written. */
+
+		final long[] tickets = new long[shards.length];
+
+		try {
+			for (int i = 0; i < shards.length; ++i) {
+				final Shard shard = shards[i];
+				shard.lock.lock();
+
+				try {
+					tickets[i] = shard.committer.ticket(
+							shard.channel());
+				} finally {
+					shard.lock.unlock();
+				}
+			}
+
+			for (int i = 0; i < shards.length; ++i)
+				shards[i].committer.force(tickets[i]);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Closes the shards of a path.
+	 * <p>
+	 * (Any attempt to write with a closed service provider shall fail.)
+	 *
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	@Override
+	public void close()
+	{
+		lock.lock();
+
+		try {
+			closed = true;
+
+			try {
+				for (final Shard shard : shards)
+					shard.close();
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				metrics.close();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Kind kind()			{ return Kind.PATH; }
+
+	@Override
+	public <T extends Visitor<? extends T>> Optional<ReadyWriter> accept(
+								T visitor)
+	{
+		return Objects.requireNonNull(visitor, "visitor")
+			.visit(this)
+			.filter(PathWriterVisitor.class::isInstance)
+			.map(Function.<PathWriterVisitor>identity()
+				.andThen(PathWriter::newPathWriter)
+				.compose(PathWriterVisitor.class::cast));
+	}
+
+	/** A shard of a path that is written to by a stripe of threads. */
+	private final class Shard
+	{
+		private final Path path;
+		private final String target;
+		private final RecordFormat.Framer framer;
+		private final GroupCommitter<FileChannel> committer;
+		private final DurabilityTracker<FileChannel> durability;
+		private final ReentrantLock lock = new ReentrantLock();
+		private volatile FileChannel channel;
+
+		Shard(Path path)
+		{
+			this.path = path;
+			target = path.toString();
+			framer = PathWriterVisitor.Sharding.RECORD_FORMAT
+				.framer(pwVisitor.byteOrder());
+			committer = new GroupCommitter<>(metrics.timed(
+					ForceEvent.timed(PathWriterProvider.class,
+								target,
+								this::force)));
+			durability = pwVisitor.durability()
+				.map(policy -> new DurabilityTracker<>(
+						policy.maxMessages(),
+						policy.maxBytes(),
+						policy.maxDelay().orElse(null),
+						committer))
+				.orElse(null);
+		}
+
+		/*
+		 * Opens a shard and returns the greatest sequence number found
+		 * in it.
+		 */
+		long open(boolean appendable) throws IOException
+		{
+			final OpenEvent openEvent = new OpenEvent(
+					PathWriterProvider.class, target);
+			openEvent.begin();
+			final FileChannel newChannel = FileChannel.open(path,
+					OPEN_OPTS, PathWriter.FILE_ATTRIBUTES);
+			openEvent.commit();
+
+			try {
+				if (pwVisitor.options().contains(
+					PathWriterVisitor.Option.EXCLUSIVE))
+					PathWriter.lockExclusively(newChannel,
+									path);
+
+				final long next = (appendable)	/* After locking. */
+					? scan(newChannel)
+					: truncate(newChannel);
+				channel = newChannel;
+				return next;
+			} catch (final IOException | RuntimeException e) {
+				newChannel.close();
+				throw e;
+			}
+		}
+
+		private long truncate(FileChannel channel) throws IOException
+		{
+			channel.truncate(0L);
+			return 0L;
+		}
+
+		/*
+		 * Positions a channel after the last complete record,
+		 * truncating any incomplete record or zero-filled region.
+		 */
+		private long scan(FileChannel channel) throws IOException
+		{
+			final int headerBytes = PathWriterVisitor.Sharding
+				.RECORD_FORMAT
+				.headerBytes();
+			final RecordReader reader = PathWriterVisitor.Sharding
+				.RECORD_FORMAT
+				.reader(channel.position(0L),
+						pwVisitor.byteOrder());
+			final long size = channel.size();
+			long position = 0L;
+			long last = 0L;
+
+			/* Let the reader be, lest it close the channel. */
+			while (reader.next() && reader.sequence() != 0L
+					&& reader.length() <= size
+						- reader.position()
+						- headerBytes) {
+				last = Math.max(last, reader.sequence());
+				position = reader.position() + headerBytes
+							+ reader.length();
+			}
+
+			if (position < size)
+				channel.truncate(position);
+
+			channel.position(position);
+			return last;
+		}
+
+		FileChannel channel() throws IOException
+		{
+			final FileChannel currentChannel = channel;
+
+			if (currentChannel == null)
+				throw new ClosedChannelException();
+
+			return currentChannel;
+		}
+
+		/* Interleaves headers with buffers (guarded by lock). */
+		ByteBuffer[] frame(long sequence, ByteBuffer[] buffers)
+		{
+			final ByteBuffer[] records = framer.frame(buffers);
+			framer.resume(sequence - 1L);
+			framer.stamp(records);
+			return records;
+		}
+
+		/* Takes a closed channel for a forced one (see #close()). */
+		void force(FileChannel forcible) throws IOException
+		{
+			try {
+				forcible.force(false);
+			} catch (final ClosedChannelException e) {
+				if (channel != null)
+					throw e;
+			}
+		}
+
+		void close() throws IOException
+		{
+			lock.lock();
+
+			try {
+				if (durability != null)
+					durability.close();
+
+				final FileChannel oldChannel = channel;
+
+				if (oldChannel != null) {
+					channel = null;
+
+					try (oldChannel) {
+						if (committer.pending())
+							oldChannel.force(false);
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+}
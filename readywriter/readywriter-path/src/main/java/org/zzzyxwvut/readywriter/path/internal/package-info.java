@@ -1,2 +1,2 @@
-/** Provides path-writing-related support. */
+/** Provides path-writing-related and path-reading-related support. */
 package org.zzzyxwvut.readywriter.path.internal;
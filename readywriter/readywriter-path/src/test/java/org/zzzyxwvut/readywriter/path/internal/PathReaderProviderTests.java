@@ -0,0 +1,233 @@
+package org.zzzyxwvut.readywriter.path.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.zzzyxwvut.julics.annotation.Loggable;
+import org.zzzyxwvut.julics.naming.LoggerRef;
+
+import org.zzzyxwvut.readywriter.ReadyReader;
+import org.zzzyxwvut.readywriter.ReadyWriter;
+import org.zzzyxwvut.readywriter.service.PathReaderVisitor;
+import org.zzzyxwvut.readywriter.service.PathWriterVisitor;
+import org.zzzyxwvut.readywriter.service.RecordFormat;
+
+@Loggable(retainsValues = false)
+public class PathReaderProviderTests
+{
+	private static final Function<Optional<ByteBuffer>, String> MESSAGE =
+			buffer -> StandardCharsets.UTF_8.decode(
+					buffer.orElseThrow(AssertionError::new))
+				.toString();
+
+	@TempDir
+	public static Path tmpDir;
+
+	private ReadyReader readerProvider;
+	private ReadyWriter pathWriter;
+
+	static {
+		/* Load logging.properties. */
+		new LoggerRef(PathReaderProviderTests.class);
+	}
+
+	private static String getCallerMethodsName(TestInfo info)
+	{
+		return info.getTestMethod()
+			.map(Method::getName)
+			.orElseGet(() -> StackWalker.getInstance()
+				.walk(frame -> frame.skip(1).findFirst())
+				.map(StackWalker.StackFrame::getMethodName)
+				.orElseGet(() -> "<INNOMINATE>"));
+	}
+
+	@BeforeEach
+	public void setUp()
+	{
+		readerProvider = PathReaderProvider.provider();
+		pathWriter = PathWriterProvider.provider();
+	}
+
+	private static ReadyWriter newReadyWriter(ReadyWriter writer,
+						PathWriterVisitor visitor)
+	{
+		return writer.accept(visitor)
+			.orElseThrow(IllegalStateException::new);
+	}
+
+	private static void write(Path path, String text,
+					StandardOpenOption... options)
+							throws IOException
+	{
+		Files.write(path, text.getBytes(StandardCharsets.US_ASCII),
+								options);
+	}
+
+	@Test
+	public void testTailingOfMessages(TestInfo info) throws IOException,
+							InterruptedException
+	{
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+		final PathWriterVisitor pwVisitor = new PathWriterVisitor(path,
+								true)
+			.withRecordFormat(new RecordFormat(true, false));
+		final PathReaderVisitor prVisitor = PathReaderVisitor
+			.of(pwVisitor)
+			.withConsumer("tail")
+			.withPollInterval(Duration.ofMillis(10L));
+
+		assertThrows(IllegalStateException.class, readerProvider::poll);
+
+		try (ReadyReader reader = readerProvider.accept(prVisitor)
+				.orElseThrow(IllegalStateException::new)) {
+			assertFalse(reader.poll().isPresent());
+
+			try (ReadyWriter writer = newReadyWriter(pathWriter,
+								pwVisitor)) {
+				writer.writeAll(List.of("a", "b"));
+			}
+
+			final Optional<ByteBuffer> first = reader.poll();
+			assertTrue(first.map(ByteBuffer::isReadOnly)
+				.orElse(false));
+			assertTrue(first.map(ByteBuffer::isDirect)
+				.orElse(false));
+			assertEquals("a", MESSAGE.apply(first));
+			assertEquals("b", MESSAGE.apply(reader.poll()));
+			assertFalse(reader.poll().isPresent());
+			reader.commit();
+
+			final Thread writing = new Thread(() -> {
+				try (ReadyWriter writer = newReadyWriter(
+						PathWriterProvider.provider(),
+						pwVisitor)) {
+					TimeUnit.MILLISECONDS.sleep(50L);
+					writer.write("c");
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			writing.start();
+			assertEquals("c", MESSAGE.apply(reader.poll(
+						Duration.ofSeconds(5L))));
+			writing.join();
+		}
+
+		assertEquals("26", Files.readString(PathReaderVisitor
+					.positionPath(path, "tail"))
+			.strip());
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter,
+								pwVisitor)) {
+			writer.write("d");
+		}
+
+		/* Resume past "b" from the committed position. */
+		try (ReadyReader reader = readerProvider.accept(prVisitor)
+				.orElseThrow(IllegalStateException::new)) {
+			assertEquals(26L, reader.position());
+			assertEquals("c", MESSAGE.apply(reader.poll()));
+			assertEquals("d", MESSAGE.apply(reader.poll()));
+			assertFalse(reader.poll(Duration.ofMillis(20L))
+				.isPresent());
+		}
+
+		final Path linePath = path.resolveSibling(path.getFileName()
+							+ ".txt");
+		write(linePath, "foo\n\nba");
+
+		try (ReadyReader reader = readerProvider.accept(
+					new PathReaderVisitor(linePath))
+				.orElseThrow(IllegalStateException::new)) {
+			assertEquals("foo", MESSAGE.apply(reader.poll()));
+			assertEquals("", MESSAGE.apply(reader.poll()));
+			assertFalse(reader.poll().isPresent());
+			write(linePath, "r\n", StandardOpenOption.APPEND);
+			assertEquals("bar", MESSAGE.apply(reader.poll()));
+			assertEquals(9L, reader.position());
+			assertThrows(IllegalStateException.class,
+							reader::commit);
+		}
+	}
+
+	@Test
+	public void testReadingOfZeroTails(TestInfo info) throws IOException
+	{
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+		final PathWriterVisitor pwVisitor = new PathWriterVisitor(path,
+								true)
+			.withRecordFormat(new RecordFormat())
+			.withPreallocation(new PathWriterVisitor.Preallocation(
+								4096L));
+
+		try (ReadyReader reader = readerProvider.accept(
+					PathReaderVisitor.of(pwVisitor))
+				.orElseThrow(IllegalStateException::new);
+				ReadyWriter writer = newReadyWriter(pathWriter,
+								pwVisitor)) {
+			writer.writeAll(List.of("a", "", "b"));
+			assertEquals(4096L, Files.size(path));
+			assertEquals("a", MESSAGE.apply(reader.poll()));
+			assertEquals("", MESSAGE.apply(reader.poll()));
+			assertEquals("b", MESSAGE.apply(reader.poll()));
+			assertFalse(reader.poll().isPresent());
+			assertEquals(14L, reader.position());
+
+			writer.write("c");
+			assertEquals("c", MESSAGE.apply(reader.poll()));
+			assertFalse(reader.poll().isPresent());
+		}
+	}
+
+	@Test
+	public void testReadingOfReplacedFiles(TestInfo info)
+							throws IOException
+	{
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+		final Path tmpPath = path.resolveSibling(path.getFileName()
+							+ ".tmp");
+		write(path, "a\nb\n");
+
+		try (ReadyReader reader = readerProvider.accept(
+					new PathReaderVisitor(path))
+				.orElseThrow(IllegalStateException::new)) {
+			assertEquals("a", MESSAGE.apply(reader.poll()));
+
+			/* Drain the replaced file first. */
+			write(tmpPath, "c\n");
+			Files.move(tmpPath, path,
+					StandardCopyOption.REPLACE_EXISTING);
+			assertEquals("b", MESSAGE.apply(reader.poll()));
+			assertEquals("c", MESSAGE.apply(reader.poll()));
+			assertEquals(2L, reader.position());
+
+			/* Read a truncated file anew. */
+			write(path, "d");
+			assertFalse(reader.poll().isPresent());
+			write(path, "\n", StandardOpenOption.APPEND);
+			assertEquals("d", MESSAGE.apply(reader.poll()));
+			assertFalse(reader.poll().isPresent());
+		}
+	}
+}
@@ -1,18 +1,44 @@
 package org.zzzyxwvut.readywriter.path.internal;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -26,7 +52,12 @@ import org.zzzyxwvut.julics.annotation.Loggable;
 import org.zzzyxwvut.julics.naming.LoggerRef;
 
 import org.zzzyxwvut.readywriter.ReadyWriter;
+import org.zzzyxwvut.readywriter.service.DurabilityPolicy;
 import org.zzzyxwvut.readywriter.service.PathWriterVisitor;
+import org.zzzyxwvut.readywriter.service.RecordFormat;
+import org.zzzyxwvut.readywriter.service.RecordIndex;
+import org.zzzyxwvut.readywriter.service.RecordReader;
+import org.zzzyxwvut.readywriter.service.ShardMerger;
 
 @Loggable(retainsValues = false)
 public class PathWriterProviderTests
@@ -132,6 +163,44 @@ public class PathWriterProviderTests
 			.orElseThrow(IllegalStateException::new);
 	}
 
+	/*
+	 * Writes 64 lines of "<thread>:<line>" with every thread, forcing
+	 * every 16th line, if so requested.
+	 */
+	private void writeNumberedLines(ReadyWriter writer, boolean forcing)
+						throws InterruptedException
+	{
+		final AtomicInteger threads = new AtomicInteger();
+		executor.executeAndWait(Collections.nCopies(THREADS, () -> {
+			final int thread = threads.getAndIncrement();
+
+			for (int i = 0; i < 64; ++i) {
+				final String line = String.format("%d:%d%s",
+							thread, i, NEWLINE);
+
+				if (forcing && i % 16 == 15)
+					writer.writeAndForce(line);
+				else
+					writer.write(line);
+			}
+		}));
+	}
+
+	/* Asserts that the lines of every thread are whole and in order. */
+	private static void assertNumberedLines(List<String> lines)
+	{
+		final int[] counters = new int[THREADS];
+
+		for (final String line : lines) {
+			final String[] parts = line.split(":");
+			assertEquals(counters[Integer.parseInt(parts[0])]++,
+						Integer.parseInt(parts[1]));
+		}
+
+		for (final int counter : counters)
+			assertEquals(64, counter);
+	}
+
 	@Test
 	public void testExplicitByteOrder(TestInfo info) throws IOException,
 							InterruptedException
@@ -241,4 +310,842 @@ public class PathWriterProviderTests
 			.orElseThrow(AssertionError::new);
 		assertArrayEquals(expected, obtained);
 	}
+
+	@Test
+	public void testPersistentAppendingOfLines(TestInfo info) throws IOException,
+							InterruptedException
+	{
+		final byte[] expected = "foo bar"
+			.concat(NEWLINE)
+			.repeat(THREADS)
+			.getBytes(StandardCharsets.UTF_8);
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter,
+				new PathWriterVisitor(path, true,
+					StandardCharsets.UTF_8,
+					ByteOrder.BIG_ENDIAN,
+					Set.of(PathWriterVisitor.Option
+							.PERSISTENT)))) {
+			final Runnable r = WRITER
+				.apply(writer)
+				.apply(new String(expected,
+						StandardCharsets.UTF_8));
+			executor.executeAndWait(Collections.nCopies(THREADS,
+									r));
+		}
+
+		final byte[] obtained = Optional.ofNullable(new FileReader()
+				.awaitAndReadBytes(path, expected.length))
+			.orElseThrow(AssertionError::new);
+		assertArrayEquals(expected, obtained);
+	}
+
+	@Test
+	public void testPersistentReopeningOfDeletedPath(TestInfo info)
+					throws IOException, InterruptedException
+	{
+		final byte[] expected = "baz quux"
+			.concat(NEWLINE)
+			.getBytes(StandardCharsets.UTF_8);
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter,
+				new PathWriterVisitor(path, true,
+					StandardCharsets.UTF_8,
+					ByteOrder.BIG_ENDIAN,
+					Set.of(PathWriterVisitor.Option
+							.PERSISTENT)))) {
+			writer.write("foo bar".concat(NEWLINE));
+			Files.delete(path);
+			writer.write(new String(expected,
+						StandardCharsets.UTF_8));
+		}
+
+		final byte[] obtained = Optional.ofNullable(new FileReader()
+				.awaitAndReadBytes(path, expected.length))
+			.orElseThrow(AssertionError::new);
+		assertArrayEquals(expected, obtained);
+	}
+
+	@Test
+	public void testBatchAppendingOfLines(TestInfo info) throws IOException,
+							InterruptedException
+	{
+		final List<String> lines = List.of("foo".concat(NEWLINE),
+						"bar".concat(NEWLINE),
+						"baz".concat(NEWLINE),
+						"quux".concat(NEWLINE));
+		final byte[] expected = String.join("", lines)
+			.repeat(THREADS)
+			.getBytes(StandardCharsets.UTF_8);
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+		final ReadyWriter writer = newReadyWriter(pathWriter,
+					new PathWriterVisitor(path, true));
+		final Runnable r = () -> writer.writeAll(lines);
+		executor.executeAndWait(Collections.nCopies(THREADS, r));
+		final byte[] obtained = Optional.ofNullable(new FileReader()
+				.awaitAndReadBytes(path, expected.length))
+			.orElseThrow(AssertionError::new);
+		assertArrayEquals(expected, obtained);
+	}
+
+	@Test
+	public void testGroupForcingOfLines(TestInfo info) throws IOException,
+							InterruptedException
+	{
+		final byte[] expected = "foo bar"
+			.concat(NEWLINE)
+			.repeat(THREADS)
+			.getBytes(StandardCharsets.UTF_8);
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter,
+				new PathWriterVisitor(path, true,
+					StandardCharsets.UTF_8,
+					ByteOrder.BIG_ENDIAN,
+					Set.of(PathWriterVisitor.Option
+							.PERSISTENT)))) {
+			final String message = "foo bar".concat(NEWLINE);
+			final Runnable r = () -> writer.writeAndForce(message);
+			executor.executeAndWait(Collections.nCopies(THREADS,
+									r));
+		}
+
+		final byte[] obtained = Optional.ofNullable(new FileReader()
+				.awaitAndReadBytes(path, expected.length))
+			.orElseThrow(AssertionError::new);
+		assertArrayEquals(expected, obtained);
+	}
+
+	@Test
+	public void testGroupForcingAcrossDeletionOfPath(TestInfo info)
+					throws IOException, InterruptedException
+	{
+		final String message = "foo bar".concat(NEWLINE);
+
+		for (final Set<PathWriterVisitor.Option> options : List.of(
+				Set.<PathWriterVisitor.Option>of(),
+				Set.of(PathWriterVisitor.Option.PERSISTENT))) {
+			final Path path = tmpDir.resolve(getCallerMethodsName(
+							info) + options.size());
+
+			try (ReadyWriter writer = newReadyWriter(pathWriter,
+					new PathWriterVisitor(path, true,
+						StandardCharsets.UTF_8,
+						ByteOrder.BIG_ENDIAN,
+						options))) {
+				final Runnable r = () -> {
+					writer.writeAndForce(message);
+
+					try {	/* Race forcing with reopening. */
+						Files.deleteIfExists(path);
+					} catch (final IOException e) {
+						throw new UncheckedIOException(e);
+					}
+
+					writer.writeAndForce(message);
+				};
+				executor.executeAndWait(Collections.nCopies(
+								THREADS, r));
+				writer.writeAndForce(message);
+			}
+
+			final String obtained = Files.readString(path,
+						StandardCharsets.UTF_8);
+			assertFalse(obtained.isEmpty());
+			assertEquals("", obtained.replace(message, ""));
+		}
+	}
+
+	@Test
+	public void testEncodingOfCharSequences(TestInfo info) throws IOException,
+							InterruptedException
+	{
+		/* Straddle the chunks of an encoder with a surrogate pair. */
+		final List<CharSequence> messages = List.of(
+			new StringBuilder("foo bar").append(NEWLINE),
+			new StringBuilder("\u0109u \u015di? \ud83c\udf0d")
+				.append(NEWLINE),
+			new StringBuilder("x".repeat(511))
+				.append("\ud83c\udf0d".repeat(8192))
+				.append(NEWLINE),
+			new StringBuilder("baz").append(NEWLINE));
+		final byte[] expected = String.join("", messages)
+			.getBytes(StandardCharsets.UTF_8);
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter,
+				new PathWriterVisitor(path, true))) {
+			for (final CharSequence message : messages)
+				writer.write(message);
+		}
+
+		final byte[] obtained = Optional.ofNullable(new FileReader()
+				.awaitAndReadBytes(path, expected.length))
+			.orElseThrow(AssertionError::new);
+		assertArrayEquals(expected, obtained);
+	}
+
+	@Test
+	public void testRawWritingOfBytes(TestInfo info) throws IOException,
+							InterruptedException
+	{
+		final byte[] expected = "foo bar baz quux"
+			.concat(NEWLINE)
+			.getBytes(StandardCharsets.UTF_8);
+		final ByteBuffer direct = ByteBuffer.allocateDirect(8)
+			.put("bar ".getBytes(StandardCharsets.UTF_8))
+			.flip();
+		final ByteBuffer heap = ByteBuffer.wrap("quux"
+			.concat(NEWLINE)
+			.getBytes(StandardCharsets.UTF_8));
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter,
+				new PathWriterVisitor(path, true))) {
+			writer.write("foo ");
+			writer.write(direct);
+			writer.write("-baz -".getBytes(StandardCharsets.UTF_8),
+									1, 4);
+			writer.writeAndForce(heap);
+		}
+
+		assertFalse(direct.hasRemaining());
+		assertFalse(heap.hasRemaining());
+		final byte[] obtained = Optional.ofNullable(new FileReader()
+				.awaitAndReadBytes(path, expected.length))
+			.orElseThrow(AssertionError::new);
+		assertArrayEquals(expected, obtained);
+	}
+
+	@Test
+	public void testRecordingOfEvents(TestInfo info) throws IOException
+	{
+		final String name = getCallerMethodsName(info);
+		final Path path = tmpDir.resolve(name);
+		final Path dump = tmpDir.resolve(name.concat(".jfr"));
+		final String message = "foo".concat(NEWLINE);
+		final List<String> eventNames = List.of(
+					"org.zzzyxwvut.readywriter.Open",
+					"org.zzzyxwvut.readywriter.Lock",
+					"org.zzzyxwvut.readywriter.Write",
+					"org.zzzyxwvut.readywriter.Force");
+
+		try (Recording recording = new Recording()) {
+			for (final String eventName : eventNames)
+				recording.enable(eventName)
+					.withThreshold(Duration.ZERO);
+
+			recording.start();
+
+			try (ReadyWriter writer = newReadyWriter(pathWriter,
+					new PathWriterVisitor(path, true))) {
+				writer.writeAndForce(message);
+			}
+
+			recording.stop();
+			recording.dump(dump);
+		}
+
+		final List<RecordedEvent> events = RecordingFile
+			.readAllEvents(dump);
+		assertEquals(eventNames, events.stream()
+			.map(event -> event.getEventType().getName())
+			.distinct()
+			.sorted(Comparator.comparingInt(
+							eventNames::indexOf))
+			.collect(Collectors.toUnmodifiableList()));
+		assertEquals(Set.of((long) message.length()), events.stream()
+			.filter(event -> event.hasField("bytes"))
+			.map(event -> event.getLong("bytes"))
+			.collect(Collectors.toUnmodifiableSet()));
+	}
+
+	@Test
+	public void testRollingOverOfSegments(TestInfo info) throws IOException,
+							InterruptedException
+	{
+		final String message = "foo bar".concat(NEWLINE);
+		final String oversized = "baz ".repeat(32).concat(NEWLINE);
+		final Path path = tmpDir.resolve(getCallerMethodsName(info)
+							.concat(".msg"));
+		final int maxBytes = message.length() * 8;
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter,
+				new PathWriterVisitor(path, true)
+					.withRollover(
+						new PathWriterVisitor.Rollover(
+								maxBytes)))) {
+			executor.executeAndWait(Collections.nCopies(THREADS,
+								() -> {
+				for (int i = 0; i < 64; ++i)
+					writer.write(message);
+			}));
+			writer.writeAndForce(oversized);
+		}
+
+		final List<Path> segments;
+
+		try (Stream<Path> paths = Files.list(tmpDir)) {
+			segments = paths.filter(candidate ->
+					PathWriterVisitor.Rollover.segmentIndex(
+							path, candidate) >= 0L)
+				.sorted()
+				.collect(Collectors.toUnmodifiableList());
+		}
+
+		assertEquals(THREADS * 64 / 8 + 1, segments.size());
+		assertEquals(PathWriterVisitor.Rollover.segmentPath(path, 0L),
+							segments.get(0));
+
+		for (final Path segment : segments.subList(0,
+						segments.size() - 1))
+			assertArrayEquals(message.repeat(8)
+					.getBytes(StandardCharsets.UTF_8),
+				Files.readAllBytes(segment));
+
+		assertArrayEquals(oversized.getBytes(StandardCharsets.UTF_8),
+			Files.readAllBytes(segments.get(segments.size() - 1)));
+	}
+
+	@Test
+	public void testRollingOverOfSegmentsOfTwoWriters(TestInfo info)
+							throws IOException
+	{
+		final Path path = tmpDir.resolve(getCallerMethodsName(info)
+							.concat(".msg"));
+		final PathWriterVisitor visitor =
+					new PathWriterVisitor(path, true)
+			.withRollover(new PathWriterVisitor.Rollover(64L));
+		final Set<String> expected = Set.of("foo".concat(NEWLINE),
+						"bar".concat(NEWLINE));
+		final Predicate<Path> segmentOf = candidate ->
+			PathWriterVisitor.Rollover.segmentIndex(path,
+							candidate) >= 0L;
+
+		try (ReadyWriter fooWriter = newReadyWriter(pathWriter,
+								visitor);
+				ReadyWriter barWriter = newReadyWriter(
+							pathWriter, visitor)) {
+			try (Stream<Path> paths = Files.list(tmpDir)) {
+				assertTrue(paths.noneMatch(segmentOf));
+			}
+
+			/* Claim the indices that either would prepare. */
+			fooWriter.write("foo".concat(NEWLINE));
+			barWriter.write("bar".concat(NEWLINE));
+		}
+
+		final Set<String> actual;
+
+		try (Stream<Path> paths = Files.list(tmpDir)) {
+			actual = paths.filter(segmentOf)
+				.map(segment -> {
+					try {
+						return Files.readString(
+							segment,
+							StandardCharsets.UTF_8);
+					} catch (final IOException e) {
+						throw new UncheckedIOException(
+									e);
+					}
+				})
+				.collect(Collectors.toUnmodifiableSet());
+		}
+
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testShardingOfRecords(TestInfo info) throws IOException,
+							InterruptedException
+	{
+		final Path path = tmpDir.resolve(getCallerMethodsName(info)
+							.concat(".msg"));
+		final PathWriterVisitor visitor = new PathWriterVisitor(path, true)
+			.withSharding(new PathWriterVisitor.Sharding(3));
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter, visitor)) {
+			writeNumberedLines(writer, false);
+		}
+
+		/* Leave a zero-filled header and tear the tail of a shard. */
+		Files.write(PathWriterVisitor.Sharding.shardPath(path, 0),
+				new byte[PathWriterVisitor.Sharding
+					.RECORD_FORMAT
+					.headerBytes() + 5],
+				StandardOpenOption.APPEND);
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter, visitor)) {
+			writer.writeAndForce("last".concat(NEWLINE));
+		}
+
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		assertEquals(THREADS * 64 + 1, ShardMerger.merge(path, 3,
+					visitor.byteOrder(),
+					Channels.newChannel(output)));
+		final List<String> lines = List.of(output.toString(
+						StandardCharsets.UTF_8)
+			.split(NEWLINE));
+		assertNumberedLines(lines.subList(0, lines.size() - 1));
+		assertEquals("last", lines.get(lines.size() - 1));
+	}
+
+	@Test
+	public void testCombiningOfLines(TestInfo info) throws IOException,
+							InterruptedException
+	{
+		final String name = getCallerMethodsName(info);
+
+		/* Forced writes to a transient path are not combined. */
+		for (final boolean persistent : new boolean[] { false, true }) {
+			final Path path = tmpDir.resolve(name.concat(
+					(persistent) ? ".persistent" : ""));
+			final Set<PathWriterVisitor.Option> options =
+					(persistent)
+				? Set.of(PathWriterVisitor.Option.PERSISTENT,
+					PathWriterVisitor.Option.COMBINING)
+				: Set.of(PathWriterVisitor.Option.COMBINING);
+
+			try (ReadyWriter writer = newReadyWriter(pathWriter,
+					new PathWriterVisitor(path, true,
+						StandardCharsets.UTF_8,
+						ByteOrder.BIG_ENDIAN,
+						options))) {
+				writeNumberedLines(writer, true);
+			}
+
+			assertNumberedLines(Files.readAllLines(path,
+						StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public void testExclusiveLockingOfPath(TestInfo info) throws IOException
+	{
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+		final PathWriterVisitor visitor = new PathWriterVisitor(path, true,
+					StandardCharsets.UTF_8,
+					ByteOrder.BIG_ENDIAN,
+					Set.of(PathWriterVisitor.Option.EXCLUSIVE));
+		final ReadyWriter other = newReadyWriter(pathWriter, visitor);
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter, visitor)) {
+			writer.write("foo".concat(NEWLINE));
+			final UncheckedIOException e = assertThrows(
+					UncheckedIOException.class,
+					() -> other.write("bar".concat(NEWLINE)));
+			assertTrue(e.getCause() instanceof FileSystemException);
+			writer.write("baz".concat(NEWLINE));
+		}
+
+		try (other) {
+			other.write("quux".concat(NEWLINE));
+		}
+
+		assertEquals(List.of("foo", "baz", "quux"),
+				Files.readAllLines(path, StandardCharsets.UTF_8));
+	}
+
+	/* E.g. tmpfs does not support direct I/O. */
+	private static boolean supportsDirectIO(Path path)
+	{
+		try {
+			final OpenOption direct = (OpenOption) Class.forName(
+					"com.sun.nio.file.ExtendedOpenOption")
+				.getField("DIRECT")
+				.get(null);
+			FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+					StandardOpenOption.WRITE, direct)
+				.close();
+			Files.delete(path);
+			return true;
+		} catch (final IOException | ReflectiveOperationException
+				| UnsupportedOperationException ignored) {
+			return false;
+		}
+	}
+
+	@Test
+	public void testDirectWritingOfLines(TestInfo info) throws IOException
+	{
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+		assumeTrue(supportsDirectIO(tmpDir.resolve("direct.probe")),
+						"Unsupported direct I/O");
+		final List<String> lines = IntStream.range(0, 24_000)
+			.mapToObj(i -> "x".repeat(i % 97).concat(
+							Integer.toString(i)))
+			.collect(Collectors.toList());
+		final int half = lines.size() / 2;
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter,
+				new PathWriterVisitor(path, false,
+					StandardCharsets.UTF_8,
+					ByteOrder.BIG_ENDIAN,
+					Set.of(PathWriterVisitor.Option.DIRECT)))) {
+			for (final String line : lines.subList(0, half - 1))
+				writer.write(line.concat(NEWLINE));
+
+			writer.writeAndForce(lines.get(half - 1).concat(NEWLINE));
+			assertEquals(lines.subList(0, half),
+				Files.readAllLines(path, StandardCharsets.UTF_8));
+		}
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter,
+				new PathWriterVisitor(path, true,
+					StandardCharsets.UTF_8,
+					ByteOrder.BIG_ENDIAN,
+					Set.of(PathWriterVisitor.Option.DIRECT)))) {
+			writer.writeAll(lines.subList(half, lines.size())
+				.stream()
+				.map(line -> line.concat(NEWLINE))
+				.collect(Collectors.toList()));
+		}
+
+		assertEquals(lines, Files.readAllLines(path,
+						StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testPreallocationOfPath(TestInfo info) throws IOException
+	{
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+		final Path endPath = tmpDir.resolve(path.getFileName()
+							+ ".end");
+		final PathWriterVisitor visitor = new PathWriterVisitor(path,
+								true)
+			.withPreallocation(new PathWriterVisitor.Preallocation(
+								4096L));
+
+		/* Leave a zero tail behind, as if after a crash. */
+		Files.write(path, ("foo".concat(NEWLINE) + "\0".repeat(100))
+						.getBytes(StandardCharsets.UTF_8));
+		Files.write(endPath, ByteBuffer.allocate(Long.BYTES)
+			.putLong(0, 2L)
+			.array());
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter,
+								visitor)) {
+			writer.writeAndForce("bar".concat(NEWLINE));
+			assertEquals(104L, Files.size(path));
+			writer.writeAll(Collections.nCopies(1024,
+						"baz".concat(NEWLINE)));
+			assertEquals(8192L, Files.size(path));
+			assertEquals(8L, Files.size(endPath));
+		}
+
+		final List<String> lines = new ArrayList<>(List.of("foo", "bar"));
+		lines.addAll(Collections.nCopies(1024, "baz"));
+		assertEquals(lines, Files.readAllLines(path,
+						StandardCharsets.UTF_8));
+		assertFalse(Files.exists(endPath));
+
+		/* Trailing zero bytes of a cleanly closed file are kept. */
+		final long size = Files.size(path);
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter,
+								visitor)) {
+			writer.write(ByteBuffer.allocate(3));
+		}
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter,
+								visitor)) {
+			writer.writeAndForce(ByteBuffer.allocate(5));
+		}
+
+		assertEquals(size + 8L, Files.size(path));
+		assertFalse(Files.exists(endPath));
+	}
+
+	@Test
+	public void testPreallocationOfRecords(TestInfo info) throws IOException
+	{
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+		final Path crashedPath = tmpDir.resolve(path.getFileName()
+							+ ".crashed");
+		final RecordFormat format = new RecordFormat(true, false);
+		final Function<Path, PathWriterVisitor> visitor = newPath ->
+				new PathWriterVisitor(newPath, true)
+			.withRecordFormat(format)
+			.withPreallocation(new PathWriterVisitor.Preallocation(
+								4096L));
+
+		/* Leave records of zero bytes behind, as if after a crash. */
+		try (ReadyWriter writer = newReadyWriter(pathWriter,
+						visitor.apply(path))) {
+			writer.writeAndForce(ByteBuffer.allocate(4));
+			writer.write(ByteBuffer.allocate(4));
+			Files.copy(path, crashedPath);
+			Files.copy(tmpDir.resolve(path.getFileName() + ".end"),
+				tmpDir.resolve(crashedPath.getFileName()
+							+ ".end"));
+		}
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter,
+						visitor.apply(crashedPath))) {
+			writer.write(ByteBuffer.allocate(2));
+		}
+
+		assertEquals(3 * format.headerBytes() + 10L,
+						Files.size(crashedPath));
+
+		try (RecordReader reader = format.reader(
+					FileChannel.open(crashedPath),
+					ByteOrder.BIG_ENDIAN)) {
+			for (long sequence = 1L; sequence <= 3L; ++sequence) {
+				assertTrue(reader.next());
+				assertEquals(sequence, reader.sequence());
+				assertEquals((sequence < 3L) ? 4 : 2,
+							reader.length());
+			}
+
+			assertFalse(reader.next());
+		}
+	}
+
+	@Test
+	public void testDurabilityOfLines(TestInfo info) throws IOException
+	{
+		final String name = getCallerMethodsName(info);
+		final Path path = tmpDir.resolve(name);
+		final Path dump = tmpDir.resolve(name.concat(".jfr"));
+		final String forceEvent = "org.zzzyxwvut.readywriter.Force";
+
+		try (Recording recording = new Recording()) {
+			recording.enable(forceEvent)
+				.withThreshold(Duration.ZERO);
+			recording.start();
+
+			try (ReadyWriter writer = newReadyWriter(pathWriter,
+					new PathWriterVisitor(path, true)
+						.withDurability(DurabilityPolicy
+							.everyMessages(3L)))) {
+				for (int i = 0; i < 7; ++i)
+					writer.write("foo".concat(NEWLINE));
+
+				writer.writeAll(Collections.nCopies(3,
+						"bar".concat(NEWLINE)));
+			}
+
+			recording.stop();
+			recording.dump(dump);
+		}
+
+		/* After the 3rd and the 6th message, and after the batch. */
+		assertEquals(3L, RecordingFile.readAllEvents(dump)
+			.stream()
+			.filter(event -> forceEvent.equals(
+					event.getEventType().getName()))
+			.count());
+		assertEquals(10, Files.readAllLines(path,
+					StandardCharsets.UTF_8).size());
+	}
+
+	@Test
+	public void testFramingOfRecords(TestInfo info) throws IOException
+	{
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+		final RecordFormat format = new RecordFormat(true, true);
+		final long since = System.currentTimeMillis();
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter,
+				new PathWriterVisitor(path, true,
+						StandardCharsets.UTF_8,
+						ByteOrder.LITTLE_ENDIAN)
+					.withRecordFormat(format))) {
+			writer.write("foo");
+			writer.writeAll(List.of("bar", "", "baz"));
+			writer.writeAndForce(ByteBuffer.wrap(new byte[] {
+							1, 2, 3, 4, 5 }));
+			writer.force();		/* No empty record. */
+		}
+
+		final ByteBuffer first = ByteBuffer.wrap(Files.readAllBytes(path))
+			.order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(3, first.getInt(0));
+		assertEquals(1L, first.getLong(RecordFormat.LENGTH_BYTES));
+		assertEquals(5 * format.headerBytes() + 14, first.capacity());
+		final List<String> payloads = new ArrayList<>();
+
+		try (RecordReader reader = format.reader(FileChannel.open(path),
+					ByteOrder.LITTLE_ENDIAN)) {
+			for (long sequence = 1L; reader.next(); ++sequence) {
+				assertEquals(sequence, reader.sequence());
+				assertTrue(reader.timestamp() >= since);
+
+				/* Skip every other payload. */
+				payloads.add((sequence % 2L == 0L)
+					? String.valueOf(reader.length())
+					: StandardCharsets.UTF_8.decode(
+						reader.payload()).toString());
+			}
+		}
+
+		assertEquals(List.of("foo", "3", "", "3",
+				"\u0001\u0002\u0003\u0004\u0005"), payloads);
+	}
+
+	@Test
+	public void testResumingOfRecordSequences(TestInfo info)
+							throws IOException
+	{
+		final String name = getCallerMethodsName(info);
+		final RecordFormat format = new RecordFormat(true, false);
+
+		for (final boolean persistent : new boolean[] { false, true }) {
+			final Path path = tmpDir.resolve(name.concat(
+					(persistent) ? ".persistent" : ""));
+			final PathWriterVisitor visitor = new PathWriterVisitor(
+						path, true,
+						StandardCharsets.UTF_8,
+						ByteOrder.BIG_ENDIAN,
+						(persistent)
+				? Set.of(PathWriterVisitor.Option.PERSISTENT)
+				: Set.of())
+				.withRecordFormat(format);
+
+			for (int i = 0; i < 3; ++i) {
+				try (ReadyWriter writer = newReadyWriter(
+						pathWriter, visitor)) {
+					writer.write("foo");
+					writer.force();
+					writer.writeAll(List.of("bar", "baz"));
+				}
+			}
+
+			/* Transient writers read on the records of others. */
+			if (!persistent) {
+				try (ReadyWriter writer0 = newReadyWriter(
+							pathWriter, visitor);
+						ReadyWriter writer1 =
+							newReadyWriter(
+							pathWriter, visitor)) {
+					writer0.write("foo");
+					writer1.write("bar");
+					writer0.write("baz");
+				}
+			}
+
+			try (RecordReader reader = format.reader(
+						FileChannel.open(path),
+						ByteOrder.BIG_ENDIAN)) {
+				long sequence = 0L;
+
+				while (reader.next())
+					assertEquals(++sequence,
+							reader.sequence());
+
+				assertEquals((persistent) ? 9L : 12L,
+								sequence);
+			}
+		}
+	}
+
+	@Test
+	public void testIndexingOfRecords(TestInfo info) throws IOException,
+							InterruptedException
+	{
+		final Path path = tmpDir.resolve(getCallerMethodsName(info));
+		final PathWriterVisitor visitor = new PathWriterVisitor(path, true)
+			.withRecordFormat(new RecordFormat(true, true))
+			.withIndexing(new PathWriterVisitor.Indexing(4));
+		final RecordIndex recordIndex = visitor.recordIndex()
+			.orElseThrow(AssertionError::new);
+		final Function<RecordReader, String> payload = reader -> {
+			try {
+				return (reader.next())
+					? StandardCharsets.UTF_8.decode(
+						reader.payload()).toString()
+					: null;
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter, visitor)) {
+			for (int i = 1; i < 6; ++i)
+				writer.write("m" + i);
+
+			TimeUnit.MILLISECONDS.sleep(20L);
+			writer.writeAll(IntStream.range(6, 11)
+				.mapToObj(i -> "m" + i)
+				.collect(Collectors.toList()));
+		}
+
+		/* Records 1, 5 and 9. */
+		assertEquals(3L * RecordIndex.ENTRY_BYTES,
+				Files.size(recordIndex.indexPath()));
+
+		try (RecordReader reader = recordIndex.seekRecord(7L)) {
+			assertEquals("m7", payload.apply(reader));
+			assertEquals(7L, reader.sequence());
+		}
+
+		try (RecordReader reader = recordIndex.seekRecord(11L)) {
+			assertFalse(reader.next());
+		}
+
+		final long timestamp;
+
+		try (RecordReader reader = recordIndex.seekRecord(6L)) {
+			assertTrue(reader.next());
+			timestamp = reader.timestamp();
+		}
+
+		try (RecordReader reader = recordIndex.seekTime(timestamp)) {
+			assertEquals("m6", payload.apply(reader));
+		}
+
+		try (RecordReader reader = recordIndex.seekTime(0L)) {
+			assertEquals("m1", payload.apply(reader));
+		}
+
+		/* Pretend that an entry outlived its records in a crash. */
+		Files.write(recordIndex.indexPath(), ByteBuffer
+				.allocate(RecordIndex.ENTRY_BYTES)
+				.putLong(13L)
+				.putLong(timestamp)
+				.putLong(1L << 20)
+				.array(),
+			StandardOpenOption.APPEND);
+
+		try (RecordReader reader = recordIndex.seekRecord(10L)) {
+			assertEquals("m10", payload.apply(reader));
+		}
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter, visitor)) {
+			writer.writeAll(List.of("m11", "m12", "m13"));
+		}
+
+		final byte[] index = Files.readAllBytes(recordIndex.indexPath());
+		assertEquals(4 * RecordIndex.ENTRY_BYTES, index.length);
+
+		try (RecordReader reader = recordIndex.seekRecord(13L)) {
+			assertEquals("m13", payload.apply(reader));
+			assertEquals(13L, reader.sequence());
+		}
+
+		assertEquals(13L, recordIndex.rebuild());
+		assertArrayEquals(index, Files.readAllBytes(
+						recordIndex.indexPath()));
+
+		/* Writers without indexing resume from the last entry. */
+		assertEquals(ByteBuffer.wrap(index)
+				.getLong(index.length - Long.BYTES),
+			recordIndex.lastIndexed(Files.size(path)));
+
+		try (ReadyWriter writer = newReadyWriter(pathWriter,
+				new PathWriterVisitor(path, true)
+					.withRecordFormat(new RecordFormat(
+							true, true)))) {
+			writer.write("m14");
+			writer.write("m15");
+		}
+
+		try (RecordReader reader = recordIndex.seekRecord(15L)) {
+			assertEquals("m15", payload.apply(reader));
+			assertEquals(15L, reader.sequence());
+		}
+	}
 }
@@ -1,18 +1,31 @@
 /**
- * Defines a sink-writing service.
+ * Defines a sink-writing service and a companion source-reading service.
  *
+ * @uses org.zzzyxwvut.readywriter.ReadyReader
  * @uses org.zzzyxwvut.readywriter.ReadyWriter
  */
 module org.zzzyxwvut.readywriter.service
 {
 	requires static org.zzzyxwvut.julics.annotations;
 
+	requires java.management;
+	requires jdk.jfr;
 	requires org.zzzyxwvut.julics.core;
 	requires org.zzzyxwvut.julics.naming;
 
 	exports org.zzzyxwvut.readywriter.annotation;
+	exports org.zzzyxwvut.readywriter.event to
+		org.zzzyxwvut.readywriter.fd,
+		org.zzzyxwvut.readywriter.mmap,
+		org.zzzyxwvut.readywriter.path;
+	exports org.zzzyxwvut.readywriter.management;
 	exports org.zzzyxwvut.readywriter.service;
+	exports org.zzzyxwvut.readywriter.support to
+		org.zzzyxwvut.readywriter.fd,
+		org.zzzyxwvut.readywriter.mmap,
+		org.zzzyxwvut.readywriter.path;
 	exports org.zzzyxwvut.readywriter;
 
+	uses org.zzzyxwvut.readywriter.ReadyReader;
 	uses org.zzzyxwvut.readywriter.ReadyWriter;
 }
@@ -0,0 +1,112 @@
+package org.zzzyxwvut.readywriter;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Optional;
+
+import org.zzzyxwvut.readywriter.ReadyWriter.Kind;
+
+/**
+ * A service capable of reading messages from a source that is written to
+ * by a {@link ReadyWriter}, e.g. of tailing a file.
+ * <p>
+ * Every message is handed out as a read-only buffer of its bytes, which
+ * may share the content of the source; a reader keeps a position past
+ * the last handed-out message, which it may persist for its consumer (see
+ * {@link #commit()}).
+ * <p>
+ * (A reader is not safe for use by multiple concurrent threads.)
+ */
+public interface ReadyReader extends AutoCloseable
+{
+	/**
+	 * Returns the next message, if it is already written.
+	 *
+	 * @return an optional with a read-only buffer of the next message,
+	 *	if any, otherwise an empty optional
+	 */
+	Optional<ByteBuffer> poll();
+
+	/**
+	 * Returns the next message, waiting for it to be written if
+	 * necessary, up to the specified waiting time.
+	 *
+	 * @param timeout the longest time to wait
+	 * @return an optional with a read-only buffer of the next message,
+	 *	if any is written in time, otherwise an empty optional
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	Optional<ByteBuffer> poll(Duration timeout) throws InterruptedException;
+
+	/**
+	 * Returns the position past the last handed-out message.
+	 *
+	 * @return the position past the last handed-out message
+	 */
+	long position();
+
+	/**
+	 * Persists the position past the last handed-out message for
+	 * the consumer of this reader, so that a new reader for the consumer
+	 * resumes from it.
+	 *
+	 * @implSpec
+	 * The default implementation throws
+	 * {@code UnsupportedOperationException}.
+	 *
+	 * @throws UnsupportedOperationException if persisting of positions is
+	 *	not supported
+	 */
+	default void commit()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Releases any resources held by this service provider.
+	 * <p>
+	 * (Buffers of handed-out messages may no longer be accessible after
+	 * the release of their source.)
+	 *
+	 * @implSpec
+	 * The default implementation does nothing.
+	 */
+	@Override
+	default void close()	{ /* NO-OP. */ }
+
+	/**
+	 * Returns the kind of this service provider.
+	 *
+	 * @return the kind of this service provider
+	 */
+	Kind kind();
+
+	/**
+	 * Returns a new instance of this service provider for the supported
+	 * visitor.
+	 *
+	 * @param <T> the type of a visitor
+	 * @param visitor a visitor to apply to this service provider
+	 * @return an optional with a new instance of this service provider if
+	 *	the passed visitor is supported, otherwise an empty optional
+	 */
+	<T extends Visitor<? extends T>> Optional<ReadyReader> accept(T visitor);
+
+	/**
+	 * A visitor for a service provider.
+	 *
+	 * @param <T> the type of a visitor
+	 */
+	interface Visitor<T extends Visitor<? extends T>>
+	{
+		/**
+		 * Visits a service provider.
+		 *
+		 * @param visitable a service provider to visit
+		 * @return an optional with a visitor for the passed service
+		 *	provider if the same {@link ReadyWriter.Kind} is
+		 *	claimed by both, otherwise an empty optional
+		 */
+		Optional<T> visit(ReadyReader visitable);
+	}
+}
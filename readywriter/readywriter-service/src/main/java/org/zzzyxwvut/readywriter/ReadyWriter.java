@@ -1,9 +1,13 @@
 package org.zzzyxwvut.readywriter;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 /** A service capable of writing to a sink. */
-public interface ReadyWriter
+public interface ReadyWriter extends AutoCloseable
 {
 	/**
 	 * Writes a message to a sink.
@@ -23,6 +27,186 @@ public interface ReadyWriter
 	 */
 	void writeAndForce(String message);
 
+	/**
+	 * Writes a message to a sink.
+	 *
+	 * @implSpec
+	 * The default implementation writes the string representation of
+	 * the passed message with {@link #write(String)}.
+	 *
+	 * @param message a message to write
+	 */
+	default void write(CharSequence message)
+	{
+		write(Objects.requireNonNull(message, "message").toString());
+	}
+
+	/**
+	 * Writes a message to a sink, forcing any changes to the containing
+	 * storage device.
+	 *
+	 * @implSpec
+	 * The default implementation writes the string representation of
+	 * the passed message with {@link #writeAndForce(String)}.
+	 *
+	 * @param message a message to write
+	 * @see #writeAndForce(String)
+	 */
+	default void writeAndForce(CharSequence message)
+	{
+		writeAndForce(Objects.requireNonNull(message, "message")
+							.toString());
+	}
+
+	/**
+	 * Writes the remaining bytes of a buffer to a sink, as they are.
+	 * <p>
+	 * (No character set is applied to the bytes; the position of
+	 * the buffer is advanced by the number of written bytes.)
+	 *
+	 * @implSpec
+	 * The default implementation decodes the remaining bytes with
+	 * the ISO-8859-1 character set, one character for every byte, and
+	 * writes them with {@link #write(CharSequence)}; the bytes are kept
+	 * as they are by a sink of the ISO-8859-1 character set, and so are
+	 * bytes less than {@code 0x80} by a sink of the US-ASCII or UTF-8
+	 * character set.
+	 *
+	 * @param buffer a buffer of bytes to write
+	 */
+	default void write(ByteBuffer buffer)
+	{
+		write(StandardCharsets.ISO_8859_1.decode(
+				Objects.requireNonNull(buffer, "buffer")));
+	}
+
+	/**
+	 * Writes the remaining bytes of a buffer to a sink, as they are,
+	 * forcing any changes to the containing storage device.
+	 *
+	 * @implSpec
+	 * The default implementation decodes the remaining bytes as does
+	 * {@link #write(ByteBuffer)} and writes them with
+	 * {@link #writeAndForce(CharSequence)}.
+	 *
+	 * @param buffer a buffer of bytes to write
+	 * @see #write(ByteBuffer)
+	 * @see #writeAndForce(String)
+	 */
+	default void writeAndForce(ByteBuffer buffer)
+	{
+		writeAndForce(StandardCharsets.ISO_8859_1.decode(
+				Objects.requireNonNull(buffer, "buffer")));
+	}
+
+	/**
+	 * Writes a range of bytes to a sink, as they are.
+	 *
+	 * @implSpec
+	 * The default implementation wraps the range of bytes in a buffer
+	 * and writes it with {@link #write(ByteBuffer)}.
+	 *
+	 * @param bytes an array of bytes
+	 * @param offset the offset of the first byte to write
+	 * @param length the number of bytes to write
+	 * @throws IndexOutOfBoundsException if the range is out of the bounds
+	 *	of the array
+	 */
+	default void write(byte[] bytes, int offset, int length)
+	{
+		write(ByteBuffer.wrap(bytes, offset, length));
+	}
+
+	/**
+	 * Writes a range of bytes to a sink, as they are, forcing any changes
+	 * to the containing storage device.
+	 *
+	 * @implSpec
+	 * The default implementation wraps the range of bytes in a buffer
+	 * and writes it with {@link #writeAndForce(ByteBuffer)}.
+	 *
+	 * @param bytes an array of bytes
+	 * @param offset the offset of the first byte to write
+	 * @param length the number of bytes to write
+	 * @throws IndexOutOfBoundsException if the range is out of the bounds
+	 *	of the array
+	 */
+	default void writeAndForce(byte[] bytes, int offset, int length)
+	{
+		writeAndForce(ByteBuffer.wrap(bytes, offset, length));
+	}
+
+	/**
+	 * Writes messages to a sink.
+	 *
+	 * @implSpec
+	 * The default implementation writes every message in turn with
+	 * {@link #write(String)}.
+	 *
+	 * @param messages messages to write
+	 */
+	default void writeAll(List<? extends CharSequence> messages)
+	{
+		Objects.requireNonNull(messages, "messages");
+
+		for (final CharSequence message : messages)
+			write(Objects.requireNonNull(message, "message")
+				.toString());
+	}
+
+	/**
+	 * Writes messages to a sink, forcing any changes to the containing
+	 * storage device.
+	 *
+	 * @implSpec
+	 * The default implementation writes every message but the last in
+	 * turn with {@link #write(String)} and writes the last message with
+	 * {@link #writeAndForce(String)}.
+	 *
+	 * @param messages messages to write
+	 * @see #writeAndForce(String)
+	 */
+	default void writeAllAndForce(List<? extends CharSequence> messages)
+	{
+		Objects.requireNonNull(messages, "messages");
+		final int last = messages.size() - 1;
+
+		for (int i = 0; i < last; ++i)
+			write(Objects.requireNonNull(messages.get(i),
+							"message")
+				.toString());
+
+		if (last > -1)
+			writeAndForce(Objects.requireNonNull(
+						messages.get(last), "message")
+				.toString());
+	}
+
+	/**
+	 * Forces any changes written so far to the containing storage device.
+	 * <p>
+	 * (Service providers that frame messages shall override this method,
+	 * so that no empty message is written.)
+	 *
+	 * @implSpec
+	 * The default implementation writes an empty buffer with
+	 * {@link #writeAndForce(ByteBuffer)}.
+	 */
+	default void force()	{ writeAndForce(ByteBuffer.allocate(0)); }
+
+	/**
+	 * Releases any resources held by this service provider.
+	 * <p>
+	 * (Service providers that keep their sinks open between writes shall
+	 * release them here; the outcome of writing to a closed service
+	 * provider is specified by its implementation.)
+	 *
+	 * @implSpec
+	 * The default implementation does nothing.
+	 */
+	@Override
+	default void close()	{ /* NO-OP. */ }
+
 	/**
 	 * Returns the kind of this service provider.
 	 *
@@ -69,6 +253,9 @@ public interface ReadyWriter
 		FILE_DESCRIPTOR,
 
 		/** The path kind. */
-		PATH
+		PATH,
+
+		/** The memory-mapped path kind. */
+		MAPPED_PATH
 	}
 }
@@ -0,0 +1,49 @@
+package org.zzzyxwvut.readywriter.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/** An event of validating and binding of an inherited file descriptor. */
+@Name("org.zzzyxwvut.readywriter.Bind")
+@Label("File Descriptor Bind")
+@Description("Validation and binding of an inherited file descriptor")
+@Category("ReadyWriter")
+@StackTrace(false)
+@Threshold("1 ms")
+public final class BindEvent extends Event
+{
+	@Label("File Descriptor")
+	private final int fdNumber;
+
+	@Label("Accepted")
+	private boolean accepted;
+
+	/**
+	 * Constructs a new {@code BindEvent} object.
+	 *
+	 * @param fdNumber a file descriptor number
+	 */
+	public BindEvent(int fdNumber)
+	{
+		this.fdNumber = fdNumber;
+	}
+
+	/**
+	 * Ends timing of this event and commits it, if its duration reaches
+	 * the threshold.
+	 *
+	 * @param accepted whether a file descriptor is accepted
+	 * @return whether a file descriptor is accepted
+	 */
+	public boolean commit(boolean accepted)
+	{
+		this.accepted = accepted;
+		commit();
+		return accepted;
+	}
+}
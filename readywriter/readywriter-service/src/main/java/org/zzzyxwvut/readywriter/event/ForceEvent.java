@@ -0,0 +1,49 @@
+package org.zzzyxwvut.readywriter.event;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+import org.zzzyxwvut.readywriter.support.GroupCommitter;
+
+/** An event of forcing of written changes to the storage device. */
+@Name("org.zzzyxwvut.readywriter.Force")
+@Label("Force")
+@Description("Forcing of written changes to the storage device")
+@Threshold("20 ms")
+public final class ForceEvent extends WriterEvent
+{
+	/**
+	 * Constructs a new {@code ForceEvent} object.
+	 *
+	 * @param provider the type of a service provider
+	 * @param target a path, a file descriptor number, etc.
+	 */
+	public ForceEvent(Class<?> provider, String target)
+	{
+		super(provider, target);
+	}
+
+	/**
+	 * Returns a forcer that times every force of the passed forcer.
+	 *
+	 * @param provider the type of a service provider
+	 * @param target a path, a file descriptor number, etc.
+	 * @param forcer a forcer
+	 * @param <T> the type of a target of forcing
+	 * @return a timing forcer
+	 */
+	public static <T> GroupCommitter.Forcer<T> timed(Class<?> provider,
+						String target,
+						GroupCommitter.Forcer<T> forcer)
+	{
+		return forcible -> {
+			final ForceEvent event = new ForceEvent(provider,
+								target);
+			event.begin();
+			forcer.force(forcible);
+			event.commit();
+		};
+	}
+}
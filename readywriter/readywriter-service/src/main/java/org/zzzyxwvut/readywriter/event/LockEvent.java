@@ -0,0 +1,37 @@
+package org.zzzyxwvut.readywriter.event;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/** An event of waiting on a lock. */
+@Name("org.zzzyxwvut.readywriter.Lock")
+@Label("Lock Wait")
+@Description("Waiting on a private lock or a file lock")
+@Threshold("10 ms")
+public final class LockEvent extends WriterEvent
+{
+	/** The kind of a lock that is private to a service provider. */
+	public static final String PRIVATE = "private";
+
+	/** The kind of a lock that is a file lock. */
+	public static final String FILE = "file";
+
+	@Label("Lock")
+	private final String lock;
+
+	/**
+	 * Constructs a new {@code LockEvent} object.
+	 *
+	 * @param provider the type of a service provider
+	 * @param target a path, a file descriptor number, etc.
+	 * @param lock the kind of a lock, either {@link #PRIVATE} or
+	 *	{@link #FILE}
+	 */
+	public LockEvent(Class<?> provider, String target, String lock)
+	{
+		super(provider, target);
+		this.lock = lock;
+	}
+}
@@ -0,0 +1,59 @@
+package org.zzzyxwvut.readywriter.event;
+
+import java.util.Optional;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/** An event of looking up a service provider. */
+@Name("org.zzzyxwvut.readywriter.Lookup")
+@Label("Provider Lookup")
+@Description("Looking up and reconfiguring of a service provider")
+@Category("ReadyWriter")
+@StackTrace(false)
+@Threshold("1 ms")
+public final class LookupEvent extends Event
+{
+	@Label("Requested Name")
+	private final String providerName;
+
+	@Label("Visitor")
+	private final Class<?> visitor;
+
+	@Label("Provider")
+	private Class<?> provider;
+
+	/**
+	 * Constructs a new {@code LookupEvent} object.
+	 *
+	 * @param providerName the requested name of a provider, or
+	 *	{@code null}
+	 * @param visitor a visitor, or {@code null}
+	 */
+	public LookupEvent(String providerName, Object visitor)
+	{
+		this.providerName = providerName;
+		this.visitor = (visitor == null) ? null : visitor.getClass();
+	}
+
+	/**
+	 * Ends timing of this event and commits it, if its duration reaches
+	 * the threshold.
+	 *
+	 * @param <T> the type of a service provider
+	 * @param provider an optional with a found service provider, if any
+	 * @return the passed optional
+	 */
+	public <T> Optional<T> commit(Optional<T> provider)
+	{
+		this.provider = provider.<Class<?>>map(Object::getClass)
+			.orElse(null);
+		commit();
+		return provider;
+	}
+}
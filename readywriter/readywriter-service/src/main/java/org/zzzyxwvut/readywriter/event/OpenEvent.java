@@ -0,0 +1,25 @@
+package org.zzzyxwvut.readywriter.event;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/** An event of opening a file. */
+@Name("org.zzzyxwvut.readywriter.Open")
+@Label("File Open")
+@Description("Opening of a file for writing")
+@Threshold("10 ms")
+public final class OpenEvent extends WriterEvent
+{
+	/**
+	 * Constructs a new {@code OpenEvent} object.
+	 *
+	 * @param provider the type of a service provider
+	 * @param target a path
+	 */
+	public OpenEvent(Class<?> provider, String target)
+	{
+		super(provider, target);
+	}
+}
@@ -0,0 +1,44 @@
+package org.zzzyxwvut.readywriter.event;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/** An event of writing to a channel. */
+@Name("org.zzzyxwvut.readywriter.Write")
+@Label("Write")
+@Description("Writing of bytes to a channel")
+@Threshold("10 ms")
+public final class WriteEvent extends WriterEvent
+{
+	@Label("Bytes Written")
+	@DataAmount
+	private long bytes;
+
+	/**
+	 * Constructs a new {@code WriteEvent} object.
+	 *
+	 * @param provider the type of a service provider
+	 * @param target a path, a file descriptor number, etc.
+	 */
+	public WriteEvent(Class<?> provider, String target)
+	{
+		super(provider, target);
+	}
+
+	/**
+	 * Ends timing of this event and commits it, if its duration reaches
+	 * the threshold.
+	 *
+	 * @param bytes the number of written bytes
+	 * @return the number of written bytes
+	 */
+	public long commit(long bytes)
+	{
+		this.bytes = bytes;
+		commit();
+		return bytes;
+	}
+}
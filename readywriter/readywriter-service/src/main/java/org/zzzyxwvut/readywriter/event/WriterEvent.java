@@ -0,0 +1,30 @@
+package org.zzzyxwvut.readywriter.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/** A timed phase of writing of some service provider. */
+@Category("ReadyWriter")
+@StackTrace(false)
+public abstract class WriterEvent extends Event
+{
+	@Label("Provider")
+	private final Class<?> provider;
+
+	@Label("Target")
+	private final String target;
+
+	/**
+	 * Constructs a new {@code WriterEvent} object.
+	 *
+	 * @param provider the type of a service provider
+	 * @param target a path, a file descriptor number, etc.
+	 */
+	protected WriterEvent(Class<?> provider, String target)
+	{
+		this.provider = provider;
+		this.target = target;
+	}
+}
@@ -0,0 +1,14 @@
+/**
+ * Provides Java Flight Recorder events of sink-writing service providers.
+ * This package is only exported to the modules of service providers; its
+ * events are observed through recordings, by name, rather than by type.
+ * <p>
+ * Every event is enabled and is recorded when its duration reaches its
+ * threshold, which can be overridden with a recording setting, e.g.:<pre>
+ *	<code>jcmd ${JVM_PID} JFR.start name=writers \
+ *		settings=profile \
+ *		+org.zzzyxwvut.readywriter.Force#threshold=1ms</code></pre>
+ * (Overriding of settings with {@code +} requires JDK 17; with earlier JDKs,
+ * use a custom {@code .jfc} file.)
+ */
+package org.zzzyxwvut.readywriter.event;
@@ -0,0 +1,107 @@
+package org.zzzyxwvut.readywriter.management;
+
+import java.util.Objects;
+
+/**
+ * A snapshot of a histogram of latencies whose buckets are powers of two
+ * nanoseconds wide: bucket {@code 0} counts latencies of {@code 0}, and
+ * bucket {@code i > 0} counts latencies in the range
+ * {@code [2}<sup>{@code i - 1}</sup>{@code , 2}<sup>{@code i}</sup>{@code )}.
+ * <p>
+ * (Percentiles are estimated with the upper bounds of buckets, and hence
+ * overstate latencies by less than twice.)
+ */
+public final class LatencySnapshot
+{
+	private final long[] buckets;
+	private final long count;
+	private final long totalNanos;
+	private final long maxNanos;
+
+	/**
+	 * Constructs a new {@code LatencySnapshot} object.
+	 *
+	 * @param buckets the counts of buckets
+	 * @param totalNanos the sum of recorded latencies, in nanoseconds
+	 * @param maxNanos the greatest recorded latency, in nanoseconds
+	 */
+	public LatencySnapshot(long[] buckets, long totalNanos, long maxNanos)
+	{
+		this.buckets = Objects.requireNonNull(buckets, "buckets")
+			.clone();
+		long count = 0L;
+
+		for (final long bucket : buckets)
+			count += bucket;
+
+		this.count = count;
+		this.totalNanos = totalNanos;
+		this.maxNanos = maxNanos;
+	}
+
+	private long percentile(double fraction)
+	{
+		final long rank = (long) Math.ceil(count * fraction);
+		long seen = 0L;
+
+		for (int i = 0; i < buckets.length; ++i) {
+			seen += buckets[i];
+
+			if (seen >= rank && seen > 0L)
+				return Math.min(maxNanos, (i == 0)
+					? 0L
+					: (1L << i) - 1L);
+		}
+
+		return maxNanos;
+	}
+
+	/**
+	 * Returns the number of recorded latencies.
+	 *
+	 * @return the number of recorded latencies
+	 */
+	public long getCount()			{ return count; }
+
+	/**
+	 * Returns the sum of recorded latencies.
+	 *
+	 * @return the sum of recorded latencies, in nanoseconds
+	 */
+	public long getTotalNanos()		{ return totalNanos; }
+
+	/**
+	 * Returns the greatest recorded latency.
+	 *
+	 * @return the greatest recorded latency, in nanoseconds
+	 */
+	public long getMaxNanos()		{ return maxNanos; }
+
+	/**
+	 * Returns the estimated median latency.
+	 *
+	 * @return the estimated median latency, in nanoseconds
+	 */
+	public long getP50Nanos()		{ return percentile(0.5); }
+
+	/**
+	 * Returns the estimated 99th percentile latency.
+	 *
+	 * @return the estimated 99th percentile latency, in nanoseconds
+	 */
+	public long getP99Nanos()		{ return percentile(0.99); }
+
+	/**
+	 * Returns the estimated 99.9th percentile latency.
+	 *
+	 * @return the estimated 99.9th percentile latency, in nanoseconds
+	 */
+	public long getP999Nanos()		{ return percentile(0.999); }
+
+	/**
+	 * Returns a copy of the counts of buckets.
+	 *
+	 * @return a copy of the counts of buckets
+	 */
+	public long[] getBuckets()		{ return buckets.clone(); }
+}
@@ -0,0 +1,61 @@
+package org.zzzyxwvut.readywriter.management;
+
+/** A management interface of the statistics of a service provider. */
+public interface WriterStatisticsMXBean
+{
+	/**
+	 * Returns the name of a service provider.
+	 *
+	 * @return the name of a service provider
+	 */
+	String getName();
+
+	/**
+	 * Returns the target of a service provider.
+	 *
+	 * @return the target of a service provider
+	 */
+	String getTarget();
+
+	/**
+	 * Returns the number of written bytes.
+	 *
+	 * @return the number of written bytes
+	 */
+	long getWrittenBytes();
+
+	/**
+	 * Returns the number of dismissed bytes.
+	 *
+	 * @return the number of dismissed bytes
+	 */
+	long getDiscardedBytes();
+
+	/**
+	 * Returns the latencies of writes.
+	 *
+	 * @return the latencies of writes
+	 */
+	LatencySnapshot getWriteLatency();
+
+	/**
+	 * Returns the latencies of waiting on a private monitor.
+	 *
+	 * @return the latencies of waiting on a private monitor
+	 */
+	LatencySnapshot getMonitorWaitLatency();
+
+	/**
+	 * Returns the latencies of waiting on a file lock.
+	 *
+	 * @return the latencies of waiting on a file lock
+	 */
+	LatencySnapshot getFileLockWaitLatency();
+
+	/**
+	 * Returns the latencies of forcing to the storage device.
+	 *
+	 * @return the latencies of forcing to the storage device
+	 */
+	LatencySnapshot getForceLatency();
+}
@@ -0,0 +1,10 @@
+/**
+ * Provides management interfaces of sink-writing service providers.
+ * <p>
+ * Unless the {@code org.zzzyxwvut.readywriter.metrics} system property is
+ * set to {@code true} at start-up, no statistics are recorded. Otherwise,
+ * the statistics of every service provider are registered with the platform
+ * MBean server, with object names of the following pattern:
+ * {@code org.zzzyxwvut.readywriter:type=WriterStatistics,*}.
+ */
+package org.zzzyxwvut.readywriter.management;
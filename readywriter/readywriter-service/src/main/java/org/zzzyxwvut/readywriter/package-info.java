@@ -1,2 +1,2 @@
-/** Provides a sink-writing service. */
+/** Provides a sink-writing service and a companion source-reading service. */
 package org.zzzyxwvut.readywriter;
@@ -0,0 +1,653 @@
+package org.zzzyxwvut.readywriter.service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.zzzyxwvut.readywriter.ReadyWriter;
+import org.zzzyxwvut.readywriter.annotation.Namable;
+
+/**
+ * An asynchronous kind of {@code ReadyWriter}.
+ * <p>
+ * Messages are handed over through a bounded lock-free queue to a dedicated
+ * drainer thread that takes all pending messages and writes them at once
+ * with {@link ReadyWriter#writeAll(List)}, or
+ * {@link ReadyWriter#writeAllAndForce(List)}, of a service provider.
+ * <p>
+ * Writing with {@link #write(String)} returns as soon as a message is
+ * queued; any failure of writing it is logged and re-thrown by the next
+ * call of {@link #flush()} or {@link #close()}. Writing with
+ * {@link #writeAndForce(String)} returns once a message and all messages
+ * queued before it are written and forced.
+ * <p>
+ * Buffers of bytes are copied when queued and are written in turn with
+ * {@link ReadyWriter#write(ByteBuffer)}, or
+ * {@link ReadyWriter#writeAndForce(ByteBuffer)}, of a service provider.
+ * <p>
+ * The drainer thread is a daemon thread, so any pending messages are lost
+ * unless this writer is closed before the JVM exits. Once the drainer thread
+ * stops, whether this writer is closed or the thread dies of an error, every
+ * message that is queued is either written or its waiting writer fails; no
+ * writer is left waiting. It can be made with
+ * a thread factory of choice, e.g. a virtual one, when supported (see
+ * {@link #virtualThreadFactory()}).
+ * <p>
+ * (This provider is not bound to its service.)
+ */
+@Namable("org.zzzyxwvut.readywriter.AsyncReadyWriter")
+public final class AsyncReadyWriter implements ReadyWriter
+{
+	private static final AtomicInteger DRAINERS = new AtomicInteger();
+	private static final long BACK_OFF_NANOS =
+					TimeUnit.MICROSECONDS.toNanos(50L);
+	private static final ThreadFactory DAEMON_FACTORY = runnable -> {
+		final Thread thread = new Thread(runnable, String.format(
+					"AsyncReadyWriter-drainer-%d",
+					DRAINERS.incrementAndGet()));
+		thread.setDaemon(true);
+		return thread;
+	};
+
+	private final ReadyWriter writer;
+	private final Overflow overflow;
+	private final RingBuffer<Entry> queue;
+	private final Thread drainer;
+	private final AtomicInteger producers = new AtomicInteger();
+	private volatile boolean waiting;
+	private volatile boolean closed;
+	private volatile boolean stopping;
+	private volatile RuntimeException failure;
+
+	/**
+	 * Constructs a new {@code AsyncReadyWriter} object and starts its
+	 * drainer thread.
+	 *
+	 * @param writer a service provider
+	 * @param capacity the least number of messages that can be pending,
+	 *	it is rounded up to the nearest power of two
+	 * @param overflow what to do when the queue of pending messages is
+	 *	full
+	 * @param threadFactory a factory of the drainer thread, which shall
+	 *	make a daemon thread
+	 * @throws IllegalArgumentException if the capacity is less than 1 or
+	 *	greater than {@code 1 << 30}
+	 * @throws IllegalStateException if the factory makes no thread
+	 */
+	public AsyncReadyWriter(ReadyWriter writer, int capacity,
+					Overflow overflow,
+					ThreadFactory threadFactory)
+	{
+		this.writer = Objects.requireNonNull(writer, "writer");
+		this.overflow = Objects.requireNonNull(overflow, "overflow");
+		queue = new RingBuffer<>(capacity);
+		drainer = Objects.requireNonNull(threadFactory, "threadFactory")
+			.newThread(this::drain);
+
+		if (drainer == null)
+			throw new IllegalStateException("No drainer thread");
+
+		drainer.start();
+	}
+
+	/**
+	 * Constructs a new {@code AsyncReadyWriter} object and starts its
+	 * drainer thread. It is set to make a platform daemon thread.
+	 *
+	 * @param writer a service provider
+	 * @param capacity the least number of messages that can be pending,
+	 *	it is rounded up to the nearest power of two
+	 * @param overflow what to do when the queue of pending messages is
+	 *	full
+	 * @throws IllegalArgumentException if the capacity is less than 1 or
+	 *	greater than {@code 1 << 30}
+	 * @see #AsyncReadyWriter(ReadyWriter, int, Overflow, ThreadFactory)
+	 */
+	public AsyncReadyWriter(ReadyWriter writer, int capacity,
+							Overflow overflow)
+	{
+		this(writer, capacity, overflow, DAEMON_FACTORY);
+	}
+
+	/**
+	 * Constructs a new {@code AsyncReadyWriter} object and starts its
+	 * drainer thread. It is set to queue up to 1024 pending messages and
+	 * to block writing threads whenever the queue is full.
+	 *
+	 * @param writer a service provider
+	 * @see #AsyncReadyWriter(ReadyWriter, int, Overflow)
+	 */
+	public AsyncReadyWriter(ReadyWriter writer)
+	{
+		this(writer, 1024, Overflow.BLOCK);
+	}
+
+	/**
+	 * Returns a factory of virtual threads, if the running JVM supports
+	 * them (as of Java 21).
+	 * <p>
+	 * (The factory is obtained reflectively, so that this class can be
+	 * compiled for and run by Java 11.)
+	 *
+	 * @return an optional with a factory of virtual threads, if
+	 *	supported, otherwise an empty optional
+	 */
+	public static Optional<ThreadFactory> virtualThreadFactory()
+	{
+		try {
+			final Class<?> builder = Class.forName(
+					"java.lang.Thread$Builder");
+			final Object ofVirtual = Thread.class
+				.getMethod("ofVirtual")
+				.invoke(null);
+			final Object named = builder
+				.getMethod("name", String.class, long.class)
+				.invoke(ofVirtual, "AsyncReadyWriter-drainer-",
+						(long) DRAINERS.incrementAndGet());
+			return Optional.of((ThreadFactory) builder
+				.getMethod("factory")
+				.invoke(named));
+		} catch (final ReflectiveOperationException
+						| RuntimeException ignored) {
+			return Optional.empty();	/* Or a preview. */
+		}
+	}
+
+	private void drain()
+	{
+		final List<Entry> entries = new ArrayList<>(queue.capacity());
+		Throwable cause = null;
+
+		try {
+			while (true) {
+				Entry entry;
+
+				while (entries.size() < queue.capacity()
+						&& (entry = queue.poll()) != null)
+					entries.add(entry);
+
+				if (!entries.isEmpty()) {
+					dispatch(entries);
+					entries.clear();
+					continue;
+				}
+
+				if (stopping) {
+					/*
+					 * A producer that has passed the check
+					 * of stopping may still be publishing
+					 * its entry.
+					 */
+					if (producers.get() == 0
+							&& queue.isEmpty())
+						break;
+
+					Thread.onSpinWait();
+					continue;
+				}
+
+				waiting = true;
+
+				if (queue.isEmpty() && !stopping)
+					LockSupport.park(this);
+
+				waiting = false;
+			}
+		} catch (final Error e) {
+			cause = e;
+			throw e;
+		} finally {
+			release(entries, cause);
+		}
+	}
+
+	/* Fails every entry that the drainer thread leaves behind. */
+	private void release(List<Entry> entries, Throwable cause)
+	{
+		stopping = true;
+
+		while (producers.get() > 0)
+			Thread.onSpinWait();
+
+		final Throwable e = (cause != null)
+			? cause
+			: new IllegalStateException("Closed writer");
+		Entry entry;
+
+		while ((entry = queue.poll()) != null)
+			entries.add(entry);
+
+		for (final Entry leftover : entries)
+			if (leftover.completion != null)
+				leftover.completion.completeExceptionally(e);
+	}
+
+	private void dispatchMessages(List<Entry> entries)
+	{
+		final List<String> messages = new ArrayList<>(entries.size());
+		int forced = -1;
+
+		for (final Entry entry : entries) {
+			if (entry.message != null) {
+				messages.add(entry.message);
+
+				if (entry.forced)
+					forced = messages.size();
+			}
+		}
+
+		if (forced > 0) {
+			writer.writeAllAndForce(messages.subList(0, forced));
+
+			if (forced < messages.size())
+				writer.writeAll(messages.subList(forced,
+							messages.size()));
+		} else if (!messages.isEmpty()) {
+			writer.writeAll(messages);
+		}
+	}
+
+	private void dispatch(List<Entry> entries)
+	{
+		try {
+			int from = 0;
+
+			/* Keep the order of messages and buffers of bytes. */
+			for (int i = 0; i < entries.size(); ++i) {
+				final Entry entry = entries.get(i);
+
+				/* Skip messages and flush markers. */
+				if (entry.message != null || (entry.buffer
+						== null && !entry.forced))
+					continue;
+
+				dispatchMessages(entries.subList(from, i));
+				from = i + 1;
+
+				if (entry.buffer == null)
+					writer.force();
+				else if (entry.forced)
+					writer.writeAndForce(entry.buffer);
+				else
+					writer.write(entry.buffer);
+			}
+
+			dispatchMessages(entries.subList(from,
+							entries.size()));
+
+			for (final Entry entry : entries)
+				if (entry.completion != null)
+					entry.completion.complete(null);
+		} catch (final RuntimeException e) {
+			boolean awaited = false;
+
+			for (final Entry entry : entries) {
+				if (entry.completion != null) {
+					entry.completion
+						.completeExceptionally(e);
+					awaited = true;
+				}
+			}
+
+			if (!awaited && failure == null)
+				failure = e;
+
+			Support.WARNER.apply(e)
+				.accept(() -> "Failed to write messages");
+		}
+	}
+
+	/*
+	 * The drainer thread stops only when no producer is between its check
+	 * of stopping and the publication of its entry.
+	 */
+	private void offer(Entry entry)
+	{
+		producers.incrementAndGet();
+
+		try {
+			if (stopping)
+				throw new IllegalStateException("Closed writer");
+
+			while (!queue.offer(entry)) {
+				if (overflow == Overflow.FAIL)
+					throw new IllegalStateException(
+							"Queue full");
+
+				LockSupport.unpark(drainer);
+				LockSupport.parkNanos(this, BACK_OFF_NANOS);
+
+				if (stopping)
+					throw new IllegalStateException(
+							"Closed writer");
+			}
+		} finally {
+			producers.decrementAndGet();
+		}
+
+		if (waiting)
+			LockSupport.unpark(drainer);
+	}
+
+	private static void await(CompletableFuture<Void> completion)
+	{
+		try {
+			completion.join();
+		} catch (final CompletionException e) {
+			final Throwable cause = e.getCause();
+			throw (cause instanceof RuntimeException)
+				? (RuntimeException) cause
+				: e;
+		}
+	}
+
+	/**
+	 * Queues a message to be written to a sink.
+	 *
+	 * @param message a message to write
+	 * @throws IllegalStateException if this writer is closed, or if
+	 *	the queue is full and this writer is set to fail
+	 */
+	@Override
+	public void write(String message)
+	{
+		offer(new Entry(Objects.requireNonNull(message, "message"),
+							null, false, null));
+	}
+
+	/**
+	 * Queues a message to be written to a sink, forcing any changes to
+	 * the containing storage device, and waits until it is written.
+	 *
+	 * @param message a message to write
+	 * @throws IllegalStateException if this writer is closed, or if
+	 *	the queue is full and this writer is set to fail
+	 */
+	@Override
+	public void writeAndForce(String message)
+	{
+		final CompletableFuture<Void> completion =
+						new CompletableFuture<>();
+		offer(new Entry(Objects.requireNonNull(message, "message"),
+							null, true, completion));
+		await(completion);
+	}
+
+	private static ByteBuffer copy(ByteBuffer buffer)
+	{
+		return ByteBuffer.allocate(Objects.requireNonNull(buffer,
+							"buffer")
+						.remaining())
+			.put(buffer)
+			.flip();
+	}
+
+	/**
+	 * Queues a copy of the remaining bytes of a buffer to be written to
+	 * a sink.
+	 * <p>
+	 * (The position of the buffer is advanced to its limit.)
+	 *
+	 * @param buffer a buffer of bytes to write
+	 * @throws IllegalStateException if this writer is closed, or if
+	 *	the queue is full and this writer is set to fail
+	 */
+	@Override
+	public void write(ByteBuffer buffer)
+	{
+		offer(new Entry(null, copy(buffer), false, null));
+	}
+
+	/**
+	 * Queues a copy of the remaining bytes of a buffer to be written to
+	 * a sink, forcing any changes to the containing storage device, and
+	 * waits until it is written.
+	 * <p>
+	 * (The position of the buffer is advanced to its limit.)
+	 *
+	 * @param buffer a buffer of bytes to write
+	 * @throws IllegalStateException if this writer is closed, or if
+	 *	the queue is full and this writer is set to fail
+	 */
+	@Override
+	public void writeAndForce(ByteBuffer buffer)
+	{
+		final CompletableFuture<Void> completion =
+						new CompletableFuture<>();
+		offer(new Entry(null, copy(buffer), true, completion));
+		await(completion);
+	}
+
+	/**
+	 * Queues messages to be written to a sink.
+	 *
+	 * @param messages messages to write
+	 * @throws IllegalStateException if this writer is closed, or if
+	 *	the queue is full and this writer is set to fail
+	 */
+	@Override
+	public void writeAll(List<? extends CharSequence> messages)
+	{
+		Objects.requireNonNull(messages, "messages");
+
+		for (final CharSequence message : messages)
+			write(Objects.requireNonNull(message, "message")
+				.toString());
+	}
+
+	/**
+	 * Queues forcing of any changes to the containing storage device and
+	 * waits until all messages queued before this call are written and
+	 * forced.
+	 *
+	 * @throws IllegalStateException if this writer is closed, or if
+	 *	the queue is full and this writer is set to fail
+	 */
+	@Override
+	public void force()
+	{
+		final CompletableFuture<Void> completion =
+						new CompletableFuture<>();
+		offer(new Entry(null, null, true, completion));
+		await(completion);
+	}
+
+	/**
+	 * Waits until all messages queued before this call are written.
+	 *
+	 * @throws IllegalStateException if this writer is closed
+	 * @throws RuntimeException if writing of any queued messages has
+	 *	failed since the last call of this method
+	 */
+	public void flush()
+	{
+		final CompletableFuture<Void> completion =
+						new CompletableFuture<>();
+		offer(new Entry(null, null, false, completion));
+		await(completion);
+		final RuntimeException e = failure;
+
+		if (e != null) {
+			failure = null;
+			throw e;
+		}
+	}
+
+	/**
+	 * Writes all queued messages, stops the drainer thread and closes
+	 * the service provider.
+	 * <p>
+	 * (Any attempt to write with a closed writer shall fail.)
+	 *
+	 * @throws RuntimeException if writing of any queued messages has
+	 *	failed
+	 */
+	@Override
+	public void close()
+	{
+		if (closed)
+			return;
+
+		try {
+			if (!stopping)	/* Or the drainer thread has died. */
+				flush();
+		} finally {
+			closed = true;
+			stopping = true;
+			LockSupport.unpark(drainer);
+			boolean interrupted = false;
+
+			while (drainer.isAlive()) {
+				try {
+					drainer.join();
+				} catch (final InterruptedException e) {
+					interrupted = true;
+				}
+			}
+
+			if (interrupted)
+				Thread.currentThread().interrupt();
+
+			writer.close();
+		}
+	}
+
+	@Override
+	public Kind kind()	{ return writer.kind(); }
+
+	@Override
+	public <T extends Visitor<? extends T>> Optional<ReadyWriter> accept(
+								T visitor)
+	{
+		return Objects.requireNonNull(visitor, "visitor")
+			.visit(this)
+			.filter(Lookup.DefaultVisitor.class::isInstance)
+			.map(Support.<ReadyWriter, T>constant()
+				.apply(this));
+	}
+
+	/**
+	 * This enumeration specifies what writing threads shall do when
+	 * the queue of pending messages is full.
+	 */
+	public enum Overflow
+	{
+		/** Wait until there is room in the queue. */
+		BLOCK,
+
+		/** Throw {@code IllegalStateException}. */
+		FAIL
+	}
+
+	private static final class Entry
+	{
+		final String message;
+		final ByteBuffer buffer;
+		final boolean forced;
+		final CompletableFuture<Void> completion;
+
+		Entry(String message, ByteBuffer buffer, boolean forced,
+					CompletableFuture<Void> completion)
+		{
+			this.message = message;
+			this.buffer = buffer;
+			this.forced = forced;
+			this.completion = completion;
+		}
+	}
+
+	/**
+	 * A bounded lock-free queue for many producers and a single consumer.
+	 * <p>
+	 * Every slot is paired with a sequence number that tells whether
+	 * the slot is free for a producer that claims a position by bumping
+	 * the tail, or taken for the consumer at the head.
+	 *
+	 * @param <E> the type of elements
+	 */
+	private static final class RingBuffer<E>
+	{
+		private final AtomicLong tail = new AtomicLong();
+		private final AtomicLongArray sequences;
+		private final Object[] elements;
+		private final int mask;
+		private long head;	/* Only touched by the consumer. */
+
+		RingBuffer(int capacity)
+		{
+			if (capacity < 1 || capacity > 1 << 30)
+				throw new IllegalArgumentException(
+					String.format("Capacity: %d",
+								capacity));
+
+			final int size = (capacity == 1)
+				? 1
+				: Integer.highestOneBit(capacity - 1) << 1;
+			mask = size - 1;
+			elements = new Object[size];
+			sequences = new AtomicLongArray(size);
+
+			for (int i = 0; i < size; ++i)
+				sequences.set(i, i);
+		}
+
+		int capacity()		{ return elements.length; }
+
+		boolean offer(E element)
+		{
+			long position = tail.get();
+
+			while (true) {
+				final int index = (int) (position & mask);
+				final long delta = sequences.get(index)
+								- position;
+
+				if (delta == 0L) {
+					if (tail.compareAndSet(position,
+							position + 1L)) {
+						elements[index] = element;
+						sequences.set(index,
+							position + 1L);
+						return true;
+					}
+
+					position = tail.get();
+				} else if (delta < 0L) {
+					return false;		/* Full. */
+				} else {
+					position = tail.get();
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		E poll()
+		{
+			final int index = (int) (head & mask);
+
+			if (sequences.get(index) != head + 1L)
+				return null;
+
+			final E element = (E) elements[index];
+			elements[index] = null;
+			sequences.set(index, head + elements.length);
+			++head;
+			return element;
+		}
+
+		boolean isEmpty()
+		{
+			return sequences.get((int) (head & mask)) != head + 1L;
+		}
+	}
+}
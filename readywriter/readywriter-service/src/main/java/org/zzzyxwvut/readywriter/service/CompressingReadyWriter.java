@@ -0,0 +1,498 @@
+package org.zzzyxwvut.readywriter.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.zzzyxwvut.readywriter.ReadyWriter;
+import org.zzzyxwvut.readywriter.annotation.Namable;
+import org.zzzyxwvut.readywriter.support.MessageEncoder;
+
+/**
+ * A compressing kind of {@code ReadyWriter}.
+ * <p>
+ * Messages and buffers of bytes are gathered into blocks of a fixed size;
+ * every full block is compressed, in parallel with other blocks, on
+ * a fork-join pool into a separate gzip member (RFC 1952), and compressed
+ * blocks are written in order with {@link ReadyWriter#write(ByteBuffer)} of
+ * a service provider. Since concatenated gzip members make a valid gzip
+ * file, the written sink can be decompressed as a whole, e.g. with
+ * {@code gzip -d}, or member by member.
+ * <p>
+ * Compressed blocks are written by writing threads, whichever finds them
+ * compressed, and the number of blocks that are being compressed is limited
+ * to twice the parallelism of the pool; a writing thread that finds more
+ * blocks pending waits until the earliest one is written.
+ * <p>
+ * Writing with {@link #writeAndForce(String)} compresses the partial block,
+ * if any, writes all pending blocks and forces them with
+ * {@link ReadyWriter#force()} of a service provider;
+ * should this writer be closed meanwhile, the blocks are written and
+ * forced on closing instead.
+ * <p>
+ * (This provider is not bound to its service.)
+ *
+ * @implNote
+ * A block whose writing fails is discarded. Blocks are compressed with
+ * deflaters of this writer, up to as many as blocks may be pending are
+ * kept for reuse, and the kept deflaters are ended on closing.
+ */
+@Namable("org.zzzyxwvut.readywriter.CompressingReadyWriter")
+public final class CompressingReadyWriter implements ReadyWriter
+{
+	private static final byte[] GZIP_HEADER = {
+		0x1f, (byte) 0x8b,		/* ID1, ID2 */
+		Deflater.DEFLATED,		/* CM */
+		0,				/* FLG */
+		0, 0, 0, 0,			/* MTIME */
+		0,				/* XFL */
+		(byte) 0xff			/* OS: unknown */
+	};
+	private static final int GZIP_TRAILER_LENGTH = 8;
+
+	private final Object lock = new Object();
+	private final ReentrantLock emitter = new ReentrantLock();
+	private final Queue<CompletableFuture<ByteBuffer>> pending =
+					new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pendingCount = new AtomicInteger();
+	private final Queue<byte[]> spareBlocks = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger forcing = new AtomicInteger();
+	private final ReadyWriter writer;
+	private final MessageEncoder encoder;
+	private final ForkJoinPool pool;
+	private final BlockingQueue<Deflater> spareDeflaters;
+	private final int level;
+	private final int blockSize;
+	private final int maxPending;
+	private byte[] block;
+	private int blockLength;
+	private boolean closed;
+	private boolean drained;		/* Guarded by emitter. */
+
+	/**
+	 * Constructs a new {@code CompressingReadyWriter} object.
+	 *
+	 * @param writer a service provider
+	 * @param charset the character set of messages
+	 * @param blockSize the number of bytes of a block to compress
+	 * @param level the compression level, from {@code 0} to {@code 9},
+	 *	or {@link Deflater#DEFAULT_COMPRESSION}
+	 * @param pool a pool for compression
+	 * @throws IllegalArgumentException if the block size is less than 1
+	 *	or the compression level is invalid
+	 */
+	public CompressingReadyWriter(ReadyWriter writer, Charset charset,
+						int blockSize, int level,
+						ForkJoinPool pool)
+	{
+		this.writer = Objects.requireNonNull(writer, "writer");
+		Objects.requireNonNull(charset, "charset");
+		this.pool = Objects.requireNonNull(pool, "pool");
+
+		if (blockSize < 1)
+			throw new IllegalArgumentException(String.format(
+					"Block size: %d", blockSize));
+
+		if ((level < 0 || level > 9)
+				&& level != Deflater.DEFAULT_COMPRESSION)
+			throw new IllegalArgumentException(String.format(
+					"Compression level: %d", level));
+
+		this.level = level;
+		this.blockSize = blockSize;
+		maxPending = Math.max(2, pool.getParallelism() * 2);
+		encoder = new MessageEncoder(charset);
+		spareDeflaters = new ArrayBlockingQueue<>(maxPending);
+		block = new byte[blockSize];
+	}
+
+	/**
+	 * Constructs a new {@code CompressingReadyWriter} object. It is set
+	 * to compress blocks of 64 KiB of UTF-8 messages with the default
+	 * compression level on the common pool.
+	 *
+	 * @param writer a service provider
+	 * @see #CompressingReadyWriter(ReadyWriter, Charset, int, int,
+	 *	ForkJoinPool)
+	 */
+	public CompressingReadyWriter(ReadyWriter writer)
+	{
+		this(writer, StandardCharsets.UTF_8, 1 << 16,
+					Deflater.DEFAULT_COMPRESSION,
+					ForkJoinPool.commonPool());
+	}
+
+	private static void putIntLE(byte[] bytes, int index, int value)
+	{
+		bytes[index] = (byte) value;
+		bytes[index + 1] = (byte) (value >>> 8);
+		bytes[index + 2] = (byte) (value >>> 16);
+		bytes[index + 3] = (byte) (value >>> 24);
+	}
+
+	private ByteBuffer compress(byte[] input, int length)
+	{
+		final Deflater spareDeflater = spareDeflaters.poll();
+		final Deflater deflater = (spareDeflater != null)
+			? spareDeflater
+			: new Deflater(level, true);
+		final CRC32 crc = new CRC32();
+		crc.update(input, 0, length);
+
+		/* Stored blocks cost 5 bytes per 16 KiB at worst. */
+		byte[] output = new byte[GZIP_HEADER.length + length
+					+ (length >>> 12) + 64
+					+ GZIP_TRAILER_LENGTH];
+		System.arraycopy(GZIP_HEADER, 0, output, 0,
+						GZIP_HEADER.length);
+		int position = GZIP_HEADER.length;
+
+		try {
+			deflater.setInput(input, 0, length);
+			deflater.finish();
+
+			while (!deflater.finished()) {
+				if (position == output.length
+						- GZIP_TRAILER_LENGTH)
+					output = Arrays.copyOf(output,
+							output.length << 1);
+
+				position += deflater.deflate(output, position,
+						output.length - position
+						- GZIP_TRAILER_LENGTH);
+			}
+		} finally {
+			deflater.reset();
+
+			if (!spareDeflaters.offer(deflater))
+				deflater.end();
+
+			spareBlocks.offer(input);
+		}
+
+		putIntLE(output, position, (int) crc.getValue());
+		putIntLE(output, position + 4, length);
+		return ByteBuffer.wrap(output, 0, position
+						+ GZIP_TRAILER_LENGTH);
+	}
+
+	/* Shall be called with the lock held. */
+	private void seal()
+	{
+		if (blockLength == 0)
+			return;
+
+		final byte[] input = block;
+		final int length = blockLength;
+		final byte[] spareBlock = spareBlocks.poll();
+		block = (spareBlock != null) ? spareBlock : new byte[blockSize];
+		blockLength = 0;
+		pendingCount.incrementAndGet();
+		pending.offer(CompletableFuture.supplyAsync(() ->
+					compress(input, length), pool));
+	}
+
+	/* Shall be called with the lock held. */
+	private void gather(ByteBuffer buffer)
+	{
+		if (closed)
+			throw new IllegalStateException("Closed writer");
+
+		while (buffer.hasRemaining()) {
+			final int length = Math.min(buffer.remaining(),
+						blockSize - blockLength);
+			buffer.get(block, blockLength, length);
+			blockLength += length;
+
+			if (blockLength == blockSize)
+				seal();
+		}
+	}
+
+	private static ByteBuffer await(CompletableFuture<ByteBuffer> member)
+	{
+		try {
+			return member.join();
+		} catch (final CompletionException e) {
+			final Throwable cause = e.getCause();
+			throw (cause instanceof RuntimeException)
+				? (RuntimeException) cause
+				: e;
+		}
+	}
+
+	/*
+	 * Writes compressed blocks in order: all that are done, and then
+	 * more, waiting for them, until no more than the passed number of
+	 * blocks are pending.
+	 */
+	private void emit(int backlog)
+	{
+		CompletableFuture<ByteBuffer> member;
+
+		while ((member = pending.peek()) != null
+				&& (member.isDone()
+					|| pendingCount.get() > backlog)) {
+			pending.poll();
+			pendingCount.decrementAndGet();
+			writer.write(await(member));
+		}
+	}
+
+	private void emitSome()
+	{
+		if (pendingCount.get() > maxPending) {
+			emitter.lock();
+		} else if (pending.isEmpty() || !pending.peek().isDone()
+						|| !emitter.tryLock()) {
+			return;
+		}
+
+		try {
+			emit(maxPending);
+		} finally {
+			emitter.unlock();
+		}
+	}
+
+	/* Shall be called once for every count of forcing. */
+	private void emitAllAndForce()
+	{
+		emitter.lock();
+
+		try {
+			if (drained)
+				return;		/* Forced on closing. */
+
+			emit(0);
+			writer.force();
+		} finally {
+			forcing.decrementAndGet();
+			emitter.unlock();
+		}
+	}
+
+	private void doWrite(ByteBuffer buffer, boolean forced)
+	{
+		synchronized (lock) {
+			gather(buffer);
+
+			if (forced) {
+				seal();
+				forcing.incrementAndGet();
+			}
+		}
+
+		if (forced)
+			emitAllAndForce();
+		else
+			emitSome();
+	}
+
+	private void doWrite(CharSequence message, boolean forced)
+	{
+		Objects.requireNonNull(message, "message");
+
+		synchronized (lock) {
+			gather(encoder.encode(message));
+
+			if (forced) {
+				seal();
+				forcing.incrementAndGet();
+			}
+		}
+
+		if (forced)
+			emitAllAndForce();
+		else
+			emitSome();
+	}
+
+	/**
+	 * Gathers a message into a block, compressing the block once it is
+	 * full.
+	 *
+	 * @param message a message to write
+	 * @throws IllegalStateException if this writer is closed
+	 */
+	@Override
+	public void write(String message)	{ doWrite(message, false); }
+
+	/**
+	 * Gathers a message into a block, compressing the block once it is
+	 * full.
+	 *
+	 * @param message a message to write
+	 * @throws IllegalStateException if this writer is closed
+	 */
+	@Override
+	public void write(CharSequence message)	{ doWrite(message, false); }
+
+	/**
+	 * Gathers a message into a block, compresses the block, and writes
+	 * and forces all compressed blocks.
+	 *
+	 * @param message a message to write
+	 * @throws IllegalStateException if this writer is closed
+	 */
+	@Override
+	public void writeAndForce(String message) { doWrite(message, true); }
+
+	/**
+	 * Gathers a message into a block, compresses the block, and writes
+	 * and forces all compressed blocks.
+	 *
+	 * @param message a message to write
+	 * @throws IllegalStateException if this writer is closed
+	 */
+	@Override
+	public void writeAndForce(CharSequence message)
+	{
+		doWrite(message, true);
+	}
+
+	/**
+	 * Gathers the remaining bytes of a buffer into a block, compressing
+	 * the block once it is full.
+	 * <p>
+	 * (The position of the buffer is advanced to its limit.)
+	 *
+	 * @param buffer a buffer of bytes to write
+	 * @throws IllegalStateException if this writer is closed
+	 */
+	@Override
+	public void write(ByteBuffer buffer)
+	{
+		doWrite(Objects.requireNonNull(buffer, "buffer"), false);
+	}
+
+	/**
+	 * Gathers the remaining bytes of a buffer into a block, compresses
+	 * the block, and writes and forces all compressed blocks.
+	 * <p>
+	 * (The position of the buffer is advanced to its limit.)
+	 *
+	 * @param buffer a buffer of bytes to write
+	 * @throws IllegalStateException if this writer is closed
+	 */
+	@Override
+	public void writeAndForce(ByteBuffer buffer)
+	{
+		doWrite(Objects.requireNonNull(buffer, "buffer"), true);
+	}
+
+	/**
+	 * Gathers messages into blocks, compressing every full block.
+	 *
+	 * @param messages messages to write
+	 * @throws IllegalStateException if this writer is closed
+	 */
+	@Override
+	public void writeAll(List<? extends CharSequence> messages)
+	{
+		Objects.requireNonNull(messages, "messages");
+
+		synchronized (lock) {
+			for (final CharSequence message : messages)
+				gather(encoder.encode(Objects.requireNonNull(
+						message, "message")));
+		}
+
+		emitSome();
+	}
+
+	/**
+	 * Compresses the partial block, if any, and writes and forces all
+	 * compressed blocks.
+	 *
+	 * @throws IllegalStateException if this writer is closed
+	 */
+	@Override
+	public void force()
+	{
+		synchronized (lock) {
+			if (closed)
+				throw new IllegalStateException(
+							"Closed writer");
+
+			seal();
+			forcing.incrementAndGet();
+		}
+
+		emitAllAndForce();
+	}
+
+	private void endSpareDeflaters()
+	{
+		Deflater deflater;
+
+		while ((deflater = spareDeflaters.poll()) != null)
+			deflater.end();
+	}
+
+	/**
+	 * Compresses the partial block, if any, writes all compressed blocks,
+	 * forcing them if forcing is under way, and closes the service
+	 * provider.
+	 * <p>
+	 * (Any attempt to write with a closed writer shall fail.)
+	 */
+	@Override
+	public void close()
+	{
+		synchronized (lock) {
+			if (closed)
+				return;
+
+			seal();
+			closed = true;
+		}
+
+		emitter.lock();
+
+		try {
+			emit(0);
+
+			if (forcing.get() > 0)
+				writer.force();
+		} finally {
+			drained = true;
+
+			try {
+				writer.close();
+			} finally {
+				emitter.unlock();
+				endSpareDeflaters();
+			}
+		}
+	}
+
+	@Override
+	public Kind kind()	{ return writer.kind(); }
+
+	@Override
+	public <T extends Visitor<? extends T>> Optional<ReadyWriter> accept(
+								T visitor)
+	{
+		return Objects.requireNonNull(visitor, "visitor")
+			.visit(this)
+			.filter(Lookup.DefaultVisitor.class::isInstance)
+			.map(Support.<ReadyWriter, T>constant()
+				.apply(this));
+	}
+}
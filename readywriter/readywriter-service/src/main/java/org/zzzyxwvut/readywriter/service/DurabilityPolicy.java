@@ -0,0 +1,131 @@
+package org.zzzyxwvut.readywriter.service;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * This class specifies when to force messages that are written without
+ * forcing to the storage device: after so many messages, after so many
+ * bytes, or no later than some time after they are written, whichever comes
+ * first.
+ * <p>
+ * The counts are checked once per write; so a batch of messages written
+ * with a single call is forced as a whole, never in part.
+ */
+public final class DurabilityPolicy
+{
+	private final long maxMessages;
+	private final long maxBytes;
+	private final Duration maxDelay;
+
+	/**
+	 * Constructs a new {@code DurabilityPolicy} object.
+	 *
+	 * @param maxMessages the number of unforced messages that triggers
+	 *	forcing, or {@link Long#MAX_VALUE} for no limit
+	 * @param maxBytes the number of unforced bytes that triggers forcing,
+	 *	or {@link Long#MAX_VALUE} for no limit
+	 * @param maxDelay the interval of forcing unforced messages, or
+	 *	{@code null} for no limit
+	 * @throws IllegalArgumentException if {@code maxMessages} or
+	 *	{@code maxBytes} is less than {@code 1} or {@code maxDelay} is
+	 *	not positive
+	 */
+	public DurabilityPolicy(long maxMessages, long maxBytes,
+							Duration maxDelay)
+	{
+		if (maxMessages < 1L)
+			throw new IllegalArgumentException(
+				"maxMessages < 1: " + maxMessages);
+
+		if (maxBytes < 1L)
+			throw new IllegalArgumentException(
+				"maxBytes < 1: " + maxBytes);
+
+		if (maxDelay != null && (maxDelay.isNegative()
+						|| maxDelay.isZero()))
+			throw new IllegalArgumentException(
+				"maxDelay <= 0: " + maxDelay);
+
+		this.maxMessages = maxMessages;
+		this.maxBytes = maxBytes;
+		this.maxDelay = maxDelay;
+	}
+
+	/**
+	 * Returns a policy of forcing every write.
+	 *
+	 * @return a policy of forcing every write
+	 */
+	public static DurabilityPolicy perWrite()
+	{
+		return new DurabilityPolicy(1L, Long.MAX_VALUE, null);
+	}
+
+	/**
+	 * Returns a policy of forcing after so many messages.
+	 *
+	 * @param maxMessages the number of unforced messages that triggers
+	 *	forcing
+	 * @return a policy of forcing after so many messages
+	 * @throws IllegalArgumentException if {@code maxMessages} is less
+	 *	than {@code 1}
+	 */
+	public static DurabilityPolicy everyMessages(long maxMessages)
+	{
+		return new DurabilityPolicy(maxMessages, Long.MAX_VALUE, null);
+	}
+
+	/**
+	 * Returns a policy of forcing after so many bytes.
+	 *
+	 * @param maxBytes the number of unforced bytes that triggers forcing
+	 * @return a policy of forcing after so many bytes
+	 * @throws IllegalArgumentException if {@code maxBytes} is less than
+	 *	{@code 1}
+	 */
+	public static DurabilityPolicy everyBytes(long maxBytes)
+	{
+		return new DurabilityPolicy(Long.MAX_VALUE, maxBytes, null);
+	}
+
+	/**
+	 * Returns a policy of forcing at a fixed interval.
+	 *
+	 * @param maxDelay the interval of forcing unforced messages
+	 * @return a policy of forcing at a fixed interval
+	 * @throws IllegalArgumentException if {@code maxDelay} is not
+	 *	positive
+	 */
+	public static DurabilityPolicy everyInterval(Duration maxDelay)
+	{
+		return new DurabilityPolicy(Long.MAX_VALUE, Long.MAX_VALUE,
+				Objects.requireNonNull(maxDelay, "maxDelay"));
+	}
+
+	/**
+	 * Returns the number of unforced messages that triggers forcing.
+	 *
+	 * @return the number of unforced messages that triggers forcing
+	 */
+	public long maxMessages()	{ return maxMessages; }
+
+	/**
+	 * Returns the number of unforced bytes that triggers forcing.
+	 *
+	 * @return the number of unforced bytes that triggers forcing
+	 */
+	public long maxBytes()		{ return maxBytes; }
+
+	/**
+	 * Returns the interval of forcing unforced messages, if any.
+	 *
+	 * @return an optional with the interval of forcing unforced messages,
+	 *	if any, otherwise an empty optional
+	 */
+	public Optional<Duration> maxDelay()
+	{
+		return Optional.ofNullable(maxDelay);
+	}
+}
@@ -0,0 +1,642 @@
+package org.zzzyxwvut.readywriter.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.zzzyxwvut.readywriter.ReadyWriter;
+import org.zzzyxwvut.readywriter.annotation.Namable;
+import org.zzzyxwvut.readywriter.support.MessageEncoder;
+
+/**
+ * A fan-out kind of {@code ReadyWriter}.
+ * <p>
+ * Every message is encoded once into a shared read-only buffer, and its
+ * bytes are written, as they are, with {@link ReadyWriter#write(ByteBuffer)},
+ * or {@link ReadyWriter#writeAndForce(ByteBuffer)}, of every service
+ * provider, the sinks. (So the character set of this writer should be that
+ * of every sink.) A batch of messages is written to a sink message by
+ * message, so that every message stays a message of its own for a sink,
+ * e.g. a framed record.
+ * <p>
+ * Every sink is written to by a dedicated thread of its own, in the order
+ * of messages, and up to a number of messages can be pending for a sink; so
+ * a slow sink does not delay the others until that many messages are pending
+ * for it. When a sink has that many messages pending, a writing thread waits
+ * or, if so specified, the message is dismissed for that sink alone and
+ * the dismissal is treated as its failure.
+ * <p>
+ * Writing with {@link #write(String)} returns as soon as a message is
+ * handed over to all sinks; any failure of writing it is logged and
+ * re-thrown, along with the failures of other sinks, by the next call of
+ * {@link #flush()} or {@link #close()}. Writing with
+ * {@link #writeAndForce(String)} returns once a message is written and
+ * forced by all sinks. Failures are aggregated as the suppressed exceptions
+ * of a thrown {@link RuntimeException}, one for every failed sink, in the
+ * order of sinks.
+ * <p>
+ * The threads of sinks are daemon threads, so any pending messages are lost
+ * unless this writer is closed before the JVM exits.
+ * <p>
+ * (This provider is not bound to its service.)
+ */
+@Namable("org.zzzyxwvut.readywriter.FanOutReadyWriter")
+public final class FanOutReadyWriter implements ReadyWriter
+{
+	private static final AtomicInteger SINKS = new AtomicInteger();
+	private static final ThreadFactory DAEMON_FACTORY = runnable -> {
+		final Thread thread = new Thread(runnable, String.format(
+					"FanOutReadyWriter-sink-%d",
+					SINKS.incrementAndGet()));
+		thread.setDaemon(true);
+		return thread;
+	};
+
+	private final List<Sink> sinks;
+	private final MessageEncoder.Pool encoders;
+	private volatile boolean closed;
+
+	/**
+	 * Constructs a new {@code FanOutReadyWriter} object and starts
+	 * a thread for every sink.
+	 *
+	 * @param writers service providers, the sinks
+	 * @param charset the character set of messages
+	 * @param capacity the number of messages that can be pending for
+	 *	a sink
+	 * @param overflow what to do when a sink has that many messages
+	 *	pending; with {@link AsyncReadyWriter.Overflow#FAIL FAIL},
+	 *	a message is dismissed for that sink
+	 * @param threadFactory a factory of the threads of sinks, which shall
+	 *	make daemon threads
+	 * @throws IllegalArgumentException if the capacity is less than 1
+	 * @throws IllegalStateException if the factory makes no thread
+	 */
+	public FanOutReadyWriter(List<? extends ReadyWriter> writers,
+					Charset charset, int capacity,
+					AsyncReadyWriter.Overflow overflow,
+					ThreadFactory threadFactory)
+	{
+		Objects.requireNonNull(writers, "writers");
+		encoders = MessageEncoder.pool(Objects.requireNonNull(charset,
+								"charset"));
+		Objects.requireNonNull(overflow, "overflow");
+		Objects.requireNonNull(threadFactory, "threadFactory");
+
+		if (capacity < 1)
+			throw new IllegalArgumentException(String.format(
+					"Capacity: %d", capacity));
+
+		final List<Sink> newSinks = new ArrayList<>(writers.size());
+
+		try {
+			for (final ReadyWriter writer : writers)
+				newSinks.add(new Sink(newSinks.size(),
+					Objects.requireNonNull(writer,
+								"writer"),
+					capacity, overflow, threadFactory));
+		} catch (final RuntimeException e) {
+			for (final Sink sink : newSinks)
+				sink.executor.shutdown();
+
+			throw e;
+		}
+
+		sinks = List.copyOf(newSinks);
+	}
+
+	/**
+	 * Constructs a new {@code FanOutReadyWriter} object and starts
+	 * a thread for every sink. It is set to allow up to 1024 pending
+	 * messages for a sink, to block writing threads whenever a sink has
+	 * that many, and to make platform daemon threads.
+	 *
+	 * @param writers service providers, the sinks
+	 * @param charset the character set of messages
+	 * @see #FanOutReadyWriter(List, Charset, int,
+	 *	AsyncReadyWriter.Overflow, ThreadFactory)
+	 */
+	public FanOutReadyWriter(List<? extends ReadyWriter> writers,
+							Charset charset)
+	{
+		this(writers, charset, 1024, AsyncReadyWriter.Overflow.BLOCK,
+							DAEMON_FACTORY);
+	}
+
+	/* Returns the character set of a visitor, if it tells one. */
+	private static Optional<Charset> charsetOf(Visitor<?> visitor)
+	{
+		if (visitor instanceof PathWriterVisitor)
+			return Optional.of(((PathWriterVisitor) visitor)
+							.charset());
+
+		if (visitor instanceof FileDescriptorWriterVisitor)
+			return Optional.of(((FileDescriptorWriterVisitor)
+							visitor).charset());
+
+		if (visitor instanceof MappedPathWriterVisitor)
+			return Optional.of(((MappedPathWriterVisitor) visitor)
+							.charset());
+
+		/* Default service providers use UTF-8. */
+		return (visitor instanceof Lookup.DefaultVisitor)
+			? Optional.of(StandardCharsets.UTF_8)
+			: Optional.empty();
+	}
+
+	/**
+	 * Returns a new {@code FanOutReadyWriter} object whose sinks are
+	 * the service providers found for the passed visitors, if any (see
+	 * {@link Lookup#readyWriter(Visitor)}). It is set to use
+	 * the character set of the visitors, or UTF-8 if no visitor tells
+	 * its character set.
+	 *
+	 * @param visitors visitors for service providers to look up
+	 * @return a new {@code FanOutReadyWriter} object
+	 * @throws IllegalArgumentException if the visitors tell different
+	 *	character sets
+	 * @see #FanOutReadyWriter(List, Charset)
+	 */
+	public static FanOutReadyWriter of(
+				List<? extends Visitor<?>> visitors)
+	{
+		final List<Charset> charsets = Objects.requireNonNull(visitors,
+								"visitors")
+			.stream()
+			.map(FanOutReadyWriter::charsetOf)
+			.flatMap(Optional::stream)
+			.distinct()
+			.collect(Collectors.toList());
+
+		if (charsets.size() > 1)
+			throw new IllegalArgumentException(String.format(
+					"Mixed character sets: %s", charsets));
+
+		return new FanOutReadyWriter(visitors.stream()
+				.map(Lookup::readyWriter)
+				.flatMap(Optional::stream)
+				.collect(Collectors.toList()),
+			(charsets.isEmpty())
+				? StandardCharsets.UTF_8
+				: charsets.get(0));
+	}
+
+	/**
+	 * Returns the number of sinks.
+	 *
+	 * @return the number of sinks
+	 */
+	public int sinks()		{ return sinks.size(); }
+
+	private static void throwIfFailed(List<RuntimeException> failures)
+	{
+		final List<Integer> indices = new ArrayList<>(failures.size());
+
+		for (int i = 0; i < failures.size(); ++i)
+			if (failures.get(i) != null)
+				indices.add(i);
+
+		if (indices.isEmpty())
+			return;
+
+		final RuntimeException e = new RuntimeException(String.format(
+				"Failed to write to sinks: %s", indices));
+
+		for (final int index : indices)
+			e.addSuppressed(failures.get(index));
+
+		throw e;
+	}
+
+	private static ByteBuffer[] duplicates(ByteBuffer[] shared)
+	{
+		final ByteBuffer[] buffers = new ByteBuffer[shared.length];
+
+		for (int i = 0; i < shared.length; ++i)
+			buffers[i] = shared[i].duplicate();
+
+		return buffers;
+	}
+
+	private void fanOut(ByteBuffer... shared)
+	{
+		if (closed)
+			throw new IllegalStateException("Closed writer");
+
+		for (final Sink sink : sinks)
+			sink.write(duplicates(shared));
+	}
+
+	private void fanOutAndAwait(ByteBuffer... shared)
+	{
+		if (closed)
+			throw new IllegalStateException("Closed writer");
+
+		final List<CompletableFuture<Void>> completions =
+					new ArrayList<>(sinks.size());
+
+		for (final Sink sink : sinks)
+			completions.add(sink.writeAndForce(
+						duplicates(shared)));
+
+		throwIfFailed(completions.stream()
+			.map(Sink::await)
+			.collect(Collectors.toList()));
+	}
+
+	private ByteBuffer encode(CharSequence message)
+	{
+		final MessageEncoder encoder = encoders.acquire();
+
+		try {
+			return copy(encoder.encode(message));
+		} finally {
+			encoders.release(encoder);
+		}
+	}
+
+	private static ByteBuffer copy(ByteBuffer buffer)
+	{
+		return ByteBuffer.allocate(Objects.requireNonNull(buffer,
+							"buffer")
+						.remaining())
+			.put(buffer)
+			.flip()
+			.asReadOnlyBuffer();
+	}
+
+	private ByteBuffer[] encodeAll(List<? extends CharSequence> messages)
+	{
+		final ByteBuffer[] buffers = new ByteBuffer[Objects
+				.requireNonNull(messages, "messages")
+				.size()];
+		final MessageEncoder encoder = encoders.acquire();
+
+		try {
+			int i = 0;
+
+			for (final CharSequence message : messages)
+				buffers[i++] = copy(encoder.encode(message));
+		} finally {
+			encoders.release(encoder);
+		}
+
+		return buffers;
+	}
+
+	/**
+	 * Hands over a message to be written to every sink.
+	 *
+	 * @param message a message to write
+	 * @throws IllegalStateException if this writer is closed
+	 */
+	@Override
+	public void write(String message)	{ fanOut(encode(message)); }
+
+	/**
+	 * Hands over a message to be written to every sink.
+	 *
+	 * @param message a message to write
+	 * @throws IllegalStateException if this writer is closed
+	 */
+	@Override
+	public void write(CharSequence message)	{ fanOut(encode(message)); }
+
+	/**
+	 * Writes a message to every sink, forcing any changes to
+	 * the containing storage device, and waits until it is written.
+	 *
+	 * @param message a message to write
+	 * @throws IllegalStateException if this writer is closed
+	 * @throws RuntimeException if writing to any sink has failed
+	 */
+	@Override
+	public void writeAndForce(String message)
+	{
+		fanOutAndAwait(encode(message));
+	}
+
+	/**
+	 * Writes a message to every sink, forcing any changes to
+	 * the containing storage device, and waits until it is written.
+	 *
+	 * @param message a message to write
+	 * @throws IllegalStateException if this writer is closed
+	 * @throws RuntimeException if writing to any sink has failed
+	 */
+	@Override
+	public void writeAndForce(CharSequence message)
+	{
+		fanOutAndAwait(encode(message));
+	}
+
+	/**
+	 * Hands over a copy of the remaining bytes of a buffer to be written
+	 * to every sink.
+	 * <p>
+	 * (The position of the buffer is advanced to its limit.)
+	 *
+	 * @param buffer a buffer of bytes to write
+	 * @throws IllegalStateException if this writer is closed
+	 */
+	@Override
+	public void write(ByteBuffer buffer)	{ fanOut(copy(buffer)); }
+
+	/**
+	 * Writes a copy of the remaining bytes of a buffer to every sink,
+	 * forcing any changes to the containing storage device, and waits
+	 * until it is written.
+	 * <p>
+	 * (The position of the buffer is advanced to its limit.)
+	 *
+	 * @param buffer a buffer of bytes to write
+	 * @throws IllegalStateException if this writer is closed
+	 * @throws RuntimeException if writing to any sink has failed
+	 */
+	@Override
+	public void writeAndForce(ByteBuffer buffer)
+	{
+		fanOutAndAwait(copy(buffer));
+	}
+
+	/**
+	 * Hands over messages to be written to every sink, one by one.
+	 *
+	 * @param messages messages to write
+	 * @throws IllegalStateException if this writer is closed
+	 */
+	@Override
+	public void writeAll(List<? extends CharSequence> messages)
+	{
+		fanOut(encodeAll(messages));
+	}
+
+	/**
+	 * Writes messages to every sink, one by one, forcing any changes to
+	 * the containing storage device with the last message, and waits
+	 * until they are written.
+	 *
+	 * @param messages messages to write
+	 * @throws IllegalStateException if this writer is closed
+	 * @throws RuntimeException if writing to any sink has failed
+	 */
+	@Override
+	public void writeAllAndForce(List<? extends CharSequence> messages)
+	{
+		fanOutAndAwait(encodeAll(messages));
+	}
+
+	/**
+	 * Forces any changes written to every sink to the containing storage
+	 * device, and waits until all messages handed over before this call
+	 * are written and forced.
+	 *
+	 * @throws IllegalStateException if this writer is closed
+	 * @throws RuntimeException if forcing of any sink has failed
+	 */
+	@Override
+	public void force()			{ fanOutAndAwait(); }
+
+	/**
+	 * Waits until all messages handed over before this call are written
+	 * to every sink.
+	 *
+	 * @throws IllegalStateException if this writer is closed
+	 * @throws RuntimeException if writing to any sink has failed since
+	 *	the last call of this method
+	 */
+	public void flush()
+	{
+		if (closed)
+			throw new IllegalStateException("Closed writer");
+
+		final List<CompletableFuture<Void>> completions =
+					new ArrayList<>(sinks.size());
+
+		for (final Sink sink : sinks)
+			completions.add(sink.flush());
+
+		throwIfFailed(completions.stream()
+			.map(Sink::await)
+			.collect(Collectors.toList()));
+	}
+
+	/**
+	 * Writes all pending messages, stops the threads of sinks and closes
+	 * the sinks.
+	 * <p>
+	 * (Any attempt to write with a closed writer shall fail.)
+	 *
+	 * @throws RuntimeException if writing to or closing of any sink has
+	 *	failed
+	 */
+	@Override
+	public void close()
+	{
+		if (closed)
+			return;
+
+		final List<CompletableFuture<Void>> completions =
+					new ArrayList<>(sinks.size());
+
+		for (final Sink sink : sinks)
+			completions.add(sink.flush());
+
+		closed = true;
+		final List<RuntimeException> failures = completions.stream()
+			.map(Sink::await)
+			.collect(Collectors.toCollection(ArrayList::new));
+
+		for (int i = 0; i < sinks.size(); ++i) {
+			final RuntimeException e = sinks.get(i).close();
+
+			if (e != null && failures.get(i) == null)
+				failures.set(i, e);
+			else if (e != null)
+				failures.get(i).addSuppressed(e);
+		}
+
+		throwIfFailed(failures);
+	}
+
+	@Override
+	public Kind kind()			{ return Kind.OTHER; }
+
+	@Override
+	public <T extends Visitor<? extends T>> Optional<ReadyWriter> accept(
+								T visitor)
+	{
+		return Objects.requireNonNull(visitor, "visitor")
+			.visit(this)
+			.filter(Lookup.DefaultVisitor.class::isInstance)
+			.map(Support.<ReadyWriter, T>constant()
+				.apply(this));
+	}
+
+	/** A sink that is written to by a thread of its own. */
+	private static final class Sink
+	{
+		private final int index;
+		private final ReadyWriter writer;
+		private final Semaphore pending;
+		private final AsyncReadyWriter.Overflow overflow;
+		private final ExecutorService executor;
+		private volatile RuntimeException failure;
+
+		Sink(int index, ReadyWriter writer, int capacity,
+					AsyncReadyWriter.Overflow overflow,
+					ThreadFactory threadFactory)
+		{
+			this.index = index;
+			this.writer = writer;
+			this.overflow = overflow;
+			pending = new Semaphore(capacity);
+			executor = Executors.newSingleThreadExecutor(
+							runnable -> {
+				final Thread thread = threadFactory.newThread(
+								runnable);
+
+				if (thread == null)
+					throw new IllegalStateException(
+							"No sink thread");
+
+				return thread;
+			});
+			executor.execute(() -> { });	/* Start a thread. */
+		}
+
+		static RuntimeException await(CompletableFuture<Void> completion)
+		{
+			try {
+				completion.join();
+				return null;
+			} catch (final CompletionException e) {
+				final Throwable cause = e.getCause();
+				return (cause instanceof RuntimeException)
+					? (RuntimeException) cause
+					: e;
+			}
+		}
+
+		/* Takes a place among pending messages, if any. */
+		private boolean acquire()
+		{
+			if (overflow == AsyncReadyWriter.Overflow.FAIL)
+				return pending.tryAcquire();
+
+			pending.acquireUninterruptibly();
+			return true;
+		}
+
+		private RuntimeException dismissal()
+		{
+			return new IllegalStateException(String.format(
+					"Queue full: sink %d", index));
+		}
+
+		private void fail(RuntimeException e)
+		{
+			if (failure == null)
+				failure = e;
+
+			Support.WARNER.apply(e)
+				.accept(() -> String.format(
+					"Failed to write to sink %d", index));
+		}
+
+		void write(ByteBuffer[] buffers)
+		{
+			if (!acquire()) {
+				fail(dismissal());
+				return;
+			}
+
+			executor.execute(() -> {
+				try {
+					for (final ByteBuffer buffer : buffers)
+						writer.write(buffer);
+				} catch (final RuntimeException e) {
+					fail(e);
+				} finally {
+					pending.release();
+				}
+			});
+		}
+
+		/* Forces with the last buffer, or alone if there is none. */
+		CompletableFuture<Void> writeAndForce(ByteBuffer[] buffers)
+		{
+			if (!acquire())
+				return CompletableFuture.failedFuture(
+							dismissal());
+
+			return CompletableFuture.runAsync(() -> {
+				try {
+					final int last = buffers.length - 1;
+
+					for (int i = 0; i < last; ++i)
+						writer.write(buffers[i]);
+
+					if (last > -1)
+						writer.writeAndForce(
+							buffers[last]);
+					else
+						writer.force();
+				} finally {
+					pending.release();
+				}
+			}, executor);
+		}
+
+		/* Completes, with a failure since the last call, if any. */
+		CompletableFuture<Void> flush()
+		{
+			return CompletableFuture.runAsync(() -> {
+				final RuntimeException e = failure;
+
+				if (e != null) {
+					failure = null;
+					throw e;
+				}
+			}, executor);
+		}
+
+		RuntimeException close()
+		{
+			executor.shutdown();
+			boolean interrupted = false;
+
+			while (!executor.isTerminated()) {
+				try {
+					executor.awaitTermination(1L,
+							TimeUnit.SECONDS);
+				} catch (final InterruptedException e) {
+					interrupted = true;
+				}
+			}
+
+			if (interrupted)
+				Thread.currentThread().interrupt();
+
+			try {
+				writer.close();
+				return null;
+			} catch (final RuntimeException e) {
+				return e;
+			}
+		}
+	}
+}
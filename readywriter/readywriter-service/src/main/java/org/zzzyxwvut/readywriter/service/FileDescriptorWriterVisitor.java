@@ -5,6 +5,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 
@@ -31,6 +32,22 @@ public final class FileDescriptorWriterVisitor implements
 	private final Pattern fileName;
 	private final Charset charset;
 	private final ByteOrder byteOrder;
+	private final Set<Option> options;
+	private final DurabilityPolicy durability;
+	private final RecordFormat recordFormat;
+
+	private FileDescriptorWriterVisitor(FileDescriptorWriterVisitor visitor,
+						DurabilityPolicy durability,
+						RecordFormat recordFormat)
+	{
+		fdNumber = visitor.fdNumber;
+		fileName = visitor.fileName;
+		charset = visitor.charset;
+		byteOrder = visitor.byteOrder;
+		options = visitor.options;
+		this.durability = durability;
+		this.recordFormat = recordFormat;
+	}
 
 	/**
 	 * Constructs a new {@code FileDescriptorWriterVisitor} object.
@@ -43,9 +60,11 @@ public final class FileDescriptorWriterVisitor implements
 	 *	deleted, shall be matched
 	 * @param charset the character set of an open file
 	 * @param byteOrder the byte order of an open file
+	 * @param options a set of writing options
 	 */
 	public FileDescriptorWriterVisitor(int fdNumber, Pattern fileName,
-					Charset charset, ByteOrder byteOrder)
+					Charset charset, ByteOrder byteOrder,
+					Set<Option> options)
 	{
 		this.fdNumber = (fdNumber < 1)
 			? 1
@@ -53,6 +72,31 @@ public final class FileDescriptorWriterVisitor implements
 		this.fileName = Objects.requireNonNull(fileName, "fileName");
 		this.charset = Objects.requireNonNull(charset, "charset");
 		this.byteOrder = Objects.requireNonNull(byteOrder, "byteOrder");
+		this.options = Set.copyOf(Objects.requireNonNull(options,
+								"options"));
+		durability = null;
+		recordFormat = null;
+	}
+
+	/**
+	 * Constructs a new {@code FileDescriptorWriterVisitor} object. It is
+	 * set to use no writing options.
+	 *
+	 * @param fdNumber an inherited file descriptor number, or the standard
+	 *	output descriptor number, if less than 1
+	 * @param fileName a file name pattern against which either the name
+	 *	of an open file, to which the passed file descriptor number
+	 *	refers, or the file descriptor number itself, if the file is
+	 *	deleted, shall be matched
+	 * @param charset the character set of an open file
+	 * @param byteOrder the byte order of an open file
+	 * @see #FileDescriptorWriterVisitor(int, Pattern, Charset, ByteOrder,
+	 *	Set)
+	 */
+	public FileDescriptorWriterVisitor(int fdNumber, Pattern fileName,
+					Charset charset, ByteOrder byteOrder)
+	{
+		this(fdNumber, fileName, charset, byteOrder, Set.of());
 	}
 
 	/**
@@ -94,15 +138,96 @@ public final class FileDescriptorWriterVisitor implements
 	public Charset charset()	{ return charset; }
 
 	/**
-	 * Returns the byte order of an open file.
+	 * Returns the byte order of an open file, viz, of the headers of
+	 * framed records (see {@link #recordFormat()}).
 	 *
 	 * @return the byte order of an open file
 	 */
 	public ByteOrder byteOrder()	{ return byteOrder; }
 
+	/**
+	 * Returns the set of writing options.
+	 *
+	 * @return the set of writing options
+	 * @throws UnsupportedOperationException if any modification of
+	 *	the returned set is attempted
+	 */
+	public Set<Option> options()	{ return options; }
+
+	/**
+	 * Returns the policy of forcing messages written without forcing, if
+	 * any.
+	 *
+	 * @return an optional with the policy of forcing messages written
+	 *	without forcing, if any, otherwise an empty optional
+	 */
+	public Optional<DurabilityPolicy> durability()
+	{
+		return Optional.ofNullable(durability);
+	}
+
+	/**
+	 * Returns a copy of this visitor that is set to force messages written
+	 * without forcing as specified, so that the window of losing them is
+	 * bounded.
+	 *
+	 * @param durability the policy of forcing messages written without
+	 *	forcing, or {@code null} for forcing them only with those written
+	 *	with forcing
+	 * @return a copy of this visitor
+	 */
+	public FileDescriptorWriterVisitor withDurability(
+						DurabilityPolicy durability)
+	{
+		return new FileDescriptorWriterVisitor(this, durability,
+								recordFormat);
+	}
+
+	/**
+	 * Returns the format of framed records, if any.
+	 *
+	 * @return an optional with the format of framed records, if any,
+	 *	otherwise an empty optional
+	 */
+	public Optional<RecordFormat> recordFormat()
+	{
+		return Optional.ofNullable(recordFormat);
+	}
+
+	/**
+	 * Returns a copy of this visitor that is set to write every message,
+	 * and every buffer of raw bytes, as a record that is framed with
+	 * a header in the {@link #byteOrder()} of an open file (see
+	 * {@link RecordFormat}).
+	 *
+	 * @param recordFormat the format of framed records, or {@code null}
+	 *	for writing messages as they are
+	 * @return a copy of this visitor
+	 */
+	public FileDescriptorWriterVisitor withRecordFormat(
+						RecordFormat recordFormat)
+	{
+		return new FileDescriptorWriterVisitor(this, durability,
+								recordFormat);
+	}
+
 	@Override
 	public Optional<FileDescriptorWriterVisitor> visit(ReadyWriter writer)
 	{
 		return visitor.apply(writer);
 	}
+
+	/** This enumeration specifies options of writing to an open file. */
+	public enum Option
+	{
+		/**
+		 * Combine concurrent writes into gathering writes, so that
+		 * a single thread writes the messages of every thread that
+		 * contends for writing (flat combining).
+		 * <p>
+		 * Every write still returns after its message is written; but
+		 * the order of messages among contending threads is arbitrary.
+		 */
+		COMBINING
+	}
 }
@@ -1,27 +1,33 @@
 package org.zzzyxwvut.readywriter.service;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.ServiceLoader.Provider;
 import java.util.ServiceLoader;
 import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.zzzyxwvut.readywriter.ReadyReader;
 import org.zzzyxwvut.readywriter.ReadyWriter.Kind;
 import org.zzzyxwvut.readywriter.ReadyWriter.Visitor;
 import org.zzzyxwvut.readywriter.ReadyWriter;
 import org.zzzyxwvut.readywriter.annotation.Namable;
+import org.zzzyxwvut.readywriter.event.LookupEvent;
 
 /**
- * A service loader for {@code ReadyWriter} providers.
+ * A service loader for {@code ReadyWriter} providers and, uncached, for
+ * {@code ReadyReader} providers.
+ * <p>
+ * Providers are located once per module layer and are cached along with
+ * their names and, once instantiated, their kinds (see
+ * {@link #invalidate(ModuleLayer)}); a provider whose kind is known is not
+ * instantiated for a visitor that does not support the kind.
+ * <p>
+ * Every look-up of a provider emits a flight recorder event (see
+ * {@link org.zzzyxwvut.readywriter.event.LookupEvent}).
  * <p>
  * Examples.
  * <pre>
@@ -55,6 +61,18 @@ import org.zzzyxwvut.readywriter.annotation.Namable;
  *	<code>Lookup.readyWriter(new DefaultVisitor(Kind.FILE_DESCRIPTOR))
  *		.ifPresent(Lookup.messager()
  *			.apply("hello world\n"));</code>
+ *
+ * Attempt writing a few messages at once using the obtained provider, if any:
+ *
+ *	<code>Lookup.readyWriter(new DefaultVisitor(Kind.FILE_DESCRIPTOR))
+ *		.ifPresent(Lookup.batchMessager()
+ *			.apply(List.of("hello\n", "world\n")));</code>
+ *
+ * Obtain a reader of the file of a writer:
+ *
+ *	<code>Optional&lt;ReadyReader&gt; reader = Lookup.readyReader(
+ *		PathReaderVisitor.of(new PathWriterVisitor(
+ *				Path.of("/tmp/sink"), true)));</code>
  * </pre>
  */
 public interface Lookup
@@ -77,20 +95,26 @@ public interface Lookup
 					ModuleLayer moduleLayer, T visitor)
 	{
 		Objects.requireNonNull(moduleLayer, "moduleLayer");
-		return (visitor == null)
-			? ServiceLoader.load(moduleLayer, ReadyWriter.class)
+		final LookupEvent event = new LookupEvent(null, visitor);
+		event.begin();
+		return event.commit((visitor == null)
+			? ProviderCache.of(moduleLayer)
+				.entries()
 				.stream()
 				.limit(1L)
-				.map(Provider::get)
+				.map(ProviderCache.Entry::get)
 				.peek(Lookup.<ReadyWriter>peeker())
 				.findAny()
-			: ServiceLoader.load(moduleLayer, ReadyWriter.class)
+			: ProviderCache.of(moduleLayer)
+				.entries()
 				.stream()
-				.map(Provider::get)
+				.filter(ProviderCache.<T>admitter()
+					.apply(visitor))
+				.map(ProviderCache.Entry::get)
 				.peek(Lookup.<ReadyWriter>peeker())
 				.flatMap(Lookup.<T>configurer()
 					.apply(visitor))
-				.findAny();
+				.findAny());
 	}
 
 	/**
@@ -134,26 +158,29 @@ public interface Lookup
 	{
 		Objects.requireNonNull(providerName, "providerName");
 		Objects.requireNonNull(moduleLayer, "moduleLayer");
-		return (visitor == null)
-			? ServiceLoader.load(moduleLayer, ReadyWriter.class)
+		final LookupEvent event = new LookupEvent(providerName,
+								visitor);
+		event.begin();
+		return event.commit((visitor == null)
+			? ProviderCache.of(moduleLayer)
+				.entries(providerName)
 				.stream()
-				.filter(matcher()
-					.apply(providerName))
-				.peek(Lookup.<Provider<ReadyWriter>>peeker())
+				.peek(Lookup.<ProviderCache.Entry>peeker())
 				.limit(1L)
-				.map(Provider::get)
+				.map(ProviderCache.Entry::get)
 				.findAny()
-			: ServiceLoader.load(moduleLayer, ReadyWriter.class)
+			: ProviderCache.of(moduleLayer)
+				.entries(providerName)
 				.stream()
-				.filter(matcher()
-					.apply(providerName))
-				.peek(Lookup.<Provider<ReadyWriter>>peeker())
+				.filter(ProviderCache.<T>admitter()
+					.apply(visitor))
+				.peek(Lookup.<ProviderCache.Entry>peeker())
 				.flatMap(Function.<Stream<ReadyWriter>>identity()
 					.<ReadyWriter>compose(
 						Lookup.<T>configurer()
 							.apply(visitor))
-					.compose(Provider::get))
-				.findAny();
+					.compose(ProviderCache.Entry::get))
+				.findAny());
 	}
 
 	/**
@@ -176,19 +203,48 @@ public interface Lookup
 		return readyWriter(providerName, ModuleLayer.boot(), visitor);
 	}
 
-	private static Function<Class<? extends ReadyWriter>, Supplier<String>>
-								typeNamer()
+	/**
+	 * Looks up a reading service provider in the specified module layer
+	 * and its ancestors, and configures it with the passed visitor.
+	 * <p>
+	 * (Reading service providers are located anew for every look-up.)
+	 *
+	 * @param <T> the type of a visitor
+	 * @param moduleLayer a module layer
+	 * @param visitor a visitor for a provider to configure with
+	 * @return an optional with a reading service provider, if found and
+	 *	its kind is supported by the passed visitor, otherwise an empty
+	 *	optional
+	 */
+	static <T extends ReadyReader.Visitor<? extends T>>
+			Optional<ReadyReader> readyReader(
+					ModuleLayer moduleLayer, T visitor)
 	{
-		return klass -> klass::getName;
+		Objects.requireNonNull(moduleLayer, "moduleLayer");
+		Objects.requireNonNull(visitor, "visitor");
+		return ServiceLoader.load(moduleLayer, ReadyReader.class)
+			.stream()
+			.map(ServiceLoader.Provider::get)
+			.peek(Lookup.<ReadyReader>peeker())
+			.flatMap(reader -> reader.accept(visitor).stream())
+			.findAny();
 	}
 
-	private static Function<Provider<ReadyWriter>, String> namer()
+	/**
+	 * Looks up a reading service provider in the boot module layer, and
+	 * configures it with the passed visitor.
+	 *
+	 * @param <T> the type of a visitor
+	 * @param visitor a visitor for a provider to configure with
+	 * @return an optional with a reading service provider, if found and
+	 *	its kind is supported by the passed visitor, otherwise an empty
+	 *	optional
+	 * @see #readyReader(ModuleLayer, ReadyReader.Visitor)
+	 */
+	static <T extends ReadyReader.Visitor<? extends T>>
+			Optional<ReadyReader> readyReader(T visitor)
 	{
-		return provider -> Optional.ofNullable(provider.type()
-				.getAnnotation(Namable.class))
-			.map(Namable::value)
-			.orElseGet(typeNamer()
-				.apply(provider.type()));
+		return readyReader(ModuleLayer.boot(), visitor);
 	}
 
 	/**
@@ -203,18 +259,10 @@ public interface Lookup
 	static List<String> names(ModuleLayer moduleLayer)
 	{
 		Objects.requireNonNull(moduleLayer, "moduleLayer");
-		return Function.<List<String>>identity()
-						.<ModuleLayer>compose(layer ->
-				ServiceLoader.load(layer, ReadyWriter.class)
-					.stream()
-					.map(namer())
-					.peek(Lookup.<String>peeker())
-					.sorted(Comparator.naturalOrder())
-					.collect(Collectors.collectingAndThen(
-						Collectors.toCollection(
-							ArrayList::new),
-						Collections::unmodifiableList)))
-			.apply(moduleLayer);
+		final List<String> names = ProviderCache.of(moduleLayer)
+			.names();
+		names.forEach(Lookup.<String>peeker());
+		return names;
 	}
 
 	/**
@@ -228,6 +276,33 @@ public interface Lookup
 	 */
 	static List<String> names()	{ return names(ModuleLayer.boot()); }
 
+	/**
+	 * Discards any cached providers, their names and kinds, of
+	 * the specified module layer.
+	 * <p>
+	 * (Providers of a module layer are located once, on its first lookup,
+	 * and are cached until invalidated; a cache keeps its module layer
+	 * reachable.)
+	 *
+	 * @param moduleLayer the module layer
+	 */
+	static void invalidate(ModuleLayer moduleLayer)
+	{
+		ProviderCache.invalidate(Objects.requireNonNull(moduleLayer,
+							"moduleLayer"));
+	}
+
+	/**
+	 * Discards any cached providers, their names and kinds, of all module
+	 * layers.
+	 * <p>
+	 * (Consider calling this method whenever module layers are defined
+	 * or discarded.)
+	 *
+	 * @see #invalidate(ModuleLayer)
+	 */
+	static void invalidate()	{ ProviderCache.invalidateAll(); }
+
 	/**
 	 * Returns a functional interface that takes a message and returns
 	 * a functional interface that takes a writer and, as a side effect,
@@ -253,6 +328,33 @@ public interface Lookup
 		return message -> writer -> writer.writeAndForce(message);
 	}
 
+	/**
+	 * Returns a functional interface that takes a list of messages and
+	 * returns a functional interface that takes a writer and, as a side
+	 * effect, writes the messages and does not return a value.
+	 *
+	 * @return a curried function
+	 */
+	static Function<List<? extends CharSequence>, Consumer<ReadyWriter>>
+							batchMessager()
+	{
+		return messages -> writer -> writer.writeAll(messages);
+	}
+
+	/**
+	 * Returns a functional interface that takes a list of messages and
+	 * returns a functional interface that takes a writer and, as a side
+	 * effect, writes the messages, forcing any changes to the containing
+	 * storage device, and does not return a value.
+	 *
+	 * @return a curried function
+	 */
+	static Function<List<? extends CharSequence>, Consumer<ReadyWriter>>
+						forcingBatchMessager()
+	{
+		return messages -> writer -> writer.writeAllAndForce(messages);
+	}
+
 	private static <T> Function<T, Supplier<String>> stringer()
 	{
 		return element -> element::toString;
@@ -264,13 +366,6 @@ public interface Lookup
 							.apply(element));
 	}
 
-	private static Function<String, Predicate<Provider<ReadyWriter>>>
-								matcher()
-	{
-		return name -> provider -> name.equals(namer()
-							.apply(provider));
-	}
-
 	private static <T extends Visitor<? extends T>>
 			Function<T,
 				Function<ReadyWriter, Stream<ReadyWriter>>>
@@ -327,6 +422,55 @@ public interface Lookup
 			writer.writeAndForce(message);
 		}
 
+		@Override
+		public void write(CharSequence message)
+		{
+			Objects.requireNonNull(message, "message");
+			writer.write(message);
+		}
+
+		@Override
+		public void writeAndForce(CharSequence message)
+		{
+			Objects.requireNonNull(message, "message");
+			writer.writeAndForce(message);
+		}
+
+		@Override
+		public void write(ByteBuffer buffer)
+		{
+			Objects.requireNonNull(buffer, "buffer");
+			writer.write(buffer);
+		}
+
+		@Override
+		public void writeAndForce(ByteBuffer buffer)
+		{
+			Objects.requireNonNull(buffer, "buffer");
+			writer.writeAndForce(buffer);
+		}
+
+		@Override
+		public void writeAll(List<? extends CharSequence> messages)
+		{
+			Objects.requireNonNull(messages, "messages");
+			writer.writeAll(messages);
+		}
+
+		@Override
+		public void writeAllAndForce(
+				List<? extends CharSequence> messages)
+		{
+			Objects.requireNonNull(messages, "messages");
+			writer.writeAllAndForce(messages);
+		}
+
+		@Override
+		public void force()	{ writer.force(); }
+
+		@Override
+		public void close()	{ writer.close(); }
+
 		@Override
 		public Kind kind()	{ return writer.kind(); }
 
@@ -0,0 +1,98 @@
+package org.zzzyxwvut.readywriter.service;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.zzzyxwvut.readywriter.ReadyWriter.Kind;
+import org.zzzyxwvut.readywriter.ReadyWriter.Visitor;
+import org.zzzyxwvut.readywriter.ReadyWriter;
+
+/**
+ * A {@link Visitor} fit for
+ * the {@link org.zzzyxwvut.readywriter.ReadyWriter.Kind#MAPPED_PATH
+ * MAPPED_PATH} service provider kind.
+ */
+public final class MappedPathWriterVisitor implements
+					Visitor<MappedPathWriterVisitor>
+{
+	private final Function<ReadyWriter,
+			Optional<MappedPathWriterVisitor>> visitor =
+				Support.<MappedPathWriterVisitor>visitor()
+		.apply(Kind.MAPPED_PATH)
+		.apply(this);
+	private final Path path;
+	private final int segmentSize;
+	private final Charset charset;
+
+	/**
+	 * Constructs a new {@code MappedPathWriterVisitor} object.
+	 *
+	 * @implNote
+	 * For {@code null} paths, a new templet-named file shall be attempted
+	 * to be created as described for {@link PathWriterVisitor}.
+	 *
+	 * @param path the path to a file, or a templet-named path, if
+	 *	{@code null}
+	 * @param segmentSize the size of a mapped region of a file
+	 * @param charset the character set of a file
+	 * @throws IllegalArgumentException if the segment size is less than 1
+	 */
+	public MappedPathWriterVisitor(Path path, int segmentSize,
+							Charset charset)
+	{
+		if (segmentSize < 1)
+			throw new IllegalArgumentException(String.format(
+					"Segment size: %d", segmentSize));
+
+		this.path = (path == null)
+			? PathWriterVisitor.TmpDirectoryPathGenerator
+							.generatePath()
+			: path;
+		this.segmentSize = segmentSize;
+		this.charset = Objects.requireNonNull(charset, "charset");
+	}
+
+	/**
+	 * Constructs a new {@code MappedPathWriterVisitor} object. It is set
+	 * to use segments of 1 MiB and the UTF-8 character set for a file.
+	 *
+	 * @param path the path to a file, or a templet-named path, if
+	 *	{@code null}
+	 * @see #MappedPathWriterVisitor(Path, int, Charset)
+	 */
+	public MappedPathWriterVisitor(Path path)
+	{
+		this(path, 1 << 20, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the path to a file.
+	 *
+	 * @return the path to a file
+	 */
+	public Path path()		{ return path; }
+
+	/**
+	 * Returns the size of a mapped region of a file.
+	 *
+	 * @return the size of a mapped region of a file
+	 */
+	public int segmentSize()	{ return segmentSize; }
+
+	/**
+	 * Returns the character set of a file.
+	 *
+	 * @return the character set of a file
+	 */
+	public Charset charset()	{ return charset; }
+
+	@Override
+	public Optional<MappedPathWriterVisitor> visit(ReadyWriter writer)
+	{
+		return visitor.apply(writer);
+	}
+}
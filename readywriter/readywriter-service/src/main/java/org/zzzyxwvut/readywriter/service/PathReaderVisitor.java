@@ -0,0 +1,231 @@
+package org.zzzyxwvut.readywriter.service;
+
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import org.zzzyxwvut.readywriter.ReadyReader.Visitor;
+import org.zzzyxwvut.readywriter.ReadyReader;
+import org.zzzyxwvut.readywriter.ReadyWriter.Kind;
+
+/**
+ * A {@link Visitor} fit for
+ * the {@link org.zzzyxwvut.readywriter.ReadyWriter.Kind#PATH PATH} service
+ * provider kind of {@link ReadyReader}.
+ * <p>
+ * Messages of a file are either framed records (see
+ * {@link #recordFormat()}), or lines that end with a line feed byte, which
+ * suits ASCII-compatible character sets; a line feed is not handed out
+ * with its line.
+ */
+public final class PathReaderVisitor implements Visitor<PathReaderVisitor>
+{
+	private static final Pattern CONSUMER = Pattern.compile("[\\w.-]+");
+	private static final Duration POLL_INTERVAL = Duration.ofMillis(100L);
+
+	private final Path path;
+	private final ByteOrder byteOrder;
+	private final RecordFormat recordFormat;
+	private final String consumer;
+	private final Duration pollInterval;
+
+	private PathReaderVisitor(PathReaderVisitor visitor,
+					RecordFormat recordFormat,
+					String consumer,
+					Duration pollInterval)
+	{
+		path = visitor.path;
+		byteOrder = visitor.byteOrder;
+		this.recordFormat = recordFormat;
+		this.consumer = consumer;
+		this.pollInterval = pollInterval;
+	}
+
+	/**
+	 * Constructs a new {@code PathReaderVisitor} object. It is set to read
+	 * lines, for no consumer, polling the size of a file every 100
+	 * milliseconds.
+	 *
+	 * @param path the path to a file
+	 * @param byteOrder the byte order of a file
+	 */
+	public PathReaderVisitor(Path path, ByteOrder byteOrder)
+	{
+		this.path = Objects.requireNonNull(path, "path");
+		this.byteOrder = Objects.requireNonNull(byteOrder, "byteOrder");
+		recordFormat = null;
+		consumer = null;
+		pollInterval = POLL_INTERVAL;
+	}
+
+	/**
+	 * Constructs a new {@code PathReaderVisitor} object. It is set to use
+	 * the big-endian byte order for a file.
+	 *
+	 * @param path the path to a file
+	 * @see #PathReaderVisitor(Path, ByteOrder)
+	 */
+	public PathReaderVisitor(Path path)
+	{
+		this(path, ByteOrder.BIG_ENDIAN);
+	}
+
+	/**
+	 * Returns a new visitor for reading the file written as specified by
+	 * the passed visitor, with its path, byte order and record format.
+	 *
+	 * @param pwVisitor a visitor of a path-writing service provider
+	 * @return a new visitor
+	 */
+	public static PathReaderVisitor of(PathWriterVisitor pwVisitor)
+	{
+		Objects.requireNonNull(pwVisitor, "pwVisitor");
+		return new PathReaderVisitor(pwVisitor.path(),
+						pwVisitor.byteOrder())
+			.withRecordFormat(pwVisitor.recordFormat()
+				.orElse(null));
+	}
+
+	/**
+	 * Returns the path to the file of a persisted position of the passed
+	 * consumer: the file name with the name of the consumer and
+	 * {@code .pos} appended, e.g. {@code messages.msg.tail.pos} for
+	 * {@code messages.msg} and {@code tail}.
+	 *
+	 * @param path the path to a file
+	 * @param consumer the name of a consumer
+	 * @return the path to the file of a persisted position
+	 * @throws IllegalArgumentException if the path has no file name or
+	 *	the name of a consumer is not made of word characters, dots
+	 *	and hyphens
+	 */
+	public static Path positionPath(Path path, String consumer)
+	{
+		final Path fileName = Objects.requireNonNull(path, "path")
+			.getFileName();
+
+		if (fileName == null)
+			throw new IllegalArgumentException(
+					"No file name: " + path);
+
+		if (!CONSUMER.matcher(Objects.requireNonNull(consumer,
+						"consumer")).matches())
+			throw new IllegalArgumentException(
+					"Consumer: " + consumer);
+
+		return path.resolveSibling(String.format("%s.%s.pos",
+							fileName, consumer));
+	}
+
+	/**
+	 * Returns the path to a file.
+	 *
+	 * @return the path to a file
+	 */
+	public Path path()		{ return path; }
+
+	/**
+	 * Returns the byte order of a file.
+	 *
+	 * @return the byte order of a file
+	 */
+	public ByteOrder byteOrder()	{ return byteOrder; }
+
+	/**
+	 * Returns the format of framed records, if any.
+	 *
+	 * @return an optional with the format of framed records, if any,
+	 *	otherwise an empty optional
+	 */
+	public Optional<RecordFormat> recordFormat()
+	{
+		return Optional.ofNullable(recordFormat);
+	}
+
+	/**
+	 * Returns a copy of this visitor that is set to read the payloads of
+	 * framed records as messages (see {@link RecordFormat}).
+	 *
+	 * @param recordFormat the format of framed records, or {@code null}
+	 *	for reading lines
+	 * @return a copy of this visitor
+	 */
+	public PathReaderVisitor withRecordFormat(RecordFormat recordFormat)
+	{
+		return new PathReaderVisitor(this, recordFormat, consumer,
+								pollInterval);
+	}
+
+	/**
+	 * Returns the name of a consumer, if any.
+	 *
+	 * @return an optional with the name of a consumer, if any, otherwise
+	 *	an empty optional
+	 */
+	public Optional<String> consumer()
+	{
+		return Optional.ofNullable(consumer);
+	}
+
+	/**
+	 * Returns a copy of this visitor that is set to resume reading from
+	 * the persisted position of a consumer, if any, and to persist its
+	 * position on {@link ReadyReader#commit()} (see
+	 * {@link #positionPath(Path, String)}).
+	 *
+	 * @param consumer the name of a consumer, or {@code null} for reading
+	 *	from the start of a file without persisting positions
+	 * @return a copy of this visitor
+	 * @throws IllegalArgumentException if the name of a consumer is not
+	 *	made of word characters, dots and hyphens
+	 */
+	public PathReaderVisitor withConsumer(String consumer)
+	{
+		if (consumer != null)
+			positionPath(path, consumer);
+
+		return new PathReaderVisitor(this, recordFormat, consumer,
+								pollInterval);
+	}
+
+	/**
+	 * Returns the interval of polling the size of a file.
+	 *
+	 * @return the interval of polling the size of a file
+	 */
+	public Duration pollInterval()	{ return pollInterval; }
+
+	/**
+	 * Returns a copy of this visitor that is set to poll the size of
+	 * a file at the specified interval while waiting for messages, in
+	 * case that changes of the file are not watched for or are not
+	 * reported, e.g. for memory-mapped writes.
+	 *
+	 * @param pollInterval the interval of polling the size of a file
+	 * @return a copy of this visitor
+	 * @throws IllegalArgumentException if {@code pollInterval} is not
+	 *	positive
+	 */
+	public PathReaderVisitor withPollInterval(Duration pollInterval)
+	{
+		Objects.requireNonNull(pollInterval, "pollInterval");
+
+		if (pollInterval.isNegative() || pollInterval.isZero())
+			throw new IllegalArgumentException(
+				"pollInterval <= 0: " + pollInterval);
+
+		return new PathReaderVisitor(this, recordFormat, consumer,
+								pollInterval);
+	}
+
+	@Override
+	public Optional<PathReaderVisitor> visit(ReadyReader reader)
+	{
+		return Optional.of(Objects.requireNonNull(reader, "reader"))
+			.filter(candidate -> candidate.kind() == Kind.PATH)
+			.map(candidate -> this);
+	}
+}
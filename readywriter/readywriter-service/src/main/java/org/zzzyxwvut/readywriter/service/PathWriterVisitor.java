@@ -1,7 +1,10 @@
 package org.zzzyxwvut.readywriter.service;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
@@ -9,8 +12,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -41,6 +46,33 @@ public final class PathWriterVisitor implements Visitor<PathWriterVisitor>
 	private final boolean appendable;
 	private final Charset charset;
 	private final ByteOrder byteOrder;
+	private final Set<Option> options;
+	private final Rollover rollover;
+	private final Sharding sharding;
+	private final Preallocation preallocation;
+	private final DurabilityPolicy durability;
+	private final RecordFormat recordFormat;
+	private final Indexing indexing;
+
+	private PathWriterVisitor(PathWriterVisitor visitor, Rollover rollover,
+						Sharding sharding,
+						Preallocation preallocation,
+						DurabilityPolicy durability,
+						RecordFormat recordFormat,
+						Indexing indexing)
+	{
+		path = visitor.path;
+		appendable = visitor.appendable;
+		charset = visitor.charset;
+		byteOrder = visitor.byteOrder;
+		options = visitor.options;
+		this.rollover = rollover;
+		this.sharding = sharding;
+		this.preallocation = preallocation;
+		this.durability = durability;
+		this.recordFormat = recordFormat;
+		this.indexing = indexing;
+	}
 
 	/**
 	 * Constructs a new {@code PathWriterVisitor} object.
@@ -56,9 +88,11 @@ public final class PathWriterVisitor implements Visitor<PathWriterVisitor>
 	 *	its beginning
 	 * @param charset the character set of a file
 	 * @param byteOrder the byte order of a file
+	 * @param options a set of writing options
 	 */
 	public PathWriterVisitor(Path path, boolean appendable,
-					Charset charset, ByteOrder byteOrder)
+					Charset charset, ByteOrder byteOrder,
+					Set<Option> options)
 	{
 		this.path = (path == null)
 			? TmpDirectoryPathGenerator.generatePath()
@@ -66,11 +100,38 @@ public final class PathWriterVisitor implements Visitor<PathWriterVisitor>
 		this.appendable = appendable;
 		this.charset = Objects.requireNonNull(charset, "charset");
 		this.byteOrder = Objects.requireNonNull(byteOrder, "byteOrder");
+		this.options = Set.copyOf(Objects.requireNonNull(options,
+								"options"));
+		rollover = null;
+		sharding = null;
+		preallocation = null;
+		durability = null;
+		recordFormat = null;
+		indexing = null;
 	}
 
 	/**
 	 * Constructs a new {@code PathWriterVisitor} object. It is set to use
-	 * the UTF-8 character set and the big-endian byte order for a file.
+	 * no writing options.
+	 *
+	 * @param path the path to a file, or a templet-named path, if
+	 *	{@code null}
+	 * @param appendable whether to write to the end of a file rather than
+	 *	its beginning
+	 * @param charset the character set of a file
+	 * @param byteOrder the byte order of a file
+	 * @see #PathWriterVisitor(Path, boolean, Charset, ByteOrder, Set)
+	 */
+	public PathWriterVisitor(Path path, boolean appendable,
+					Charset charset, ByteOrder byteOrder)
+	{
+		this(path, appendable, charset, byteOrder, Set.of());
+	}
+
+	/**
+	 * Constructs a new {@code PathWriterVisitor} object. It is set to use
+	 * the UTF-8 character set and the big-endian byte order for a file and
+	 * no writing options.
 	 *
 	 * @param path the path to a file, or a templet-named path, if
 	 *	{@code null}
@@ -107,18 +168,676 @@ public final class PathWriterVisitor implements Visitor<PathWriterVisitor>
 	public Charset charset()	{ return charset; }
 
 	/**
-	 * Returns the byte order of a file.
+	 * Returns the byte order of a file, viz, of the headers of framed
+	 * records (see {@link #recordFormat()} and {@link Sharding}).
 	 *
 	 * @return the byte order of a file
 	 */
 	public ByteOrder byteOrder()	{ return byteOrder; }
 
+	/**
+	 * Returns the set of writing options.
+	 *
+	 * @return the set of writing options
+	 * @throws UnsupportedOperationException if any modification of
+	 *	the returned set is attempted
+	 */
+	public Set<Option> options()	{ return options; }
+
+	/**
+	 * Returns the policy of rolling over segments of a path, if any.
+	 *
+	 * @return an optional with the policy of rolling over segments of
+	 *	a path, if any, otherwise an empty optional
+	 */
+	public Optional<Rollover> rollover()
+	{
+		return Optional.ofNullable(rollover);
+	}
+
+	/**
+	 * Returns a copy of this visitor that is set to write to segments of
+	 * the path, rolling over to a new segment as specified.
+	 * <p>
+	 * Segments are named after the path (see
+	 * {@link Rollover#segmentPath(Path, long)}), are always appended to,
+	 * and are kept open between writes; viz, {@link #appendable()} and
+	 * {@link Option#PERSISTENT} are implied.
+	 *
+	 * @param rollover the policy of rolling over segments, or
+	 *	{@code null} for writing to the path itself
+	 * @return a copy of this visitor
+	 */
+	public PathWriterVisitor withRollover(Rollover rollover)
+	{
+		return new PathWriterVisitor(this, rollover, sharding,
+						preallocation, durability,
+						recordFormat, indexing);
+	}
+
+	/**
+	 * Returns the policy of sharding a path, if any.
+	 *
+	 * @return an optional with the policy of sharding a path, if any,
+	 *	otherwise an empty optional
+	 */
+	public Optional<Sharding> sharding()
+	{
+		return Optional.ofNullable(sharding);
+	}
+
+	/**
+	 * Returns a copy of this visitor that is set to write to shards of
+	 * the path, one shard per a stripe of writing threads, without
+	 * contending for a lock with threads of other stripes.
+	 * <p>
+	 * Shards are named after the path (see
+	 * {@link Sharding#shardPath(Path, int)}), are kept open between
+	 * writes, and hold framed records (see {@link Sharding}); viz,
+	 * {@link Option#PERSISTENT} is implied, and a {@link #rollover()}
+	 * policy is ignored.
+	 *
+	 * @param sharding the policy of sharding, or {@code null} for
+	 *	writing to the path itself
+	 * @return a copy of this visitor
+	 */
+	public PathWriterVisitor withSharding(Sharding sharding)
+	{
+		return new PathWriterVisitor(this, rollover, sharding,
+						preallocation, durability,
+						recordFormat, indexing);
+	}
+
+	/**
+	 * Returns the policy of preallocating file space, if any.
+	 *
+	 * @return an optional with the policy of preallocating file space,
+	 *	if any, otherwise an empty optional
+	 */
+	public Optional<Preallocation> preallocation()
+	{
+		return Optional.ofNullable(preallocation);
+	}
+
+	/**
+	 * Returns a copy of this visitor that is set to extend an appendable
+	 * file in chunks ahead of the written length (see
+	 * {@link Preallocation}).
+	 * <p>
+	 * The file is kept open and locked between writes; viz,
+	 * {@link Option#EXCLUSIVE} is implied. A preallocation policy is
+	 * ignored for a file that is not {@link #appendable()} and for a path
+	 * with a {@link #rollover()} policy (whose segments are extended to
+	 * their size limit), a {@link #sharding()} policy or the
+	 * {@link Option#DIRECT} option.
+	 *
+	 * @param preallocation the policy of preallocating file space, or
+	 *	{@code null} for extending a file with every write
+	 * @return a copy of this visitor
+	 */
+	public PathWriterVisitor withPreallocation(Preallocation preallocation)
+	{
+		return new PathWriterVisitor(this, rollover, sharding,
+						preallocation, durability,
+						recordFormat, indexing);
+	}
+
+	/**
+	 * Returns the policy of forcing messages written without forcing, if
+	 * any.
+	 *
+	 * @return an optional with the policy of forcing messages written
+	 *	without forcing, if any, otherwise an empty optional
+	 */
+	public Optional<DurabilityPolicy> durability()
+	{
+		return Optional.ofNullable(durability);
+	}
+
+	/**
+	 * Returns a copy of this visitor that is set to force messages written
+	 * without forcing as specified, so that the window of losing them is
+	 * bounded.
+	 *
+	 * @param durability the policy of forcing messages written without
+	 *	forcing, or {@code null} for forcing them only with those written
+	 *	with forcing
+	 * @return a copy of this visitor
+	 */
+	public PathWriterVisitor withDurability(DurabilityPolicy durability)
+	{
+		return new PathWriterVisitor(this, rollover, sharding,
+						preallocation, durability,
+						recordFormat, indexing);
+	}
+
+	/**
+	 * Returns the format of framed records, if any.
+	 *
+	 * @return an optional with the format of framed records, if any,
+	 *	otherwise an empty optional
+	 */
+	public Optional<RecordFormat> recordFormat()
+	{
+		return Optional.ofNullable(recordFormat);
+	}
+
+	/**
+	 * Returns a copy of this visitor that is set to write every message,
+	 * and every buffer of raw bytes, as a record that is framed with
+	 * a header in the {@link #byteOrder()} of a file (see
+	 * {@link RecordFormat}). Records are framed in every segment of
+	 * a path with a {@link #rollover()} policy, and their sequence numbers
+	 * run across segments. Otherwise, sequence numbers are numbered on
+	 * from the last record of an {@link #appendable()} file whenever it
+	 * is opened; and, with a {@link #preallocation()} policy, a header of
+	 * zero bytes is taken for the end of records (so an empty record in
+	 * the format of lengths alone, written without forcing before
+	 * a crash, cannot be told from preallocated space).
+	 * <p>
+	 * A record format is ignored for a path with a {@link #sharding()}
+	 * policy, whose shards hold framed records of their own.
+	 *
+	 * @param recordFormat the format of framed records, or {@code null}
+	 *	for writing messages as they are
+	 * @return a copy of this visitor
+	 */
+	public PathWriterVisitor withRecordFormat(RecordFormat recordFormat)
+	{
+		return new PathWriterVisitor(this, rollover, sharding,
+						preallocation, durability,
+						recordFormat, indexing);
+	}
+
+	/**
+	 * Returns the policy of indexing framed records, if any.
+	 *
+	 * @return an optional with the policy of indexing framed records, if
+	 *	any, otherwise an empty optional
+	 */
+	public Optional<Indexing> indexing()
+	{
+		return Optional.ofNullable(indexing);
+	}
+
+	/**
+	 * Returns a copy of this visitor that is set to maintain a sparse
+	 * sidecar index of the framed records of an appendable file (see
+	 * {@link RecordIndex}).
+	 * <p>
+	 * The index is brought up to date with the file whenever the file is
+	 * opened, and entries are appended to it in batches, away from
+	 * writing threads; sequence numbers, if any, are numbered on from
+	 * the last record of the file. The file is kept open and locked
+	 * between writes; viz, {@link Option#EXCLUSIVE} is implied. An
+	 * indexing policy is ignored without a {@link #recordFormat()}, for
+	 * a file that is not {@link #appendable()} and for a path with
+	 * a {@link #rollover()} policy, a {@link #sharding()} policy or
+	 * the {@link Option#DIRECT} option.
+	 *
+	 * @param indexing the policy of indexing framed records, or
+	 *	{@code null} for no index
+	 * @return a copy of this visitor
+	 */
+	public PathWriterVisitor withIndexing(Indexing indexing)
+	{
+		return new PathWriterVisitor(this, rollover, sharding,
+						preallocation, durability,
+						recordFormat, indexing);
+	}
+
+	/**
+	 * Returns the index of the framed records of a file, if there are
+	 * a record format and an indexing policy, e.g. for seeking records.
+	 *
+	 * @return an optional with the index of the framed records of a file,
+	 *	if any, otherwise an empty optional
+	 */
+	public Optional<RecordIndex> recordIndex()
+	{
+		return (recordFormat == null || indexing == null)
+			? Optional.empty()
+			: Optional.of(new RecordIndex(path, recordFormat,
+							byteOrder,
+							indexing.interval()));
+	}
+
 	@Override
 	public Optional<PathWriterVisitor> visit(ReadyWriter writer)
 	{
 		return visitor.apply(writer);
 	}
 
+	/** This enumeration specifies options of writing to a path. */
+	public enum Option
+	{
+		/**
+		 * Keep a file open between writes, for the lifetime of
+		 * a service provider, rather than opening and closing it for
+		 * every write.
+		 * <p>
+		 * The file shall be opened anew whenever it is found deleted
+		 * or replaced; and it shall be closed along with its service
+		 * provider (see {@link ReadyWriter#close()}).
+		 */
+		PERSISTENT,
+
+		/**
+		 * Combine concurrent writes into gathering writes, so that
+		 * a single thread writes the messages of every thread that
+		 * contends for writing (flat combining).
+		 * <p>
+		 * Every write still returns after its message is written; but
+		 * the order of messages among contending threads is arbitrary.
+		 * (This option is ignored for a sharded path.)
+		 */
+		COMBINING,
+
+		/**
+		 * Take an exclusive lock of a file once, when the file is
+		 * opened, and hold it until the file is closed, rather than
+		 * locking the file for every write. Opening fails at once
+		 * when the file is locked by another owner, e.g. another
+		 * process.
+		 * <p>
+		 * <strong>The lock is only released when a writer is
+		 * closed.</strong> A writer that is obtained for every message,
+		 * e.g. with {@link Lookup#readyWriter(ReadyWriter.Visitor)},
+		 * and is not closed afterwards keeps its file locked, and
+		 * every other writer of the file then fails to open it;
+		 * obtain one writer and share it instead.
+		 * <p>
+		 * This option implies {@link #PERSISTENT}; it applies to every
+		 * segment of a path with a {@link PathWriterVisitor#rollover()
+		 * rollover} policy and to every shard of a path with
+		 * a {@link PathWriterVisitor#sharding() sharding} policy.
+		 */
+		EXCLUSIVE,
+
+		/**
+		 * Write to a file with direct I/O, bypassing the page cache
+		 * (see {@code com.sun.nio.file.ExtendedOpenOption#DIRECT}).
+		 * <p>
+		 * Messages are gathered into a staging buffer that is aligned
+		 * to the block size of the file store, and whole blocks are
+		 * written whenever the buffer fills up. A trailing partial
+		 * block is written, padded, and the file is truncated to its
+		 * written length, only when forcing and closing; so messages
+		 * written without forcing may not reach the file until then.
+		 * A file is truncated once, when it is opened, unless it is
+		 * appendable.
+		 * <p>
+		 * This option implies {@link #EXCLUSIVE}, and it is ignored
+		 * for a path with a {@link PathWriterVisitor#rollover()
+		 * rollover} or a {@link PathWriterVisitor#sharding() sharding}
+		 * policy. Opening fails with an I/O error when the file store
+		 * does not support direct I/O, or when the {@code
+		 * jdk.unsupported} module is not resolved (see the
+		 * {@code --add-modules} option of the {@code java} launcher).
+		 */
+		DIRECT
+	}
+
+	/**
+	 * This class specifies when to roll over to a new segment of a path:
+	 * before a write that would take a segment beyond its size limit, and
+	 * before the first write after a segment is older than its age limit.
+	 * <p>
+	 * (A single write that exceeds the size limit takes a segment of its
+	 * own.)
+	 */
+	public static final class Rollover
+	{
+		private final long maxBytes;
+		private final Duration maxAge;
+
+		/**
+		 * Constructs a new {@code Rollover} object.
+		 *
+		 * @param maxBytes the size limit of a segment, in bytes, or
+		 *	{@link Long#MAX_VALUE} for no limit
+		 * @param maxAge the age limit of a segment, or {@code null}
+		 *	for no limit
+		 * @throws IllegalArgumentException if {@code maxBytes} is less
+		 *	than {@code 1} or {@code maxAge} is not positive
+		 */
+		public Rollover(long maxBytes, Duration maxAge)
+		{
+			if (maxBytes < 1L)
+				throw new IllegalArgumentException(
+					"maxBytes < 1: " + maxBytes);
+
+			if (maxAge != null && (maxAge.isNegative()
+							|| maxAge.isZero()))
+				throw new IllegalArgumentException(
+					"maxAge <= 0: " + maxAge);
+
+			this.maxBytes = maxBytes;
+			this.maxAge = maxAge;
+		}
+
+		/**
+		 * Constructs a new {@code Rollover} object. It is set to roll
+		 * over by size alone.
+		 *
+		 * @param maxBytes the size limit of a segment, in bytes
+		 * @see #Rollover(long, Duration)
+		 */
+		public Rollover(long maxBytes)	{ this(maxBytes, null); }
+
+		/**
+		 * Returns the size limit of a segment.
+		 *
+		 * @return the size limit of a segment, in bytes
+		 */
+		public long maxBytes()		{ return maxBytes; }
+
+		/**
+		 * Returns the age limit of a segment, if any.
+		 *
+		 * @return an optional with the age limit of a segment, if
+		 *	any, otherwise an empty optional
+		 */
+		public Optional<Duration> maxAge()
+		{
+			return Optional.ofNullable(maxAge);
+		}
+
+		/**
+		 * Returns the path to a segment of the passed path. The index
+		 * of a segment, zero-padded to 8 digits, is inserted before
+		 * the extension of a file name, if any, e.g.
+		 * {@code messages.00000001.msg} for {@code messages.msg}.
+		 *
+		 * @param path the path to a file
+		 * @param index the index of a segment
+		 * @return the path to a segment
+		 * @throws IllegalArgumentException if {@code index} is
+		 *	negative or the path has no file name
+		 */
+		public static Path segmentPath(Path path, long index)
+		{
+			if (index < 0L)
+				throw new IllegalArgumentException(
+					"index < 0: " + index);
+
+			final String[] parts = nameParts(path);
+			return path.resolveSibling(String.format("%s.%08d%s",
+						parts[0], index, parts[1]));
+		}
+
+		/**
+		 * Returns the index of a segment of the passed path, if the
+		 * other passed path names such a segment.
+		 *
+		 * @param path the path to a file
+		 * @param candidate a candidate path to a segment
+		 * @return the index of a segment, or {@code -1L} if the
+		 *	candidate does not name a segment of the path
+		 * @throws IllegalArgumentException if the path has no file
+		 *	name
+		 */
+		public static long segmentIndex(Path path, Path candidate)
+		{
+			final String[] parts = nameParts(path);
+			final Path fileName = Objects.requireNonNull(candidate,
+							"candidate")
+				.getFileName();
+
+			if (fileName == null)
+				return -1L;
+
+			final String name = fileName.toString();
+			final int digits = name.length() - parts[0].length()
+						- parts[1].length() - 1;
+
+			if (digits < 8 || !name.startsWith(parts[0])
+					|| !name.endsWith(parts[1])
+					|| name.charAt(parts[0].length()) != '.')
+				return -1L;
+
+			final String index = name.substring(
+						parts[0].length() + 1,
+						parts[0].length() + 1 + digits);
+
+			for (int i = 0; i < digits; ++i)
+				if (!Character.isDigit(index.charAt(i)))
+					return -1L;
+
+			try {
+				return Long.parseLong(index);
+			} catch (final NumberFormatException ignored) {
+				return -1L;
+			}
+		}
+
+		static String[] nameParts(Path path)
+		{
+			final Path fileName = Objects.requireNonNull(path,
+								"path")
+				.getFileName();
+
+			if (fileName == null)
+				throw new IllegalArgumentException(
+					"No file name: " + path);
+
+			final String name = fileName.toString();
+			final int dot = name.lastIndexOf('.');
+			return (dot > 0)
+				? new String[] {
+					name.substring(0, dot),
+					name.substring(dot)
+				}
+				: new String[] { name, "" };
+		}
+	}
+
+	/**
+	 * This class specifies how many shards of a path to write to.
+	 * <p>
+	 * Every thread is assigned to a stripe of threads, round-robin, on its
+	 * first write, and every stripe appends to a shard of its own. Every
+	 * message, or every buffer of raw bytes, is written as a record of
+	 * the {@link #RECORD_FORMAT} format, in the byte order of a path, whose
+	 * sequence number is global to all shards and is counted from
+	 * {@code 1}. Within a shard, sequence numbers only increase; so
+	 * the shards can be merged back in the order of writing (see
+	 * {@link ShardMerger}).
+	 */
+	public static final class Sharding
+	{
+		/** The format of records: sequenced, without timestamps. */
+		public static final RecordFormat RECORD_FORMAT =
+						new RecordFormat(true, false);
+
+		private final int shards;
+
+		/**
+		 * Constructs a new {@code Sharding} object.
+		 *
+		 * @param shards the number of shards
+		 * @throws IllegalArgumentException if {@code shards} is less
+		 *	than {@code 1}
+		 */
+		public Sharding(int shards)
+		{
+			if (shards < 1)
+				throw new IllegalArgumentException(
+					"shards < 1: " + shards);
+
+			this.shards = shards;
+		}
+
+		/**
+		 * Returns the number of shards.
+		 *
+		 * @return the number of shards
+		 */
+		public int shards()		{ return shards; }
+
+		/**
+		 * Returns the path to a shard of the passed path. The index of
+		 * a shard, zero-padded to 3 digits and prefixed with
+		 * {@code shard}, is inserted before the extension of a file
+		 * name, if any, e.g. {@code messages.shard001.msg} for
+		 * {@code messages.msg}.
+		 *
+		 * @param path the path to a file
+		 * @param index the index of a shard
+		 * @return the path to a shard
+		 * @throws IllegalArgumentException if {@code index} is
+		 *	negative or the path has no file name
+		 */
+		public static Path shardPath(Path path, int index)
+		{
+			if (index < 0)
+				throw new IllegalArgumentException(
+					"index < 0: " + index);
+
+			final String[] parts = Rollover.nameParts(path);
+			return path.resolveSibling(String.format(
+						"%s.shard%03d%s",
+						parts[0], index, parts[1]));
+		}
+	}
+
+	/**
+	 * This class specifies how sparse a sidecar index of framed records
+	 * is: the first record and every record that follows it by so many
+	 * records are indexed (see {@link RecordIndex}).
+	 */
+	public static final class Indexing
+	{
+		private final int interval;
+
+		/**
+		 * Constructs a new {@code Indexing} object.
+		 *
+		 * @param interval the number of records per an entry
+		 * @throws IllegalArgumentException if {@code interval} is
+		 *	less than {@code 1}
+		 */
+		public Indexing(int interval)
+		{
+			if (interval < 1)
+				throw new IllegalArgumentException(
+					"interval < 1: " + interval);
+
+			this.interval = interval;
+		}
+
+		/**
+		 * Returns the number of records per an entry.
+		 *
+		 * @return the number of records per an entry
+		 */
+		public int interval()		{ return interval; }
+	}
+
+	/**
+	 * This class specifies how much file space to preallocate ahead of
+	 * the written length of a file.
+	 * <p>
+	 * Before a write that would go beyond the allocated length, the file
+	 * is extended with zero bytes up to the next multiple of the chunk
+	 * size; so its size and extents only change once per chunk, and
+	 * forcing a write that fits in the allocated length need not flush
+	 * the metadata of a file. The file is truncated to its written
+	 * length when it is closed. While it is open, its written length is
+	 * also recorded in a sibling file, {@code <name>.end}, whenever it is
+	 * forced; and, when it is reopened after it has not been closed, e.g.
+	 * after a crash, its written length is found again by skipping
+	 * trailing zero bytes past the recorded length (see
+	 * {@link #writtenLength(FileChannel, long)}).
+	 * <p>
+	 * (Hence, only trailing zero bytes of messages written without forcing
+	 * before a crash cannot be told from preallocated space.)
+	 */
+	public static final class Preallocation
+	{
+		private static final int SCAN_BYTES = 1 << 13;
+
+		private final long chunkBytes;
+
+		/**
+		 * Constructs a new {@code Preallocation} object.
+		 *
+		 * @param chunkBytes the size of a chunk, in bytes
+		 * @throws IllegalArgumentException if {@code chunkBytes} is
+		 *	less than {@code 1}
+		 */
+		public Preallocation(long chunkBytes)
+		{
+			if (chunkBytes < 1L)
+				throw new IllegalArgumentException(
+					"chunkBytes < 1: " + chunkBytes);
+
+			this.chunkBytes = chunkBytes;
+		}
+
+		/**
+		 * Returns the size of a chunk.
+		 *
+		 * @return the size of a chunk, in bytes
+		 */
+		public long chunkBytes()	{ return chunkBytes; }
+
+		/**
+		 * Returns the allocated length that covers the passed length,
+		 * i.e. the passed length rounded up to a multiple of the chunk
+		 * size.
+		 *
+		 * @param length a length, in bytes
+		 * @return the allocated length, in bytes
+		 */
+		public long allocatedLength(long length)
+		{
+			final long chunks = length / chunkBytes
+				+ ((length % chunkBytes == 0L) ? 0L : 1L);
+			return chunks * chunkBytes;
+		}
+
+		/**
+		 * Returns the written length of a file, i.e. its size less
+		 * its trailing zero bytes past the passed known written
+		 * length, reading it backwards from its end.
+		 *
+		 * @param channel a readable channel of a file
+		 * @param knownLength a length known to be written, in bytes
+		 * @return the written length of a file, in bytes
+		 * @throws IOException if an I/O error occurs
+		 */
+		public static long writtenLength(FileChannel channel,
+					long knownLength) throws IOException
+		{
+			final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BYTES);
+			long end = channel.size();
+			final long floor = Math.max(0L, Math.min(end,
+								knownLength));
+
+			while (end > floor) {
+				final long start = Math.max(floor,
+							end - SCAN_BYTES);
+				buffer.clear()
+					.limit((int) (end - start));
+
+				while (buffer.hasRemaining())
+					if (channel.read(buffer, start
+						+ buffer.position()) < 0)
+						throw new EOFException();
+
+				for (int i = buffer.position() - 1; i >= 0;
+									--i)
+					if (buffer.get(i) != 0)
+						return start + i + 1L;
+
+				end = start;
+			}
+
+			return floor;
+		}
+	}
+
 	/**
 	 * This class serves for generation of templet-named temporary paths.
 	 */
@@ -0,0 +1,218 @@
+package org.zzzyxwvut.readywriter.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.ServiceLoader.Provider;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.zzzyxwvut.readywriter.ReadyWriter.Kind;
+import org.zzzyxwvut.readywriter.ReadyWriter.Visitor;
+import org.zzzyxwvut.readywriter.ReadyWriter;
+import org.zzzyxwvut.readywriter.annotation.Namable;
+
+/**
+ * This class caches, per module layer, the located service providers along
+ * with their names and, once any of their instances is obtained, their
+ * kinds.
+ * <p>
+ * (Module layers are immutable, so a cached entry is never stale; but it
+ * keeps its module layer reachable until it is invalidated.)
+ */
+final class ProviderCache
+{
+	private static final Map<ModuleLayer, ProviderCache> CACHES =
+						new ConcurrentHashMap<>();
+	private static final Map<Kind, ReadyWriter> PROBES;
+
+	static {
+		final Map<Kind, ReadyWriter> probes = new EnumMap<>(Kind.class);
+
+		for (final Kind kind : Kind.values())
+			probes.put(kind, new KindProbe(kind));
+
+		PROBES = Collections.unmodifiableMap(probes);
+	}
+
+	private final List<Entry> entries;
+	private final Map<String, List<Entry>> namedEntries;
+	private final List<String> names;
+
+	private ProviderCache(ModuleLayer moduleLayer)
+	{
+		entries = ServiceLoader.load(moduleLayer, ReadyWriter.class)
+			.stream()
+			.map(Entry::new)
+			.collect(Collectors.toUnmodifiableList());
+		namedEntries = Collections.unmodifiableMap(entries.stream()
+			.collect(Collectors.groupingBy(entry -> entry.name,
+				LinkedHashMap::new,
+				Collectors.toUnmodifiableList())));
+		names = entries.stream()
+			.map(entry -> entry.name)
+			.sorted()
+			.collect(Collectors.collectingAndThen(
+				Collectors.toCollection(ArrayList::new),
+				Collections::unmodifiableList));
+	}
+
+	/**
+	 * Returns the cache of the specified module layer, locating its
+	 * service providers on first use.
+	 *
+	 * @param moduleLayer a module layer
+	 * @return the cache of the module layer
+	 */
+	static ProviderCache of(ModuleLayer moduleLayer)
+	{
+		return CACHES.computeIfAbsent(moduleLayer, ProviderCache::new);
+	}
+
+	/**
+	 * Discards the cache of the specified module layer, if any.
+	 *
+	 * @param moduleLayer a module layer
+	 */
+	static void invalidate(ModuleLayer moduleLayer)
+	{
+		CACHES.remove(moduleLayer);
+	}
+
+	/** Discards the caches of all module layers. */
+	static void invalidateAll()		{ CACHES.clear(); }
+
+	/**
+	 * Returns all entries, in the order of their location.
+	 *
+	 * @return all entries
+	 */
+	List<Entry> entries()			{ return entries; }
+
+	/**
+	 * Returns the entries of the specified name, in the order of their
+	 * location.
+	 *
+	 * @param name the name of a provider
+	 * @return the entries of the name
+	 */
+	List<Entry> entries(String name)
+	{
+		return namedEntries.getOrDefault(name, List.of());
+	}
+
+	/**
+	 * Returns the sorted names of all entries.
+	 *
+	 * @return the sorted names of all entries
+	 */
+	List<String> names()			{ return names; }
+
+	/**
+	 * Returns a functional interface that takes a visitor and returns
+	 * a predicate that tests whether an entry may be supported by
+	 * the visitor, viz, its kind is either yet unknown or is supported.
+	 *
+	 * @param <T> the type of a visitor
+	 * @return a curried function
+	 */
+	static <T extends Visitor<? extends T>> Function<T, Predicate<Entry>>
+								admitter()
+	{
+		/* A visitor shall match service providers by kind alone. */
+		return visitor -> entry -> entry.kind()
+			.map(PROBES::get)
+			.map(probe -> visitor.visit(probe).isPresent())
+			.orElse(Boolean.TRUE);
+	}
+
+	/** A located service provider. */
+	static final class Entry
+	{
+		private final Provider<ReadyWriter> provider;
+		private final String name;
+		private volatile Kind kind;
+
+		Entry(Provider<ReadyWriter> provider)
+		{
+			this.provider = provider;
+			name = Optional.ofNullable(provider.type()
+					.getAnnotation(Namable.class))
+				.map(Namable::value)
+				.orElseGet(provider.type()::getName);
+		}
+
+		/**
+		 * Returns a new instance of a service provider and notes its
+		 * kind.
+		 *
+		 * @return a new instance of a service provider
+		 */
+		ReadyWriter get()
+		{
+			final ReadyWriter writer = provider.get();
+			kind = writer.kind();
+			return writer;
+		}
+
+		/**
+		 * Returns the name of a service provider.
+		 *
+		 * @return the name of a service provider
+		 */
+		String name()			{ return name; }
+
+		/**
+		 * Returns the kind of a service provider, if known.
+		 *
+		 * @return an optional with the kind of a service provider, if
+		 *	any of its instances has been obtained, otherwise an
+		 *	empty optional
+		 */
+		Optional<Kind> kind()		{ return Optional.ofNullable(kind); }
+
+		@Override
+		public String toString()	{ return provider.type().getName(); }
+	}
+
+	/** A stand-in for service providers of some kind. */
+	private static final class KindProbe implements ReadyWriter
+	{
+		private final Kind kind;
+
+		KindProbe(Kind kind)
+		{
+			this.kind = Objects.requireNonNull(kind, "kind");
+		}
+
+		@Override
+		public void write(String message)
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void writeAndForce(String message)
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Kind kind()		{ return kind; }
+
+		@Override
+		public <T extends Visitor<? extends T>> Optional<ReadyWriter>
+							accept(T visitor)
+		{
+			return Optional.empty();
+		}
+	}
+}
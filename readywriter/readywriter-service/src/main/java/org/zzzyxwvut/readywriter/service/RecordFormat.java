@@ -0,0 +1,213 @@
+package org.zzzyxwvut.readywriter.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Objects;
+
+/**
+ * This class specifies a format of framed records: every message, or every
+ * buffer of raw bytes, is written as a record that is framed with a header,
+ * in the byte order of a sink, of an {@code int} length of the following
+ * bytes, optionally followed by a {@code long} sequence number and
+ * a {@code long} timestamp, in this order.
+ * <p>
+ * Sequence numbers are counted from {@code 1} for every framer (see
+ * {@link #framer(ByteOrder)}), unless resumed, and timestamps are
+ * the milliseconds since the epoch of a write. Since the length leads
+ * a header, a reader can skip from record to record without decoding their
+ * payloads (see {@link RecordReader}).
+ */
+public final class RecordFormat
+{
+	/** The length of the length field of a header, in bytes. */
+	public static final int LENGTH_BYTES = Integer.BYTES;
+
+	private final boolean sequenced;
+	private final boolean timestamped;
+	private final int headerBytes;
+
+	/**
+	 * Constructs a new {@code RecordFormat} object.
+	 *
+	 * @param sequenced whether a header has a sequence number
+	 * @param timestamped whether a header has a timestamp
+	 */
+	public RecordFormat(boolean sequenced, boolean timestamped)
+	{
+		this.sequenced = sequenced;
+		this.timestamped = timestamped;
+		headerBytes = LENGTH_BYTES
+				+ ((sequenced) ? Long.BYTES : 0)
+				+ ((timestamped) ? Long.BYTES : 0);
+	}
+
+	/**
+	 * Constructs a new {@code RecordFormat} object. It is set to frame
+	 * records with their lengths alone.
+	 *
+	 * @see #RecordFormat(boolean, boolean)
+	 */
+	public RecordFormat()			{ this(false, false); }
+
+	/**
+	 * Returns whether a header has a sequence number.
+	 *
+	 * @return whether a header has a sequence number
+	 */
+	public boolean sequenced()		{ return sequenced; }
+
+	/**
+	 * Returns whether a header has a timestamp.
+	 *
+	 * @return whether a header has a timestamp
+	 */
+	public boolean timestamped()		{ return timestamped; }
+
+	/**
+	 * Returns the length of a header.
+	 *
+	 * @return the length of a header, in bytes
+	 */
+	public int headerBytes()		{ return headerBytes; }
+
+	/**
+	 * Returns a new framer of records in this format.
+	 *
+	 * @param byteOrder the byte order of a header
+	 * @return a new framer of records
+	 */
+	public Framer framer(ByteOrder byteOrder)
+	{
+		return new Framer(this, Objects.requireNonNull(byteOrder,
+							"byteOrder"));
+	}
+
+	/**
+	 * Returns a new reader of records in this format.
+	 *
+	 * @param channel a channel to read from
+	 * @param byteOrder the byte order of a header
+	 * @return a new reader of records
+	 * @see RecordReader#RecordReader(ReadableByteChannel, RecordFormat,
+	 *	ByteOrder)
+	 */
+	public RecordReader reader(ReadableByteChannel channel,
+						ByteOrder byteOrder)
+	{
+		return new RecordReader(channel, this, byteOrder);
+	}
+
+	/**
+	 * This class frames buffers of bytes as records.
+	 * <p>
+	 * A writer shall frame its buffers with {@link #frame(ByteBuffer[])}
+	 * before it takes its guard, and stamp the framed buffers with
+	 * {@link #stamp(ByteBuffer[])} while its changes are guarded; so
+	 * sequence numbers follow the order of writing.
+	 */
+	public static final class Framer
+	{
+		private final RecordFormat format;
+		private final ByteOrder byteOrder;
+		private long sequence;
+
+		private Framer(RecordFormat format, ByteOrder byteOrder)
+		{
+			this.format = format;
+			this.byteOrder = byteOrder;
+		}
+
+		/**
+		 * Returns the format of records.
+		 *
+		 * @return the format of records
+		 */
+		public RecordFormat format()	{ return format; }
+
+		/**
+		 * Returns the sequence number of the last stamped record.
+		 *
+		 * @return the sequence number of the last stamped record, or
+		 *	{@code 0L} if none is stamped
+		 */
+		public long sequence()		{ return sequence; }
+
+		/**
+		 * Sets the sequence number of the last stamped record, so that
+		 * the following records are numbered on from it, e.g. when
+		 * appending to a file of records.
+		 *
+		 * @param sequence the sequence number of the last stamped
+		 *	record
+		 * @throws IllegalArgumentException if {@code sequence} is
+		 *	negative
+		 */
+		public void resume(long sequence)
+		{
+			if (sequence < 0L)
+				throw new IllegalArgumentException(
+					"sequence < 0: " + sequence);
+
+			this.sequence = sequence;
+		}
+
+		/**
+		 * Frames buffers of bytes as records, with their remaining
+		 * bytes as payloads.
+		 *
+		 * @param buffers byte buffers to frame
+		 * @return an array of headers and payloads, in turn, of
+		 *	twice the length of the passed array
+		 */
+		public ByteBuffer[] frame(ByteBuffer[] buffers)
+		{
+			Objects.requireNonNull(buffers, "buffers");
+			final int headerBytes = format.headerBytes();
+			final ByteBuffer headers = ByteBuffer.allocate(
+						headerBytes * buffers.length);
+			final ByteBuffer[] framed =
+					new ByteBuffer[buffers.length << 1];
+
+			for (int i = 0; i < buffers.length; ++i) {
+				final ByteBuffer buffer = Objects
+					.requireNonNull(buffers[i], "buffer");
+				headers.limit(headerBytes * (i + 1));
+				framed[i << 1] = headers.slice()
+					.order(byteOrder)
+					.putInt(0, buffer.remaining());
+				framed[(i << 1) + 1] = buffer;
+				headers.position(headers.limit());
+			}
+
+			return framed;
+		}
+
+		/**
+		 * Stamps the headers of framed records with the next sequence
+		 * numbers and the current time, as applicable.
+		 *
+		 * @param framed an array of headers and payloads, in turn
+		 * @see #frame(ByteBuffer[])
+		 */
+		public void stamp(ByteBuffer[] framed)
+		{
+			if (!format.sequenced() && !format.timestamped())
+				return;
+
+			final long timestamp = System.currentTimeMillis();
+
+			for (int i = 0; i < framed.length; i += 2) {
+				int offset = LENGTH_BYTES;
+
+				if (format.sequenced()) {
+					framed[i].putLong(offset, ++sequence);
+					offset += Long.BYTES;
+				}
+
+				if (format.timestamped())
+					framed[i].putLong(offset, timestamp);
+			}
+		}
+	}
+}
@@ -0,0 +1,614 @@
+package org.zzzyxwvut.readywriter.service;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class maintains and searches a sparse sidecar index of a file of
+ * framed records (see {@link RecordFormat}).
+ * <p>
+ * The index of a file is kept in a sibling file (see
+ * {@link #indexPath(Path)}) as a sequence of entries of
+ * {@value #ENTRY_BYTES} bytes, in the byte order of the file: a {@code long}
+ * record number, counted from {@code 1}, a {@code long} timestamp of
+ * the record, or {@code 0L}, and a {@code long} position of the record in
+ * the file. The first record and every record that follows it by so many
+ * records (see {@link #interval()}) are indexed; so the records of a file
+ * can be sought by number, or by time for timestamped records, with
+ * a binary search of the index and a scan of no more than an interval of
+ * record headers (see {@link #seekRecord(long)} and
+ * {@link #seekTime(long)}).
+ * <p>
+ * An index may lag behind its file, and it may run ahead of the file after
+ * a crash: entries that point beyond the file are ignored when seeking, and
+ * they are dropped when the index is brought up to date (see
+ * {@link Appender#recover(long)} and {@link #rebuild()}).
+ */
+public final class RecordIndex
+{
+	/** The length of an entry, in bytes. */
+	public static final int ENTRY_BYTES = 3 * Long.BYTES;
+
+	private static final ExecutorService APPENDER =
+				Executors.newSingleThreadExecutor(runnable -> {
+		final Thread thread = new Thread(runnable,
+						"jrw-index-appender");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Path path;
+	private final Path indexPath;
+	private final RecordFormat format;
+	private final ByteOrder byteOrder;
+	private final int interval;
+
+	/**
+	 * Constructs a new {@code RecordIndex} object.
+	 *
+	 * @param path the path to a file of framed records
+	 * @param format the format of records
+	 * @param byteOrder the byte order of a file and its index
+	 * @param interval the number of records per an entry
+	 * @throws IllegalArgumentException if {@code interval} is less than
+	 *	{@code 1} or the path has no file name
+	 */
+	public RecordIndex(Path path, RecordFormat format, ByteOrder byteOrder,
+								int interval)
+	{
+		if (interval < 1)
+			throw new IllegalArgumentException(
+				"interval < 1: " + interval);
+
+		this.path = Objects.requireNonNull(path, "path");
+		indexPath = indexPath(path);
+		this.format = Objects.requireNonNull(format, "format");
+		this.byteOrder = Objects.requireNonNull(byteOrder, "byteOrder");
+		this.interval = interval;
+	}
+
+	/**
+	 * Returns the path to the index of the passed path: the file name
+	 * with {@code .idx} appended, e.g. {@code messages.msg.idx} for
+	 * {@code messages.msg}.
+	 *
+	 * @param path the path to a file
+	 * @return the path to an index
+	 * @throws IllegalArgumentException if the path has no file name
+	 */
+	public static Path indexPath(Path path)
+	{
+		final Path fileName = Objects.requireNonNull(path, "path")
+			.getFileName();
+
+		if (fileName == null)
+			throw new IllegalArgumentException(
+					"No file name: " + path);
+
+		return path.resolveSibling(fileName.toString().concat(".idx"));
+	}
+
+	/**
+	 * Returns the path to a file of framed records.
+	 *
+	 * @return the path to a file of framed records
+	 */
+	public Path path()			{ return path; }
+
+	/**
+	 * Returns the path to the index of a file.
+	 *
+	 * @return the path to the index of a file
+	 */
+	public Path indexPath()			{ return indexPath; }
+
+	/**
+	 * Returns the format of records.
+	 *
+	 * @return the format of records
+	 */
+	public RecordFormat format()		{ return format; }
+
+	/**
+	 * Returns the byte order of a file and its index.
+	 *
+	 * @return the byte order of a file and its index
+	 */
+	public ByteOrder byteOrder()		{ return byteOrder; }
+
+	/**
+	 * Returns the number of records per an entry.
+	 *
+	 * @return the number of records per an entry
+	 */
+	public int interval()			{ return interval; }
+
+	/**
+	 * Returns a new appender of entries for a writer of a file.
+	 *
+	 * @return a new appender of entries
+	 */
+	public Appender appender()		{ return new Appender(this); }
+
+	/**
+	 * Writes the index of a file anew, from the records of the file.
+	 * A trailing incomplete record is not indexed.
+	 *
+	 * @return the number of complete records of a file
+	 * @throws IOException if an I/O error occurs
+	 */
+	public long rebuild() throws IOException
+	{
+		Files.deleteIfExists(indexPath);
+
+		try (Appender appender = appender()) {
+			return appender.recover(Files.size(path));
+		}
+	}
+
+	/**
+	 * Returns a reader of the records of a file, positioned so that its
+	 * next record is the record of the passed number, or so that it has
+	 * no next record if a file has fewer records.
+	 *
+	 * @param record the number of a record, counted from {@code 1}
+	 * @return a reader of the records of a file
+	 * @throws IOException if an I/O error occurs
+	 * @throws IllegalArgumentException if {@code record} is less than
+	 *	{@code 1}
+	 */
+	public RecordReader seekRecord(long record) throws IOException
+	{
+		if (record < 1L)
+			throw new IllegalArgumentException(
+					"record < 1: " + record);
+
+		return seek(Entry.RECORD, record, (reader, number) ->
+							number >= record);
+	}
+
+	/**
+	 * Returns a reader of the records of a file, positioned so that its
+	 * next record is the first record that is stamped no earlier than
+	 * the passed time, or so that it has no next record if there is no
+	 * such record.
+	 * <p>
+	 * (Timestamps are assumed not to decrease from record to record;
+	 * a record written after the wall clock was set back may be missed.)
+	 *
+	 * @param timestamp a time, in milliseconds since the epoch
+	 * @return a reader of the records of a file
+	 * @throws IOException if an I/O error occurs
+	 * @throws IllegalStateException if records have no timestamps
+	 */
+	public RecordReader seekTime(long timestamp) throws IOException
+	{
+		if (!format.timestamped())
+			throw new IllegalStateException(
+					"Records have no timestamps");
+
+		return seek(Entry.TIMESTAMP, timestamp, (reader, number) ->
+					reader.timestamp() >= timestamp);
+	}
+
+	/**
+	 * Returns the position of the last indexed record of a file that
+	 * ends before the passed position, so that the records that follow
+	 * it can be read without reading those that precede it.
+	 *
+	 * @param end the position of the end of the written records of
+	 *	a file
+	 * @return the position of the last indexed record, or {@code 0L} if
+	 *	there is no index or no such record in it
+	 * @throws IOException if an I/O error occurs
+	 */
+	public long lastIndexed(long end) throws IOException
+	{
+		try (FileChannel index = FileChannel.open(indexPath,
+						StandardOpenOption.READ);
+				FileChannel data = FileChannel.open(path,
+						StandardOpenOption.READ)) {
+			final Entry entry = floor(index, Entry.RECORD,
+							Long.MAX_VALUE, end);
+			return (valid(data, entry, end)) ? entry.offset : 0L;
+		} catch (final NoSuchFileException ignored) {
+			return 0L;
+		}
+	}
+
+	/* Tells whether an entry points at its record in a file. */
+	private boolean valid(FileChannel data, Entry entry, long end)
+							throws IOException
+	{
+		if (entry.record < 1L || entry.offset < 0L
+				|| entry.offset + format.headerBytes() > end)
+			return false;
+
+		final RecordReader reader = new RecordReader(
+				data.position(entry.offset), format, byteOrder);
+		return reader.next()
+			&& entry.offset + format.headerBytes()
+					+ reader.length() <= end
+			&& (!format.sequenced()
+				|| reader.sequence() == entry.record)
+			&& (!format.timestamped()
+				|| reader.timestamp() == entry.timestamp);
+	}
+
+	private RecordReader seek(int field, long key, Target target)
+							throws IOException
+	{
+		final FileChannel channel = FileChannel.open(path,
+						StandardOpenOption.READ);
+
+		try {
+			final long size = channel.size();
+			Entry entry = Entry.NONE;
+
+			try (FileChannel index = FileChannel.open(indexPath,
+						StandardOpenOption.READ)) {
+				entry = floor(index, field, key, size);
+			} catch (final NoSuchFileException ignored) {
+				/* Scan from the first record. */
+			}
+
+			final RecordReader scanner = new RecordReader(
+				channel.position(entry.offset), format,
+								byteOrder);
+			long number = entry.record - 1L;
+			long position = entry.offset;
+
+			while (scanner.next()) {
+				position = scanner.position();
+
+				if (target.reached(scanner, ++number))
+					break;
+
+				position += format.headerBytes()
+						+ scanner.length();
+			}
+
+			return new RecordReader(channel.position(
+					Math.min(position, size)),
+						format, byteOrder);
+		} catch (final IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/*
+	 * Finds the last entry, of those that point into the file, whose
+	 * field is less than the key, for timestamps, or no greater than
+	 * the key, for record numbers.
+	 */
+	private Entry floor(FileChannel index, int field, long key, long size)
+							throws IOException
+	{
+		final ByteBuffer buffer = ByteBuffer.allocate(ENTRY_BYTES)
+			.order(byteOrder);
+		long low = 0L;
+		long high = index.size() / ENTRY_BYTES;
+
+		/* Offsets only increase: find the bound of entries first. */
+		while (low < high) {
+			final long middle = (low + high) >>> 1;
+
+			if (Entry.read(index, middle, buffer).offset
+					+ format.headerBytes() <= size)
+				low = middle + 1L;
+			else
+				high = middle;
+		}
+
+		final long bound = low;
+		low = 0L;
+		high = bound;
+
+		while (low < high) {
+			final long middle = (low + high) >>> 1;
+			final long value = Entry.read(index, middle, buffer)
+				.field(field);
+
+			if ((field == Entry.TIMESTAMP) ? value < key
+							: value <= key)
+				low = middle + 1L;
+			else
+				high = middle;
+		}
+
+		return (low > 0L)
+			? Entry.read(index, low - 1L, buffer)
+			: Entry.NONE;
+	}
+
+	/** A condition of scanning records for seeking. */
+	private interface Target
+	{
+		boolean reached(RecordReader reader, long number);
+	}
+
+	/** An entry of an index. */
+	private static final class Entry
+	{
+		static final int RECORD = 0;
+		static final int TIMESTAMP = 1;
+		static final Entry NONE = new Entry(1L, 0L, 0L);
+
+		final long record;
+		final long timestamp;
+		final long offset;
+
+		Entry(long record, long timestamp, long offset)
+		{
+			this.record = record;
+			this.timestamp = timestamp;
+			this.offset = offset;
+		}
+
+		long field(int field)
+		{
+			return (field == TIMESTAMP) ? timestamp : record;
+		}
+
+		static Entry read(FileChannel index, long entry,
+					ByteBuffer buffer) throws IOException
+		{
+			buffer.clear();
+
+			while (buffer.hasRemaining())
+				if (index.read(buffer, entry * ENTRY_BYTES
+						+ buffer.position()) < 0)
+					throw new EOFException();
+
+			return new Entry(buffer.getLong(0),
+						buffer.getLong(Long.BYTES),
+						buffer.getLong(Long.BYTES << 1));
+		}
+	}
+
+	/**
+	 * This class appends entries to the index of a file for a writer of
+	 * the file.
+	 * <p>
+	 * A writer shall bring the index up to date with
+	 * {@link #recover(long)} whenever it opens the file, and account for
+	 * every write of framed records with
+	 * {@link #written(ByteBuffer[], long)} while its changes are guarded.
+	 * Entries are gathered in batches of {@value #BATCH_ENTRIES}, and every
+	 * batch is written to the index by a shared daemon thread, away from
+	 * the writer; a failure of such a write is rethrown by the next call
+	 * of an appender.
+	 */
+	public static final class Appender implements Closeable
+	{
+		/** The number of entries of a batch. */
+		public static final int BATCH_ENTRIES = 512;
+
+		private final AtomicReference<IOException> failure =
+							new AtomicReference<>();
+		private final RecordIndex recordIndex;
+		private ByteBuffer batch;
+		private CompletableFuture<Void> tail =
+				CompletableFuture.completedFuture(null);
+		private FileChannel index;
+		private long records;
+
+		private Appender(RecordIndex recordIndex)
+		{
+			this.recordIndex = recordIndex;
+			batch = newBatch();
+		}
+
+		private ByteBuffer newBatch()
+		{
+			return ByteBuffer.allocate(ENTRY_BYTES * BATCH_ENTRIES)
+				.order(recordIndex.byteOrder);
+		}
+
+		/**
+		 * Returns the number of accounted records of a file.
+		 *
+		 * @return the number of accounted records of a file
+		 */
+		public long records()		{ return records; }
+
+		private void rethrow() throws IOException
+		{
+			final IOException e = failure.getAndSet(null);
+
+			if (e != null)
+				throw e;
+		}
+
+		/* Waits for the written batches and rethrows a failure. */
+		private void drain() throws IOException
+		{
+			final ByteBuffer pending = batch.flip();
+			batch = newBatch();
+
+			if (pending.hasRemaining())
+				handOff(pending);
+
+			try {
+				tail.join();
+			} catch (final CompletionException e) {
+				tail = CompletableFuture.completedFuture(null);
+				throw new IOException(e.getCause());
+			}
+
+			rethrow();
+		}
+
+		private void handOff(ByteBuffer pending)
+		{
+			final FileChannel channel = index;
+			tail = tail.thenRunAsync(() -> {
+				try {
+					while (pending.hasRemaining())
+						channel.write(pending);
+				} catch (final IOException e) {
+					failure.compareAndSet(null, e);
+				}
+			}, APPENDER);
+		}
+
+		/**
+		 * Brings the index up to date with the records of a file that
+		 * end before the passed position: drops entries that do not
+		 * match the records of the file and indexes records from
+		 * the last matching entry on. A trailing incomplete record is
+		 * not indexed, nor accounted for.
+		 *
+		 * @param end the position of the end of the written records
+		 *	of a file
+		 * @return the number of complete records of a file
+		 * @throws IOException if an I/O error occurs
+		 */
+		public long recover(long end) throws IOException
+		{
+			drain();
+			final RecordFormat format = recordIndex.format;
+			final int interval = recordIndex.interval;
+
+			if (index == null)
+				index = FileChannel.open(recordIndex.indexPath,
+						StandardOpenOption.CREATE,
+						StandardOpenOption.READ,
+						StandardOpenOption.WRITE);
+
+			try (FileChannel data = FileChannel.open(
+						recordIndex.path,
+						StandardOpenOption.READ)) {
+				final ByteBuffer buffer = ByteBuffer.allocate(
+							ENTRY_BYTES)
+					.order(recordIndex.byteOrder);
+				long entries = index.size() / ENTRY_BYTES;
+				Entry entry = Entry.NONE;
+
+				for (; entries > 0L; --entries) {
+					final Entry last = Entry.read(index,
+							entries - 1L, buffer);
+
+					if (recordIndex.valid(data, last,
+								end)) {
+						entry = last;
+						break;
+					}
+				}
+
+				index.truncate(entries * ENTRY_BYTES)
+					.position(entries * ENTRY_BYTES);
+				final RecordReader reader = new RecordReader(
+					data.position(entry.offset), format,
+						recordIndex.byteOrder);
+				final long indexed = (entries > 0L)
+					? entry.record
+					: 0L;
+				long number = entry.record - 1L;
+
+				while (reader.next() && reader.position()
+						+ format.headerBytes()
+						+ reader.length() <= end) {
+					if (++number > indexed
+							&& (number - 1L)
+							% interval == 0L)
+						add(number, reader.timestamp(),
+							reader.position());
+				}
+
+				records = number;
+			}
+
+			drain();
+			return records;
+		}
+
+		private void add(long record, long timestamp, long offset)
+		{
+			batch.putLong(record)
+				.putLong(timestamp)
+				.putLong(offset);
+
+			if (batch.hasRemaining())
+				return;
+
+			handOff(batch.flip());
+			batch = newBatch();
+		}
+
+		/**
+		 * Accounts for written framed records and gathers entries for
+		 * those of them that are due to be indexed.
+		 *
+		 * @param framed an array of written headers and payloads, in
+		 *	turn
+		 * @param start the position of the first written header
+		 * @throws IOException if writing a batch of entries has failed
+		 *	since the last call (the written records are accounted
+		 *	for all the same)
+		 * @throws IllegalStateException if the index is not recovered
+		 * @see RecordFormat.Framer#frame(ByteBuffer[])
+		 */
+		public void written(ByteBuffer[] framed, long start)
+							throws IOException
+		{
+			if (index == null)
+				throw new IllegalStateException("Not recovered");
+
+			final RecordFormat format = recordIndex.format;
+			final int timestampOffset = RecordFormat.LENGTH_BYTES
+				+ ((format.sequenced()) ? Long.BYTES : 0);
+			long offset = start;
+
+			for (int i = 0; i < framed.length; i += 2) {
+				if ((records++ % recordIndex.interval) == 0L)
+					add(records, (format.timestamped())
+						? framed[i].getLong(
+							timestampOffset)
+						: 0L,
+						offset);
+
+				offset += format.headerBytes()
+						+ framed[i].getInt(0);
+			}
+
+			rethrow();
+		}
+
+		/**
+		 * Writes gathered entries and closes the index.
+		 *
+		 * @throws IOException if an I/O error occurs
+		 */
+		@Override
+		public void close() throws IOException
+		{
+			if (index == null)
+				return;
+
+			final FileChannel channel = index;
+
+			try {
+				drain();
+			} finally {
+				index = null;
+				channel.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,267 @@
+package org.zzzyxwvut.readywriter.service;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Objects;
+
+/**
+ * This class reads framed records (see {@link RecordFormat}) from
+ * a channel, one record at a time.
+ * <p>
+ * Headers are read through a buffer of {@value #BUFFER_BYTES} bytes; and
+ * a payload that is not asked for, with {@link #payload()}, is skipped when
+ * advancing to the next record, by repositioning a seekable channel or by
+ * dropping buffered bytes, without being decoded or copied. A trailing
+ * incomplete header, e.g. of a torn write, ends the records.
+ * <p>
+ * (A reader is not safe for use by multiple concurrent threads.)
+ */
+public final class RecordReader implements Closeable
+{
+	/** The length of the buffer of headers, in bytes. */
+	public static final int BUFFER_BYTES = 1 << 16;
+
+	private final ReadableByteChannel channel;
+	private final RecordFormat format;
+	private final ByteBuffer input;
+	private ByteBuffer payload = ByteBuffer.allocate(0);
+	private long inputEnd;		/* The channel position of input. */
+	private long position = -1L;
+	private long sequence;
+	private long timestamp;
+	private int length = -1;
+	private boolean payloadRead;
+	private boolean ended;
+
+	/**
+	 * Constructs a new {@code RecordReader} object. Records are read from
+	 * the current position of a seekable channel, and from the start of
+	 * any other channel.
+	 *
+	 * @param channel a channel to read from
+	 * @param format the format of records
+	 * @param byteOrder the byte order of a header
+	 * @throws UncheckedIOException if an I/O error occurs
+	 */
+	public RecordReader(ReadableByteChannel channel, RecordFormat format,
+						ByteOrder byteOrder)
+	{
+		this.channel = Objects.requireNonNull(channel, "channel");
+		this.format = Objects.requireNonNull(format, "format");
+		input = ByteBuffer.allocate(BUFFER_BYTES)
+			.order(Objects.requireNonNull(byteOrder, "byteOrder"))
+			.flip();
+
+		try {
+			inputEnd = (channel instanceof SeekableByteChannel)
+				? ((SeekableByteChannel) channel).position()
+				: 0L;
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private long offset()	{ return inputEnd - input.remaining(); }
+
+	/* Buffers at least the passed number of bytes, unless at the end. */
+	private boolean fill(int count) throws IOException
+	{
+		if (input.remaining() >= count)
+			return true;
+
+		input.compact();
+
+		try {
+			int read;
+
+			while (input.position() < count
+					&& (read = channel.read(input)) >= 0)
+				inputEnd += read;
+		} finally {
+			input.flip();
+		}
+
+		return input.remaining() >= count;
+	}
+
+	/* Drops the passed number of bytes, unless at the end. */
+	private boolean skip(long count) throws IOException
+	{
+		if (count <= input.remaining()) {
+			input.position(input.position() + (int) count);
+			return true;
+		}
+
+		long beyond = count - input.remaining();
+		input.position(input.limit());
+
+		if (channel instanceof SeekableByteChannel) {
+			final SeekableByteChannel seekable =
+					(SeekableByteChannel) channel;
+
+			if (inputEnd + beyond > seekable.size())
+				return false;
+
+			seekable.position(inputEnd + beyond);
+			inputEnd += beyond;
+			return true;
+		}
+
+		while (beyond > 0L) {
+			if (!fill(1))
+				return false;
+
+			final int dropped = (int) Math.min(beyond,
+						input.remaining());
+			input.position(input.position() + dropped);
+			beyond -= dropped;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Advances to the next record, skipping the payload of the current
+	 * record, if not read.
+	 *
+	 * @return whether there is a next record
+	 * @throws IOException if an I/O error occurs
+	 */
+	public boolean next() throws IOException
+	{
+		if (ended)
+			return false;
+
+		if (length >= 0 && !payloadRead && !skip(length)) {
+			ended = true;
+			return false;
+		}
+
+		if (!fill(format.headerBytes())) {
+			ended = true;
+			return false;
+		}
+
+		position = offset();
+		length = input.getInt();
+		sequence = (format.sequenced()) ? input.getLong() : 0L;
+		timestamp = (format.timestamped()) ? input.getLong() : 0L;
+		payloadRead = false;
+
+		if (length < 0) {
+			ended = true;
+			return false;
+		}
+
+		return true;
+	}
+
+	private void requireRecord()
+	{
+		if (length < 0 || ended)
+			throw new IllegalStateException("No record");
+	}
+
+	/**
+	 * Returns the channel position of the header of the current record.
+	 *
+	 * @return the channel position of the header of the current record
+	 * @throws IllegalStateException if there is no current record
+	 */
+	public long position()
+	{
+		requireRecord();
+		return position;
+	}
+
+	/**
+	 * Returns the length of the payload of the current record.
+	 *
+	 * @return the length of the payload of the current record, in bytes
+	 * @throws IllegalStateException if there is no current record
+	 */
+	public int length()
+	{
+		requireRecord();
+		return length;
+	}
+
+	/**
+	 * Returns the sequence number of the current record.
+	 *
+	 * @return the sequence number of the current record, or {@code 0L}
+	 *	if records have no sequence numbers
+	 * @throws IllegalStateException if there is no current record
+	 */
+	public long sequence()
+	{
+		requireRecord();
+		return sequence;
+	}
+
+	/**
+	 * Returns the timestamp of the current record.
+	 *
+	 * @return the timestamp of the current record, in milliseconds since
+	 *	the epoch, or {@code 0L} if records have no timestamps
+	 * @throws IllegalStateException if there is no current record
+	 */
+	public long timestamp()
+	{
+		requireRecord();
+		return timestamp;
+	}
+
+	/**
+	 * Reads the payload of the current record. The returned buffer is
+	 * reused for the payloads of the following records.
+	 *
+	 * @return a read-only buffer of the payload of the current record
+	 * @throws EOFException if the payload is incomplete
+	 * @throws IOException if an I/O error occurs
+	 * @throws IllegalStateException if there is no current record
+	 */
+	public ByteBuffer payload() throws IOException
+	{
+		requireRecord();
+
+		if (payloadRead)
+			return payload.asReadOnlyBuffer();
+
+		if (payload.capacity() < length)
+			payload = ByteBuffer.allocate(Math.max(length,
+						payload.capacity() << 1));
+
+		payload.clear().limit(length);
+		final int buffered = Math.min(input.remaining(), length);
+		final ByteBuffer slice = input.slice();
+		slice.limit(buffered);
+		payload.put(slice);
+		input.position(input.position() + buffered);
+
+		while (payload.hasRemaining()) {
+			final int read = channel.read(payload);
+
+			if (read < 0) {
+				ended = true;
+				throw new EOFException();
+			}
+
+			inputEnd += read;
+		}
+
+		payloadRead = true;
+		payload.flip();
+		return payload.asReadOnlyBuffer();
+	}
+
+	/** Closes the channel. */
+	@Override
+	public void close() throws IOException	{ channel.close(); }
+}
@@ -0,0 +1,137 @@
+package org.zzzyxwvut.readywriter.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+import org.zzzyxwvut.readywriter.support.ByteBuffers;
+
+/**
+ * This class merges the shards of a path (see
+ * {@link PathWriterVisitor.Sharding}) back in the order of writing.
+ * <p>
+ * Every shard is read with a {@link RecordReader}, and the shard with
+ * the least sequence number of its current record is taken next from
+ * a priority queue; so every record is read once and is copied once.
+ * A shard ends with its last complete record: a record whose length
+ * reaches beyond the size of a shard, e.g. of a torn write, or a header
+ * with a zero sequence number, e.g. of a zero-filled region, is not taken
+ * for a record.
+ */
+public final class ShardMerger
+{
+	private static final RecordFormat FORMAT =
+				PathWriterVisitor.Sharding.RECORD_FORMAT;
+
+	private ShardMerger() { /* No instantiation. */ }
+
+	/**
+	 * Writes the records of all shards of the passed path to
+	 * a channel, in the order of their sequence numbers and
+	 * without their headers. Missing shards are skipped.
+	 *
+	 * @param path the path to a file
+	 * @param shards the number of shards
+	 * @param byteOrder the byte order of a file
+	 * @param channel a channel to write to
+	 * @return the number of written records
+	 * @throws IOException if an I/O error occurs
+	 * @throws IllegalArgumentException if {@code shards} is less
+	 *	than {@code 1} or the path has no file name
+	 */
+	public static long merge(Path path, int shards, ByteOrder byteOrder,
+					WritableByteChannel channel)
+						throws IOException
+	{
+		Objects.requireNonNull(byteOrder, "byteOrder");
+		Objects.requireNonNull(channel, "channel");
+
+		if (shards < 1)
+			throw new IllegalArgumentException(
+					"shards < 1: " + shards);
+
+		final List<Cursor> cursors = new ArrayList<>(shards);
+		final PriorityQueue<Cursor> queue = new PriorityQueue<>(shards,
+				Comparator.comparingLong(Cursor::sequence));
+		long records = 0L;
+
+		try {
+			for (int i = 0; i < shards; ++i) {
+				final Path shardPath = PathWriterVisitor.Sharding
+					.shardPath(path, i);
+
+				if (!Files.exists(shardPath))
+					continue;
+
+				final Cursor cursor = new Cursor(FileChannel.open(
+						shardPath, StandardOpenOption.READ),
+								byteOrder);
+				cursors.add(cursor);
+
+				if (cursor.advance())
+					queue.add(cursor);
+			}
+
+			Cursor cursor;
+
+			while ((cursor = queue.poll()) != null) {
+				ByteBuffers.writeFully(channel, cursor.record());
+				++records;
+
+				if (cursor.advance())
+					queue.add(cursor);
+			}
+		} finally {
+			for (final Cursor cursor : cursors)
+				cursor.close();
+		}
+
+		return records;
+	}
+
+	/** A reader of the complete records of a shard. */
+	private static final class Cursor
+	{
+		private final RecordReader reader;
+		private final long size;
+
+		Cursor(FileChannel channel, ByteOrder byteOrder)
+							throws IOException
+		{
+			try {
+				size = channel.size();
+				reader = FORMAT.reader(channel, byteOrder);
+			} catch (final IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+		}
+
+		long sequence()			{ return reader.sequence(); }
+
+		ByteBuffer record() throws IOException
+		{
+			return reader.payload();
+		}
+
+		/* Advances to the next complete record, if any. */
+		boolean advance() throws IOException
+		{
+			return reader.next() && reader.sequence() != 0L
+				&& reader.length() <= size - reader.position()
+						- FORMAT.headerBytes();
+		}
+
+		void close() throws IOException	{ reader.close(); }
+	}
+}
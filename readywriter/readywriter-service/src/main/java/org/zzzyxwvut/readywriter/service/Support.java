@@ -30,6 +30,17 @@ class Support
 		.apply(new LoggerRef(Support.class))
 		.apply(Level.FINE);
 
+	/**
+	 * A functional interface that takes a throwable and returns
+	 * a functional interface that takes a message and, as a side effect,
+	 * logs the message and the throwable at {@code Level.WARNING}, using
+	 * a logger bound to this class, and does not return a value.
+	 */
+	static final Function<Throwable, Consumer<Supplier<String>>> WARNER =
+							LoggerRef.errorLogger()
+		.apply(new LoggerRef(Support.class))
+		.apply(Level.WARNING);
+
 	/**
 	 * Returns a functional interface that takes an object and
 	 * returns a functional interface that takes an object and
@@ -0,0 +1,101 @@
+package org.zzzyxwvut.readywriter.support;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Objects;
+
+/** This class consists of static methods that operate on byte buffers. */
+public final class ByteBuffers
+{
+	private ByteBuffers() { /* No instantiation. */ }
+
+	/**
+	 * Encodes messages into byte buffers, one buffer per message.
+	 *
+	 * @param messages messages to encode
+	 * @param charset the character set of messages
+	 * @return an array of byte buffers
+	 */
+	public static ByteBuffer[] encodeAll(
+				List<? extends CharSequence> messages,
+				Charset charset)
+	{
+		Objects.requireNonNull(messages, "messages");
+		Objects.requireNonNull(charset, "charset");
+		final ByteBuffer[] buffers = new ByteBuffer[messages.size()];
+		int i = 0;
+
+		for (final CharSequence message : messages)
+			buffers[i++] = ByteBuffer.wrap(Objects.requireNonNull(
+							message, "message")
+						.toString()
+						.getBytes(charset));
+
+		return buffers;
+	}
+
+	/**
+	 * Writes the remaining bytes of a byte buffer to a channel, repeating
+	 * writes for as long as the channel accepts some bytes.
+	 *
+	 * @param channel a channel
+	 * @param buffer a byte buffer to write
+	 * @return the number of written bytes
+	 * @throws IOException if an I/O error occurs
+	 */
+	public static long writeFully(WritableByteChannel channel,
+					ByteBuffer buffer) throws IOException
+	{
+		Objects.requireNonNull(channel, "channel");
+		Objects.requireNonNull(buffer, "buffer");
+		long total = 0L;
+		int count;
+
+		while (buffer.hasRemaining()
+				&& (count = channel.write(buffer)) > 0)
+			total += count;
+
+		return total;
+	}
+
+	/**
+	 * Writes the remaining bytes of byte buffers to a channel, repeating
+	 * gathering writes for as long as the channel accepts some bytes.
+	 * <p>
+	 * (Gathering writes of some channels are limited to a number of
+	 * buffers, e.g. {@code IOV_MAX}, see {@code writev}(2).)
+	 *
+	 * @param channel a gathering channel
+	 * @param buffers byte buffers to write
+	 * @return the number of written bytes
+	 * @throws IOException if an I/O error occurs
+	 */
+	public static long writeFully(GatheringByteChannel channel,
+					ByteBuffer[] buffers) throws IOException
+	{
+		Objects.requireNonNull(channel, "channel");
+		Objects.requireNonNull(buffers, "buffers");
+		long total = 0L;
+		long count;
+		int offset = 0;
+
+		do {
+			while (offset < buffers.length
+					&& !buffers[offset].hasRemaining())
+				++offset;
+
+			if (offset == buffers.length)
+				break;
+
+			count = channel.write(buffers, offset,
+						buffers.length - offset);
+			total += count;
+		} while (count > 0L);
+
+		return total;
+	}
+}
@@ -0,0 +1,176 @@
+package org.zzzyxwvut.readywriter.support;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class keeps track of messages that are written without forcing and
+ * tells when to force them: after so many messages, after so many bytes, or
+ * no later than some time after they are written, whichever comes first.
+ * <p>
+ * A writer shall account for its written messages, with
+ * {@link #written(long, long, Object)}, while its changes are guarded; and,
+ * when forcing is due, it shall take a ticket for the target of the messages
+ * then and force the changes with it after the guard is released (see
+ * {@link GroupCommitter}).
+ * <p>
+ * With a delay of forcing, a force is scheduled once unforced messages are
+ * written, and it is run, with the target of the latest written messages,
+ * by a daemon thread of a scheduler that is shared among trackers; so
+ * a tracker, its committer and its target are only referenced by the
+ * scheduler while a force is pending. Scheduled forces are run by as many
+ * threads as there are available processors, and a force that takes longer
+ * than a delay holds up others in the meantime. A failure of such a force
+ * is rethrown by the next call of {@link #written(long, long, Object)}.
+ *
+ * @param <T> the type of a target of forcing
+ */
+public final class DurabilityTracker<T> implements AutoCloseable
+{
+	private static final ScheduledThreadPoolExecutor SCHEDULER =
+						newScheduler();
+
+	private final AtomicLong messages = new AtomicLong();
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private final AtomicReference<IOException> failure =
+						new AtomicReference<>();
+	private final long maxMessages;
+	private final long maxBytes;
+	private final long maxDelayNanos;
+	private final GroupCommitter<T> committer;
+	private volatile ScheduledFuture<?> task;
+	private volatile T latest;
+	private volatile boolean closed;
+
+	/**
+	 * Constructs a new {@code DurabilityTracker} object.
+	 *
+	 * @param maxMessages the number of unforced messages that triggers
+	 *	forcing
+	 * @param maxBytes the number of unforced bytes that triggers forcing
+	 * @param maxDelay the delay of forcing unforced messages, or
+	 *	{@code null} for no limit
+	 * @param committer a group committer of a writer
+	 */
+	public DurabilityTracker(long maxMessages, long maxBytes,
+				Duration maxDelay, GroupCommitter<T> committer)
+	{
+		this.maxMessages = maxMessages;
+		this.maxBytes = maxBytes;
+		maxDelayNanos = (maxDelay == null)
+			? 0L
+			: maxDelay.toNanos();
+		this.committer = Objects.requireNonNull(committer, "committer");
+	}
+
+	private static ScheduledThreadPoolExecutor newScheduler()
+	{
+		final AtomicInteger counter = new AtomicInteger();
+		final ScheduledThreadPoolExecutor scheduler =
+				new ScheduledThreadPoolExecutor(
+					Runtime.getRuntime()
+						.availableProcessors(),
+					runnable -> {
+			final Thread thread = new Thread(runnable,
+					"jrw-durability-scheduler-"
+						+ counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.setRemoveOnCancelPolicy(true);
+		return scheduler;
+	}
+
+	private void schedule()
+	{
+		if (maxDelayNanos == 0L || !scheduled.compareAndSet(false,
+									true))
+			return;
+
+		task = SCHEDULER.schedule(this::forceScheduled,
+						maxDelayNanos,
+						TimeUnit.NANOSECONDS);
+
+		if (closed)
+			task.cancel(false);
+	}
+
+	private void forceScheduled()
+	{
+		scheduled.set(false);
+		final T target = latest;
+
+		if (closed || target == null
+				|| (messages.get() == 0L && bytes.get() == 0L))
+			return;
+
+		messages.set(0L);
+		bytes.set(0L);
+
+		try {
+			committer.force(committer.ticket(target));
+		} catch (final IOException e) {
+			if (!closed)
+				failure.compareAndSet(null, e);
+		}
+	}
+
+	/**
+	 * Accounts for written messages and tells whether to force them, as
+	 * the policy requires.
+	 * <p>
+	 * (Concurrent callers may observe a count in excess of its limit
+	 * before it is reset, and then more than one of them is told to
+	 * force.)
+	 *
+	 * @param count the number of written messages
+	 * @param length the number of written bytes
+	 * @param target the target of written messages
+	 * @return whether forcing of written changes is due
+	 * @throws IOException if a scheduled force has failed since the last
+	 *	call
+	 */
+	public boolean written(long count, long length, T target)
+							throws IOException
+	{
+		final IOException e = failure.getAndSet(null);
+
+		if (e != null)
+			throw e;
+
+		latest = target;
+
+		final long unforcedMessages = messages.addAndGet(count);
+		final long unforcedBytes = bytes.addAndGet(length);
+
+		if (unforcedMessages < maxMessages
+				&& unforcedBytes < maxBytes) {
+			schedule();
+			return false;
+		}
+
+		messages.set(0L);
+		bytes.set(0L);
+		return true;
+	}
+
+	/** Cancels scheduled forcing, if any. */
+	@Override
+	public void close()
+	{
+		closed = true;
+		final ScheduledFuture<?> currentTask = task;
+
+		if (currentTask != null)
+			currentTask.cancel(false);
+	}
+}
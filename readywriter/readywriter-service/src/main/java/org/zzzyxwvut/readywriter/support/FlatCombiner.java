@@ -0,0 +1,225 @@
+package org.zzzyxwvut.readywriter.support;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class combines concurrent writes into gathering writes, so that
+ * a single thread, the combiner, writes the buffers of every writer that has
+ * published them in the meantime.
+ * <p>
+ * A writer shall publish its buffers to a free slot of a lock-free array and
+ * either take the role of the combiner or wait until some combiner has written
+ * its buffers, with {@link #combine(ByteBuffer[])}. The combiner collects
+ * the buffers of all published writers, writes them with a single gathering
+ * write (see {@link Gatherer}), and wakes up their writers; the buffers of
+ * a writer are written in order, but the order among writers is arbitrary.
+ * Upon relinquishing the role, the combiner wakes up a writer that has
+ * published its buffers in the meantime, if any, to take the role in turn.
+ * A writer that finds no free slot takes the role of the combiner as soon as
+ * it can.
+ */
+public final class FlatCombiner
+{
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private final AtomicBoolean combining = new AtomicBoolean();
+	private final AtomicReferenceArray<Request> slots;
+	private final Gatherer gatherer;
+
+	/**
+	 * Constructs a new {@code FlatCombiner} object.
+	 *
+	 * @param capacity the number of slots, which also limits the number
+	 *	of writers that are combined in a single gathering write
+	 * @param gatherer a gatherer of buffers
+	 * @throws IllegalArgumentException if the capacity is less than 1
+	 */
+	public FlatCombiner(int capacity, Gatherer gatherer)
+	{
+		if (capacity < 1)
+			throw new IllegalArgumentException(String.format(
+					"Capacity: %d", capacity));
+
+		slots = new AtomicReferenceArray<>(capacity);
+		this.gatherer = Objects.requireNonNull(gatherer, "gatherer");
+	}
+
+	/**
+	 * Constructs a new {@code FlatCombiner} object. It is set to use
+	 * 64 slots.
+	 *
+	 * @param gatherer a gatherer of buffers
+	 */
+	public FlatCombiner(Gatherer gatherer)
+	{
+		this(64, gatherer);
+	}
+
+	/**
+	 * Writes the remaining bytes of buffers, combining them with those of
+	 * concurrent writers, and waits until they are written.
+	 * <p>
+	 * (A failed gathering write fails every combined writer.)
+	 *
+	 * @param buffers byte buffers to write
+	 * @return the number of written bytes of the passed buffers
+	 * @throws IOException if an I/O error occurs
+	 */
+	public long combine(ByteBuffer[] buffers) throws IOException
+	{
+		final Request request = new Request(Objects.requireNonNull(
+							buffers, "buffers"));
+		boolean published = publish(request);
+
+		while (!request.done) {
+			if (combining.compareAndSet(false, true)) {
+				try {
+					combine((published) ? null : request);
+				} finally {
+					combining.set(false);
+					handOff();
+				}
+			} else if (!published) {
+				published = publish(request);
+				Thread.onSpinWait();
+			} else if (combining.get()) {
+				LockSupport.park(this);
+			}
+		}
+
+		return request.result();
+	}
+
+	private boolean publish(Request request)
+	{
+		final int length = slots.length();
+		final int start = Math.floorMod(Long.hashCode(
+				Thread.currentThread().getId() * GOLDEN_GAMMA),
+								length);
+
+		for (int i = 0; i < length; ++i)
+			if (slots.compareAndSet((start + i) % length, null,
+								request))
+				return true;
+
+		return false;
+	}
+
+	/*
+	 * Wakes up a published writer, lest it wait for a combiner that has
+	 * missed its slot.
+	 */
+	private void handOff()
+	{
+		for (int i = 0; i < slots.length(); ++i) {
+			final Request request = slots.get(i);
+
+			if (request != null) {
+				LockSupport.unpark(request.thread);
+				return;
+			}
+		}
+	}
+
+	private void combine(Request own)
+	{
+		final Request[] requests = new Request[slots.length() + 1];
+		int count = 0;
+		int length = 0;
+
+		if (own != null) {
+			requests[count++] = own;
+			length += own.buffers.length;
+		}
+
+		for (int i = 0; i < slots.length(); ++i) {
+			if (slots.get(i) == null)
+				continue;
+
+			final Request request = slots.getAndSet(i, null);
+
+			if (request != null) {
+				requests[count++] = request;
+				length += request.buffers.length;
+			}
+		}
+
+		final ByteBuffer[] buffers = new ByteBuffer[length];
+		final long[] remaining = new long[count];
+
+		for (int i = 0, j = 0; i < count; ++i) {
+			for (final ByteBuffer buffer : requests[i].buffers) {
+				remaining[i] += buffer.remaining();
+				buffers[j++] = buffer;
+			}
+		}
+
+		Throwable failure = null;
+
+		try {
+			gatherer.write(buffers);
+		} catch (final IOException | RuntimeException | Error e) {
+			failure = e;
+		}
+
+		for (int i = 0; i < count; ++i) {
+			final Request request = requests[i];
+			long left = 0L;
+
+			for (final ByteBuffer buffer : request.buffers)
+				left += buffer.remaining();
+
+			request.written = remaining[i] - left;
+			request.failure = failure;
+			request.done = true;
+
+			if (request != own)
+				LockSupport.unpark(request.thread);
+		}
+	}
+
+	/** A gatherer of buffers. */
+	@FunctionalInterface
+	public interface Gatherer
+	{
+		/**
+		 * Writes the remaining bytes of byte buffers.
+		 *
+		 * @param buffers byte buffers to write
+		 * @return the number of written bytes
+		 * @throws IOException if an I/O error occurs
+		 */
+		long write(ByteBuffer[] buffers) throws IOException;
+	}
+
+	/** The buffers of a published writer. */
+	private static final class Request
+	{
+		private final Thread thread = Thread.currentThread();
+		private final ByteBuffer[] buffers;
+		private long written;
+		private Throwable failure;
+		private volatile boolean done;
+
+		Request(ByteBuffer[] buffers)	{ this.buffers = buffers; }
+
+		long result() throws IOException
+		{
+			if (failure instanceof IOException)
+				throw (IOException) failure;
+
+			if (failure instanceof RuntimeException)
+				throw (RuntimeException) failure;
+
+			if (failure instanceof Error)
+				throw (Error) failure;
+
+			return written;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package org.zzzyxwvut.readywriter.support;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class coordinates forcing of written changes to the storage device
+ * among concurrent writers, so that a single force covers the changes of
+ * every writer that has asked for it in the meantime.
+ * <p>
+ * A writer shall take a ticket, with {@link #ticket(Object)}, for the target
+ * of its changes, e.g. a channel, while its changes are guarded, and then
+ * wait, with {@link #force(long)}, until the ticket is covered. The first
+ * waiting writer forces the target of the latest ticket on behalf of all
+ * writers whose tickets are taken by then; writers that arrive while a force
+ * is under way join the next one. (A writer that lets go of a target, e.g.
+ * closes a channel, shall force its unforced changes then, since a later
+ * force of it may find it unusable.)
+ * <p>
+ * (Waiting writers park on a {@link Condition} rather than an object
+ * monitor, so that virtual threads do not pin their carrier threads.)
+ *
+ * @param <T> the type of a target of forcing
+ */
+public final class GroupCommitter<T>
+{
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition covered = lock.newCondition();
+	private final Forcer<T> forcer;
+	private T latest;
+	private long tickets;
+	private long forced;
+	private boolean forcing;
+
+	/**
+	 * Constructs a new {@code GroupCommitter} object.
+	 *
+	 * @param forcer a forcer of written changes to the storage device
+	 */
+	public GroupCommitter(Forcer<T> forcer)
+	{
+		this.forcer = Objects.requireNonNull(forcer, "forcer");
+	}
+
+	/**
+	 * Returns a ticket for changes written so far to the passed target.
+	 *
+	 * @param target a target of written changes
+	 * @return a ticket for changes written so far
+	 */
+	public long ticket(T target)
+	{
+		lock.lock();
+
+		try {
+			latest = target;
+			return ++tickets;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns whether a taken ticket is not yet covered.
+	 *
+	 * @return whether a taken ticket is not yet covered
+	 */
+	public boolean pending()
+	{
+		lock.lock();
+
+		try {
+			return (forced < tickets);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits until the changes covered by the passed ticket are forced to
+	 * the storage device, forcing them when no other writer does.
+	 * <p>
+	 * (A failed force is attempted anew by the next waiting writer.)
+	 *
+	 * @param ticket a ticket for written changes
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void force(long ticket) throws IOException
+	{
+		while (true) {
+			final long covering;
+			final T target;
+
+			lock.lock();
+
+			try {
+				while (forcing && forced < ticket)
+					covered.awaitUninterruptibly();
+
+				if (forced >= ticket)
+					return;
+
+				forcing = true;
+				covering = tickets;
+				target = latest;
+			} finally {
+				lock.unlock();
+			}
+
+			boolean done = false;
+
+			try {
+				forcer.force(target);
+				done = true;
+			} finally {
+				lock.lock();
+
+				try {
+					forcing = false;
+
+					if (done && covering > forced)
+						forced = covering;
+
+					covered.signalAll();
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * A forcer of written changes to the storage device.
+	 *
+	 * @param <T> the type of a target of forcing
+	 */
+	@FunctionalInterface
+	public interface Forcer<T>
+	{
+		/**
+		 * Forces written changes of the passed target to the storage
+		 * device.
+		 *
+		 * @param target a target of written changes
+		 * @throws IOException if an I/O error occurs
+		 */
+		void force(T target) throws IOException;
+	}
+}
@@ -0,0 +1,208 @@
+package org.zzzyxwvut.readywriter.support;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.zzzyxwvut.readywriter.management.LatencySnapshot;
+import org.zzzyxwvut.readywriter.management.WriterStatisticsMXBean;
+
+/**
+ * A recorder of statistics that registers itself with the platform MBean
+ * server on first use. A registered instance is only reachable from
+ * the MBean server; so it is unregistered by a cleaner when its owner is
+ * no longer reachable.
+ */
+final class ManagedWriterMetrics implements WriterMetrics,
+						WriterStatisticsMXBean
+{
+	static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+	private static final AtomicLong IDS = new AtomicLong();
+	private static final Cleaner CLEANER = Cleaner.create();
+
+	private final String name;
+	private final String target;
+	private final ObjectName objectName;
+	private final Cleaner.Cleanable cleanable;
+	private final LongAdder writtenBytes = new LongAdder();
+	private final LongAdder discardedBytes = new LongAdder();
+	private final Histogram writes = new Histogram();
+	private final Histogram monitorWaits = new Histogram();
+	private final Histogram fileLockWaits = new Histogram();
+	private final Histogram forces = new Histogram();
+	private volatile boolean registered;
+	private boolean closed;
+
+	ManagedWriterMetrics(Object owner, String name, String target)
+	{
+		this.name = name;
+		this.target = target;
+
+		try {
+			objectName = new ObjectName(String.format(
+				"org.zzzyxwvut.readywriter:type=WriterStatistics,"
+						+ "name=%s,target=%s,id=%d",
+					ObjectName.quote(name),
+					ObjectName.quote(target),
+					IDS.incrementAndGet()));
+		} catch (final JMException e) {
+			throw new IllegalArgumentException(e);
+		}
+
+		cleanable = CLEANER.register(owner, this::unregister);
+	}
+
+	private void register()
+	{
+		synchronized (this) {
+			if (registered || closed)
+				return;
+
+			try {
+				ManagementFactory.getPlatformMBeanServer()
+					.registerMBean(this, objectName);
+			} catch (final JMException e) {
+				throw new IllegalStateException(e);
+			}
+
+			registered = true;
+		}
+	}
+
+	/**
+	 * Returns the object name of this instance.
+	 *
+	 * @return the object name of this instance
+	 */
+	ObjectName objectName()			{ return objectName; }
+
+	@Override
+	public boolean enabled()		{ return true; }
+
+	@Override
+	public long clock()
+	{
+		if (!registered)
+			register();
+
+		return System.nanoTime();
+	}
+
+	@Override
+	public void monitorEntered(long since)
+	{
+		monitorWaits.record(System.nanoTime() - since);
+	}
+
+	@Override
+	public void fileLocked(long since)
+	{
+		fileLockWaits.record(System.nanoTime() - since);
+	}
+
+	@Override
+	public void written(long bytes, long since)
+	{
+		writtenBytes.add(bytes);
+		writes.record(System.nanoTime() - since);
+	}
+
+	@Override
+	public void discarded(long bytes)	{ discardedBytes.add(bytes); }
+
+	@Override
+	public void forced(long since)
+	{
+		forces.record(System.nanoTime() - since);
+	}
+
+	@Override
+	public void close()			{ cleanable.clean(); }
+
+	private void unregister()
+	{
+		synchronized (this) {
+			closed = true;
+
+			if (!registered)
+				return;
+
+			registered = false;
+
+			try {
+				ManagementFactory.getPlatformMBeanServer()
+					.unregisterMBean(objectName);
+			} catch (final JMException ignored) {
+				/* Unregistered by someone else. */
+			}
+		}
+	}
+
+	@Override
+	public String getName()			{ return name; }
+
+	@Override
+	public String getTarget()		{ return target; }
+
+	@Override
+	public long getWrittenBytes()		{ return writtenBytes.sum(); }
+
+	@Override
+	public long getDiscardedBytes()		{ return discardedBytes.sum(); }
+
+	@Override
+	public LatencySnapshot getWriteLatency() { return writes.snapshot(); }
+
+	@Override
+	public LatencySnapshot getMonitorWaitLatency()
+	{
+		return monitorWaits.snapshot();
+	}
+
+	@Override
+	public LatencySnapshot getFileLockWaitLatency()
+	{
+		return fileLockWaits.snapshot();
+	}
+
+	@Override
+	public LatencySnapshot getForceLatency() { return forces.snapshot(); }
+
+	/** A histogram of latencies with buckets of powers of two. */
+	private static final class Histogram
+	{
+		private final AtomicLongArray buckets = new AtomicLongArray(
+								Long.SIZE);
+		private final LongAdder totalNanos = new LongAdder();
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		void record(long nanos)
+		{
+			final long latency = Math.max(0L, nanos);
+			buckets.getAndIncrement(Math.min(Long.SIZE - 1,
+				Long.SIZE - Long.numberOfLeadingZeros(
+								latency)));
+			totalNanos.add(latency);
+
+			if (latency > maxNanos.get())
+				maxNanos.accumulateAndGet(latency, Math::max);
+		}
+
+		LatencySnapshot snapshot()
+		{
+			final long[] counts = new long[buckets.length()];
+
+			for (int i = 0; i < counts.length; ++i)
+				counts[i] = buckets.get(i);
+
+			return new LatencySnapshot(counts, totalNanos.sum(),
+							maxNanos.get());
+		}
+	}
+}
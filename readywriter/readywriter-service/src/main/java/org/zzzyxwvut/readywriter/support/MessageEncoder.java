@@ -0,0 +1,263 @@
+package org.zzzyxwvut.readywriter.support;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class encodes character sequences into a reusable direct byte buffer.
+ * <p>
+ * Sequences of characters that are all less than {@code U+0080}, for
+ * the US-ASCII and UTF-8 character sets, or less than {@code U+0100}, for
+ * the ISO-8859-1 character set, are copied byte for byte; other sequences
+ * are encoded with a cached encoder that replaces malformed input and
+ * unmappable characters as does {@link String#getBytes(Charset)}.
+ * <p>
+ * Instances of this class are not safe for use by multiple threads, and
+ * they shall not allocate memory for any subsequent message that fits in
+ * the buffer grown for some previous message, unless the buffer has grown
+ * beyond {@value #RETAINED_CAPACITY} bytes: such a buffer is dropped on
+ * the next call. Writers shall share the pooled encoders of a character
+ * set (see {@link #pool(Charset)}).
+ */
+public final class MessageEncoder
+{
+	private static final int CHUNK_LENGTH = 512;
+	private static final int RETAINED_CAPACITY = 1 << 20;
+	private static final ConcurrentMap<Charset, Pool> POOLS =
+						new ConcurrentHashMap<>();
+
+	private final CharsetEncoder encoder;
+	private final CharBuffer chars = CharBuffer.allocate(CHUNK_LENGTH);
+	private final byte[] scratch = new byte[CHUNK_LENGTH];
+	private final int initialCapacity;
+	private final char bound;
+	private ByteBuffer bytes;
+
+	/**
+	 * Constructs a new {@code MessageEncoder} object.
+	 *
+	 * @param charset the character set of messages
+	 * @param initialCapacity the initial capacity of a buffer
+	 * @throws IllegalArgumentException if the initial capacity is less
+	 *	than 1
+	 */
+	public MessageEncoder(Charset charset, int initialCapacity)
+	{
+		Objects.requireNonNull(charset, "charset");
+
+		if (initialCapacity < 1)
+			throw new IllegalArgumentException(String.format(
+					"Initial capacity: %d",
+					initialCapacity));
+
+		encoder = charset.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.initialCapacity = initialCapacity;
+		bound = (StandardCharsets.ISO_8859_1.equals(charset))
+			? '\u0100'
+			: (StandardCharsets.UTF_8.equals(charset)
+					|| StandardCharsets.US_ASCII.equals(
+								charset))
+				? '\u0080'
+				: '\u0000';
+		bytes = ByteBuffer.allocateDirect(initialCapacity);
+	}
+
+	/**
+	 * Constructs a new {@code MessageEncoder} object. It is set to use
+	 * the initial capacity of 8192 bytes.
+	 *
+	 * @param charset the character set of messages
+	 */
+	public MessageEncoder(Charset charset)
+	{
+		this(charset, 8192);
+	}
+
+	/**
+	 * Returns the pool of encoders for the passed character set, which is
+	 * shared by every writer that uses it.
+	 *
+	 * @param charset the character set of messages
+	 * @return the pool of encoders for the character set
+	 */
+	public static Pool pool(Charset charset)
+	{
+		return POOLS.computeIfAbsent(Objects.requireNonNull(charset,
+								"charset"),
+							Pool::new);
+	}
+
+	/**
+	 * Encodes a message.
+	 * <p>
+	 * The returned buffer is owned by this encoder and its content is only
+	 * valid until the next call of this method.
+	 *
+	 * @param message a message to encode
+	 * @return a buffer with the encoded message, flipped for reading
+	 */
+	public ByteBuffer encode(CharSequence message)
+	{
+		Objects.requireNonNull(message, "message");
+		final int length = message.length();
+
+		if (bytes.capacity() > RETAINED_CAPACITY)
+			bytes = ByteBuffer.allocateDirect(initialCapacity);
+
+		bytes.clear();
+
+		if (length <= bytes.capacity() && copy(message, length))
+			return bytes.flip();
+
+		bytes.clear();
+		return transcode(message, length);
+	}
+
+	private boolean copy(CharSequence message, int length)
+	{
+		for (int start = 0; start < length; start += scratch.length) {
+			final int end = Math.min(start + scratch.length, length);
+
+			for (int i = start; i < end; ++i) {
+				final char c = message.charAt(i);
+
+				if (c >= bound)
+					return false;
+
+				scratch[i - start] = (byte) c;
+			}
+
+			bytes.put(scratch, 0, end - start);
+		}
+
+		return true;
+	}
+
+	private ByteBuffer transcode(CharSequence message, int length)
+	{
+		encoder.reset();
+		chars.clear();
+		int start = 0;
+
+		while (true) {
+			final int end = Math.min(start + chars.remaining(),
+								length);
+
+			for (int i = start; i < end; ++i)
+				chars.put(message.charAt(i));
+
+			start = end;
+			chars.flip();
+			final boolean endOfInput = start == length;
+			CoderResult result;
+
+			while ((result = encoder.encode(chars, bytes,
+						endOfInput)).isOverflow())
+				grow(chars.remaining());
+
+			/* Keep any high surrogate for the next chunk. */
+			chars.compact();
+
+			if (endOfInput)
+				break;
+		}
+
+		while (encoder.flush(bytes).isOverflow())
+			grow(1);
+
+		return bytes.flip();
+	}
+
+	private void grow(int remaining)
+	{
+		final int needed = (int) Math.min(Integer.MAX_VALUE - 8L,
+				bytes.position() + (long) Math.ceil(
+					remaining
+					* (double) encoder.maxBytesPerChar()));
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(
+				needed,
+				(int) Math.min(Integer.MAX_VALUE - 8L,
+					bytes.capacity() * 2L)));
+		bytes.flip();
+		bytes = buffer.put(bytes);
+	}
+
+	/**
+	 * A bounded pool of idle encoders of a character set.
+	 * <p>
+	 * An encoder is acquired for a message and is released once its buffer
+	 * is written out, so that no thread holds on to an encoder between
+	 * writes. When no idle encoder is left, a new encoder is made; and
+	 * a released encoder is dropped when the pool is full.
+	 */
+	public static final class Pool
+	{
+		private static final int SIZE = Math.max(4,
+			2 * Runtime.getRuntime().availableProcessors());
+
+		private final Charset charset;
+		private final AtomicReferenceArray<MessageEncoder> idle =
+					new AtomicReferenceArray<>(SIZE);
+
+		private Pool(Charset charset)	{ this.charset = charset; }
+
+		/**
+		 * Takes an idle encoder, or makes a new encoder if there is
+		 * none.
+		 *
+		 * @return an encoder
+		 */
+		public MessageEncoder acquire()
+		{
+			final int start = ThreadLocalRandom.current()
+				.nextInt(SIZE);
+
+			for (int i = 0; i < SIZE; ++i) {
+				final int slot = (start + i) % SIZE;
+
+				if (idle.get(slot) == null)
+					continue;
+
+				final MessageEncoder encoder = idle.getAndSet(
+								slot, null);
+
+				if (encoder != null)
+					return encoder;
+			}
+
+			return new MessageEncoder(charset);
+		}
+
+		/**
+		 * Returns an encoder to this pool, unless the pool is full.
+		 * <p>
+		 * (The buffer of the encoder shall no longer be used.)
+		 *
+		 * @param encoder an encoder acquired from this pool
+		 */
+		public void release(MessageEncoder encoder)
+		{
+			Objects.requireNonNull(encoder, "encoder");
+			final int start = ThreadLocalRandom.current()
+				.nextInt(SIZE);
+
+			for (int i = 0; i < SIZE; ++i) {
+				if (idle.compareAndSet((start + i) % SIZE,
+							null, encoder))
+					return;
+			}
+		}
+	}
+}
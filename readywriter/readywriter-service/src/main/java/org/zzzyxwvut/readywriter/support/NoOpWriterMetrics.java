@@ -0,0 +1,41 @@
+package org.zzzyxwvut.readywriter.support;
+
+import java.util.Objects;
+
+/** A recorder of nothing. */
+enum NoOpWriterMetrics implements WriterMetrics
+{
+	/** The sole instance. */
+	INSTANCE;
+
+	@Override
+	public boolean enabled()		{ return false; }
+
+	@Override
+	public long clock()			{ return 0L; }
+
+	@Override
+	public void monitorEntered(long since)	{ /* NO-OP. */ }
+
+	@Override
+	public void fileLocked(long since)	{ /* NO-OP. */ }
+
+	@Override
+	public void written(long bytes, long since) { /* NO-OP. */ }
+
+	@Override
+	public void discarded(long bytes)	{ /* NO-OP. */ }
+
+	@Override
+	public void forced(long since)		{ /* NO-OP. */ }
+
+	@Override
+	public <T> GroupCommitter.Forcer<T> timed(
+					GroupCommitter.Forcer<T> forcer)
+	{
+		return Objects.requireNonNull(forcer, "forcer");
+	}
+
+	@Override
+	public void close()			{ /* NO-OP. */ }
+}
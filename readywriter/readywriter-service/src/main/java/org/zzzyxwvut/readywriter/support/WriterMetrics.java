@@ -0,0 +1,163 @@
+package org.zzzyxwvut.readywriter.support;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import org.zzzyxwvut.readywriter.annotation.Namable;
+import org.zzzyxwvut.readywriter.management.WriterStatisticsMXBean;
+
+/**
+ * This interface records the counts of written bytes and the latencies of
+ * writing, waiting on locks and forcing of a service provider.
+ * <p>
+ * Unless the {@code org.zzzyxwvut.readywriter.metrics} system property is
+ * set to {@code true} at start-up, or recording is requested for
+ * an instance, all instances are a shared NO-OP instance whose
+ * {@link #clock()} does not read the time. Otherwise, every instance is
+ * registered, on first use, as a {@link WriterStatisticsMXBean} with
+ * the platform MBean server and is unregistered when it is closed or when
+ * its owner, e.g. a service provider that is never closed, becomes phantom
+ * reachable.
+ * <p>
+ * A typical use is as follows:<pre><code>
+ *	final long since = metrics.clock();
+ *
+ *	synchronized (lock) {
+ *		metrics.monitorEntered(since);
+ *		final long written = write();
+ *		metrics.written(written, since);
+ *	}</code></pre>
+ */
+public interface WriterMetrics extends AutoCloseable
+{
+	/** The name of a system property that enables recording. */
+	String ENABLED_PROPERTY = "org.zzzyxwvut.readywriter.metrics";
+
+	/**
+	 * Returns a new instance for the passed owner, type of a service
+	 * provider and its target, if recording is enabled with the system
+	 * property; else a NO-OP instance.
+	 *
+	 * @param owner a service provider that uses an instance
+	 * @param type the type of a service provider, which may be annotated
+	 *	with {@link Namable}
+	 * @param target a path, a file descriptor number, etc.
+	 * @return an instance of this interface
+	 * @see #of(Object, Class, String, boolean)
+	 */
+	static WriterMetrics of(Object owner, Class<?> type, String target)
+	{
+		return of(owner, type, target, ManagedWriterMetrics.ENABLED);
+	}
+
+	/**
+	 * Returns a new instance for the passed owner, type of a service
+	 * provider and its target, if recording is enabled; else a NO-OP
+	 * instance.
+	 *
+	 * @param owner a service provider that uses an instance
+	 * @param type the type of a service provider, which may be annotated
+	 *	with {@link Namable}
+	 * @param target a path, a file descriptor number, etc.
+	 * @param enabled whether to record anything, regardless of the system
+	 *	property
+	 * @return an instance of this interface
+	 */
+	static WriterMetrics of(Object owner, Class<?> type, String target,
+							boolean enabled)
+	{
+		Objects.requireNonNull(owner, "owner");
+		Objects.requireNonNull(type, "type");
+		Objects.requireNonNull(target, "target");
+		return (enabled)
+			? new ManagedWriterMetrics(owner,
+					Optional.ofNullable(type.getAnnotation(
+							Namable.class))
+						.map(Namable::value)
+						.orElseGet(type::getName),
+							target)
+			: noOp();
+	}
+
+	/**
+	 * Returns a NO-OP instance.
+	 *
+	 * @return a NO-OP instance
+	 */
+	static WriterMetrics noOp()	{ return NoOpWriterMetrics.INSTANCE; }
+
+	/**
+	 * Returns whether this instance records anything.
+	 *
+	 * @return whether this instance records anything
+	 */
+	boolean enabled();
+
+	/**
+	 * Returns the current value of a nanosecond clock, if this instance
+	 * records anything; else {@code 0L}.
+	 *
+	 * @return the current value of a nanosecond clock or {@code 0L}
+	 * @see System#nanoTime()
+	 */
+	long clock();
+
+	/**
+	 * Records the entrance of a private monitor.
+	 *
+	 * @param since a clock value taken before waiting on the monitor
+	 */
+	void monitorEntered(long since);
+
+	/**
+	 * Records the acquisition of a file lock.
+	 *
+	 * @param since a clock value taken before waiting on the lock
+	 */
+	void fileLocked(long since);
+
+	/**
+	 * Records a write.
+	 *
+	 * @param bytes the number of written bytes
+	 * @param since a clock value taken before writing
+	 */
+	void written(long bytes, long since);
+
+	/**
+	 * Records bytes that are dismissed rather than written, e.g. for
+	 * a rejected file descriptor.
+	 *
+	 * @param bytes the number of dismissed bytes
+	 */
+	void discarded(long bytes);
+
+	/**
+	 * Records a force of written changes to the storage device.
+	 *
+	 * @param since a clock value taken before forcing
+	 */
+	void forced(long since);
+
+	/**
+	 * Returns a forcer that records every force of the passed forcer.
+	 *
+	 * @param forcer a forcer
+	 * @param <T> the type of a target of forcing
+	 * @return a recording forcer
+	 */
+	default <T> GroupCommitter.Forcer<T> timed(
+					GroupCommitter.Forcer<T> forcer)
+	{
+		Objects.requireNonNull(forcer, "forcer");
+		return forcible -> {
+			final long since = clock();
+			forcer.force(forcible);
+			forced(since);
+		};
+	}
+
+	/** Unregisters this instance, if it is registered. */
+	@Override
+	void close();
+}
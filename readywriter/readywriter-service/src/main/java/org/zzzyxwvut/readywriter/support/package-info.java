@@ -0,0 +1,2 @@
+/** Provides support for implementations of sink-writing service providers. */
+package org.zzzyxwvut.readywriter.support;
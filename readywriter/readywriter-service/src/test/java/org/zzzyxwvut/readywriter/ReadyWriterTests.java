@@ -1,20 +1,58 @@
 package org.zzzyxwvut.readywriter;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
@@ -22,9 +60,20 @@ import org.junit.jupiter.api.function.Executable;
 import org.zzzyxwvut.readywriter.ReadyWriter.Kind;
 import org.zzzyxwvut.readywriter.ReadyWriter.Visitor;
 import org.zzzyxwvut.readywriter.annotation.Namable;
+import org.zzzyxwvut.readywriter.service.AsyncReadyWriter;
+import org.zzzyxwvut.readywriter.service.CompressingReadyWriter;
+import org.zzzyxwvut.readywriter.service.FanOutReadyWriter;
 import org.zzzyxwvut.readywriter.service.Lookup.DefaultReadyWriter;
 import org.zzzyxwvut.readywriter.service.Lookup.DefaultVisitor;
 import org.zzzyxwvut.readywriter.service.Lookup;
+import org.zzzyxwvut.readywriter.service.PathWriterVisitor;
+import org.zzzyxwvut.readywriter.service.RecordFormat;
+import org.zzzyxwvut.readywriter.service.RecordReader;
+import org.zzzyxwvut.readywriter.support.ByteBuffers;
+import org.zzzyxwvut.readywriter.support.DurabilityTracker;
+import org.zzzyxwvut.readywriter.support.GroupCommitter;
+import org.zzzyxwvut.readywriter.support.MessageEncoder;
+import org.zzzyxwvut.readywriter.support.WriterMetrics;
 
 public class ReadyWriterTests
 {
@@ -41,6 +90,43 @@ public class ReadyWriterTests
 		assertTrue(Lookup.names().isEmpty());
 	}
 
+	@Test
+	public void testCachingOfProviders()
+	{
+		final List<String> names = Lookup.names();
+		assertSame(names, Lookup.names());
+		Lookup.invalidate();
+		assertNotSame(names, Lookup.names());
+		assertEquals(names, Lookup.names());
+	}
+
+	@Test
+	public void testRecordingOfLookupEvents() throws IOException
+	{
+		final Path dump = Files.createTempFile("jrw_", ".jfr");
+
+		try (Recording recording = new Recording()) {
+			recording.enable("org.zzzyxwvut.readywriter.Lookup")
+				.withThreshold(Duration.ZERO);
+			recording.start();
+			Lookup.readyWriter("org.foo.AlphaProvider",
+						new DefaultVisitor(Kind.OTHER));
+			recording.stop();
+			recording.dump(dump);
+
+			final List<RecordedEvent> events = RecordingFile
+				.readAllEvents(dump);
+			assertEquals(1, events.size());
+			assertEquals("org.foo.AlphaProvider", events.get(0)
+				.getString("providerName"));
+			assertEquals(DefaultVisitor.class.getName(), events.get(0)
+				.getClass("visitor")
+				.getName());
+		} finally {
+			Files.delete(dump);
+		}
+	}
+
 	@Test
 	public void testNewInstanceTransition()
 	{
@@ -85,6 +171,615 @@ public class ReadyWriterTests
 			.start();
 	}	/* Cf. JLS-11, $17.5.3. */
 
+	@Test
+	public void testDefaultBatchWriting()
+	{
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		final ReadyWriter writer = new DefaultReadyWriter(
+						new CandidateWriter(
+					new CandidateWriterVisitor(stream,
+						StandardCharsets.UTF_8)));
+		Lookup.batchMessager()
+			.apply(List.of("foo", new StringBuilder("bar")))
+			.accept(writer);
+		Lookup.forcingBatchMessager()
+			.apply(List.of("baz", "quux"))
+			.accept(writer);
+		assertArrayEquals("foobarbazquux"
+				.getBytes(StandardCharsets.UTF_8),
+			stream.toByteArray());
+	}
+
+	@Test
+	public void testDefaultWritingOfBytes()
+	{
+		final byte[] bytes = { 'f', 'o', 'o', (byte) 0xe9, 0, (byte) 0xff };
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		final ReadyWriter writer = new DefaultReadyWriter(
+						new CandidateWriter(
+					new CandidateWriterVisitor(stream,
+						StandardCharsets.ISO_8859_1)));
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		writer.write(buffer);
+		assertFalse(buffer.hasRemaining());
+		writer.writeAndForce(bytes, 1, 4);
+		assertArrayEquals(new byte[] {
+				'f', 'o', 'o', (byte) 0xe9, 0, (byte) 0xff,
+				'o', 'o', (byte) 0xe9, 0
+			}, stream.toByteArray());
+	}
+
+	@Test
+	public void testPoolingOfMessageEncoders()
+	{
+		final MessageEncoder.Pool pool = MessageEncoder.pool(
+						StandardCharsets.UTF_8);
+		assertSame(pool, MessageEncoder.pool(StandardCharsets.UTF_8));
+		assertNotSame(pool, MessageEncoder.pool(
+					StandardCharsets.ISO_8859_1));
+
+		/* Use a pool that no writer shares. */
+		final MessageEncoder.Pool unshared = MessageEncoder.pool(
+						StandardCharsets.UTF_16BE);
+		final MessageEncoder other = unshared.acquire();
+		assertNotSame(other, unshared.acquire());
+		unshared.release(other);
+		assertSame(other, unshared.acquire());
+
+		final MessageEncoder encoder = pool.acquire();
+
+		/* An outsize buffer is only kept until the next message. */
+		final String outsize = "\u00e9".repeat(1 << 20);
+		assertEquals(2 << 20, encoder.encode(outsize).remaining());
+		final ByteBuffer buffer = encoder.encode("foo");
+		assertEquals(3, buffer.remaining());
+		assertTrue(buffer.capacity() <= 1 << 20);
+	}
+
+	@Test
+	public void testRecordingOfMetrics() throws IOException, JMException
+	{
+		final MBeanServer server = ManagementFactory
+			.getPlatformMBeanServer();
+		final ObjectName pattern = new ObjectName(
+				"org.zzzyxwvut.readywriter:type=WriterStatistics,"
+				+ "target=\"candidate\",*");
+		final WriterMetrics metrics = WriterMetrics.of(this,
+					CandidateWriter.class, "candidate",
+								true);
+		assertTrue(metrics.enabled());
+		assertTrue(server.queryNames(pattern, null).isEmpty());
+
+		final long since = metrics.clock();
+		metrics.monitorEntered(since);
+		metrics.written(8L, since);
+		metrics.discarded(3L);
+		metrics.<Object>timed(target -> { }).force(null);
+
+		final Set<ObjectName> names = server.queryNames(pattern, null);
+		assertEquals(1, names.size());
+
+		final ObjectName name = names.iterator().next();
+		assertEquals("\"org.zzzyxwvut.readywriter.CandidateWriter\"",
+						name.getKeyProperty("name"));
+		assertEquals(8L, server.getAttribute(name, "WrittenBytes"));
+		assertEquals(3L, server.getAttribute(name, "DiscardedBytes"));
+		assertEquals(1L, ((CompositeData) server.getAttribute(name,
+						"ForceLatency"))
+			.get("count"));
+		assertEquals(0L, ((CompositeData) server.getAttribute(name,
+						"FileLockWaitLatency"))
+			.get("count"));
+		metrics.close();
+		assertTrue(server.queryNames(pattern, null).isEmpty());
+		assertFalse(WriterMetrics.of(this, CandidateWriter.class,
+						"candidate", false)
+			.enabled());
+	}
+
+	@Test
+	public void testUnregisteringOfUnreachableMetrics()
+				throws InterruptedException, JMException
+	{
+		final MBeanServer server = ManagementFactory
+			.getPlatformMBeanServer();
+		final ObjectName pattern = new ObjectName(
+				"org.zzzyxwvut.readywriter:type=WriterStatistics,"
+				+ "target=\"abandoned\",*");
+		Object owner = new Object();
+		WriterMetrics.of(owner, CandidateWriter.class, "abandoned",
+								true)
+			.clock();
+		assertEquals(1, server.queryNames(pattern, null).size());
+		owner = null;
+
+		for (int i = 0; i < 100 && !server.queryNames(pattern, null)
+							.isEmpty(); ++i) {
+			System.gc();
+			Thread.sleep(10L);
+		}
+
+		assertTrue(server.queryNames(pattern, null).isEmpty());
+	}
+
+	@Test
+	public void testReleasingOfForcedTrackers()
+				throws InterruptedException, IOException
+	{
+		final CountDownLatch forced = new CountDownLatch(1);
+		DurabilityTracker<Object> tracker = new DurabilityTracker<>(
+					Long.MAX_VALUE, Long.MAX_VALUE,
+					Duration.ofMillis(10L),
+					new GroupCommitter<>(target ->
+						forced.countDown()));
+		final WeakReference<?> reference = new WeakReference<>(
+								tracker);
+		assertFalse(tracker.written(1L, 1L, new Object()));
+		assertTrue(forced.await(10L, TimeUnit.SECONDS));
+		tracker = null;
+
+		/* No longer referenced by the scheduler, once forced. */
+		for (int i = 0; i < 100 && reference.get() != null; ++i) {
+			System.gc();
+			Thread.sleep(10L);
+		}
+
+		assertNull(reference.get());
+	}
+
+	@Test
+	public void testAsynchronousWriting() throws InterruptedException
+	{
+		final int threads = 4;
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		final AsyncReadyWriter writer = new AsyncReadyWriter(
+						new CandidateWriter(
+					new CandidateWriterVisitor(stream,
+						StandardCharsets.UTF_8)),
+					8, AsyncReadyWriter.Overflow.BLOCK);
+		final Thread[] producers = new Thread[threads];
+
+		for (int i = 0; i < threads; ++i) {
+			producers[i] = new Thread(() -> {
+				for (int j = 0; j < 256; ++j)
+					writer.write("a");
+			});
+			producers[i].start();
+		}
+
+		for (final Thread producer : producers)
+			producer.join();
+
+		writer.writeAndForce("b");
+		assertEquals(threads * 256 + 1, stream.size());
+		writer.close();
+		assertThrows(IllegalStateException.class,
+			() -> writer.write("c"));
+	}
+
+	@Test
+	public void testClosingOfAsynchronousWriterUnderContention()
+						throws InterruptedException
+	{
+		final int threads = 4;
+
+		/* Close while producers are between checking and queuing. */
+		for (int round = 0; round < 64; ++round) {
+			final ByteArrayOutputStream stream =
+						new ByteArrayOutputStream();
+			final AsyncReadyWriter writer = new AsyncReadyWriter(
+						new CandidateWriter(
+					new CandidateWriterVisitor(stream,
+						StandardCharsets.UTF_8)),
+					2, AsyncReadyWriter.Overflow.BLOCK);
+			final AtomicInteger accepted = new AtomicInteger();
+			final Thread[] producers = new Thread[threads];
+
+			for (int i = 0; i < threads; ++i) {
+				final boolean forcing = i % 2 == 0;
+				producers[i] = new Thread(() -> {
+					try {
+						while (true) {
+							if (forcing)
+								writer.writeAndForce(
+									"a");
+							else
+								writer.write("a");
+
+							accepted.incrementAndGet();
+						}
+					} catch (final IllegalStateException
+								ignored) {
+						/* Closed. */
+					}
+				});
+				producers[i].start();
+			}
+
+			while (accepted.get() < 16)
+				Thread.onSpinWait();
+
+			writer.close();
+
+			/* No forcing producer is left waiting. */
+			for (final Thread producer : producers) {
+				producer.join(5_000L);
+				assertFalse(producer.isAlive());
+			}
+
+			/* Every accepted message is written. */
+			assertEquals(accepted.get(), stream.size());
+		}
+	}
+
+	@Test
+	public void testAsynchronousWritingWithThreadFactory()
+	{
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		final List<Thread> drainers = new ArrayList<>();
+		final ThreadFactory threadFactory = AsyncReadyWriter
+			.virtualThreadFactory()
+			.orElseGet(() -> runnable -> {
+				final Thread thread = new Thread(runnable,
+								"drainer");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+		try (AsyncReadyWriter writer = new AsyncReadyWriter(
+						new CandidateWriter(
+					new CandidateWriterVisitor(stream,
+						StandardCharsets.UTF_8)),
+					8, AsyncReadyWriter.Overflow.BLOCK,
+					runnable -> {
+				final Thread thread = threadFactory
+					.newThread(runnable);
+				drainers.add(thread);
+				return thread;
+			})) {
+			writer.write("a");
+			writer.writeAndForce("b");
+			assertEquals(2, stream.size());
+		}
+
+		assertEquals(1, drainers.size());
+		assertTrue(drainers.get(0).isDaemon());
+		assertFalse(drainers.get(0).isAlive());
+	}
+
+	@Test
+	public void testCompressingWritingAndClosing()
+				throws InterruptedException
+	{
+		final AtomicInteger forces = new AtomicInteger();
+
+		/* Any write with a closed service provider shall fail. */
+		final class ClosableWriter implements ReadyWriter
+		{
+			private volatile boolean closed;
+
+			@Override
+			public void write(String message)
+			{
+				if (closed)
+					throw new UncheckedIOException(
+						new IOException("Closed"));
+			}
+
+			@Override
+			public void writeAndForce(String message)
+			{
+				write(message);
+				forces.incrementAndGet();
+			}
+
+			@Override
+			public void close()		{ closed = true; }
+
+			@Override
+			public Kind kind()		{ return Kind.OTHER; }
+
+			@Override
+			public <T extends Visitor<? extends T>>
+				Optional<ReadyWriter> accept(T visitor)
+			{
+				return Optional.empty();
+			}
+		}
+
+		for (int i = 0; i < 32; ++i) {
+			final ReadyWriter writer = new CompressingReadyWriter(
+					new ClosableWriter(),
+					StandardCharsets.UTF_8, 8,
+					Deflater.BEST_SPEED,
+					ForkJoinPool.commonPool());
+			final List<Throwable> errors = new ArrayList<>();
+			final Thread forcer = new Thread(() -> {
+				try {
+					for (;;)
+						writer.writeAndForce("abc");
+				} catch (final IllegalStateException ignored) {
+					/* Closed. */
+				} catch (final RuntimeException e) {
+					errors.add(e);
+				}
+			});
+			forces.set(0);
+			forcer.start();
+
+			while (forces.get() == 0 && forcer.isAlive())
+				Thread.onSpinWait();
+
+			writer.close();
+			forcer.join();
+			assertEquals(List.of(), errors);
+		}
+	}
+
+	@Test
+	public void testCompressingWriting() throws InterruptedException,
+								IOException
+	{
+		final int threads = 4;
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		final ReadyWriter writer = new CompressingReadyWriter(
+						new CandidateWriter(
+					new CandidateWriterVisitor(stream,
+						StandardCharsets.UTF_8)),
+					StandardCharsets.UTF_8, 64,
+					Deflater.BEST_SPEED,
+					ForkJoinPool.commonPool());
+		final Thread[] producers = new Thread[threads];
+
+		for (int i = 0; i < threads; ++i) {
+			producers[i] = new Thread(() -> {
+				for (int j = 0; j < 256; ++j)
+					writer.write("abcdefg\n");
+			});
+			producers[i].start();
+		}
+
+		for (final Thread producer : producers)
+			producer.join();
+
+		writer.writeAndForce(ByteBuffer.wrap("xyz"
+				.getBytes(StandardCharsets.UTF_8)));
+		final int forcedSize = stream.size();
+		final String last = "\u0109u \u015di?\n";
+		writer.write(last);
+		writer.close();
+		assertTrue(forcedSize > 0);
+		assertThrows(IllegalStateException.class,
+			() -> writer.write("c"));
+
+		final byte[] expected = "abcdefg\n"
+			.repeat(threads * 256)
+			.concat("xyz")
+			.concat(last)
+			.getBytes(StandardCharsets.UTF_8);
+
+		try (InputStream input = new GZIPInputStream(
+				new ByteArrayInputStream(
+					stream.toByteArray()))) {
+			assertArrayEquals(expected, input.readAllBytes());
+		}
+
+		/* Every member can be decompressed on its own. */
+		try (InputStream input = new GZIPInputStream(
+				new ByteArrayInputStream(
+					stream.toByteArray(), 0,
+						forcedSize))) {
+			assertEquals(expected.length - last.getBytes(
+						StandardCharsets.UTF_8).length,
+					input.readAllBytes().length);
+		}
+	}
+
+	@Test
+	public void testForcingWithoutWriting()
+	{
+		final List<Integer> lengths = Collections.synchronizedList(
+							new ArrayList<>());
+		final AtomicInteger forces = new AtomicInteger();
+
+		/* Any forcing shall not write an empty message. */
+		final class ForcibleWriter implements ReadyWriter
+		{
+			@Override
+			public void write(String message)
+			{
+				lengths.add(message.length());
+			}
+
+			@Override
+			public void writeAndForce(String message)
+			{
+				write(message);
+				forces.incrementAndGet();
+			}
+
+			@Override
+			public void write(ByteBuffer buffer)
+			{
+				lengths.add(buffer.remaining());
+				buffer.position(buffer.limit());
+			}
+
+			@Override
+			public void writeAndForce(ByteBuffer buffer)
+			{
+				write(buffer);
+				forces.incrementAndGet();
+			}
+
+			@Override
+			public void force()	{ forces.incrementAndGet(); }
+
+			@Override
+			public Kind kind()		{ return Kind.OTHER; }
+
+			@Override
+			public <T extends Visitor<? extends T>>
+				Optional<ReadyWriter> accept(T visitor)
+			{
+				return Optional.empty();
+			}
+		}
+
+		final ReadyWriter compressing = new CompressingReadyWriter(
+					new ForcibleWriter(),
+					StandardCharsets.UTF_8, 8,
+					Deflater.BEST_SPEED,
+					ForkJoinPool.commonPool());
+		compressing.writeAndForce("abc");
+		compressing.force();
+		compressing.close();
+		assertEquals(2, forces.getAndSet(0));
+		assertFalse(lengths.contains(0));
+		assertEquals(1, lengths.size());
+		lengths.clear();
+
+		final AsyncReadyWriter async = new AsyncReadyWriter(
+					new ForcibleWriter(), 8,
+					AsyncReadyWriter.Overflow.BLOCK);
+		async.write("a");
+		async.force();
+		assertEquals(List.of(1), lengths);
+		assertEquals(1, forces.getAndSet(0));
+		async.close();
+		lengths.clear();
+
+		final FanOutReadyWriter fanOut = new FanOutReadyWriter(
+					List.of(new ForcibleWriter(),
+						new ForcibleWriter()),
+					StandardCharsets.UTF_8);
+		fanOut.force();
+		fanOut.close();
+		assertEquals(List.of(), lengths);
+		assertEquals(2, forces.get());
+	}
+
+	@Test
+	public void testFanningOutOfMessages()
+	{
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		final OutputStream brokenStream = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException
+			{
+				throw new IOException("Broken");
+			}
+		};
+		final List<String> writes = Collections.synchronizedList(
+							new ArrayList<>());
+		final OutputStream recordingStream = new OutputStream() {
+			@Override
+			public void write(int b)
+			{
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] b, int offset, int length)
+			{
+				writes.add(new String(b, offset, length,
+						StandardCharsets.UTF_8));
+			}
+		};
+		final FanOutReadyWriter writer = new FanOutReadyWriter(List.of(
+				new CandidateWriter(new CandidateWriterVisitor(
+					stream, StandardCharsets.UTF_8)),
+				new CandidateWriter(new CandidateWriterVisitor(
+					brokenStream, StandardCharsets.UTF_8)),
+				new CandidateWriter(new CandidateWriterVisitor(
+					recordingStream,
+					StandardCharsets.UTF_8))),
+						StandardCharsets.UTF_8);
+		assertEquals(3, writer.sinks());
+		writer.write("a");
+		writer.writeAll(List.of("b", "c"));
+		writer.write(ByteBuffer.wrap("d".getBytes(
+						StandardCharsets.UTF_8)));
+
+		final RuntimeException forced = assertThrows(
+					RuntimeException.class,
+					() -> writer.writeAndForce("e"));
+		assertEquals("abcde", stream.toString(StandardCharsets.UTF_8));
+		assertEquals(List.of("a", "b", "c", "d", "e"), writes);
+		assertEquals(1, forced.getSuppressed().length);
+		assertTrue(forced.getSuppressed()[0]
+					instanceof UncheckedIOException);
+
+		/* Failures of unforced writes are deferred. */
+		final RuntimeException deferred = assertThrows(
+					RuntimeException.class, writer::flush);
+		assertTrue(deferred.getMessage().endsWith("[1]"));
+		assertDoesNotThrow(writer::flush);
+		writer.close();
+		assertThrows(IllegalStateException.class,
+			() -> writer.write("f"));
+		assertThrows(IllegalArgumentException.class,
+			() -> FanOutReadyWriter.of(List.of(
+				new PathWriterVisitor(Path.of("unwritten"),
+					true, StandardCharsets.ISO_8859_1,
+					ByteOrder.BIG_ENDIAN),
+				new DefaultVisitor(Kind.FILE_DESCRIPTOR))));
+	}
+
+	@Test
+	public void testReadingOfRecords() throws IOException
+	{
+		final RecordFormat format = new RecordFormat(true, false);
+		final RecordFormat.Framer framer = format.framer(
+						ByteOrder.LITTLE_ENDIAN);
+		final byte[] large = new byte[RecordReader.BUFFER_BYTES * 2];
+		Arrays.fill(large, (byte) 'x');
+		final ByteBuffer[] framed = framer.frame(new ByteBuffer[] {
+			ByteBuffer.wrap("foo".getBytes(StandardCharsets.UTF_8)),
+			ByteBuffer.wrap(large),
+			ByteBuffer.wrap("bar".getBytes(StandardCharsets.UTF_8))
+		});
+		framer.stamp(framed);
+		assertEquals(3L, framer.sequence());
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		final WritableByteChannel channel = Channels.newChannel(stream);
+
+		for (final ByteBuffer buffer : framed)
+			ByteBuffers.writeFully(channel, buffer);
+
+		/* Tear a trailing header. */
+		stream.write(new byte[] { 9, 0, 0 });
+		final byte[] bytes = stream.toByteArray();
+		assertEquals(3, ByteBuffer.wrap(bytes)
+			.order(ByteOrder.LITTLE_ENDIAN)
+			.getInt(0));
+
+		try (RecordReader reader = format.reader(Channels.newChannel(
+					new ByteArrayInputStream(bytes)),
+					ByteOrder.LITTLE_ENDIAN)) {
+			assertThrows(IllegalStateException.class,
+							reader::length);
+			assertTrue(reader.next());
+			assertEquals(1L, reader.sequence());
+			assertEquals(0L, reader.timestamp());
+			assertEquals("foo", StandardCharsets.UTF_8.decode(
+						reader.payload()).toString());
+
+			/* Skip a payload beyond the buffer. */
+			assertTrue(reader.next());
+			assertEquals(2L, reader.sequence());
+			assertEquals(large.length, reader.length());
+			assertEquals(15L, reader.position());
+			assertTrue(reader.next());
+			assertEquals(3L, reader.sequence());
+			assertEquals(27L + large.length, reader.position());
+			assertEquals("bar", StandardCharsets.UTF_8.decode(
+						reader.payload()).toString());
+			assertFalse(reader.next());
+			assertFalse(reader.next());
+		}
+	}
+
 	private static Function<ReadyWriter,
 				Function<DefaultVisitor, Runnable>> runner()
 	{
@@ -147,6 +842,36 @@ public class ReadyWriterTests
 			}
 		}
 
+		@Override
+		public void write(ByteBuffer buffer)
+		{
+			Objects.requireNonNull(buffer, "buffer");
+			final byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+
+			try {
+				synchronized (lock) {
+					stream.write(bytes);
+				}
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void writeAndForce(ByteBuffer buffer)
+		{
+			write(buffer);
+
+			try {
+				synchronized (lock) {
+					stream.flush();
+				}
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
 		@Override
 		public Kind kind()	{ return Kind.OTHER; }
 